@@ -0,0 +1,57 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Helpers of benchmarks.
+ */
+class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    static File createTempDir() throws IOException {
+        return Files.createTempDirectory("xraft-benchmarks").toFile();
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            throw new IllegalStateException("failed to delete " + file);
+        }
+    }
+
+    /**
+     * Create command of random bytes.
+     *
+     * @param size size
+     * @return command bytes
+     */
+    static byte[] command(int size) {
+        byte[] commandBytes = new byte[size];
+        new Random(size).nextBytes(commandBytes);
+        return commandBytes;
+    }
+
+    static List<Entry> entries(int fromIndex, int count, byte[] commandBytes) {
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            entries.add(new GeneralEntry(i, 1, commandBytes));
+        }
+        return entries;
+    }
+
+}
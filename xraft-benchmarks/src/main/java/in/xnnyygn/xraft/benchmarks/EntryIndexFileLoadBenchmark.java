@@ -0,0 +1,62 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.sequence.EntryIndexFile;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load time of {@link EntryIndexFile} against entry count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EntryIndexFileLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int entryCount;
+
+    @Param({"RANDOM_ACCESS_FILE", "FILE_CHANNEL"})
+    private SeekableFileType fileType;
+
+    private File dir;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Benchmarks.createTempDir();
+        file = new File(dir, "entries.idx");
+        EntryIndexFile entryIndexFile = new EntryIndexFile(fileType.open(file, "rw"));
+        for (int i = 1; i <= entryCount; i += 4096) {
+            List<Entry> entries = Benchmarks.entries(i, Math.min(4096, entryCount - i + 1), new byte[0]);
+            long[] offsets = new long[entries.size()];
+            for (int j = 0; j < offsets.length; j++) {
+                offsets[j] = (i + j) * 20L;
+            }
+            entryIndexFile.appendEntryIndexes(entries, offsets);
+        }
+        entryIndexFile.close();
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        EntryIndexFile entryIndexFile = new EntryIndexFile(fileType.open(file, "rw"));
+        int count = entryIndexFile.getEntryIndexCount();
+        entryIndexFile.close();
+        return count;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Benchmarks.delete(dir);
+    }
+
+}
@@ -0,0 +1,74 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import in.xnnyygn.xraft.core.log.DurabilityMode;
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.sequence.EntriesFile;
+import in.xnnyygn.xraft.core.log.sequence.EntryIndexFile;
+import in.xnnyygn.xraft.core.log.sequence.FileEntrySequence;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append and commit of {@link FileEntrySequence}, one batch per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FileEntrySequenceBenchmark {
+
+    @Param({"64", "1024"})
+    private int entrySize;
+
+    @Param({"1", "16", "256"})
+    private int batchSize;
+
+    @Param({"RANDOM_ACCESS_FILE", "FILE_CHANNEL"})
+    private SeekableFileType fileType;
+
+    @Param({"NONE", "FSYNC_PER_BATCH"})
+    private DurabilityMode durabilityMode;
+
+    @Param({"0", "4194304"})
+    private int preallocateSize;
+
+    private File dir;
+    private FileEntrySequence sequence;
+    private byte[] commandBytes;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        dir = Benchmarks.createTempDir();
+        NodeConfig config = new NodeConfig();
+        config.setFileType(fileType);
+        config.setLogDurabilityMode(durabilityMode);
+        config.setLogPreallocateSize(preallocateSize);
+        EntriesFile entriesFile = new EntriesFile(fileType.open(new File(dir, "entries.bin"), "rw"), preallocateSize);
+        EntryIndexFile entryIndexFile = new EntryIndexFile(fileType.open(new File(dir, "entries.idx"), "rw"), preallocateSize);
+        sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1, config);
+        commandBytes = Benchmarks.command(entrySize);
+    }
+
+    @Benchmark
+    public int appendAndCommit() {
+        List<Entry> entries = Benchmarks.entries(sequence.getNextLogIndex(), batchSize, commandBytes);
+        sequence.append(entries);
+        sequence.commit(sequence.getLastLogIndex());
+        return sequence.getCommitIndex();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        sequence.close();
+        Benchmarks.delete(dir);
+    }
+
+}
@@ -0,0 +1,105 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import com.google.common.eventbus.EventBus;
+import in.xnnyygn.xraft.core.log.FileLog;
+import in.xnnyygn.xraft.core.log.statemachine.EmptyStateMachine;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup of {@link FileLog} with a large generation, and cost of snapshot replacement by remaining entries.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileLogBenchmark {
+
+    private static FileLog createLog(File dir, int entryCount, int entrySize) {
+        FileLog log = new FileLog(dir, new EventBus(), new NodeConfig());
+        log.setStateMachine(new EmptyStateMachine());
+        byte[] commandBytes = Benchmarks.command(entrySize);
+        for (int i = 1; i <= entryCount; i++) {
+            log.appendEntry(1, commandBytes);
+            if (i % 1024 == 0 || i == entryCount) {
+                log.advanceCommitIndex(i, 1);
+            }
+        }
+        return log;
+    }
+
+    @State(Scope.Thread)
+    public static class StartupState {
+
+        @Param({"100000", "1000000"})
+        private int entryCount;
+
+        @Param({"64", "1024"})
+        private int entrySize;
+
+        private File dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Benchmarks.createTempDir();
+            createLog(dir, entryCount, entrySize).close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Benchmarks.delete(dir);
+        }
+
+    }
+
+    @Benchmark
+    public int startup(StartupState state) {
+        FileLog log = new FileLog(state.dir, new EventBus(), new NodeConfig());
+        int nextIndex = log.getNextIndex();
+        log.close();
+        return nextIndex;
+    }
+
+    @State(Scope.Thread)
+    public static class SnapshotState {
+
+        @Param({"100000"})
+        private int entryCount;
+
+        @Param({"64", "1024"})
+        private int entrySize;
+
+        @Param({"1000", "50000"})
+        private int remainingCount;
+
+        private File dir;
+        private FileLog log;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            dir = Benchmarks.createTempDir();
+            log = createLog(dir, entryCount, entrySize);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            log.close();
+            Benchmarks.delete(dir);
+        }
+
+    }
+
+    @Benchmark
+    public int replaceSnapshot(SnapshotState state) {
+        // generate snapshot then replace it, remaining entries are moved to new generation
+        state.log.generateSnapshot(state.entryCount - state.remainingCount, Collections.emptySet());
+        return state.log.getNextIndex();
+    }
+
+}
@@ -0,0 +1,65 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.sequence.DirectMemoryEntrySequence;
+import in.xnnyygn.xraft.core.log.sequence.EntrySequence;
+import in.xnnyygn.xraft.core.log.sequence.MemoryEntrySequence;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of memory entry sequences, on heap and off heap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryEntrySequenceBenchmark {
+
+    @Param({"100000"})
+    private int entryCount;
+
+    @Param({"64", "1024"})
+    private int entrySize;
+
+    @Param({"1", "16", "256"})
+    private int batchSize;
+
+    @Param({"heap", "direct"})
+    private String type;
+
+    private EntrySequence sequence;
+    private byte[] commandBytes;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        sequence = "heap".equals(type) ? new MemoryEntrySequence() : new DirectMemoryEntrySequence(1, 4 * 1024 * 1024);
+        commandBytes = Benchmarks.command(entrySize);
+        for (int i = 1; i <= entryCount; i += 1024) {
+            sequence.append(Benchmarks.entries(i, Math.min(1024, entryCount - i + 1), commandBytes));
+        }
+    }
+
+    @Benchmark
+    public int append() {
+        sequence.append(Benchmarks.entries(sequence.getNextLogIndex(), batchSize, commandBytes));
+        return sequence.getNextLogIndex();
+    }
+
+    @Benchmark
+    public List<Entry> subList() {
+        int fromIndex = 1 + ThreadLocalRandom.current().nextInt(entryCount - batchSize + 1);
+        return sequence.subList(fromIndex, fromIndex + batchSize);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        sequence.close();
+    }
+
+}
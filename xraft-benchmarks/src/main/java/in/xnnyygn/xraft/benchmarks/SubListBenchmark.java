@@ -0,0 +1,71 @@
+package in.xnnyygn.xraft.benchmarks;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.sequence.EntriesFile;
+import in.xnnyygn.xraft.core.log.sequence.EntryIndexFile;
+import in.xnnyygn.xraft.core.log.sequence.FileEntrySequence;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range reads of committed entries by {@link FileEntrySequence#subList(int, int)}, entry cache disabled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SubListBenchmark {
+
+    @Param({"100000"})
+    private int entryCount;
+
+    @Param({"64", "1024"})
+    private int entrySize;
+
+    @Param({"1", "16", "256"})
+    private int rangeSize;
+
+    @Param({"RANDOM_ACCESS_FILE", "FILE_CHANNEL"})
+    private SeekableFileType fileType;
+
+    private File dir;
+    private FileEntrySequence sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Benchmarks.createTempDir();
+        NodeConfig config = new NodeConfig();
+        config.setFileType(fileType);
+        config.setLogEntryCacheSize(0);
+        EntriesFile entriesFile = new EntriesFile(fileType.open(new File(dir, "entries.bin"), "rw"));
+        EntryIndexFile entryIndexFile = new EntryIndexFile(fileType.open(new File(dir, "entries.idx"), "rw"));
+        sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1, config);
+        byte[] commandBytes = Benchmarks.command(entrySize);
+        for (int i = 1; i <= entryCount; i += 1024) {
+            sequence.append(Benchmarks.entries(i, Math.min(1024, entryCount - i + 1), commandBytes));
+            sequence.commit(sequence.getLastLogIndex());
+        }
+    }
+
+    @Benchmark
+    public List<Entry> subList() {
+        int fromIndex = 1 + ThreadLocalRandom.current().nextInt(entryCount - rangeSize + 1);
+        return sequence.subList(fromIndex, fromIndex + rangeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequence.close();
+        Benchmarks.delete(dir);
+    }
+
+}
@@ -4045,6 +4045,16 @@ public final class Protos {
      * <code>bool success = 3;</code>
      */
     boolean getSuccess();
+
+    /**
+     * <code>int32 conflict_term = 4;</code>
+     */
+    int getConflictTerm();
+
+    /**
+     * <code>int32 conflict_index = 5;</code>
+     */
+    int getConflictIndex();
   }
   /**
    * Protobuf type {@code AppendEntriesResult}
@@ -4062,6 +4072,8 @@ public final class Protos {
       rpcMessageId_ = "";
       term_ = 0;
       success_ = false;
+      conflictTerm_ = 0;
+      conflictIndex_ = 0;
     }
 
     @java.lang.Override
@@ -4104,6 +4116,16 @@ public final class Protos {
               success_ = input.readBool();
               break;
             }
+            case 32: {
+
+              conflictTerm_ = input.readInt32();
+              break;
+            }
+            case 40: {
+
+              conflictIndex_ = input.readInt32();
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -4188,6 +4210,24 @@ public final class Protos {
       return success_;
     }
 
+    public static final int CONFLICT_TERM_FIELD_NUMBER = 4;
+    private int conflictTerm_;
+    /**
+     * <code>int32 conflict_term = 4;</code>
+     */
+    public int getConflictTerm() {
+      return conflictTerm_;
+    }
+
+    public static final int CONFLICT_INDEX_FIELD_NUMBER = 5;
+    private int conflictIndex_;
+    /**
+     * <code>int32 conflict_index = 5;</code>
+     */
+    public int getConflictIndex() {
+      return conflictIndex_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -4211,6 +4251,12 @@ public final class Protos {
       if (success_ != false) {
         output.writeBool(3, success_);
       }
+      if (conflictTerm_ != 0) {
+        output.writeInt32(4, conflictTerm_);
+      }
+      if (conflictIndex_ != 0) {
+        output.writeInt32(5, conflictIndex_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -4231,6 +4277,14 @@ public final class Protos {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(3, success_);
       }
+      if (conflictTerm_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(4, conflictTerm_);
+      }
+      if (conflictIndex_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(5, conflictIndex_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -4253,6 +4307,10 @@ public final class Protos {
           == other.getTerm());
       result = result && (getSuccess()
           == other.getSuccess());
+      result = result && (getConflictTerm()
+          == other.getConflictTerm());
+      result = result && (getConflictIndex()
+          == other.getConflictIndex());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -4271,6 +4329,10 @@ public final class Protos {
       hash = (37 * hash) + SUCCESS_FIELD_NUMBER;
       hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
           getSuccess());
+      hash = (37 * hash) + CONFLICT_TERM_FIELD_NUMBER;
+      hash = (53 * hash) + getConflictTerm();
+      hash = (37 * hash) + CONFLICT_INDEX_FIELD_NUMBER;
+      hash = (53 * hash) + getConflictIndex();
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -4410,6 +4472,10 @@ public final class Protos {
 
         success_ = false;
 
+        conflictTerm_ = 0;
+
+        conflictIndex_ = 0;
+
         return this;
       }
 
@@ -4439,6 +4505,8 @@ public final class Protos {
         result.rpcMessageId_ = rpcMessageId_;
         result.term_ = term_;
         result.success_ = success_;
+        result.conflictTerm_ = conflictTerm_;
+        result.conflictIndex_ = conflictIndex_;
         onBuilt();
         return result;
       }
@@ -4497,6 +4565,12 @@ public final class Protos {
         if (other.getSuccess() != false) {
           setSuccess(other.getSuccess());
         }
+        if (other.getConflictTerm() != 0) {
+          setConflictTerm(other.getConflictTerm());
+        }
+        if (other.getConflictIndex() != 0) {
+          setConflictIndex(other.getConflictIndex());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -4646,6 +4720,58 @@ public final class Protos {
         onChanged();
         return this;
       }
+
+      private int conflictTerm_ ;
+      /**
+       * <code>int32 conflict_term = 4;</code>
+       */
+      public int getConflictTerm() {
+        return conflictTerm_;
+      }
+      /**
+       * <code>int32 conflict_term = 4;</code>
+       */
+      public Builder setConflictTerm(int value) {
+        
+        conflictTerm_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int32 conflict_term = 4;</code>
+       */
+      public Builder clearConflictTerm() {
+        
+        conflictTerm_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private int conflictIndex_ ;
+      /**
+       * <code>int32 conflict_index = 5;</code>
+       */
+      public int getConflictIndex() {
+        return conflictIndex_;
+      }
+      /**
+       * <code>int32 conflict_index = 5;</code>
+       */
+      public Builder setConflictIndex(int value) {
+        
+        conflictIndex_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int32 conflict_index = 5;</code>
+       */
+      public Builder clearConflictIndex() {
+        
+        conflictIndex_ = 0;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -4766,6 +4892,11 @@ public final class Protos {
      * <code>bool done = 8;</code>
      */
     boolean getDone();
+
+    /**
+     * <code>int64 data_size = 9;</code>
+     */
+    long getDataSize();
   }
   /**
    * Protobuf type {@code InstallSnapshotRpc}
@@ -4788,6 +4919,7 @@ public final class Protos {
       offset_ = 0;
       data_ = com.google.protobuf.ByteString.EMPTY;
       done_ = false;
+      dataSize_ = 0L;
     }
 
     @java.lang.Override
@@ -4859,6 +4991,11 @@ public final class Protos {
               done_ = input.readBool();
               break;
             }
+            case 72: {
+
+              dataSize_ = input.readInt64();
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -5018,6 +5155,15 @@ public final class Protos {
       return done_;
     }
 
+    public static final int DATA_SIZE_FIELD_NUMBER = 9;
+    private long dataSize_;
+    /**
+     * <code>int64 data_size = 9;</code>
+     */
+    public long getDataSize() {
+      return dataSize_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -5056,6 +5202,9 @@ public final class Protos {
       if (done_ != false) {
         output.writeBool(8, done_);
       }
+      if (dataSize_ != 0L) {
+        output.writeInt64(9, dataSize_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -5096,6 +5245,10 @@ public final class Protos {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(8, done_);
       }
+      if (dataSize_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(9, dataSize_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -5128,6 +5281,8 @@ public final class Protos {
           .equals(other.getData());
       result = result && (getDone()
           == other.getDone());
+      result = result && (getDataSize()
+          == other.getDataSize());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -5158,6 +5313,9 @@ public final class Protos {
       hash = (37 * hash) + DONE_FIELD_NUMBER;
       hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
           getDone());
+      hash = (37 * hash) + DATA_SIZE_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getDataSize());
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -5312,6 +5470,8 @@ public final class Protos {
 
         done_ = false;
 
+        dataSize_ = 0L;
+
         return this;
       }
 
@@ -5356,6 +5516,7 @@ public final class Protos {
         result.offset_ = offset_;
         result.data_ = data_;
         result.done_ = done_;
+        result.dataSize_ = dataSize_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -5453,6 +5614,9 @@ public final class Protos {
         if (other.getDone() != false) {
           setDone(other.getDone());
         }
+        if (other.getDataSize() != 0L) {
+          setDataSize(other.getDataSize());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -5950,6 +6114,32 @@ public final class Protos {
         onChanged();
         return this;
       }
+
+      private long dataSize_ ;
+      /**
+       * <code>int64 data_size = 9;</code>
+       */
+      public long getDataSize() {
+        return dataSize_;
+      }
+      /**
+       * <code>int64 data_size = 9;</code>
+       */
+      public Builder setDataSize(long value) {
+        
+        dataSize_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int64 data_size = 9;</code>
+       */
+      public Builder clearDataSize() {
+        
+        dataSize_ = 0L;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -6011,6 +6201,21 @@ public final class Protos {
      * <code>int32 term = 1;</code>
      */
     int getTerm();
+
+    /**
+     * <code>int32 last_index = 2;</code>
+     */
+    int getLastIndex();
+
+    /**
+     * <code>int32 offset = 3;</code>
+     */
+    int getOffset();
+
+    /**
+     * <code>bool done = 4;</code>
+     */
+    boolean getDone();
   }
   /**
    * Protobuf type {@code InstallSnapshotResult}
@@ -6026,6 +6231,9 @@ public final class Protos {
     }
     private InstallSnapshotResult() {
       term_ = 0;
+      lastIndex_ = 0;
+      offset_ = 0;
+      done_ = false;
     }
 
     @java.lang.Override
@@ -6057,6 +6265,21 @@ public final class Protos {
               term_ = input.readInt32();
               break;
             }
+            case 16: {
+
+              lastIndex_ = input.readInt32();
+              break;
+            }
+            case 24: {
+
+              offset_ = input.readInt32();
+              break;
+            }
+            case 32: {
+
+              done_ = input.readBool();
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -6098,6 +6321,33 @@ public final class Protos {
       return term_;
     }
 
+    public static final int LAST_INDEX_FIELD_NUMBER = 2;
+    private int lastIndex_;
+    /**
+     * <code>int32 last_index = 2;</code>
+     */
+    public int getLastIndex() {
+      return lastIndex_;
+    }
+
+    public static final int OFFSET_FIELD_NUMBER = 3;
+    private int offset_;
+    /**
+     * <code>int32 offset = 3;</code>
+     */
+    public int getOffset() {
+      return offset_;
+    }
+
+    public static final int DONE_FIELD_NUMBER = 4;
+    private boolean done_;
+    /**
+     * <code>bool done = 4;</code>
+     */
+    public boolean getDone() {
+      return done_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -6115,6 +6365,15 @@ public final class Protos {
       if (term_ != 0) {
         output.writeInt32(1, term_);
       }
+      if (lastIndex_ != 0) {
+        output.writeInt32(2, lastIndex_);
+      }
+      if (offset_ != 0) {
+        output.writeInt32(3, offset_);
+      }
+      if (done_ != false) {
+        output.writeBool(4, done_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -6128,6 +6387,18 @@ public final class Protos {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(1, term_);
       }
+      if (lastIndex_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(2, lastIndex_);
+      }
+      if (offset_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(3, offset_);
+      }
+      if (done_ != false) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(4, done_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -6146,6 +6417,12 @@ public final class Protos {
       boolean result = true;
       result = result && (getTerm()
           == other.getTerm());
+      result = result && (getLastIndex()
+          == other.getLastIndex());
+      result = result && (getOffset()
+          == other.getOffset());
+      result = result && (getDone()
+          == other.getDone());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -6159,6 +6436,13 @@ public final class Protos {
       hash = (19 * hash) + getDescriptor().hashCode();
       hash = (37 * hash) + TERM_FIELD_NUMBER;
       hash = (53 * hash) + getTerm();
+      hash = (37 * hash) + LAST_INDEX_FIELD_NUMBER;
+      hash = (53 * hash) + getLastIndex();
+      hash = (37 * hash) + OFFSET_FIELD_NUMBER;
+      hash = (53 * hash) + getOffset();
+      hash = (37 * hash) + DONE_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+          getDone());
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -6294,6 +6578,12 @@ public final class Protos {
         super.clear();
         term_ = 0;
 
+        lastIndex_ = 0;
+
+        offset_ = 0;
+
+        done_ = false;
+
         return this;
       }
 
@@ -6321,6 +6611,9 @@ public final class Protos {
       public in.xnnyygn.xraft.core.Protos.InstallSnapshotResult buildPartial() {
         in.xnnyygn.xraft.core.Protos.InstallSnapshotResult result = new in.xnnyygn.xraft.core.Protos.InstallSnapshotResult(this);
         result.term_ = term_;
+        result.lastIndex_ = lastIndex_;
+        result.offset_ = offset_;
+        result.done_ = done_;
         onBuilt();
         return result;
       }
@@ -6372,6 +6665,15 @@ public final class Protos {
         if (other.getTerm() != 0) {
           setTerm(other.getTerm());
         }
+        if (other.getLastIndex() != 0) {
+          setLastIndex(other.getLastIndex());
+        }
+        if (other.getOffset() != 0) {
+          setOffset(other.getOffset());
+        }
+        if (other.getDone() != false) {
+          setDone(other.getDone());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -6426,6 +6728,84 @@ public final class Protos {
         onChanged();
         return this;
       }
+
+      private int lastIndex_ ;
+      /**
+       * <code>int32 last_index = 2;</code>
+       */
+      public int getLastIndex() {
+        return lastIndex_;
+      }
+      /**
+       * <code>int32 last_index = 2;</code>
+       */
+      public Builder setLastIndex(int value) {
+        
+        lastIndex_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int32 last_index = 2;</code>
+       */
+      public Builder clearLastIndex() {
+        
+        lastIndex_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private int offset_ ;
+      /**
+       * <code>int32 offset = 3;</code>
+       */
+      public int getOffset() {
+        return offset_;
+      }
+      /**
+       * <code>int32 offset = 3;</code>
+       */
+      public Builder setOffset(int value) {
+        
+        offset_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int32 offset = 3;</code>
+       */
+      public Builder clearOffset() {
+        
+        offset_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private boolean done_ ;
+      /**
+       * <code>bool done = 4;</code>
+       */
+      public boolean getDone() {
+        return done_;
+      }
+      /**
+       * <code>bool done = 4;</code>
+       */
+      public Builder setDone(boolean value) {
+        
+        done_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>bool done = 4;</code>
+       */
+      public Builder clearDone() {
+        
+        done_ = false;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -11119,6 +11499,11 @@ public final class Protos {
      */
     in.xnnyygn.xraft.core.Protos.NodeEndpointOrBuilder getLastConfigOrBuilder(
         int index);
+
+    /**
+     * <code>int64 data_size = 4;</code>
+     */
+    long getDataSize();
   }
   /**
    * Protobuf type {@code SnapshotHeader}
@@ -11136,6 +11521,7 @@ public final class Protos {
       lastIndex_ = 0;
       lastTerm_ = 0;
       lastConfig_ = java.util.Collections.emptyList();
+      dataSize_ = 0L;
     }
 
     @java.lang.Override
@@ -11181,6 +11567,11 @@ public final class Protos {
                   input.readMessage(in.xnnyygn.xraft.core.Protos.NodeEndpoint.parser(), extensionRegistry));
               break;
             }
+            case 32: {
+
+              dataSize_ = input.readInt64();
+              break;
+            }
             default: {
               if (!parseUnknownFieldProto3(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -11270,6 +11661,15 @@ public final class Protos {
       return lastConfig_.get(index);
     }
 
+    public static final int DATA_SIZE_FIELD_NUMBER = 4;
+    private long dataSize_;
+    /**
+     * <code>int64 data_size = 4;</code>
+     */
+    public long getDataSize() {
+      return dataSize_;
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -11293,6 +11693,9 @@ public final class Protos {
       for (int i = 0; i < lastConfig_.size(); i++) {
         output.writeMessage(3, lastConfig_.get(i));
       }
+      if (dataSize_ != 0L) {
+        output.writeInt64(4, dataSize_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -11314,6 +11717,10 @@ public final class Protos {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(3, lastConfig_.get(i));
       }
+      if (dataSize_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(4, dataSize_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -11336,6 +11743,8 @@ public final class Protos {
           == other.getLastTerm());
       result = result && getLastConfigList()
           .equals(other.getLastConfigList());
+      result = result && (getDataSize()
+          == other.getDataSize());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -11355,6 +11764,9 @@ public final class Protos {
         hash = (37 * hash) + LAST_CONFIG_FIELD_NUMBER;
         hash = (53 * hash) + getLastConfigList().hashCode();
       }
+      hash = (37 * hash) + DATA_SIZE_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getDataSize());
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -11499,6 +11911,8 @@ public final class Protos {
         } else {
           lastConfigBuilder_.clear();
         }
+        dataSize_ = 0L;
+
         return this;
       }
 
@@ -11538,6 +11952,7 @@ public final class Protos {
         } else {
           result.lastConfig_ = lastConfigBuilder_.build();
         }
+        result.dataSize_ = dataSize_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -11619,6 +12034,9 @@ public final class Protos {
             }
           }
         }
+        if (other.getDataSize() != 0L) {
+          setDataSize(other.getDataSize());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -11940,6 +12358,32 @@ public final class Protos {
         }
         return lastConfigBuilder_;
       }
+
+      private long dataSize_ ;
+      /**
+       * <code>int64 data_size = 4;</code>
+       */
+      public long getDataSize() {
+        return dataSize_;
+      }
+      /**
+       * <code>int64 data_size = 4;</code>
+       */
+      public Builder setDataSize(long value) {
+        
+        dataSize_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int64 data_size = 4;</code>
+       */
+      public Builder clearDataSize() {
+        
+        dataSize_ = 0L;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -12089,29 +12533,32 @@ public final class Protos {
       "rm\030\005 \001(\005\022\025\n\rleader_commit\030\006 \001(\005\022(\n\007entri" +
       "es\030\007 \003(\0132\027.AppendEntriesRpc.Entry\032C\n\005Ent" +
       "ry\022\014\n\004kind\030\001 \001(\005\022\r\n\005index\030\002 \001(\005\022\014\n\004term\030" +
-      "\003 \001(\005\022\017\n\007command\030\004 \001(\014\"L\n\023AppendEntriesR" +
+      "\003 \001(\005\022\017\n\007command\030\004 \001(\014\"{\n\023AppendEntriesR" +
       "esult\022\026\n\016rpc_message_id\030\001 \001(\t\022\014\n\004term\030\002 " +
-      "\001(\005\022\017\n\007success\030\003 \001(\010\"\254\001\n\022InstallSnapshot" +
-      "Rpc\022\014\n\004term\030\001 \001(\005\022\021\n\tleader_id\030\002 \001(\t\022\022\n\n" +
-      "last_index\030\003 \001(\005\022\021\n\tlast_term\030\004 \001(\005\022\"\n\013l" +
-      "ast_config\030\005 \003(\0132\r.NodeEndpoint\022\016\n\006offse" +
-      "t\030\006 \001(\005\022\014\n\004data\030\007 \001(\014\022\014\n\004done\030\010 \001(\010\"%\n\025I" +
-      "nstallSnapshotResult\022\014\n\004term\030\001 \001(\005\"1\n\014Ad" +
-      "dServerRpc\022!\n\nnew_server\030\001 \001(\0132\r.NodeEnd" +
-      "point\"E\n\017AddServerResult\022\016\n\006status\030\001 \001(\t" +
-      "\022\"\n\013leader_hint\030\002 \001(\0132\r.NodeEndpoint\"4\n\017" +
-      "RemoveServerRpc\022!\n\nold_server\030\001 \001(\0132\r.No" +
-      "deEndpoint\"H\n\022RemoveServerResult\022\016\n\006stat" +
-      "us\030\001 \001(\t\022\"\n\013leader_hint\030\002 \001(\0132\r.NodeEndp" +
-      "oint\"a\n\016AddNodeCommand\022%\n\016node_endpoints" +
-      "\030\001 \003(\0132\r.NodeEndpoint\022(\n\021new_node_endpoi" +
-      "nt\030\002 \001(\0132\r.NodeEndpoint\"R\n\021RemoveNodeCom" +
-      "mand\022%\n\016node_endpoints\030\001 \003(\0132\r.NodeEndpo" +
-      "int\022\026\n\016node_to_remove\030\002 \001(\t\"[\n\016SnapshotH" +
-      "eader\022\022\n\nlast_index\030\001 \001(\005\022\021\n\tlast_term\030\002" +
-      " \001(\005\022\"\n\013last_config\030\003 \003(\0132\r.NodeEndpoint" +
-      "B\037\n\025in.xnnyygn.xraft.coreB\006Protosb\006proto" +
-      "3"
+      "\001(\005\022\017\n\007success\030\003 \001(\010\022\025\n\rconflict_term\030\004 " +
+      "\001(\005\022\026\n\016conflict_index\030\005 \001(\005\"\277\001\n\022InstallS" +
+      "napshotRpc\022\014\n\004term\030\001 \001(\005\022\021\n\tleader_id\030\002 " +
+      "\001(\t\022\022\n\nlast_index\030\003 \001(\005\022\021\n\tlast_term\030\004 \001" +
+      "(\005\022\"\n\013last_config\030\005 \003(\0132\r.NodeEndpoint\022\016" +
+      "\n\006offset\030\006 \001(\005\022\014\n\004data\030\007 \001(\014\022\014\n\004done\030\010 \001" +
+      "(\010\022\021\n\tdata_size\030\t \001(\003\"W\n\025InstallSnapshot" +
+      "Result\022\014\n\004term\030\001 \001(\005\022\022\n\nlast_index\030\002 \001(\005" +
+      "\022\016\n\006offset\030\003 \001(\005\022\014\n\004done\030\004 \001(\010\"1\n\014AddSer" +
+      "verRpc\022!\n\nnew_server\030\001 \001(\0132\r.NodeEndpoin" +
+      "t\"E\n\017AddServerResult\022\016\n\006status\030\001 \001(\t\022\"\n\013" +
+      "leader_hint\030\002 \001(\0132\r.NodeEndpoint\"4\n\017Remo" +
+      "veServerRpc\022!\n\nold_server\030\001 \001(\0132\r.NodeEn" +
+      "dpoint\"H\n\022RemoveServerResult\022\016\n\006status\030\001" +
+      " \001(\t\022\"\n\013leader_hint\030\002 \001(\0132\r.NodeEndpoint" +
+      "\"a\n\016AddNodeCommand\022%\n\016node_endpoints\030\001 \003" +
+      "(\0132\r.NodeEndpoint\022(\n\021new_node_endpoint\030\002" +
+      " \001(\0132\r.NodeEndpoint\"R\n\021RemoveNodeCommand" +
+      "\022%\n\016node_endpoints\030\001 \003(\0132\r.NodeEndpoint\022" +
+      "\026\n\016node_to_remove\030\002 \001(\t\"n\n\016SnapshotHeade" +
+      "r\022\022\n\nlast_index\030\001 \001(\005\022\021\n\tlast_term\030\002 \001(\005" +
+      "\022\"\n\013last_config\030\003 \003(\0132\r.NodeEndpoint\022\021\n\t" +
+      "data_size\030\004 \001(\003B\037\n\025in.xnnyygn.xraft.core" +
+      "B\006Protosb\006proto3"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -12160,19 +12607,19 @@ public final class Protos {
     internal_static_AppendEntriesResult_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_AppendEntriesResult_descriptor,
-        new java.lang.String[] { "RpcMessageId", "Term", "Success", });
+        new java.lang.String[] { "RpcMessageId", "Term", "Success", "ConflictTerm", "ConflictIndex", });
     internal_static_InstallSnapshotRpc_descriptor =
       getDescriptor().getMessageTypes().get(5);
     internal_static_InstallSnapshotRpc_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_InstallSnapshotRpc_descriptor,
-        new java.lang.String[] { "Term", "LeaderId", "LastIndex", "LastTerm", "LastConfig", "Offset", "Data", "Done", });
+        new java.lang.String[] { "Term", "LeaderId", "LastIndex", "LastTerm", "LastConfig", "Offset", "Data", "Done", "DataSize", });
     internal_static_InstallSnapshotResult_descriptor =
       getDescriptor().getMessageTypes().get(6);
     internal_static_InstallSnapshotResult_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_InstallSnapshotResult_descriptor,
-        new java.lang.String[] { "Term", });
+        new java.lang.String[] { "Term", "LastIndex", "Offset", "Done", });
     internal_static_AddServerRpc_descriptor =
       getDescriptor().getMessageTypes().get(7);
     internal_static_AddServerRpc_fieldAccessorTable = new
@@ -12214,7 +12661,7 @@ public final class Protos {
     internal_static_SnapshotHeader_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_SnapshotHeader_descriptor,
-        new java.lang.String[] { "LastIndex", "LastTerm", "LastConfig", });
+        new java.lang.String[] { "LastIndex", "LastTerm", "LastConfig", "DataSize", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -8,24 +8,33 @@ import in.xnnyygn.xraft.core.log.event.GroupConfigEntryFromLeaderAppendEvent;
 import in.xnnyygn.xraft.core.log.event.SnapshotGenerateEvent;
 import in.xnnyygn.xraft.core.log.sequence.EntrySequence;
 import in.xnnyygn.xraft.core.log.sequence.GroupConfigEntryList;
+import in.xnnyygn.xraft.core.log.sequence.WrittenEntries;
 import in.xnnyygn.xraft.core.log.snapshot.*;
 import in.xnnyygn.xraft.core.log.statemachine.EmptyStateMachine;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.log.statemachine.StateMachine;
 import in.xnnyygn.xraft.core.log.statemachine.StateMachineContext;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
 import in.xnnyygn.xraft.core.rpc.message.AppendEntriesRpc;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import in.xnnyygn.xraft.core.support.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 abstract class AbstractLog implements Log {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractLog.class);
+    // entries read from sequence at a time when limited by bytes
+    private static final int ENTRIES_PER_READ = 64;
 
     protected final EventBus eventBus;
     protected Snapshot snapshot;
@@ -36,9 +45,31 @@ abstract class AbstractLog implements Log {
     private final StateMachineContext stateMachineContext = new StateMachineContextImpl();
     protected StateMachine stateMachine = new EmptyStateMachine();
     protected int commitIndex = 0;
+    private final int maxPendingEntries;
+    private final int maxReplicationBytes;
+    // read by client threads to reject commands before they are queued
+    private volatile int pendingEntryCount = 0;
+    // entries accepted from client threads but not appended yet
+    private final AtomicInteger reservedEntryCount = new AtomicInteger(0);
+    private final Histogram appendEntriesBatchSizes = new Histogram();
+    private volatile IntConsumer appliedListener = index -> {
+    };
 
     AbstractLog(EventBus eventBus) {
+        this(eventBus, 0, 0);
+    }
+
+    /**
+     * Create.
+     *
+     * @param eventBus            event bus
+     * @param maxPendingEntries   max uncommitted entries, {@code 0} for unlimited
+     * @param maxReplicationBytes max bytes of commands in append entries rpc, {@code 0} for unlimited
+     */
+    AbstractLog(EventBus eventBus, int maxPendingEntries, int maxReplicationBytes) {
         this.eventBus = eventBus;
+        this.maxPendingEntries = maxPendingEntries;
+        this.maxReplicationBytes = maxReplicationBytes;
     }
 
     @Override
@@ -87,11 +118,58 @@ abstract class AbstractLog implements Log {
         }
         if (!entrySequence.isEmpty()) {
             int maxIndex = (maxEntries == ALL_ENTRIES ? nextLogIndex : Math.min(nextLogIndex, nextIndex + maxEntries));
-            rpc.setEntries(entrySequence.subList(nextIndex, maxIndex));
+            rpc.setEntries(subListInBudget(nextIndex, maxIndex));
         }
         return rpc;
     }
 
+    /**
+     * Get entries until bytes of commands exceed {@link #maxReplicationBytes}, at least one entry is returned.
+     * Entries are read in slices, so entries after budget are not loaded.
+     *
+     * @param fromIndex from index
+     * @param toIndex   to index, exclusive
+     * @return entries
+     */
+    private List<Entry> subListInBudget(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries;
+        long bytes = 0;
+        if (maxReplicationBytes <= 0) {
+            entries = entrySequence.subList(fromIndex, toIndex);
+            for (Entry entry : entries) {
+                bytes += entry.getCommandLength();
+            }
+        } else {
+            entries = new ArrayList<>();
+            read:
+            for (int i = fromIndex; i < toIndex; i += ENTRIES_PER_READ) {
+                for (Entry entry : entrySequence.subList(i, Math.min(toIndex, i + ENTRIES_PER_READ))) {
+                    if (!entries.isEmpty() && bytes + entry.getCommandLength() > maxReplicationBytes) {
+                        break read;
+                    }
+                    entries.add(entry);
+                    bytes += entry.getCommandLength();
+                }
+            }
+        }
+        appendEntriesBatchSizes.record(bytes);
+        return entries;
+    }
+
+    @Override
+    @Nonnull
+    public Histogram getAppendEntriesBatchSizes() {
+        return appendEntriesBatchSizes;
+    }
+
+    @Override
+    public void setAppliedListener(@Nonnull IntConsumer listener) {
+        this.appliedListener = listener;
+    }
+
     @Override
     public InstallSnapshotRpc createInstallSnapshotRpc(int term, NodeId selfId, int offset, int length) {
         InstallSnapshotRpc rpc = new InstallSnapshotRpc();
@@ -103,13 +181,34 @@ abstract class AbstractLog implements Log {
             rpc.setLastConfig(snapshot.getLastConfig());
         }
         rpc.setOffset(offset);
+        rpc.setDataSize(snapshot.getDataSize());
 
-        SnapshotChunk chunk = snapshot.readData(offset, length);
-        rpc.setData(chunk.toByteArray());
+        SnapshotChunk chunk = readSnapshotChunk(offset, length);
+        if (chunk.isInFile()) {
+            rpc.setDataFile(chunk.getFile(), chunk.getPosition(), chunk.getLength());
+        } else {
+            rpc.setData(chunk.toByteArray());
+        }
         rpc.setDone(chunk.isLastChunk());
         return rpc;
     }
 
+    /**
+     * Read chunk of snapshot data for install snapshot rpc.
+     *
+     * @param offset offset
+     * @param length max length
+     * @return chunk
+     */
+    protected SnapshotChunk readSnapshotChunk(int offset, int length) {
+        return snapshot.readData(offset, length);
+    }
+
+    @Override
+    public int getSnapshotLastIncludedIndex() {
+        return snapshot.getLastIncludedIndex();
+    }
+
     @Override
     public GroupConfigEntry getLastUncommittedGroupConfigEntry() {
         GroupConfigEntry lastEntry = groupConfigEntryList.getLast();
@@ -126,6 +225,26 @@ abstract class AbstractLog implements Log {
         return commitIndex;
     }
 
+    @Override
+    public void reserveEntry() {
+        int reserved;
+        do {
+            reserved = reservedEntryCount.get();
+            if (maxPendingEntries > 0 && pendingEntryCount + reserved >= maxPendingEntries) {
+                throw new LogFullException(maxPendingEntries);
+            }
+        } while (!reservedEntryCount.compareAndSet(reserved, reserved + 1));
+    }
+
+    @Override
+    public void cancelReservedEntries(int count) {
+        reservedEntryCount.addAndGet(-count);
+    }
+
+    protected void updatePendingEntryCount() {
+        pendingEntryCount = entrySequence.getNextLogIndex() - 1 - commitIndex;
+    }
+
     @Override
     public boolean isNewerThan(int lastLogIndex, int lastLogTerm) {
         EntryMeta lastEntryMeta = getLastEntryMeta();
@@ -137,13 +256,29 @@ abstract class AbstractLog implements Log {
     public NoOpEntry appendEntry(int term) {
         NoOpEntry entry = new NoOpEntry(entrySequence.getNextLogIndex(), term);
         entrySequence.append(entry);
+        updatePendingEntryCount();
         return entry;
     }
 
     @Override
     public GeneralEntry appendEntry(int term, byte[] command) {
+        // entries from client only, entries from leader are always accepted
+        if (maxPendingEntries > 0 && entrySequence.getNextLogIndex() - 1 - commitIndex >= maxPendingEntries) {
+            throw new LogFullException(maxPendingEntries);
+        }
         GeneralEntry entry = new GeneralEntry(entrySequence.getNextLogIndex(), term, command);
         entrySequence.append(entry);
+        updatePendingEntryCount();
+        return entry;
+    }
+
+    @Override
+    public GeneralEntry appendReservedEntry(int term, byte[] command) {
+        GeneralEntry entry = new GeneralEntry(entrySequence.getNextLogIndex(), term, command);
+        entrySequence.append(entry);
+        // count as pending before releasing reservation, so that space is not free in between
+        updatePendingEntryCount();
+        reservedEntryCount.decrementAndGet();
         return entry;
     }
 
@@ -152,6 +287,7 @@ abstract class AbstractLog implements Log {
         AddNodeEntry entry = new AddNodeEntry(entrySequence.getNextLogIndex(), term, nodeEndpoints, newNodeEndpoint);
         entrySequence.append(entry);
         groupConfigEntryList.add(entry);
+        updatePendingEntryCount();
         return entry;
     }
 
@@ -160,23 +296,48 @@ abstract class AbstractLog implements Log {
         RemoveNodeEntry entry = new RemoveNodeEntry(entrySequence.getNextLogIndex(), term, nodeEndpoints, nodeToRemove);
         entrySequence.append(entry);
         groupConfigEntryList.add(entry);
+        updatePendingEntryCount();
         return entry;
     }
 
     @Override
-    public boolean appendEntriesFromLeader(int prevLogIndex, int prevLogTerm, List<Entry> leaderEntries) {
+    public AppendEntriesState appendEntriesFromLeader(int prevLogIndex, int prevLogTerm, List<Entry> leaderEntries) {
         // check previous log
-        if (!checkIfPreviousLogMatches(prevLogIndex, prevLogTerm)) {
-            return false;
+        AppendEntriesState state = checkIfPreviousLogMatches(prevLogIndex, prevLogTerm);
+        if (!state.isSuccess()) {
+            return state;
         }
         // heartbeat
         if (leaderEntries.isEmpty()) {
-            return true;
+            return state;
         }
         assert prevLogIndex + 1 == leaderEntries.get(0).getIndex();
         EntrySequenceView newEntries = removeUnmatchedLog(new EntrySequenceView(leaderEntries));
         appendEntriesFromLeader(newEntries);
-        return true;
+        updatePendingEntryCount();
+        return state;
+    }
+
+    @Override
+    public int getNextIndexAfterConflict(int prevLogIndex, int conflictTerm, int conflictIndex) {
+        if (conflictIndex < 0) {
+            return prevLogIndex;
+        }
+        if (conflictTerm == 0) {
+            return conflictIndex + 1;
+        }
+        // entries of term larger than conflict term are not in follower's log
+        int firstLogIndex = snapshot.getLastIncludedIndex() + 1;
+        for (int index = Math.min(prevLogIndex, entrySequence.getNextLogIndex() - 1); index >= firstLogIndex; index--) {
+            int term = entrySequence.getEntryMeta(index).getTerm();
+            if (term == conflictTerm) {
+                return index + 1;
+            }
+            if (term < conflictTerm) {
+                break;
+            }
+        }
+        return conflictIndex;
     }
 
     private void appendEntriesFromLeader(EntrySequenceView leaderEntries) {
@@ -219,32 +380,40 @@ abstract class AbstractLog implements Log {
         return leaderEntries.getLastLogIndex() + 1;
     }
 
-    private boolean checkIfPreviousLogMatches(int prevLogIndex, int prevLogTerm) {
+    private AppendEntriesState checkIfPreviousLogMatches(int prevLogIndex, int prevLogTerm) {
         int lastIncludedIndex = snapshot.getLastIncludedIndex();
         if (prevLogIndex < lastIncludedIndex) {
             logger.debug("previous log index {} < snapshot's last included index {}", prevLogIndex, lastIncludedIndex);
-            return false;
+            return new AppendEntriesState(0, prevLogIndex - 1);
         }
         if (prevLogIndex == lastIncludedIndex) {
             int lastIncludedTerm = snapshot.getLastIncludedTerm();
             if (prevLogTerm != lastIncludedTerm) {
                 logger.debug("previous log index matches snapshot's last included index, " +
                         "but term not (expected {}, actual {})", lastIncludedTerm, prevLogTerm);
-                return false;
+                return new AppendEntriesState(0, prevLogIndex - 1);
             }
-            return true;
+            return AppendEntriesState.SUCCESS;
         }
-        Entry entry = entrySequence.getEntry(prevLogIndex);
-        if (entry == null) {
+        EntryMeta entryMeta = entrySequence.getEntryMeta(prevLogIndex);
+        if (entryMeta == null) {
             logger.debug("previous log {} not found", prevLogIndex);
-            return false;
+            return new AppendEntriesState(0, entrySequence.getNextLogIndex() - 1);
         }
-        int term = entry.getTerm();
+        int term = entryMeta.getTerm();
         if (term != prevLogTerm) {
             logger.debug("different term of previous log, local {}, remote {}", term, prevLogTerm);
-            return false;
+            return new AppendEntriesState(term, findFirstIndexOfTerm(prevLogIndex, term));
         }
-        return true;
+        return AppendEntriesState.SUCCESS;
+    }
+
+    private int findFirstIndexOfTerm(int index, int term) {
+        int firstLogIndex = entrySequence.getFirstLogIndex();
+        while (index > firstLogIndex && entrySequence.getEntryMeta(index - 1).getTerm() == term) {
+            index--;
+        }
+        return index;
     }
 
     private void removeEntriesAfter(int index) {
@@ -263,6 +432,7 @@ abstract class AbstractLog implements Log {
         if (index < commitIndex) {
             commitIndex = index;
         }
+        updatePendingEntryCount();
         GroupConfigEntry firstRemovedEntry = groupConfigEntryList.removeAfter(index);
         if (firstRemovedEntry != null) {
             logger.info("group config removed");
@@ -279,15 +449,62 @@ abstract class AbstractLog implements Log {
         entrySequence.commit(newCommitIndex);
         groupConfigsCommitted(newCommitIndex);
         commitIndex = newCommitIndex;
+        updatePendingEntryCount();
 
         advanceApplyIndex();
     }
 
+    @Override
+    @Nonnull
+    public WrittenEntries writeEntries() {
+        if (entrySequence.isEmpty()) {
+            return new WrittenEntries(snapshot.getLastIncludedIndex());
+        }
+        return entrySequence.write(entrySequence.getLastLogIndex());
+    }
+
+    @Override
+    public void syncIfIntervalElapsed() {
+        entrySequence.syncIfIntervalElapsed();
+    }
+
     @Override
     public void generateSnapshot(int lastIncludedIndex, Set<NodeEndpoint> groupConfig) {
         logger.info("generate snapshot, last included index {}", lastIncludedIndex);
         EntryMeta lastAppliedEntryMeta = entrySequence.getEntryMeta(lastIncludedIndex);
-        replaceSnapshot(generateSnapshot(lastAppliedEntryMeta, groupConfig));
+        replaceSnapshot(generateSnapshot(lastAppliedEntryMeta, groupConfig, stateMachine::generateSnapshot));
+    }
+
+    @Override
+    public Supplier<Snapshot> prepareSnapshot(int lastIncludedIndex, Set<NodeEndpoint> groupConfig, @Nonnull SnapshotSource source) {
+        if (lastIncludedIndex <= snapshot.getLastIncludedIndex()) {
+            logger.debug("last included index <= current one ({} <= {}), skip generating snapshot",
+                    lastIncludedIndex, snapshot.getLastIncludedIndex());
+            return null;
+        }
+        EntryMeta lastAppliedEntryMeta = entrySequence.getEntryMeta(lastIncludedIndex);
+        if (lastAppliedEntryMeta == null) {
+            logger.warn("entry {} not found, skip generating snapshot", lastIncludedIndex);
+            return null;
+        }
+        logger.info("generate snapshot from frozen source, last included index {}", lastIncludedIndex);
+        return () -> generateSnapshot(lastAppliedEntryMeta, groupConfig, source);
+    }
+
+    @Override
+    public Runnable prepareReplaceSnapshot(@Nonnull Snapshot generatedSnapshot) {
+        return null;
+    }
+
+    @Override
+    public void replaceGeneratedSnapshot(@Nonnull Snapshot generatedSnapshot) {
+        if (generatedSnapshot.getLastIncludedIndex() <= snapshot.getLastIncludedIndex()) {
+            logger.info("generated snapshot is not newer than current one ({} <= {}), drop",
+                    generatedSnapshot.getLastIncludedIndex(), snapshot.getLastIncludedIndex());
+            generatedSnapshot.close();
+            return;
+        }
+        replaceSnapshot(generatedSnapshot);
     }
 
     private void advanceApplyIndex() {
@@ -316,7 +533,7 @@ abstract class AbstractLog implements Log {
     private void applyEntry(Entry entry) {
         // skip no-op entry and membership-change entry
         if (isApplicable(entry)) {
-            stateMachine.applyLog(stateMachineContext, entry.getIndex(), entry.getCommandBytes(), entrySequence.getFirstLogIndex());
+            stateMachine.applyLog(stateMachineContext, entry.getIndex(), entry.getCommandBuffer(), entrySequence.getFirstLogIndex());
         }
     }
 
@@ -346,7 +563,15 @@ abstract class AbstractLog implements Log {
         return true;
     }
 
-    protected abstract Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig);
+    /**
+     * Generate snapshot, may be called in thread other than node thread.
+     *
+     * @param lastAppliedEntryMeta meta of last included entry
+     * @param groupConfig          group config
+     * @param source               source of state
+     * @return snapshot
+     */
+    protected abstract Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig, SnapshotSource source);
 
     @Override
     public InstallSnapshotState installSnapshot(InstallSnapshotRpc rpc) {
@@ -355,23 +580,34 @@ abstract class AbstractLog implements Log {
                     rpc.getLastIndex(), snapshot.getLastIncludedIndex());
             return new InstallSnapshotState(InstallSnapshotState.StateName.ILLEGAL_INSTALL_SNAPSHOT_RPC);
         }
-        if (rpc.getOffset() == 0) {
+        if (snapshotBuilder.isBuilding(rpc)) {
+            // chunks may be lost when connection reset, and transfer restarts from offset 0 when leader changed,
+            // data received is kept, reply expected offset and leader sends again from it
+            if (rpc.getOffset() != snapshotBuilder.getOffset()) {
+                logger.debug("unexpected offset of snapshot data, expected {}, but was {}", snapshotBuilder.getOffset(), rpc.getOffset());
+                return new InstallSnapshotState(InstallSnapshotState.StateName.INSTALLING, snapshotBuilder.getOffset());
+            }
+            snapshotBuilder.append(rpc);
+        } else if (rpc.getOffset() == 0) {
             assert rpc.getLastConfig() != null;
             snapshotBuilder.close();
             snapshotBuilder = newSnapshotBuilder(rpc);
         } else {
-            snapshotBuilder.append(rpc);
+            logger.debug("no data of snapshot received, expected offset 0, but was {}", rpc.getOffset());
+            return new InstallSnapshotState(InstallSnapshotState.StateName.INSTALLING, 0);
         }
         if (!rpc.isDone()) {
-            return new InstallSnapshotState(InstallSnapshotState.StateName.INSTALLING);
+            return new InstallSnapshotState(InstallSnapshotState.StateName.INSTALLING, snapshotBuilder.getOffset());
         }
         Snapshot newSnapshot = snapshotBuilder.build();
+        snapshotBuilder = new NullSnapshotBuilder();
         applySnapshot(newSnapshot);
         replaceSnapshot(newSnapshot);
         int lastIncludedIndex = snapshot.getLastIncludedIndex();
         if (commitIndex < lastIncludedIndex) {
             commitIndex = lastIncludedIndex;
         }
+        updatePendingEntryCount();
         return new InstallSnapshotState(InstallSnapshotState.StateName.INSTALLED, newSnapshot.getLastConfig());
     }
 
@@ -399,6 +635,16 @@ abstract class AbstractLog implements Log {
             eventBus.post(new SnapshotGenerateEvent(lastIncludedIndex));
         }
 
+        @Override
+        public void generateSnapshot(int lastIncludedIndex, @Nullable SnapshotSource source) {
+            eventBus.post(new SnapshotGenerateEvent(lastIncludedIndex, source));
+        }
+
+        @Override
+        public void onApplied(int index) {
+            appliedListener.accept(index);
+        }
+
     }
 
     private static class EntrySequenceView implements Iterable<Entry> {
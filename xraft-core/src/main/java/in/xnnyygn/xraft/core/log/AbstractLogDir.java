@@ -36,6 +36,11 @@ abstract class AbstractLogDir implements LogDir {
         return new File(dir, RootDir.FILE_NAME_SNAPSHOT);
     }
 
+    @Override
+    public File getSnapshotOffsetFile() {
+        return new File(dir, RootDir.FILE_NAME_SNAPSHOT_OFFSET);
+    }
+
     @Override
     public File getEntriesFile() {
         return new File(dir, RootDir.FILE_NAME_ENTRIES);
@@ -46,6 +51,11 @@ abstract class AbstractLogDir implements LogDir {
         return new File(dir, RootDir.FILE_NAME_ENTRY_OFFSET_INDEX);
     }
 
+    @Override
+    public File getGroupConfigIndexFile() {
+        return new File(dir, RootDir.FILE_NAME_GROUP_CONFIG_INDEX);
+    }
+
     @Override
     public File get() {
         return dir;
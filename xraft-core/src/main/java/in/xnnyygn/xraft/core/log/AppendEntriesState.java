@@ -0,0 +1,55 @@
+package in.xnnyygn.xraft.core.log;
+
+/**
+ * Result of appending entries from leader.
+ * <p>
+ * If previous log check failed, hint of conflict is returned, so leader can skip all entries of conflict term
+ * instead of backing off one entry per rpc.
+ * </p>
+ */
+public class AppendEntriesState {
+
+    public static final AppendEntriesState SUCCESS = new AppendEntriesState(true, 0, 0);
+
+    private final boolean success;
+    private final int conflictTerm;
+    private final int conflictIndex;
+
+    /**
+     * Create failed state.
+     *
+     * @param conflictTerm  term of entry at previous log index, {@code 0} if entry missing
+     * @param conflictIndex first index of conflict term, or last log index if entry missing
+     */
+    public AppendEntriesState(int conflictTerm, int conflictIndex) {
+        this(false, conflictTerm, conflictIndex);
+    }
+
+    private AppendEntriesState(boolean success, int conflictTerm, int conflictIndex) {
+        this.success = success;
+        this.conflictTerm = conflictTerm;
+        this.conflictIndex = conflictIndex;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getConflictTerm() {
+        return conflictTerm;
+    }
+
+    public int getConflictIndex() {
+        return conflictIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "AppendEntriesState{" +
+                "conflictIndex=" + conflictIndex +
+                ", conflictTerm=" + conflictTerm +
+                ", success=" + success +
+                '}';
+    }
+
+}
@@ -0,0 +1,24 @@
+package in.xnnyygn.xraft.core.log;
+
+/**
+ * Durability of log entries written to file.
+ */
+public enum DurabilityMode {
+
+    /**
+     * Never force, leave it to operating system.
+     */
+    NONE,
+
+    /**
+     * Force once per batch of committed entries.
+     */
+    FSYNC_PER_BATCH,
+
+    /**
+     * Force at most once per sync interval when writing, and periodically when idle,
+     * so that entries written are forced within about one sync interval.
+     */
+    FSYNC_INTERVAL
+
+}
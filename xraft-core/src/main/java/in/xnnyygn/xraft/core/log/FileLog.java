@@ -5,10 +5,14 @@ import in.xnnyygn.xraft.core.log.entry.Entry;
 import in.xnnyygn.xraft.core.log.entry.EntryMeta;
 import in.xnnyygn.xraft.core.log.sequence.EntrySequence;
 import in.xnnyygn.xraft.core.log.sequence.FileEntrySequence;
+import in.xnnyygn.xraft.core.log.sequence.SegmentedFileEntrySequence;
 import in.xnnyygn.xraft.core.log.snapshot.*;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
 
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
 import java.io.IOException;
@@ -19,39 +23,72 @@ import java.util.Set;
 public class FileLog extends AbstractLog {
 
     private final RootDir rootDir;
+    private final NodeConfig config;
+    private FileEntrySequence.PreparedTransfer preparedTransfer;
 
     public FileLog(File baseDir, EventBus eventBus) {
-        super(eventBus);
+        this(baseDir, eventBus, new NodeConfig());
+    }
+
+    public FileLog(File baseDir, EventBus eventBus, NodeConfig config) {
+        super(eventBus, config.getMaxPendingLogEntries(), config.getMaxReplicationBytes());
         rootDir = new RootDir(baseDir);
+        this.config = config;
 
         LogGeneration latestGeneration = rootDir.getLatestGeneration();
         snapshot = new EmptySnapshot();
         // TODO add log
         if (latestGeneration != null) {
             if (latestGeneration.getSnapshotFile().exists()) {
-                snapshot = new FileSnapshot(latestGeneration);
+                snapshot = new FileSnapshot(latestGeneration, config.getFileType());
             }
-            FileEntrySequence fileEntrySequence = new FileEntrySequence(latestGeneration, snapshot.getLastIncludedIndex() + 1);
-            commitIndex = fileEntrySequence.getCommitIndex();
-            entrySequence = fileEntrySequence;
+            entrySequence = createEntrySequence(latestGeneration, snapshot.getLastIncludedIndex() + 1);
+            // leader writes entries before they are committed, entries in file are not always committed
+            commitIndex = snapshot.getLastIncludedIndex();
             // TODO apply last group config entry
             groupConfigEntryList = entrySequence.buildGroupConfigEntryList();
+            updatePendingEntryCount();
         } else {
             LogGeneration firstGeneration = rootDir.createFirstGeneration();
-            entrySequence = new FileEntrySequence(firstGeneration, 1);
+            entrySequence = createEntrySequence(firstGeneration, 1);
+        }
+        FileSnapshotBuilder partialSnapshotBuilder = FileSnapshotBuilder.resume(rootDir.getLogDirForInstalling(), snapshot.getLastIncludedIndex());
+        if (partialSnapshotBuilder != null) {
+            snapshotBuilder = partialSnapshotBuilder;
+        }
+    }
+
+    private boolean isSegmented() {
+        return config.getLogSegmentSize() > 0;
+    }
+
+    private EntrySequence createEntrySequence(LogDir logDir, int logIndexOffset) {
+        if (!isSegmented()) {
+            return new FileEntrySequence(logDir, logIndexOffset, config);
         }
+        File segmentsDir = rootDir.getSegmentsDir();
+        SegmentedFileEntrySequence.importFrom(segmentsDir, logDir);
+        return new SegmentedFileEntrySequence(segmentsDir, logIndexOffset, config);
     }
 
     @Override
-    protected Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig) {
+    protected Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig, SnapshotSource source) {
         LogDir logDir = rootDir.getLogDirForGenerating();
         try (FileSnapshotWriter snapshotWriter = new FileSnapshotWriter(
                 logDir.getSnapshotFile(), lastAppliedEntryMeta.getIndex(), lastAppliedEntryMeta.getTerm(), groupConfig)) {
-            stateMachine.generateSnapshot(snapshotWriter.getOutput());
+            source.writeTo(snapshotWriter.getOutput());
         } catch (IOException e) {
             throw new LogException("failed to generate snapshot", e);
         }
-        return new FileSnapshot(logDir);
+        return new FileSnapshot(logDir, config.getFileType());
+    }
+
+    @Override
+    protected SnapshotChunk readSnapshotChunk(int offset, int length) {
+        if (config.isSnapshotZeroCopy() && snapshot instanceof FileSnapshot) {
+            return ((FileSnapshot) snapshot).readDataRegion(offset, length);
+        }
+        return super.readSnapshotChunk(offset, length);
     }
 
     @Override
@@ -59,27 +96,60 @@ public class FileLog extends AbstractLog {
         return new FileSnapshotBuilder(firstRpc, rootDir.getLogDirForInstalling());
     }
 
+    /**
+     * Prepare copy of committed entries in file after generated snapshot, which are not removed while copying.
+     * Segmented log drops segments instead of copying, nothing to prepare.
+     */
+    @Override
+    public Runnable prepareReplaceSnapshot(@Nonnull Snapshot generatedSnapshot) {
+        if (isSegmented() || generatedSnapshot.getLastIncludedIndex() <= snapshot.getLastIncludedIndex()) {
+            return null;
+        }
+        preparedTransfer = ((FileEntrySequence) entrySequence).prepareTransfer(((FileSnapshot) generatedSnapshot).getLogDir(),
+                generatedSnapshot.getLastIncludedIndex() + 1, commitIndex + 1, config);
+        return preparedTransfer;
+    }
+
     @Override
     protected void replaceSnapshot(Snapshot newSnapshot) {
         FileSnapshot fileSnapshot = (FileSnapshot) newSnapshot;
         int lastIncludedIndex = fileSnapshot.getLastIncludedIndex();
         int logIndexOffset = lastIncludedIndex + 1;
 
-        List<Entry> remainingEntries = entrySequence.subView(logIndexOffset);
-        EntrySequence newEntrySequence = new FileEntrySequence(fileSnapshot.getLogDir(), logIndexOffset);
-        newEntrySequence.append(remainingEntries);
-        newEntrySequence.commit(Math.max(commitIndex, lastIncludedIndex));
-        newEntrySequence.close();
+        if (isSegmented()) {
+            replaceSnapshotOfSegments(fileSnapshot);
+            return;
+        }
+
+        // entries in file are copied by byte range, entries not written are kept in memory
+        FileEntrySequence.PreparedTransfer prepared = preparedTransfer;
+        preparedTransfer = null;
+        List<Entry> pendingEntries = ((FileEntrySequence) entrySequence).transferTo(
+                fileSnapshot.getLogDir(), logIndexOffset, config, prepared);
 
         snapshot.close();
         entrySequence.close();
         newSnapshot.close();
 
         LogDir generation = rootDir.rename(fileSnapshot.getLogDir(), lastIncludedIndex);
-        snapshot = new FileSnapshot(generation);
-        entrySequence = new FileEntrySequence(generation, logIndexOffset);
+        snapshot = new FileSnapshot(generation, config.getFileType());
+        entrySequence = new FileEntrySequence(generation, logIndexOffset, config);
+        entrySequence.append(pendingEntries);
+        groupConfigEntryList = entrySequence.buildGroupConfigEntryList();
+        commitIndex = Math.max(commitIndex, lastIncludedIndex);
+    }
+
+    private void replaceSnapshotOfSegments(FileSnapshot newSnapshot) {
+        int lastIncludedIndex = newSnapshot.getLastIncludedIndex();
+        snapshot.close();
+        newSnapshot.close();
+
+        LogDir generation = rootDir.rename(newSnapshot.getLogDir(), lastIncludedIndex);
+        snapshot = new FileSnapshot(generation, config.getFileType());
+        // no copy, just drop segments included in snapshot
+        ((SegmentedFileEntrySequence) entrySequence).compact(lastIncludedIndex + 1);
         groupConfigEntryList = entrySequence.buildGroupConfigEntryList();
-        commitIndex = entrySequence.getCommitIndex();
+        commitIndex = Math.max(commitIndex, lastIncludedIndex);
     }
 
 }
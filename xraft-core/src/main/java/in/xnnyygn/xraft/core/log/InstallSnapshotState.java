@@ -14,11 +14,23 @@ public class InstallSnapshotState {
 
     private final StateName stateName;
     private Set<NodeEndpoint> lastConfig;
+    private int offset;
 
     public InstallSnapshotState(StateName stateName) {
         this.stateName = stateName;
     }
 
+    /**
+     * Create.
+     *
+     * @param stateName state name
+     * @param offset    length of data received
+     */
+    public InstallSnapshotState(StateName stateName, int offset) {
+        this.stateName = stateName;
+        this.offset = offset;
+    }
+
     public InstallSnapshotState(StateName stateName, Set<NodeEndpoint> lastConfig) {
         this.stateName = stateName;
         this.lastConfig = lastConfig;
@@ -32,4 +44,8 @@ public class InstallSnapshotState {
         return lastConfig;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
 }
@@ -1,16 +1,23 @@
 package in.xnnyygn.xraft.core.log;
 
 import in.xnnyygn.xraft.core.log.entry.*;
+import in.xnnyygn.xraft.core.log.sequence.WrittenEntries;
+import in.xnnyygn.xraft.core.log.snapshot.Snapshot;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.log.statemachine.StateMachine;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.message.AppendEntriesRpc;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import in.xnnyygn.xraft.core.support.Histogram;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * Log.
@@ -32,6 +39,7 @@ public interface Log {
 
     /**
      * Create append entries rpc from log.
+     * Entries are also limited by bytes of commands, see {@link NodeConfig#getMaxReplicationBytes()}.
      *
      * @param term       current term
      * @param selfId     self node id
@@ -41,6 +49,14 @@ public interface Log {
      */
     AppendEntriesRpc createAppendEntriesRpc(int term, NodeId selfId, int nextIndex, int maxEntries);
 
+    /**
+     * Get histogram of bytes of commands in append entries rpcs created, heartbeats excluded.
+     *
+     * @return histogram
+     */
+    @Nonnull
+    Histogram getAppendEntriesBatchSizes();
+
     /**
      * Create install snapshot rpc from log.
      *
@@ -52,6 +68,13 @@ public interface Log {
      */
     InstallSnapshotRpc createInstallSnapshotRpc(int term, NodeId selfId, int offset, int length);
 
+    /**
+     * Get last included index of current snapshot.
+     *
+     * @return last included index, {@code 0} if no snapshot
+     */
+    int getSnapshotLastIncludedIndex();
+
     /**
      * Get last uncommitted group config entry.
      *
@@ -74,6 +97,23 @@ public interface Log {
      */
     int getCommitIndex();
 
+    /**
+     * Reserve space of a general entry to be appended by {@link #appendReservedEntry(int, byte[])}.
+     * Thread safe. Uncommitted entries and reserved entries together never exceed max pending entries
+     * when reserving, so reserved entry is always accepted later.
+     *
+     * @throws LogFullException if full
+     */
+    void reserveEntry();
+
+    /**
+     * Cancel reservations of entries which will not be appended, e.g. commands rejected since not leader.
+     * Thread safe.
+     *
+     * @param count count of reserved entries
+     */
+    void cancelReservedEntries(int count);
+
     /**
      * Test if last log self is new than last log of leader.
      *
@@ -97,9 +137,19 @@ public interface Log {
      * @param term    current term
      * @param command command in bytes
      * @return general entry
+     * @throws LogFullException if too many uncommitted entries
      */
     GeneralEntry appendEntry(int term, byte[] command);
 
+    /**
+     * Append a general log entry reserved by {@link #reserveEntry()}, without checking max pending entries again.
+     *
+     * @param term    current term
+     * @param command command in bytes
+     * @return general entry
+     */
+    GeneralEntry appendReservedEntry(int term, byte[] command);
+
     /**
      * Append a log entry for adding node.
      *
@@ -126,9 +176,24 @@ public interface Log {
      * @param prevLogIndex expected index of previous log entry
      * @param prevLogTerm  expected term of previous log entry
      * @param entries      entries to append
-     * @return true if success, false if previous log check failed
+     * @return state, with hint of conflict if previous log check failed
      */
-    boolean appendEntriesFromLeader(int prevLogIndex, int prevLogTerm, List<Entry> entries);
+    AppendEntriesState appendEntriesFromLeader(int prevLogIndex, int prevLogTerm, List<Entry> entries);
+
+    /**
+     * Get next index to replicate from after append entries rpc rejected with hint of conflict, leader side.
+     * <p>
+     * If entry missing, next index is after the last log of follower. Otherwise, next index is after
+     * the last entry of conflict term in leader's log, or the first index of conflict term in follower's log
+     * if leader has no entry of the term. If no hint, next index is previous log index of rpc, i.e. back off by one.
+     * </p>
+     *
+     * @param prevLogIndex  previous log index of rpc
+     * @param conflictTerm  conflict term, {@code 0} if entry missing
+     * @param conflictIndex first index of conflict term, or last log index of follower if entry missing, {@code -1} if no hint
+     * @return next index
+     */
+    int getNextIndexAfterConflict(int prevLogIndex, int conflictTerm, int conflictIndex);
 
     /**
      * Advance commit index.
@@ -143,6 +208,26 @@ public interface Log {
      */
     void advanceCommitIndex(int newCommitIndex, int currentTerm);
 
+    /**
+     * Write all entries to storage without waiting for them to be durable.
+     *
+     * <p>
+     * Used by leader to write entries in parallel with replication.
+     * Written entries are not committed, call {@link WrittenEntries#sync()} in I/O thread if
+     * not durable yet, then count last index of written entries as match index of leader.
+     * </p>
+     *
+     * @return written entries
+     */
+    @Nonnull
+    WrittenEntries writeEntries();
+
+    /**
+     * Force entries written but not forced yet if sync interval elapsed, see {@link DurabilityMode#FSYNC_INTERVAL}.
+     * Called periodically, so that entries are forced within sync interval even if no more entries are written.
+     */
+    void syncIfIntervalElapsed();
+
     /**
      * Install snapshot.
      *
@@ -159,6 +244,47 @@ public interface Log {
      */
     void generateSnapshot(int lastIncludedIndex, Set<NodeEndpoint> groupConfig);
 
+    /**
+     * Prepare generating snapshot from frozen source.
+     * <p>
+     * Returned task writes snapshot and can run in any thread, it does not change log.
+     * Generated snapshot should be installed by {@link #replaceGeneratedSnapshot(Snapshot)},
+     * after the task returned by {@link #prepareReplaceSnapshot(Snapshot)} if any.
+     * </p>
+     *
+     * @param lastIncludedIndex last included index
+     * @param groupConfig       group config
+     * @param source            source frozen at last included index
+     * @return task to generate snapshot, {@code null} if snapshot at last included index is unnecessary
+     */
+    @Nullable
+    Supplier<Snapshot> prepareSnapshot(int lastIncludedIndex, Set<NodeEndpoint> groupConfig, @Nonnull SnapshotSource source);
+
+    /**
+     * Prepare replacing current snapshot with generated one.
+     * <p>
+     * Returned task copies entries after generated snapshot to new files, e.g. entries in file of
+     * {@link FileLog}, and can run in any thread. Entries appended meanwhile are copied by
+     * {@link #replaceGeneratedSnapshot(Snapshot)} later.
+     * </p>
+     *
+     * @param generatedSnapshot generated snapshot
+     * @return task to copy entries, {@code null} if nothing to copy in advance
+     */
+    @Nullable
+    Runnable prepareReplaceSnapshot(@Nonnull Snapshot generatedSnapshot);
+
+    /**
+     * Replace current snapshot with generated one.
+     * <p>
+     * Generated snapshot is dropped if it is not newer than current one, e.g. snapshot from leader
+     * is installed while generating.
+     * </p>
+     *
+     * @param generatedSnapshot generated snapshot
+     */
+    void replaceGeneratedSnapshot(@Nonnull Snapshot generatedSnapshot);
+
     /**
      * Set state machine.
      * <p>
@@ -173,6 +299,14 @@ public interface Log {
      */
     void setStateMachine(StateMachine stateMachine);
 
+    /**
+     * Set listener of log applied.
+     * Listener is called in thread applying logs with index of log applied.
+     *
+     * @param listener listener
+     */
+    void setAppliedListener(@Nonnull IntConsumer listener);
+
     /**
      * Close log files.
      */
@@ -10,10 +10,19 @@ public interface LogDir {
 
     File getSnapshotFile();
 
+    /**
+     * Get file of forced data offset of partial snapshot being installed.
+     *
+     * @return file
+     */
+    File getSnapshotOffsetFile();
+
     File getEntriesFile();
 
     File getEntryOffsetIndexFile();
 
+    File getGroupConfigIndexFile();
+
     File get();
 
     boolean renameTo(LogDir logDir);
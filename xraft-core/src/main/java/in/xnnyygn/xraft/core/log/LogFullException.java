@@ -0,0 +1,17 @@
+package in.xnnyygn.xraft.core.log;
+
+/**
+ * Thrown when too many uncommitted entries to append new entry.
+ */
+public class LogFullException extends LogException {
+
+    /**
+     * Create.
+     *
+     * @param maxPendingEntries max pending entries
+     */
+    public LogFullException(int maxPendingEntries) {
+        super("too many uncommitted entries, max " + maxPendingEntries);
+    }
+
+}
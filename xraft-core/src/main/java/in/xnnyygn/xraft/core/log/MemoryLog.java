@@ -3,10 +3,13 @@ package in.xnnyygn.xraft.core.log;
 import com.google.common.eventbus.EventBus;
 import in.xnnyygn.xraft.core.log.entry.Entry;
 import in.xnnyygn.xraft.core.log.entry.EntryMeta;
+import in.xnnyygn.xraft.core.log.sequence.DirectMemoryEntrySequence;
 import in.xnnyygn.xraft.core.log.sequence.EntrySequence;
 import in.xnnyygn.xraft.core.log.sequence.MemoryEntrySequence;
 import in.xnnyygn.xraft.core.log.snapshot.*;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,17 +33,35 @@ public class MemoryLog extends AbstractLog {
         this(new EmptySnapshot(), new MemoryEntrySequence(), eventBus);
     }
 
+    /**
+     * Create.
+     * Entries are stored off heap if {@link NodeConfig#getMemoryLogChunkSize()} is greater than {@code 0}.
+     *
+     * @param eventBus event bus
+     * @param config   config
+     */
+    public MemoryLog(EventBus eventBus, NodeConfig config) {
+        this(new EmptySnapshot(), config.getMemoryLogChunkSize() > 0 ?
+                new DirectMemoryEntrySequence(1, config.getMemoryLogChunkSize()) : new MemoryEntrySequence(), eventBus, config);
+    }
+
     public MemoryLog(Snapshot snapshot, EntrySequence entrySequence, EventBus eventBus) {
         super(eventBus);
         this.snapshot = snapshot;
         this.entrySequence = entrySequence;
     }
 
+    private MemoryLog(Snapshot snapshot, EntrySequence entrySequence, EventBus eventBus, NodeConfig config) {
+        super(eventBus, config.getMaxPendingLogEntries(), config.getMaxReplicationBytes());
+        this.snapshot = snapshot;
+        this.entrySequence = entrySequence;
+    }
+
     @Override
-    protected Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig) {
+    protected Snapshot generateSnapshot(EntryMeta lastAppliedEntryMeta, Set<NodeEndpoint> groupConfig, SnapshotSource source) {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         try {
-            stateMachine.generateSnapshot(output);
+            source.writeTo(output);
         } catch (IOException e) {
             throw new LogException("failed to generate snapshot", e);
         }
@@ -55,6 +76,14 @@ public class MemoryLog extends AbstractLog {
     @Override
     protected void replaceSnapshot(Snapshot newSnapshot) {
         int logIndexOffset = newSnapshot.getLastIncludedIndex() + 1;
+        if (entrySequence instanceof DirectMemoryEntrySequence) {
+            // drop entries in place instead of copying remaining entries
+            ((DirectMemoryEntrySequence) entrySequence).removeBefore(logIndexOffset);
+            logger.debug("snapshot -> {}", newSnapshot);
+            snapshot = newSnapshot;
+            logger.debug("entry sequence -> {}", entrySequence);
+            return;
+        }
         EntrySequence newEntrySequence = new MemoryEntrySequence(logIndexOffset);
         List<Entry> remainingEntries = entrySequence.subView(logIndexOffset);
         newEntrySequence.append(remainingEntries);
@@ -8,10 +8,13 @@ import java.io.File;
 class RootDir {
 
     static final String FILE_NAME_SNAPSHOT = "service.ss";
+    static final String FILE_NAME_SNAPSHOT_OFFSET = "service.ss.offset";
     static final String FILE_NAME_ENTRIES = "entries.bin";
     static final String FILE_NAME_ENTRY_OFFSET_INDEX = "entries.idx";
+    static final String FILE_NAME_GROUP_CONFIG_INDEX = "group-config.idx";
     private static final String DIR_NAME_GENERATING = "generating";
     private static final String DIR_NAME_INSTALLING = "installing";
+    private static final String DIR_NAME_SEGMENTS = "segments";
 
     private static final Logger logger = LoggerFactory.getLogger(RootDir.class);
     private final File baseDir;
@@ -39,6 +42,10 @@ class RootDir {
         return logDir;
     }
 
+    File getSegmentsDir() {
+        return new File(baseDir, DIR_NAME_SEGMENTS);
+    }
+
     LogDir rename(LogDir dir, int lastIncludedIndex) {
         LogGeneration destDir = new LogGeneration(baseDir, lastIncludedIndex);
         if (destDir.exists()) {
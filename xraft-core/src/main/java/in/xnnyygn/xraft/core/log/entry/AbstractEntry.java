@@ -1,5 +1,7 @@
 package in.xnnyygn.xraft.core.log.entry;
 
+import java.nio.ByteBuffer;
+
 abstract class AbstractEntry implements Entry {
 
     private final int kind;
@@ -32,4 +34,14 @@ abstract class AbstractEntry implements Entry {
         return new EntryMeta(kind, index, term);
     }
 
+    @Override
+    public ByteBuffer getCommandBuffer() {
+        return ByteBuffer.wrap(getCommandBytes()).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int getCommandLength() {
+        return getCommandBytes().length;
+    }
+
 }
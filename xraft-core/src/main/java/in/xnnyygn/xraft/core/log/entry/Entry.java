@@ -1,5 +1,7 @@
 package in.xnnyygn.xraft.core.log.entry;
 
+import java.nio.ByteBuffer;
+
 public interface Entry {
 
     int KIND_NO_OP = 0;
@@ -17,4 +19,13 @@ public interface Entry {
 
     byte[] getCommandBytes();
 
+    /**
+     * Get command as read-only buffer, no copy if entry keeps command as buffer.
+     *
+     * @return command buffer
+     */
+    ByteBuffer getCommandBuffer();
+
+    int getCommandLength();
+
 }
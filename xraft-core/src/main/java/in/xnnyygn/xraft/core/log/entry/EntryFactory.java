@@ -5,6 +5,7 @@ import in.xnnyygn.xraft.core.Protos;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -32,6 +33,37 @@ public class EntryFactory {
         }
     }
 
+    /**
+     * Create entry from command buffer.
+     * Command of general entry is not copied, buffer must not be modified after creation.
+     *
+     * @param kind          kind
+     * @param index         index
+     * @param term          term
+     * @param commandBuffer command buffer
+     * @return entry
+     */
+    public Entry create(int kind, int index, int term, ByteBuffer commandBuffer) {
+        try {
+            switch (kind) {
+                case Entry.KIND_NO_OP:
+                    return new NoOpEntry(index, term);
+                case Entry.KIND_GENERAL:
+                    return new GeneralEntry(index, term, commandBuffer);
+                case Entry.KIND_ADD_NODE:
+                    Protos.AddNodeCommand addNodeCommand = Protos.AddNodeCommand.parseFrom(commandBuffer.duplicate());
+                    return new AddNodeEntry(index, term, asNodeEndpoints(addNodeCommand.getNodeEndpointsList()), asNodeEndpoint(addNodeCommand.getNewNodeEndpoint()));
+                case Entry.KIND_REMOVE_NODE:
+                    Protos.RemoveNodeCommand removeNodeCommand = Protos.RemoveNodeCommand.parseFrom(commandBuffer.duplicate());
+                    return new RemoveNodeEntry(index, term, asNodeEndpoints(removeNodeCommand.getNodeEndpointsList()), new NodeId(removeNodeCommand.getNodeToRemove()));
+                default:
+                    throw new IllegalArgumentException("unexpected entry kind " + kind);
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("failed to parse command", e);
+        }
+    }
+
     private Set<NodeEndpoint> asNodeEndpoints(Collection<Protos.NodeEndpoint> protoNodeEndpoints) {
         return protoNodeEndpoints.stream().map(this::asNodeEndpoint).collect(Collectors.toSet());
     }
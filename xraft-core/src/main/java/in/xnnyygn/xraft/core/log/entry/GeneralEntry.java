@@ -1,17 +1,54 @@
 package in.xnnyygn.xraft.core.log.entry;
 
+import java.nio.ByteBuffer;
+
+/**
+ * General entry.
+ * <p>
+ * Command is kept as byte array, or as read-only buffer, e.g. a view of the payload of
+ * an append entries rpc, so no copy is made until {@link #getCommandBytes()} is called.
+ * </p>
+ */
 public class GeneralEntry extends AbstractEntry {
 
     private final byte[] commandBytes;
+    private final ByteBuffer commandBuffer;
 
     public GeneralEntry(int index, int term, byte[] commandBytes) {
         super(KIND_GENERAL, index, term);
         this.commandBytes = commandBytes;
+        this.commandBuffer = null;
     }
 
+    public GeneralEntry(int index, int term, ByteBuffer commandBuffer) {
+        super(KIND_GENERAL, index, term);
+        this.commandBytes = null;
+        this.commandBuffer = commandBuffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Get command bytes, copied if command is kept as buffer.
+     *
+     * @return command bytes
+     */
     @Override
     public byte[] getCommandBytes() {
-        return this.commandBytes;
+        if (commandBytes != null) {
+            return commandBytes;
+        }
+        byte[] bytes = new byte[commandBuffer.remaining()];
+        commandBuffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer getCommandBuffer() {
+        return commandBytes != null ? ByteBuffer.wrap(commandBytes).asReadOnlyBuffer() : commandBuffer.duplicate();
+    }
+
+    @Override
+    public int getCommandLength() {
+        return commandBytes != null ? commandBytes.length : commandBuffer.remaining();
     }
 
     @Override
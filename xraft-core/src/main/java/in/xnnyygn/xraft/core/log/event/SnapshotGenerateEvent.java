@@ -1,15 +1,35 @@
 package in.xnnyygn.xraft.core.log.event;
 
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
+
+import javax.annotation.Nullable;
+
 public class SnapshotGenerateEvent {
 
     private final int lastIncludedIndex;
+    private final SnapshotSource source;
 
     public SnapshotGenerateEvent(int lastIncludedIndex) {
+        this(lastIncludedIndex, null);
+    }
+
+    public SnapshotGenerateEvent(int lastIncludedIndex, @Nullable SnapshotSource source) {
         this.lastIncludedIndex = lastIncludedIndex;
+        this.source = source;
     }
 
     public int getLastIncludedIndex() {
         return lastIncludedIndex;
     }
 
+    /**
+     * Get frozen source.
+     *
+     * @return source, {@code null} if state machine does not support freezing
+     */
+    @Nullable
+    public SnapshotSource getSource() {
+        return source;
+    }
+
 }
@@ -16,6 +16,10 @@ abstract class AbstractEntrySequence implements EntrySequence {
         this.nextLogIndex = logIndexOffset;
     }
 
+    @Override
+    public void syncIfIntervalElapsed() {
+    }
+
     @Override
     public boolean isEmpty() {
         return logIndexOffset == nextLogIndex;
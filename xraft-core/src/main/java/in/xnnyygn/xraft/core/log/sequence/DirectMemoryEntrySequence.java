@@ -0,0 +1,228 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.EntryFactory;
+import in.xnnyygn.xraft.core.log.entry.EntryMeta;
+import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory entry sequence storing entries off heap.
+ * <p>
+ * Records of (kind, command length, command) are appended to chunks of direct buffers.
+ * Offsets and terms of entries are kept in primitive arrays, entries are created only when accessed,
+ * and commands of created entries are read-only views of chunks.
+ * </p>
+ * <p>
+ * Chunks are never overwritten, so views stay valid after removal. Space of entries removed from tail
+ * is not reused, chunks before the first entry are released when entries are removed from head.
+ * </p>
+ */
+@NotThreadSafe
+public class DirectMemoryEntrySequence extends AbstractEntrySequence {
+
+    private static final int LENGTH_RECORD_HEADER = 8;
+    private static final int INITIAL_CAPACITY = 16;
+    private final int chunkSize;
+    private final EntryFactory entryFactory = new EntryFactory();
+    // chunk number - chunkBase is position in list, released chunks are null until compacted
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int chunkBase = 0;
+    private int firstChunkNo = 0;
+    private ByteBuffer currentChunk;
+    // entry index - logIndexOffset + tableStart is position in tables
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] terms = new int[INITIAL_CAPACITY];
+    private int tableStart = 0;
+    private GroupConfigEntryList groupConfigEntryList = new GroupConfigEntryList();
+
+    /**
+     * Create.
+     *
+     * @param logIndexOffset log index offset
+     * @param chunkSize      size of chunk in bytes, larger chunk is allocated for large command
+     */
+    public DirectMemoryEntrySequence(int logIndexOffset, int chunkSize) {
+        super(logIndexOffset);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size <= 0");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    private int toTablePosition(int index) {
+        return index - logIndexOffset + tableStart;
+    }
+
+    @Override
+    protected List<Entry> doSubList(int fromIndex, int toIndex) {
+        List<Entry> result = new ArrayList<>(toIndex - fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            result.add(doGetEntry(i));
+        }
+        return result;
+    }
+
+    @Override
+    protected Entry doGetEntry(int index) {
+        int position = toTablePosition(index);
+        ByteBuffer record = getRecord(offsets[position]);
+        int kind = record.getInt();
+        int length = record.getInt();
+        record.limit(record.position() + length);
+        return entryFactory.create(kind, index, terms[position], record.slice());
+    }
+
+    @Override
+    public EntryMeta getEntryMeta(int index) {
+        if (!isEntryPresent(index)) {
+            return null;
+        }
+        int position = toTablePosition(index);
+        return new EntryMeta(getRecord(offsets[position]).getInt(), index, terms[position]);
+    }
+
+    private ByteBuffer getRecord(long offset) {
+        ByteBuffer record = chunks.get((int) (offset >>> 32) - chunkBase).duplicate();
+        record.position((int) offset);
+        return record;
+    }
+
+    @Override
+    protected void doAppend(Entry entry) {
+        ByteBuffer commandBuffer = entry.getCommandBuffer();
+        int length = LENGTH_RECORD_HEADER + commandBuffer.remaining();
+        if (currentChunk == null || currentChunk.remaining() < length) {
+            currentChunk = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+            chunks.add(currentChunk);
+        }
+        long offset = ((long) (chunkBase + chunks.size() - 1) << 32) | currentChunk.position();
+        currentChunk.putInt(entry.getKind());
+        currentChunk.putInt(commandBuffer.remaining());
+        currentChunk.put(commandBuffer);
+
+        int position = toTablePosition(entry.getIndex());
+        if (position == offsets.length) {
+            position = ensureCapacity();
+        }
+        offsets[position] = offset;
+        terms[position] = entry.getTerm();
+        if (entry instanceof GroupConfigEntry) {
+            groupConfigEntryList.add((GroupConfigEntry) entry);
+        }
+    }
+
+    /**
+     * Move entries to the beginning of tables, and grow tables if more than half is used.
+     *
+     * @return position of next entry
+     */
+    private int ensureCapacity() {
+        int count = nextLogIndex - logIndexOffset;
+        if (count >= offsets.length / 2) {
+            long[] newOffsets = new long[offsets.length * 2];
+            int[] newTerms = new int[offsets.length * 2];
+            System.arraycopy(offsets, tableStart, newOffsets, 0, count);
+            System.arraycopy(terms, tableStart, newTerms, 0, count);
+            offsets = newOffsets;
+            terms = newTerms;
+        } else {
+            System.arraycopy(offsets, tableStart, offsets, 0, count);
+            System.arraycopy(terms, tableStart, terms, 0, count);
+        }
+        tableStart = 0;
+        return count;
+    }
+
+    /**
+     * Remove entries before {@code index}, in constant time except releasing chunks.
+     * If {@code index} is after last entry, sequence becomes empty and starts at {@code index}.
+     *
+     * @param index index
+     */
+    public void removeBefore(int index) {
+        if (index <= logIndexOffset) {
+            return;
+        }
+        if (index >= nextLogIndex) {
+            releaseChunksBefore(chunkBase + chunks.size());
+            currentChunk = null;
+            tableStart = 0;
+            logIndexOffset = index;
+            nextLogIndex = index;
+            groupConfigEntryList = new GroupConfigEntryList();
+            return;
+        }
+        tableStart = toTablePosition(index);
+        logIndexOffset = index;
+        releaseChunksBefore((int) (offsets[tableStart] >>> 32));
+    }
+
+    private void releaseChunksBefore(int chunkNo) {
+        for (; firstChunkNo < chunkNo; firstChunkNo++) {
+            chunks.set(firstChunkNo - chunkBase, null);
+        }
+        // compact when more than half of list is released
+        int released = firstChunkNo - chunkBase;
+        if (released > 0 && released * 2 >= chunks.size()) {
+            chunks.subList(0, released).clear();
+            chunkBase = firstChunkNo;
+        }
+    }
+
+    @Override
+    public void commit(int index) {
+    }
+
+    @Override
+    public WrittenEntries write(int index) {
+        return new WrittenEntries(index);
+    }
+
+    @Override
+    public int getCommitIndex() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GroupConfigEntryList buildGroupConfigEntryList() {
+        GroupConfigEntryList list = new GroupConfigEntryList();
+        for (GroupConfigEntry entry : groupConfigEntryList) {
+            if (entry.getIndex() >= logIndexOffset) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    protected void doRemoveAfter(int index) {
+        if (index < doGetFirstLogIndex()) {
+            nextLogIndex = logIndexOffset;
+            tableStart = 0;
+        } else {
+            nextLogIndex = index + 1;
+        }
+        groupConfigEntryList.removeAfter(index);
+    }
+
+    @Override
+    public void close() {
+        chunks.clear();
+        currentChunk = null;
+    }
+
+    @Override
+    public String toString() {
+        return "DirectMemoryEntrySequence{" +
+                "logIndexOffset=" + logIndexOffset +
+                ", nextLogIndex=" + nextLogIndex +
+                ", chunks.size=" + (chunkBase + chunks.size() - firstChunkNo) +
+                '}';
+    }
+
+}
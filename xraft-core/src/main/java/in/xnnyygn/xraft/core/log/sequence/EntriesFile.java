@@ -1,65 +1,442 @@
 package in.xnnyygn.xraft.core.log.sequence;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import in.xnnyygn.xraft.core.log.entry.Entry;
 import in.xnnyygn.xraft.core.log.entry.EntryFactory;
 import in.xnnyygn.xraft.core.support.RandomAccessFileAdapter;
 import in.xnnyygn.xraft.core.support.SeekableFile;
 
+import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Entries file.
+ * <p>
+ * Version 1: records of (kind, index, term, command length, command), no file header.
+ * </p>
+ * <p>
+ * Version 2: file header (magic, version), then records of
+ * (kind, index, term, command length, CRC32C, command).
+ * The checksum covers the first four fields and the command.
+ * New files are always version 2.
+ * </p>
+ * <p>
+ * If preallocation is enabled, zeros are filled after the last entry chunk by chunk. End of data is kept
+ * in memory, and after restart it is found by recovery, which stops at the first zeroed record.
+ * Space after data is removed when file is closed.
+ * </p>
+ */
 public class EntriesFile {
 
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    private static final int MAGIC = 0x58524c47; // XRLG
+    private static final int LENGTH_FILE_HEADER = 8;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int LOAD_CHUNK_SIZE = 1024 * 1024;
+    private static final HashFunction CRC32C = Hashing.crc32c();
     private final SeekableFile seekableFile;
+    private final int version;
+    private final long dataStart;
+    private final int entryHeaderLength;
+    private final Preallocation preallocation;
+    private long dataEnd;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
 
-    public EntriesFile(File file) throws FileNotFoundException {
+    public EntriesFile(File file) throws IOException {
         this(new RandomAccessFileAdapter(file));
     }
 
-    public EntriesFile(SeekableFile seekableFile) {
+    public EntriesFile(SeekableFile seekableFile) throws IOException {
+        this(seekableFile, 0);
+    }
+
+    /**
+     * Create.
+     *
+     * @param seekableFile    seekable file
+     * @param preallocateSize chunk size of preallocation, {@code 0} to disable
+     * @throws IOException if failed to read or write file header
+     */
+    public EntriesFile(SeekableFile seekableFile, int preallocateSize) throws IOException {
         this.seekableFile = seekableFile;
+        if (seekableFile.size() == 0L) {
+            seekableFile.seek(0L);
+            seekableFile.writeInt(MAGIC);
+            seekableFile.writeInt(VERSION_2);
+            version = VERSION_2;
+        } else if (seekableFile.size() >= LENGTH_FILE_HEADER && readMagic(seekableFile) == MAGIC) {
+            version = seekableFile.readInt();
+            if (version != VERSION_2) {
+                throw new IOException("unsupported version of entries file " + version);
+            }
+        } else {
+            // old file without header, starts with kind of first entry
+            version = VERSION_1;
+        }
+        dataStart = (version == VERSION_1 ? 0L : LENGTH_FILE_HEADER);
+        entryHeaderLength = (version == VERSION_1 ? 16 : 20);
+        // zeros after data are counted until recovery truncates them
+        dataEnd = seekableFile.size();
+        preallocation = new Preallocation(preallocateSize, dataEnd);
+    }
+
+    private static int readMagic(SeekableFile seekableFile) throws IOException {
+        seekableFile.seek(0L);
+        return seekableFile.readInt();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get offset of first entry.
+     *
+     * @return offset of first entry
+     */
+    public long getDataStart() {
+        return dataStart;
     }
 
     public long appendEntry(Entry entry) throws IOException {
-        long offset = seekableFile.size();
+        return appendEntries(Collections.singletonList(entry))[0];
+    }
+
+    /**
+     * Append entries as one block.
+     *
+     * @param entries entries
+     * @return offsets of entries
+     * @throws IOException if failed to write
+     */
+    public long[] appendEntries(List<Entry> entries) throws IOException {
+        long offset = dataEnd;
+        long[] offsets = new long[entries.size()];
+        // command buffers are copied into block once, no array per entry
+        ByteBuffer[] commandBuffers = new ByteBuffer[entries.size()];
+        int size = 0;
+        int i = 0;
+        for (Entry entry : entries) {
+            commandBuffers[i] = entry.getCommandBuffer();
+            offsets[i] = offset + size;
+            size += entryHeaderLength + commandBuffers[i].remaining();
+            i++;
+        }
+        ByteBuffer block = ByteBuffer.allocate(size);
+        i = 0;
+        for (Entry entry : entries) {
+            encode(entry, commandBuffers[i++], block);
+        }
         seekableFile.seek(offset);
-        seekableFile.writeInt(entry.getKind());
-        seekableFile.writeInt(entry.getIndex());
-        seekableFile.writeInt(entry.getTerm());
-        byte[] commandBytes = entry.getCommandBytes();
-        seekableFile.writeInt(commandBytes.length);
-        seekableFile.write(commandBytes);
-        return offset;
+        seekableFile.write(block.array());
+        dataEnd = offset + size;
+        preallocation.allocate(seekableFile, dataEnd);
+        return offsets;
+    }
+
+    private void encode(Entry entry, ByteBuffer commandBuffer, ByteBuffer block) {
+        int start = block.position();
+        block.putInt(entry.getKind());
+        block.putInt(entry.getIndex());
+        block.putInt(entry.getTerm());
+        block.putInt(commandBuffer.remaining());
+        if (version == VERSION_2) {
+            block.putInt(checksum(block.array(), start, commandBuffer.duplicate()));
+        }
+        block.put(commandBuffer);
+    }
+
+    /**
+     * Copy records from {@code fromOffset} to the end of {@code target} by byte range,
+     * through {@link #readBuffer}. Versions of both files must be same.
+     *
+     * @param fromOffset offset of first record
+     * @param target     target
+     * @return offset of first record in target
+     * @throws IOException if failed to read or write
+     */
+    public long transferTo(long fromOffset, EntriesFile target) throws IOException {
+        return transferTo(fromOffset, dataEnd, target);
+    }
+
+    /**
+     * Copy records from {@code fromOffset} to {@code toOffset} to the end of {@code target} by byte range.
+     *
+     * @param fromOffset offset of first record
+     * @param toOffset   end offset of last record, exclusive
+     * @param target     target
+     * @return offset of first record in target
+     * @throws IOException if failed to read or write
+     * @see #transferTo(long, EntriesFile)
+     */
+    public long transferTo(long fromOffset, long toOffset, EntriesFile target) throws IOException {
+        if (target.version != version) {
+            throw new IllegalArgumentException("version of target " + target.version + " != " + version);
+        }
+        if (fromOffset < dataStart || fromOffset > toOffset || toOffset > dataEnd) {
+            throw new IllegalArgumentException("illegal range [" + fromOffset + ", " + toOffset + ")");
+        }
+        long targetOffset = target.dataEnd;
+        target.seekableFile.seek(targetOffset);
+        for (long offset = fromOffset; offset < toOffset; ) {
+            int n = seekableFile.read(offset, readBuffer, 0, (int) Math.min(readBuffer.length, toOffset - offset));
+            if (n <= 0) {
+                throw new EOFException("unexpected end of entries file at " + offset);
+            }
+            target.seekableFile.write(n == readBuffer.length ? readBuffer : Arrays.copyOf(readBuffer, n));
+            offset += n;
+        }
+        target.dataEnd = targetOffset + (toOffset - fromOffset);
+        target.preallocation.allocate(target.seekableFile, target.dataEnd);
+        return targetOffset;
+    }
+
+    /**
+     * Calculate checksum of record.
+     *
+     * @param header       header of record, first 16 bytes are used
+     * @param commandBytes command bytes
+     * @return checksum
+     */
+    private int checksum(byte[] header, byte[] commandBytes) {
+        return checksum(header, 0, ByteBuffer.wrap(commandBytes));
+    }
+
+    private int checksum(byte[] header, int headerOffset, ByteBuffer commandBuffer) {
+        return CRC32C.newHasher()
+                .putBytes(header, headerOffset, 16)
+                .putBytes(commandBuffer)
+                .hash().asInt();
     }
 
     public Entry loadEntry(long offset, EntryFactory factory) throws IOException {
-        if (offset > seekableFile.size()) {
-            throw new IllegalArgumentException("offset > size");
+        if (offset >= dataEnd) {
+            throw new IllegalArgumentException("offset >= size");
         }
-        seekableFile.seek(offset);
-        int kind = seekableFile.readInt();
-        int index = seekableFile.readInt();
-        int term = seekableFile.readInt();
-        int length = seekableFile.readInt();
-        byte[] bytes = new byte[length];
-        seekableFile.read(bytes);
-        return factory.create(kind, index, term, bytes);
+        return loadEntries(offset, offset + 1, factory).get(0);
     }
 
-    public long size() throws IOException {
-        return seekableFile.size();
+    /**
+     * Load entries which start in range [{@code fromOffset}, {@code toOffset}).
+     * <p>
+     * Range is read chunk by chunk into heap buffers by positional reads. Commands are slices of the chunk
+     * instead of copies, so a chunk is kept until entries in it are dropped. An entry across the end of
+     * chunk is read into its own buffer, e.g. the last entry which may end after {@code toOffset}.
+     * </p>
+     *
+     * @param fromOffset offset of first entry
+     * @param toOffset   end offset, exclusive
+     * @param factory    entry factory
+     * @return entries
+     * @throws IOException if failed to read, or checksum mismatch
+     */
+    public List<Entry> loadEntries(long fromOffset, long toOffset, EntryFactory factory) throws IOException {
+        long fileSize = seekableFile.size();
+        if (fromOffset < 0 || fromOffset > toOffset || toOffset > fileSize) {
+            throw new IllegalArgumentException("illegal range [" + fromOffset + ", " + toOffset + "), file size " + fileSize);
+        }
+        List<Entry> entries = new ArrayList<>();
+        long chunkOffset = fromOffset;
+        while (chunkOffset < toOffset) {
+            byte[] chunk = new byte[(int) Math.min(LOAD_CHUNK_SIZE, toOffset - chunkOffset)];
+            readFully(chunkOffset, chunk, 0, chunk.length);
+            int position = 0;
+            while (position < chunk.length) {
+                byte[] bytes = chunk;
+                int start = position;
+                if (position + entryHeaderLength > chunk.length ||
+                        position + entryHeaderLength + ByteBuffer.wrap(chunk).getInt(position + 12) > chunk.length) {
+                    bytes = readRecordAcrossChunk(chunk, position, chunkOffset);
+                    start = 0;
+                }
+                ByteBuffer header = ByteBuffer.wrap(bytes, start, entryHeaderLength);
+                int kind = header.getInt();
+                int index = header.getInt();
+                int term = header.getInt();
+                int length = header.getInt();
+                int checksum = (version == VERSION_2 ? header.getInt() : 0);
+                if (length < 0) {
+                    throw new IOException("illegal command length " + length + " of entry " + index + " at offset " + (chunkOffset + position));
+                }
+                ByteBuffer commandBuffer = ByteBuffer.wrap(bytes, start + entryHeaderLength, length).slice();
+                if (version == VERSION_2 && checksum(bytes, start, commandBuffer.duplicate()) != checksum) {
+                    throw new IOException("checksum mismatch, entry " + index + " at offset " + (chunkOffset + position));
+                }
+                entries.add(factory.create(kind, index, term, commandBuffer));
+                position += entryHeaderLength + length;
+            }
+            chunkOffset += position;
+        }
+        return entries;
     }
 
+    /**
+     * Read record starting at {@code position} of chunk but ending after the chunk. Bytes in chunk are copied.
+     *
+     * @param chunk       chunk
+     * @param position    position of record in chunk
+     * @param chunkOffset offset of chunk in file
+     * @return bytes of record
+     * @throws IOException if failed to read or reach end of file
+     */
+    private byte[] readRecordAcrossChunk(byte[] chunk, int position, long chunkOffset) throws IOException {
+        int inChunk = chunk.length - position;
+        byte[] header = Arrays.copyOfRange(chunk, position, position + entryHeaderLength);
+        if (inChunk < entryHeaderLength) {
+            readFully(chunkOffset + chunk.length, header, inChunk, entryHeaderLength - inChunk);
+        }
+        int length = ByteBuffer.wrap(header).getInt(12);
+        if (length < 0) {
+            throw new IOException("illegal command length " + length + " at offset " + (chunkOffset + position));
+        }
+        byte[] record = Arrays.copyOfRange(chunk, position, position + entryHeaderLength + length);
+        System.arraycopy(header, 0, record, 0, entryHeaderLength);
+        int known = Math.max(inChunk, entryHeaderLength);
+        readFully(chunkOffset + position + known, record, known, record.length - known);
+        return record;
+    }
+
+    private void readFully(long offset, byte[] b, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            int read = seekableFile.read(offset + n, b, off + n, len - n);
+            if (read <= 0) {
+                throw new EOFException("unexpected end of entries file at " + (offset + n));
+            }
+            n += read;
+        }
+    }
+
+    /**
+     * Read record at offset for recovery.
+     *
+     * @param offset  offset
+     * @param factory entry factory
+     * @return record, {@code null} if record is torn or corrupted
+     * @throws IOException if failed to read
+     */
+    @Nullable
+    Record readRecord(long offset, EntryFactory factory) throws IOException {
+        long fileSize = seekableFile.size();
+        if (offset < dataStart || offset + entryHeaderLength > fileSize) {
+            return null;
+        }
+        byte[] header = new byte[entryHeaderLength];
+        if (seekableFile.read(offset, header, 0, header.length) != header.length) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        int kind = buffer.getInt();
+        int index = buffer.getInt();
+        int term = buffer.getInt();
+        int length = buffer.getInt();
+        long end = offset + entryHeaderLength + length;
+        if (length < 0 || end > fileSize) {
+            return null;
+        }
+        byte[] commandBytes = new byte[length];
+        if (length > 0 && seekableFile.read(offset + entryHeaderLength, commandBytes, 0, length) != length) {
+            return null;
+        }
+        if (version == VERSION_2 && checksum(header, commandBytes) != buffer.getInt()) {
+            return null;
+        }
+        try {
+            return new Record(factory.create(kind, index, term, commandBytes), offset, end);
+        } catch (RuntimeException e) {
+            // unknown kind, or illegal command of group config entry in version 1
+            return null;
+        }
+    }
+
+    /**
+     * Entry with its position in file.
+     */
+    static class Record {
+
+        private final Entry entry;
+        private final long offset;
+        private final long end;
+
+        Record(Entry entry, long offset, long end) {
+            this.entry = entry;
+            this.offset = offset;
+            this.end = end;
+        }
+
+        Entry getEntry() {
+            return entry;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Get offset after record.
+         *
+         * @return offset after record
+         */
+        long getEnd() {
+            return end;
+        }
+
+    }
+
+    /**
+     * Get size of data, zeros preallocated are not included.
+     *
+     * @return size
+     */
+    public long size() {
+        return dataEnd;
+    }
+
+    /**
+     * Remove all entries, file header is kept.
+     *
+     * @throws IOException if failed to truncate
+     */
     public void clear() throws IOException {
-        truncate(0L);
+        truncate(dataStart);
     }
 
+    /**
+     * Truncate file. Space preallocated is removed too, or records after {@code offset}
+     * would be read again by recovery.
+     *
+     * @param offset offset
+     * @throws IOException if failed to truncate
+     */
     public void truncate(long offset) throws IOException {
         seekableFile.truncate(offset);
+        dataEnd = offset;
+        preallocation.truncated(offset);
+    }
+
+    public void flush() throws IOException {
+        seekableFile.flush();
+    }
+
+    public void force() throws IOException {
+        seekableFile.force();
+    }
+
+    public void forceWritten() throws IOException {
+        seekableFile.forceWritten();
     }
 
     public void close() throws IOException {
+        preallocation.trim(seekableFile, dataEnd);
         seekableFile.close();
     }
 
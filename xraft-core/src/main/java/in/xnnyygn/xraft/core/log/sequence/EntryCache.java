@@ -0,0 +1,129 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Byte-bounded cache of recently committed entries.
+ * <p>
+ * Entries are kept in a ring of consecutive log indexes, the oldest entries are evicted when
+ * estimated bytes of cached entries exceed the limit.
+ * </p>
+ */
+@NotThreadSafe
+public class EntryCache {
+
+    /**
+     * Estimated bytes of entry object except command bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    private final EntryRingBuffer entries = new EntryRingBuffer();
+    private final long maxBytes;
+    private long bytes = 0L;
+    private long hitCount = 0L;
+    private long missCount = 0L;
+
+    /**
+     * Create.
+     *
+     * @param maxBytes max estimated bytes of cached entries, {@code 0} to disable cache
+     */
+    public EntryCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get entry.
+     *
+     * @param index index
+     * @return entry, {@code null} if not cached
+     */
+    public Entry get(int index) {
+        Entry entry = entries.get(index);
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Check if entry is cached, hit and miss are not counted.
+     *
+     * @param index index
+     * @return true if cached, otherwise false
+     */
+    public boolean contains(int index) {
+        return entries.contains(index);
+    }
+
+    /**
+     * Add committed entry.
+     * Cached entries will be dropped if index of entry is not next to the last cached one.
+     *
+     * @param entry entry
+     */
+    public void add(Entry entry) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        if (!entries.isEmpty() && entry.getIndex() != entries.getLastIndex() + 1) {
+            clear();
+        }
+        entries.add(entry);
+        bytes += sizeOf(entry);
+        while (bytes > maxBytes && !entries.isEmpty()) {
+            bytes -= sizeOf(entries.removeFirst());
+        }
+    }
+
+    private int sizeOf(Entry entry) {
+        return ENTRY_OVERHEAD + entry.getCommandLength();
+    }
+
+    /**
+     * Remove entries whose index is greater than {@code index}.
+     *
+     * @param index index
+     */
+    public void removeAfter(int index) {
+        while (!entries.isEmpty() && entries.getLastIndex() > index) {
+            bytes -= sizeOf(entries.getLast());
+            entries.removeAfter(entries.getLastIndex() - 1);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        bytes = 0L;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+        return "EntryCache{" +
+                "entryCount=" + entries.size() +
+                ", bytes=" + bytes +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                '}';
+    }
+
+}
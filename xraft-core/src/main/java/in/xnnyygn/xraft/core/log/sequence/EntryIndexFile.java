@@ -1,54 +1,130 @@
 package in.xnnyygn.xraft.core.log.sequence;
 
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.EntryMeta;
 import in.xnnyygn.xraft.core.support.RandomAccessFileAdapter;
 import in.xnnyygn.xraft.core.support.SeekableFile;
 
 import javax.annotation.Nonnull;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 
+/**
+ * Entry index file.
+ * <p>
+ * Index items are kept in parallel primitive arrays addressed by {@code index - minEntryIndex},
+ * so lookup is pure arithmetic and no object is created per entry.
+ * </p>
+ * <p>
+ * If preallocation is enabled, zeros are filled after the last item chunk by chunk. Max entry index
+ * in header is the end of items, items are written before it. Space after items is removed when loaded or closed.
+ * </p>
+ */
 public class EntryIndexFile implements Iterable<EntryIndexItem> {
 
     private static final long OFFSET_MAX_ENTRY_INDEX = Integer.BYTES;
     private static final int LENGTH_ENTRY_INDEX_ITEM = 16;
+    private static final int LENGTH_HEADER = Integer.BYTES * 2;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ITEMS_PER_READ = 4096;
     private final SeekableFile seekableFile;
     private int entryIndexCount;
     private int minEntryIndex;
     private int maxEntryIndex;
-    private Map<Integer, EntryIndexItem> entryIndexMap = new HashMap<>();
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    private int[] terms = new int[INITIAL_CAPACITY];
+    private final Preallocation preallocation;
 
     public EntryIndexFile(File file) throws IOException {
         this(new RandomAccessFileAdapter(file));
     }
 
     public EntryIndexFile(SeekableFile seekableFile) throws IOException {
+        this(seekableFile, 0);
+    }
+
+    /**
+     * Create.
+     *
+     * @param seekableFile    seekable file
+     * @param preallocateSize chunk size of preallocation, {@code 0} to disable
+     * @throws IOException if failed to load
+     */
+    public EntryIndexFile(SeekableFile seekableFile, int preallocateSize) throws IOException {
         this.seekableFile = seekableFile;
         load();
+        preallocation = new Preallocation(preallocateSize, seekableFile.size());
     }
 
     private void load() throws IOException {
-        if (seekableFile.size() == 0L) {
+        long size = seekableFile.size();
+        if (size < LENGTH_HEADER) {
+            // empty, or header torn
+            if (size > 0L) {
+                seekableFile.truncate(0L);
+            }
             entryIndexCount = 0;
             return;
         }
+        seekableFile.seek(0L);
         minEntryIndex = seekableFile.readInt();
         maxEntryIndex = seekableFile.readInt();
         updateEntryIndexCount();
-        long offset;
-        int kind;
-        int term;
-        for (int i = minEntryIndex; i <= maxEntryIndex; i++) {
-            offset = seekableFile.readLong();
-            kind = seekableFile.readInt();
-            term = seekableFile.readInt();
-            entryIndexMap.put(i, new EntryIndexItem(i, offset, kind, term));
+
+        // items and max entry index are not written atomically, trust items in file only
+        int itemCount = (int) ((size - LENGTH_HEADER) / LENGTH_ENTRY_INDEX_ITEM);
+        if (itemCount == 0 || entryIndexCount <= 0) {
+            seekableFile.truncate(0L);
+            entryIndexCount = 0;
+            return;
+        }
+        if (entryIndexCount != itemCount || size != LENGTH_HEADER + (long) itemCount * LENGTH_ENTRY_INDEX_ITEM) {
+            entryIndexCount = Math.min(entryIndexCount, itemCount);
+            maxEntryIndex = minEntryIndex + entryIndexCount - 1;
+            seekableFile.seek(OFFSET_MAX_ENTRY_INDEX);
+            seekableFile.writeInt(maxEntryIndex);
+            seekableFile.truncate(getOffsetOfEntryIndexItem(maxEntryIndex + 1));
+            seekableFile.seek(LENGTH_HEADER);
+        }
+        ensureCapacity(entryIndexCount);
+
+        // read items in bulk instead of field by field
+        byte[] buffer = new byte[Math.min(entryIndexCount, ITEMS_PER_READ) * LENGTH_ENTRY_INDEX_ITEM];
+        int loaded = 0;
+        while (loaded < entryIndexCount) {
+            int n = Math.min(entryIndexCount - loaded, ITEMS_PER_READ);
+            if (n * LENGTH_ENTRY_INDEX_ITEM != buffer.length) {
+                buffer = new byte[n * LENGTH_ENTRY_INDEX_ITEM];
+            }
+            if (seekableFile.read(buffer) != buffer.length) {
+                throw new EOFException("unexpected end of entry index file");
+            }
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            for (int i = 0; i < n; i++, loaded++) {
+                offsets[loaded] = byteBuffer.getLong();
+                kinds[loaded] = byteBuffer.getInt();
+                terms[loaded] = byteBuffer.getInt();
+            }
         }
     }
 
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, offsets.length + (offsets.length >> 1));
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        terms = Arrays.copyOf(terms, newCapacity);
+    }
+
     private void updateEntryIndexCount() {
         entryIndexCount = maxEntryIndex - minEntryIndex + 1;
     }
@@ -78,38 +154,166 @@ public class EntryIndexFile implements Iterable<EntryIndexItem> {
     }
 
     public void appendEntryIndex(int index, long offset, int kind, int term) throws IOException {
-        if (seekableFile.size() == 0L) {
+        if (isEmpty()) {
+            seekableFile.seek(0L);
+            seekableFile.writeInt(index);
             seekableFile.writeInt(index);
             minEntryIndex = index;
-        } else {
-            if (index != maxEntryIndex + 1) {
-                throw new IllegalArgumentException("index must be " + (maxEntryIndex + 1) + ", but was " + index);
-            }
-            seekableFile.seek(OFFSET_MAX_ENTRY_INDEX); // skip min entry index
+        } else if (index != maxEntryIndex + 1) {
+            throw new IllegalArgumentException("index must be " + (maxEntryIndex + 1) + ", but was " + index);
         }
 
-        // write max entry index
-        seekableFile.writeInt(index);
-        maxEntryIndex = index;
-        updateEntryIndexCount();
-
-        // move to position after last entry offset
+        // write item before max entry index, max entry index never points to missing item
         seekableFile.seek(getOffsetOfEntryIndexItem(index));
         seekableFile.writeLong(offset);
         seekableFile.writeInt(kind);
         seekableFile.writeInt(term);
+        if (!isEmpty()) {
+            seekableFile.seek(OFFSET_MAX_ENTRY_INDEX);
+            seekableFile.writeInt(index);
+        }
+        maxEntryIndex = index;
+        updateEntryIndexCount();
+        preallocation.allocate(seekableFile, getOffsetOfEntryIndexItem(index + 1));
+
+        ensureCapacity(entryIndexCount);
+        int i = entryIndexCount - 1;
+        offsets[i] = offset;
+        kinds[i] = kind;
+        terms[i] = term;
+    }
+
+    /**
+     * Append entry indexes of entries as one block.
+     *
+     * @param entries entries
+     * @param entryOffsets offsets of entries in entries file
+     * @throws IOException if failed to write
+     */
+    public void appendEntryIndexes(List<Entry> entries, long[] entryOffsets) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int firstIndex = entries.get(0).getIndex();
+        ByteBuffer buffer = allocateItems(firstIndex, entries.size());
+        int i = 0;
+        for (Entry entry : entries) {
+            buffer.putLong(entryOffsets[i++]);
+            buffer.putInt(entry.getKind());
+            buffer.putInt(entry.getTerm());
+        }
+        int arrayIndex = writeItems(firstIndex, firstIndex + entries.size() - 1, buffer);
+        i = 0;
+        for (Entry entry : entries) {
+            offsets[arrayIndex] = entryOffsets[i];
+            kinds[arrayIndex] = entry.getKind();
+            terms[arrayIndex] = entry.getTerm();
+            arrayIndex++;
+            i++;
+        }
+    }
+
+    /**
+     * Append index items of {@code source} from {@code fromIndex} to its max entry index,
+     * offsets are moved by {@code offsetDelta}. Items are written in blocks of bounded size.
+     *
+     * @param source      source
+     * @param fromIndex   index of first item
+     * @param offsetDelta offset delta
+     * @throws IOException if failed to write
+     */
+    public void appendEntryIndexes(EntryIndexFile source, int fromIndex, long offsetDelta) throws IOException {
+        appendEntryIndexes(source, fromIndex, source.getMaxEntryIndex() + 1, offsetDelta);
+    }
+
+    /**
+     * Append index items of {@code source} from {@code fromIndex} to {@code toIndex}, offsets are moved by {@code offsetDelta}.
+     *
+     * @param source      source
+     * @param fromIndex   index of first item
+     * @param toIndex     index after last item
+     * @param offsetDelta offset delta
+     * @throws IOException if failed to write
+     */
+    public void appendEntryIndexes(EntryIndexFile source, int fromIndex, int toIndex, long offsetDelta) throws IOException {
+        int maxIndex = toIndex - 1;
+        for (int firstIndex = fromIndex; firstIndex <= maxIndex; firstIndex += ITEMS_PER_READ) {
+            int count = Math.min(ITEMS_PER_READ, maxIndex - firstIndex + 1);
+            int sourceIndex = source.toArrayIndex(firstIndex);
+            ByteBuffer buffer = allocateItems(firstIndex, count);
+            for (int i = sourceIndex; i < sourceIndex + count; i++) {
+                buffer.putLong(source.offsets[i] + offsetDelta);
+                buffer.putInt(source.kinds[i]);
+                buffer.putInt(source.terms[i]);
+            }
+            int arrayIndex = writeItems(firstIndex, firstIndex + count - 1, buffer);
+            for (int i = sourceIndex; i < sourceIndex + count; i++, arrayIndex++) {
+                offsets[arrayIndex] = source.offsets[i] + offsetDelta;
+                kinds[arrayIndex] = source.kinds[i];
+                terms[arrayIndex] = source.terms[i];
+            }
+        }
+    }
 
-        entryIndexMap.put(index, new EntryIndexItem(index, offset, kind, term));
+    /**
+     * Allocate buffer of items, with header if file is empty.
+     *
+     * @param firstIndex index of first item
+     * @param count      count of items
+     * @return buffer
+     */
+    private ByteBuffer allocateItems(int firstIndex, int count) {
+        boolean empty = isEmpty();
+        if (!empty && firstIndex != maxEntryIndex + 1) {
+            throw new IllegalArgumentException("index must be " + (maxEntryIndex + 1) + ", but was " + firstIndex);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((empty ? LENGTH_HEADER : 0) + count * LENGTH_ENTRY_INDEX_ITEM);
+        if (empty) {
+            buffer.putInt(firstIndex);
+            buffer.putInt(firstIndex + count - 1);
+        }
+        return buffer;
+    }
+
+    /**
+     * Write items as one block and update max entry index.
+     *
+     * @param firstIndex index of first item
+     * @param lastIndex  index of last item
+     * @param buffer     buffer from {@link #allocateItems(int, int)}
+     * @return position of first item in arrays, capacity of arrays is ensured
+     * @throws IOException if failed to write
+     */
+    private int writeItems(int firstIndex, int lastIndex, ByteBuffer buffer) throws IOException {
+        boolean empty = isEmpty();
+        if (empty) {
+            minEntryIndex = firstIndex;
+        }
+
+        // write items before max entry index, max entry index never points to missing item
+        seekableFile.seek(empty ? 0L : getOffsetOfEntryIndexItem(firstIndex));
+        seekableFile.write(buffer.array());
+        if (!empty) {
+            seekableFile.seek(OFFSET_MAX_ENTRY_INDEX);
+            seekableFile.writeInt(lastIndex);
+        }
+
+        int arrayIndex = empty ? 0 : entryIndexCount;
+        maxEntryIndex = lastIndex;
+        updateEntryIndexCount();
+        preallocation.allocate(seekableFile, getOffsetOfEntryIndexItem(lastIndex + 1));
+        ensureCapacity(entryIndexCount);
+        return arrayIndex;
     }
 
     private long getOffsetOfEntryIndexItem(int index) {
-        return (index - minEntryIndex) * LENGTH_ENTRY_INDEX_ITEM + Integer.BYTES * 2;
+        return (long) (index - minEntryIndex) * LENGTH_ENTRY_INDEX_ITEM + LENGTH_HEADER;
     }
 
     public void clear() throws IOException {
         seekableFile.truncate(0L);
         entryIndexCount = 0;
-        entryIndexMap.clear();
+        preallocation.truncated(0L);
     }
 
     public void removeAfter(int newMaxEntryIndex) throws IOException {
@@ -123,24 +327,41 @@ public class EntryIndexFile implements Iterable<EntryIndexItem> {
         seekableFile.seek(OFFSET_MAX_ENTRY_INDEX);
         seekableFile.writeInt(newMaxEntryIndex);
         seekableFile.truncate(getOffsetOfEntryIndexItem(newMaxEntryIndex + 1));
-        for (int i = newMaxEntryIndex + 1; i <= maxEntryIndex; i++) {
-            entryIndexMap.remove(i);
-        }
+        preallocation.truncated(getOffsetOfEntryIndexItem(newMaxEntryIndex + 1));
         maxEntryIndex = newMaxEntryIndex;
         entryIndexCount = newMaxEntryIndex - minEntryIndex + 1;
     }
 
+    private int toArrayIndex(int entryIndex) {
+        checkEmpty();
+        if (entryIndex < minEntryIndex || entryIndex > maxEntryIndex) {
+            throw new IllegalArgumentException("index < min or index > max");
+        }
+        return entryIndex - minEntryIndex;
+    }
+
     public long getOffset(int entryIndex) {
-        return get(entryIndex).getOffset();
+        return offsets[toArrayIndex(entryIndex)];
+    }
+
+    public int getKind(int entryIndex) {
+        return kinds[toArrayIndex(entryIndex)];
+    }
+
+    public int getTerm(int entryIndex) {
+        return terms[toArrayIndex(entryIndex)];
+    }
+
+    @Nonnull
+    public EntryMeta getEntryMeta(int entryIndex) {
+        int i = toArrayIndex(entryIndex);
+        return new EntryMeta(kinds[i], entryIndex, terms[i]);
     }
 
     @Nonnull
     public EntryIndexItem get(int entryIndex) {
-        checkEmpty();
-        if (entryIndex < minEntryIndex || entryIndex > maxEntryIndex) {
-            throw new IllegalArgumentException("index < min or index > max");
-        }
-        return entryIndexMap.get(entryIndex);
+        int i = toArrayIndex(entryIndex);
+        return new EntryIndexItem(entryIndex, offsets[i], kinds[i], terms[i]);
     }
 
     @Override
@@ -152,7 +373,20 @@ public class EntryIndexFile implements Iterable<EntryIndexItem> {
         return new EntryIndexIterator(entryIndexCount, minEntryIndex);
     }
 
+    public void flush() throws IOException {
+        seekableFile.flush();
+    }
+
+    public void force() throws IOException {
+        seekableFile.force();
+    }
+
+    public void forceWritten() throws IOException {
+        seekableFile.forceWritten();
+    }
+
     public void close() throws IOException {
+        preallocation.trim(seekableFile, isEmpty() ? 0L : getOffsetOfEntryIndexItem(maxEntryIndex + 1));
         seekableFile.close();
     }
 
@@ -181,7 +415,7 @@ public class EntryIndexFile implements Iterable<EntryIndexItem> {
         @Override
         public EntryIndexItem next() {
             checkModification();
-            return entryIndexMap.get(currentEntryIndex++);
+            return get(currentEntryIndex++);
         }
     }
 
@@ -0,0 +1,160 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.Entry;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Growable array-backed ring buffer of consecutive entries, addressed by log index.
+ */
+@NotThreadSafe
+class EntryRingBuffer {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private Entry[] entries;
+    private int head = 0;
+    private int size = 0;
+    private int firstIndex = 0;
+
+    EntryRingBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    EntryRingBuffer(int initialCapacity) {
+        entries = new Entry[Math.max(initialCapacity, 1)];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get index of first entry.
+     *
+     * @return index of first entry
+     * @throws IllegalStateException if empty
+     */
+    int getFirstIndex() {
+        checkEmpty();
+        return firstIndex;
+    }
+
+    /**
+     * Get index of last entry.
+     *
+     * @return index of last entry
+     * @throws IllegalStateException if empty
+     */
+    int getLastIndex() {
+        checkEmpty();
+        return firstIndex + size - 1;
+    }
+
+    private void checkEmpty() {
+        if (size == 0) {
+            throw new IllegalStateException("no entry");
+        }
+    }
+
+    boolean contains(int index) {
+        return size > 0 && index >= firstIndex && index < firstIndex + size;
+    }
+
+    /**
+     * Get entry.
+     *
+     * @param index log index
+     * @return entry, {@code null} if not in buffer
+     */
+    Entry get(int index) {
+        if (!contains(index)) {
+            return null;
+        }
+        return entries[slot(index - firstIndex)];
+    }
+
+    Entry getFirst() {
+        checkEmpty();
+        return entries[head];
+    }
+
+    Entry getLast() {
+        checkEmpty();
+        return entries[slot(size - 1)];
+    }
+
+    private int slot(int offset) {
+        int i = head + offset;
+        return i < entries.length ? i : i - entries.length;
+    }
+
+    /**
+     * Add entry to the end.
+     *
+     * @param entry entry
+     * @throws IllegalArgumentException if index of entry is not last index + 1
+     */
+    void add(Entry entry) {
+        if (size == 0) {
+            head = 0;
+            firstIndex = entry.getIndex();
+        } else if (entry.getIndex() != firstIndex + size) {
+            throw new IllegalArgumentException("entry index must be " + (firstIndex + size) + ", but was " + entry.getIndex());
+        }
+        if (size == entries.length) {
+            grow();
+        }
+        entries[slot(size)] = entry;
+        size++;
+    }
+
+    private void grow() {
+        Entry[] newEntries = new Entry[entries.length << 1];
+        int n = entries.length - head;
+        System.arraycopy(entries, head, newEntries, 0, n);
+        System.arraycopy(entries, 0, newEntries, n, head);
+        entries = newEntries;
+        head = 0;
+    }
+
+    /**
+     * Remove first entry.
+     *
+     * @return removed entry
+     * @throws IllegalStateException if empty
+     */
+    Entry removeFirst() {
+        checkEmpty();
+        Entry entry = entries[head];
+        entries[head] = null;
+        head = slot(1);
+        firstIndex++;
+        size--;
+        return entry;
+    }
+
+    /**
+     * Remove entries whose index is greater than {@code index}.
+     *
+     * @param index index
+     */
+    void removeAfter(int index) {
+        if (size == 0 || index >= firstIndex + size - 1) {
+            return;
+        }
+        int newSize = Math.max(index - firstIndex + 1, 0);
+        for (int i = newSize; i < size; i++) {
+            entries[slot(i)] = null;
+        }
+        size = newSize;
+    }
+
+    void clear() {
+        removeAfter(firstIndex - 1);
+    }
+
+}
@@ -36,6 +36,20 @@ public interface EntrySequence {
 
     void commit(int index);
 
+    /**
+     * Write entries up to {@code index} to storage without waiting for them to be durable.
+     * Entries written are not committed, and can still be removed.
+     *
+     * @param index index
+     * @return written entries
+     */
+    WrittenEntries write(int index);
+
+    /**
+     * Force entries written but not forced yet if sync interval elapsed, see {@link in.xnnyygn.xraft.core.log.DurabilityMode#FSYNC_INTERVAL}.
+     */
+    void syncIfIntervalElapsed();
+
     int getCommitIndex();
 
     void removeAfter(int index);
@@ -1,47 +1,123 @@
 package in.xnnyygn.xraft.core.log.sequence;
 
+import in.xnnyygn.xraft.core.log.DurabilityMode;
 import in.xnnyygn.xraft.core.log.LogDir;
 import in.xnnyygn.xraft.core.log.LogException;
 import in.xnnyygn.xraft.core.log.entry.Entry;
 import in.xnnyygn.xraft.core.log.entry.EntryFactory;
 import in.xnnyygn.xraft.core.log.entry.EntryMeta;
 import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 @NotThreadSafe
 public class FileEntrySequence extends AbstractEntrySequence {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileEntrySequence.class);
+    private static final int TRANSFER_BATCH_SIZE = 1024;
     private final EntryFactory entryFactory = new EntryFactory();
     private final EntriesFile entriesFile;
     private final EntryIndexFile entryIndexFile;
-    private final LinkedList<Entry> pendingEntries = new LinkedList<>();
+    private final GroupConfigIndexFile groupConfigIndexFile;
+    private final EntryCache entryCache;
+    private final GroupCommitWriter commitWriter;
+    private final EntryRingBuffer pendingEntries = new EntryRingBuffer();
+    private final LogDir logDir;
     private int commitIndex;
+    private int truncateCount = 0;
 
     public FileEntrySequence(LogDir logDir, int logIndexOffset) {
-        super(logIndexOffset);
-        try {
-            this.entriesFile = new EntriesFile(logDir.getEntriesFile());
-            this.entryIndexFile = new EntryIndexFile(logDir.getEntryOffsetIndexFile());
-            initialize();
-        } catch (IOException e) {
-            throw new LogException("failed to open entries file or entry index file", e);
-        }
+        this(logDir, logIndexOffset, new NodeConfig());
+    }
+
+    public FileEntrySequence(LogDir logDir, int logIndexOffset, NodeConfig config) {
+        this(openEntriesFile(logDir, config), openEntryIndexFile(logDir, config),
+                openGroupConfigIndexFile(logDir.getGroupConfigIndexFile(), config), logIndexOffset, config,
+                new EntryCache(config.getLogEntryCacheSize()), logDir);
     }
 
     public FileEntrySequence(EntriesFile entriesFile, EntryIndexFile entryIndexFile, int logIndexOffset) {
+        this(entriesFile, entryIndexFile, logIndexOffset, new NodeConfig());
+    }
+
+    public FileEntrySequence(EntriesFile entriesFile, EntryIndexFile entryIndexFile, int logIndexOffset, NodeConfig config) {
+        this(entriesFile, entryIndexFile, createMemoryGroupConfigIndexFile(), logIndexOffset, config,
+                new EntryCache(config.getLogEntryCacheSize()), null);
+    }
+
+    FileEntrySequence(EntriesFile entriesFile, EntryIndexFile entryIndexFile, GroupConfigIndexFile groupConfigIndexFile,
+                      int logIndexOffset, NodeConfig config, EntryCache entryCache) {
+        this(entriesFile, entryIndexFile, groupConfigIndexFile, logIndexOffset, config, entryCache, null);
+    }
+
+    private FileEntrySequence(EntriesFile entriesFile, EntryIndexFile entryIndexFile, GroupConfigIndexFile groupConfigIndexFile,
+                              int logIndexOffset, NodeConfig config, EntryCache entryCache, @Nullable LogDir logDir) {
         super(logIndexOffset);
+        this.logDir = logDir;
         this.entriesFile = entriesFile;
         this.entryIndexFile = entryIndexFile;
+        this.groupConfigIndexFile = groupConfigIndexFile;
+        this.entryCache = entryCache;
+        this.commitWriter = createCommitWriter(config);
         initialize();
     }
 
+    private static EntriesFile openEntriesFile(LogDir logDir, NodeConfig config) {
+        try {
+            return new EntriesFile(config.getFileType().open(logDir.getEntriesFile(), "rw"), config.getLogPreallocateSize());
+        } catch (IOException e) {
+            throw new LogException("failed to open entries file", e);
+        }
+    }
+
+    private static EntryIndexFile openEntryIndexFile(LogDir logDir, NodeConfig config) {
+        try {
+            return new EntryIndexFile(config.getFileType().open(logDir.getEntryOffsetIndexFile(), "rw"), config.getLogPreallocateSize());
+        } catch (IOException e) {
+            throw new LogException("failed to open entry index file", e);
+        }
+    }
+
+    static GroupConfigIndexFile openGroupConfigIndexFile(File file, NodeConfig config) {
+        try {
+            return new GroupConfigIndexFile(file, config.getFileType());
+        } catch (IOException e) {
+            throw new LogException("failed to open group config index file", e);
+        }
+    }
+
+    private static GroupConfigIndexFile createMemoryGroupConfigIndexFile() {
+        try {
+            // rebuilt from entry index file in initialization
+            return new GroupConfigIndexFile(new ByteArraySeekableFile());
+        } catch (IOException e) {
+            throw new LogException(e);
+        }
+    }
+
+    private GroupCommitWriter createCommitWriter(NodeConfig config) {
+        return new GroupCommitWriter(entriesFile, entryIndexFile, groupConfigIndexFile, config.getLogDurabilityMode(), config.getLogSyncInterval());
+    }
+
     private void initialize() {
+        try {
+            recover();
+            recoverGroupConfigIndex();
+        } catch (IOException e) {
+            throw new LogException("failed to recover", e);
+        }
         if (entryIndexFile.isEmpty()) {
             commitIndex = logIndexOffset - 1;
             return;
@@ -51,6 +127,89 @@ public class FileEntrySequence extends AbstractEntrySequence {
         commitIndex = entryIndexFile.getMaxEntryIndex();
     }
 
+    /**
+     * Make entries file and entry index file consistent after crash.
+     * <p>
+     * Only the tail is scanned, starting at the last entry in entry index file.
+     * Index items pointing to torn or corrupted records are removed,
+     * index items of valid records after the last indexed one are rebuilt,
+     * and torn bytes at the end of entries file are truncated.
+     * </p>
+     *
+     * @throws IOException if failed to read or write
+     */
+    private void recover() throws IOException {
+        // drop index items of records lost or corrupted
+        EntriesFile.Record record = null;
+        while (!entryIndexFile.isEmpty()) {
+            int maxIndex = entryIndexFile.getMaxEntryIndex();
+            record = entriesFile.readRecord(entryIndexFile.getOffset(maxIndex), entryFactory);
+            if (record != null && record.getEntry().getIndex() == maxIndex) {
+                break;
+            }
+            logger.warn("entry {} in entries file is torn or corrupted, remove from index", maxIndex);
+            record = null;
+            entryIndexFile.removeAfter(maxIndex - 1);
+        }
+
+        // rebuild index items of valid records not indexed
+        long offset = (record != null ? record.getEnd() : entriesFile.getDataStart());
+        int nextIndex = (record != null ? record.getEntry().getIndex() + 1 : logIndexOffset);
+        List<Entry> entries = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        while ((record = entriesFile.readRecord(offset, entryFactory)) != null && record.getEntry().getIndex() == nextIndex) {
+            entries.add(record.getEntry());
+            offsets.add(offset);
+            offset = record.getEnd();
+            nextIndex++;
+        }
+        if (!entries.isEmpty()) {
+            logger.info("rebuild index of entries from {} to {}", entries.get(0).getIndex(), nextIndex - 1);
+            entryIndexFile.appendEntryIndexes(entries, offsets.stream().mapToLong(Long::longValue).toArray());
+        }
+
+        // truncate torn records
+        if (entriesFile.size() > offset) {
+            logger.warn("truncate entries file from {}, {} bytes torn, corrupted or preallocated", offset, entriesFile.size() - offset);
+            entriesFile.truncate(offset);
+        }
+    }
+
+    /**
+     * Make group config index file consistent with entry index file.
+     * <p>
+     * Records after max entry index are removed. Records of group config entries after the last record
+     * are rebuilt from kinds in entry index file, since records may be lost while entry index items survive,
+     * e.g. crash in the first rebuild, or power loss before records reach disk. If the file is just created,
+     * e.g. entries written by an older version, all records are rebuilt.
+     * </p>
+     *
+     * @throws IOException if failed to write
+     */
+    private void recoverGroupConfigIndex() throws IOException {
+        if (entryIndexFile.isEmpty()) {
+            if (groupConfigIndexFile.getCount() > 0) {
+                groupConfigIndexFile.clear();
+            }
+            return;
+        }
+        int maxIndex = entryIndexFile.getMaxEntryIndex();
+        groupConfigIndexFile.removeAfter(maxIndex);
+        int count = groupConfigIndexFile.getCount();
+        int lastIndex = (count > 0 ? groupConfigIndexFile.getIndex(count - 1) : entryIndexFile.getMinEntryIndex() - 1);
+        int appended = 0;
+        for (int i = Math.max(lastIndex + 1, entryIndexFile.getMinEntryIndex()); i <= maxIndex; i++) {
+            if (isGroupConfigEntryKind(entryIndexFile.getKind(i))) {
+                groupConfigIndexFile.append(i, entryIndexFile.getOffset(i));
+                appended++;
+            }
+        }
+        if (appended > 0) {
+            logger.info("rebuild {} record(s) of group config index", appended);
+            groupConfigIndexFile.flush();
+        }
+    }
+
     @Override
     public int getCommitIndex() {
         return commitIndex;
@@ -60,28 +219,36 @@ public class FileEntrySequence extends AbstractEntrySequence {
     public GroupConfigEntryList buildGroupConfigEntryList() {
         GroupConfigEntryList list = new GroupConfigEntryList();
 
-        // check file
-        try {
-            int entryKind;
-            for (EntryIndexItem indexItem : entryIndexFile) {
-                entryKind = indexItem.getKind();
-                if (entryKind == Entry.KIND_ADD_NODE || entryKind == Entry.KIND_REMOVE_NODE) {
-                    list.add((GroupConfigEntry) entriesFile.loadEntry(indexItem.getOffset(), entryFactory));
-                }
+        // check file, entries listed in group config index file, consecutive ones by one read
+        int count = groupConfigIndexFile.getCount();
+        int i = 0;
+        while (i < count) {
+            int j = i + 1;
+            while (j < count && groupConfigIndexFile.getIndex(j) == groupConfigIndexFile.getIndex(j - 1) + 1) {
+                j++;
             }
-        } catch (IOException e) {
-            throw new LogException("failed to load entry", e);
+            for (Entry entry : loadEntriesInFile(groupConfigIndexFile.getIndex(i), groupConfigIndexFile.getIndex(j - 1) + 1)) {
+                list.add((GroupConfigEntry) entry);
+            }
+            i = j;
         }
 
         // check pending entries
-        for (Entry entry : pendingEntries) {
-            if (entry instanceof GroupConfigEntry) {
-                list.add((GroupConfigEntry) entry);
+        if (!pendingEntries.isEmpty()) {
+            for (int k = pendingEntries.getFirstIndex(); k <= pendingEntries.getLastIndex(); k++) {
+                Entry entry = pendingEntries.get(k);
+                if (entry instanceof GroupConfigEntry) {
+                    list.add((GroupConfigEntry) entry);
+                }
             }
         }
         return list;
     }
 
+    private boolean isGroupConfigEntryKind(int kind) {
+        return kind == Entry.KIND_ADD_NODE || kind == Entry.KIND_REMOVE_NODE;
+    }
+
     @Override
     protected List<Entry> doSubList(int fromIndex, int toIndex) {
         List<Entry> result = new ArrayList<>();
@@ -89,25 +256,29 @@ public class FileEntrySequence extends AbstractEntrySequence {
         // entries from file
         if (!entryIndexFile.isEmpty() && fromIndex <= entryIndexFile.getMaxEntryIndex()) {
             int maxIndex = Math.min(entryIndexFile.getMaxEntryIndex() + 1, toIndex);
-            for (int i = fromIndex; i < maxIndex; i++) {
-                result.add(getEntryInFile(i));
+            int i = fromIndex;
+            while (i < maxIndex) {
+                Entry entry = entryCache.get(i);
+                if (entry != null) {
+                    result.add(entry);
+                    i++;
+                    continue;
+                }
+                // load entries not in cache by one range read
+                int j = i + 1;
+                while (j < maxIndex && !entryCache.contains(j)) {
+                    j++;
+                }
+                result.addAll(loadEntriesInFile(i, j));
+                i = j;
             }
         }
 
         // entries from pending entries
-        if (!pendingEntries.isEmpty() && toIndex > pendingEntries.getFirst().getIndex()) {
-            Iterator<Entry> iterator = pendingEntries.iterator();
-            Entry entry;
-            int index;
-            while (iterator.hasNext()) {
-                entry = iterator.next();
-                index = entry.getIndex();
-                if (index >= toIndex) {
-                    break;
-                }
-                if (index >= fromIndex) {
-                    result.add(entry);
-                }
+        if (!pendingEntries.isEmpty() && toIndex > pendingEntries.getFirstIndex()) {
+            int maxIndex = Math.min(pendingEntries.getLastIndex() + 1, toIndex);
+            for (int i = Math.max(fromIndex, pendingEntries.getFirstIndex()); i < maxIndex; i++) {
+                result.add(pendingEntries.get(i));
             }
         }
         return result;
@@ -115,11 +286,8 @@ public class FileEntrySequence extends AbstractEntrySequence {
 
     @Override
     protected Entry doGetEntry(int index) {
-        if (!pendingEntries.isEmpty()) {
-            int firstPendingEntryIndex = pendingEntries.getFirst().getIndex();
-            if (index >= firstPendingEntryIndex) {
-                return pendingEntries.get(index - firstPendingEntryIndex);
-            }
+        if (!pendingEntries.isEmpty() && index >= pendingEntries.getFirstIndex()) {
+            return pendingEntries.get(index);
         }
 
         // pending entries not empty but index < firstPendingEntryIndex => entry in file
@@ -133,18 +301,36 @@ public class FileEntrySequence extends AbstractEntrySequence {
         if (!isEntryPresent(index)) {
             return null;
         }
-        if (entryIndexFile.isEmpty()) {
-            return pendingEntries.get(index - doGetFirstLogIndex()).getMeta();
+        if (entryIndexFile.isEmpty() || index > entryIndexFile.getMaxEntryIndex()) {
+            return doGetEntry(index).getMeta();
         }
-        return entryIndexFile.get(index).toEntryMeta();
+        return entryIndexFile.getEntryMeta(index);
     }
 
     private Entry getEntryInFile(int index) {
-        long offset = entryIndexFile.getOffset(index);
+        Entry entry = entryCache.get(index);
+        if (entry != null) {
+            return entry;
+        }
+        return loadEntriesInFile(index, index + 1).get(0);
+    }
+
+    /**
+     * Load entries in file by one range read.
+     *
+     * @param fromIndex from index
+     * @param toIndex   to index, exclusive
+     * @return entries
+     */
+    private List<Entry> loadEntriesInFile(int fromIndex, int toIndex) {
+        long fromOffset = entryIndexFile.getOffset(fromIndex);
+        // offset of next entry, or the last entry ends somewhere after its offset
+        long toOffset = toIndex <= entryIndexFile.getMaxEntryIndex() ?
+                entryIndexFile.getOffset(toIndex) : entryIndexFile.getOffset(toIndex - 1) + 1;
         try {
-            return entriesFile.loadEntry(offset, entryFactory);
+            return entriesFile.loadEntries(fromOffset, toOffset, entryFactory);
         } catch (IOException e) {
-            throw new LogException("failed to load entry " + index, e);
+            throw new LogException("failed to load entries from " + fromIndex + " to " + toIndex, e);
         }
     }
 
@@ -165,38 +351,66 @@ public class FileEntrySequence extends AbstractEntrySequence {
         pendingEntries.add(entry);
     }
 
+    /**
+     * Commit entries, write entries not written yet.
+     * Entries may have been written by {@link #write(int)}, so index less than commit index is ignored.
+     *
+     * @param index index
+     */
     @Override
     public void commit(int index) {
-        if (index < commitIndex) {
-            throw new IllegalArgumentException("commit index < " + commitIndex);
-        }
-        if (index == commitIndex) {
+        if (index <= commitIndex) {
             return;
         }
-        if (pendingEntries.isEmpty() || pendingEntries.getLast().getIndex() < index) {
-            throw new IllegalArgumentException("no entry to commit or commit index exceed");
+        // write all entries to commit as one batch
+        List<Entry> entries = pendingEntriesTo(index);
+        try {
+            commitWriter.write(entries);
+        } catch (IOException e) {
+            throw new LogException("failed to commit entries from " + (commitIndex + 1) + " to " + index, e);
         }
-        long offset;
-        Entry entry = null;
+        written(entries);
+    }
+
+    @Override
+    public WrittenEntries write(int index) {
+        List<Entry> entries = index > commitIndex ? pendingEntriesTo(index) : Collections.emptyList();
+        WrittenEntries writtenEntries;
         try {
-            for (int i = commitIndex + 1; i <= index; i++) {
-                entry = pendingEntries.removeFirst();
-                offset = entriesFile.appendEntry(entry);
-                entryIndexFile.appendEntryIndex(i, offset, entry.getKind(), entry.getTerm());
-                commitIndex = i;
-            }
+            writtenEntries = commitWriter.writeWithoutSync(entries, Math.max(index, commitIndex));
         } catch (IOException e) {
-            throw new LogException("failed to commit entry " + entry, e);
+            throw new LogException("failed to write entries from " + (commitIndex + 1) + " to " + index, e);
+        }
+        written(entries);
+        return writtenEntries;
+    }
+
+    private List<Entry> pendingEntriesTo(int index) {
+        if (pendingEntries.isEmpty() || pendingEntries.getLastIndex() < index) {
+            throw new IllegalArgumentException("no entry to commit or commit index exceed");
+        }
+        List<Entry> entries = new ArrayList<>(index - commitIndex);
+        for (int i = commitIndex + 1; i <= index; i++) {
+            entries.add(pendingEntries.get(i));
+        }
+        return entries;
+    }
+
+    private void written(List<Entry> entries) {
+        for (Entry entry : entries) {
+            pendingEntries.removeFirst();
+            entryCache.add(entry);
+        }
+        if (!entries.isEmpty()) {
+            commitIndex = entries.get(entries.size() - 1).getIndex();
         }
     }
 
     @Override
     protected void doRemoveAfter(int index) {
-        if (!pendingEntries.isEmpty() && index >= pendingEntries.getFirst().getIndex() - 1) {
+        if (!pendingEntries.isEmpty() && index >= pendingEntries.getFirstIndex() - 1) {
             // remove last n entries in pending entries
-            for (int i = index + 1; i <= doGetLastLogIndex(); i++) {
-                pendingEntries.removeLast();
-            }
+            pendingEntries.removeAfter(index);
             nextLogIndex = index + 1;
             return;
         }
@@ -206,25 +420,258 @@ public class FileEntrySequence extends AbstractEntrySequence {
                 // remove entries whose index >= (index + 1)
                 entriesFile.truncate(entryIndexFile.getOffset(index + 1));
                 entryIndexFile.removeAfter(index);
+                groupConfigIndexFile.removeAfter(index);
+                entryCache.removeAfter(index);
                 nextLogIndex = index + 1;
                 commitIndex = index;
+                truncateCount++;
             } else {
                 pendingEntries.clear();
                 entriesFile.clear();
                 entryIndexFile.clear();
+                groupConfigIndexFile.clear();
+                entryCache.clear();
                 nextLogIndex = logIndexOffset;
                 commitIndex = logIndexOffset - 1;
+                truncateCount++;
             }
         } catch (IOException e) {
             throw new LogException(e);
         }
     }
 
+    /**
+     * Copy entries in file from {@code fromIndex} to files in {@code logDir}, as entries of a new sequence
+     * starting at {@code fromIndex}.
+     * <p>
+     * Records are copied by byte range and index items are rebased, no entry is loaded. Records of entries
+     * file of version 1 are loaded and written again batch by batch. Group config index file is rebuilt
+     * when new sequence is opened. Entries not written are returned instead, they should be appended to new sequence.
+     * </p>
+     *
+     * @param logDir    log dir of new sequence
+     * @param fromIndex from index
+     * @param config    config
+     * @return entries not written, from {@code fromIndex}
+     */
+    public List<Entry> transferTo(LogDir logDir, int fromIndex, NodeConfig config) {
+        return transferTo(logDir, fromIndex, config, null);
+    }
+
+    /**
+     * Copy entries like {@link #transferTo(LogDir, int, NodeConfig)}, but only entries after those copied
+     * by {@code prepared} if it is done and still applicable, which are usually a few entries written while preparing.
+     * Otherwise files copied by {@code prepared} are removed and all entries are copied.
+     *
+     * @param logDir    log dir of new sequence
+     * @param fromIndex from index
+     * @param config    config
+     * @param prepared  prepared transfer, maybe {@code null}
+     * @return entries not written, from {@code fromIndex}
+     * @see #prepareTransfer(LogDir, int, int, NodeConfig)
+     */
+    public List<Entry> transferTo(LogDir logDir, int fromIndex, NodeConfig config, @Nullable PreparedTransfer prepared) {
+        int copiedToIndex = fromIndex;
+        if (prepared != null && prepared.isApplicable(this, logDir, fromIndex)) {
+            copiedToIndex = prepared.toIndex;
+        } else {
+            if (prepared != null) {
+                logger.info("prepared transfer of entries from {} is not applicable, copy all entries", prepared.fromIndex);
+                deleteEntryFiles(prepared.logDir);
+            }
+            // files left by failed transfer
+            deleteEntryFiles(logDir);
+        }
+        EntriesFile targetEntriesFile = openEntriesFile(logDir, config);
+        EntryIndexFile targetEntryIndexFile = openEntryIndexFile(logDir, config);
+        try {
+            // files copied by prepared transfer are forced already
+            boolean forceRequired = (copiedToIndex == fromIndex);
+            if (!entryIndexFile.isEmpty() && copiedToIndex <= entryIndexFile.getMaxEntryIndex()) {
+                forceRequired = true;
+                int minIndex = Math.max(copiedToIndex, entryIndexFile.getMinEntryIndex());
+                int maxIndex = entryIndexFile.getMaxEntryIndex();
+                if (entriesFile.getVersion() == targetEntriesFile.getVersion()) {
+                    long offset = entryIndexFile.getOffset(minIndex);
+                    long targetOffset = entriesFile.transferTo(offset, targetEntriesFile);
+                    targetEntryIndexFile.appendEntryIndexes(entryIndexFile, minIndex, targetOffset - offset);
+                } else {
+                    for (int i = minIndex; i <= maxIndex; i += TRANSFER_BATCH_SIZE) {
+                        List<Entry> entries = loadEntriesInFile(i, Math.min(i + TRANSFER_BATCH_SIZE, maxIndex + 1));
+                        targetEntryIndexFile.appendEntryIndexes(entries, targetEntriesFile.appendEntries(entries));
+                    }
+                }
+            }
+            // entries may be written but not forced, e.g. entries of leader
+            if (forceRequired && config.getLogDurabilityMode() != DurabilityMode.NONE) {
+                targetEntriesFile.force();
+                targetEntryIndexFile.force();
+            }
+            targetEntriesFile.close();
+            targetEntryIndexFile.close();
+        } catch (IOException e) {
+            throw new LogException("failed to transfer entries from " + fromIndex, e);
+        }
+        if (pendingEntries.isEmpty() || fromIndex > pendingEntries.getLastIndex()) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (int i = Math.max(fromIndex, pendingEntries.getFirstIndex()); i <= pendingEntries.getLastIndex(); i++) {
+            entries.add(pendingEntries.get(i));
+        }
+        return entries;
+    }
+
+    /**
+     * Prepare copy of entries in file from {@code fromIndex} to {@code toIndex} to files in {@code logDir},
+     * to be completed by {@link #transferTo(LogDir, int, NodeConfig, PreparedTransfer)}.
+     * <p>
+     * Index items are copied here, records are copied by returned transfer from entries file opened again,
+     * so the transfer can run in another thread while entries are appended to this sequence.
+     * Entries to copy should not be removed, e.g. committed entries. Transfer is not applicable if they are removed.
+     * </p>
+     *
+     * @param logDir    log dir of new sequence
+     * @param fromIndex from index
+     * @param toIndex   index after last entry to copy
+     * @param config    config
+     * @return transfer, {@code null} if nothing to copy in advance
+     */
+    @Nullable
+    public PreparedTransfer prepareTransfer(LogDir logDir, int fromIndex, int toIndex, NodeConfig config) {
+        if (this.logDir == null || entryIndexFile.isEmpty() || entriesFile.getVersion() != EntriesFile.VERSION_2 ||
+                fromIndex < entryIndexFile.getMinEntryIndex()) {
+            return null;
+        }
+        int maxIndex = Math.min(toIndex - 1, entryIndexFile.getMaxEntryIndex());
+        if (fromIndex > maxIndex) {
+            return null;
+        }
+        long fromOffset = entryIndexFile.getOffset(fromIndex);
+        long toOffset = maxIndex < entryIndexFile.getMaxEntryIndex() ? entryIndexFile.getOffset(maxIndex + 1) : entriesFile.size();
+        try {
+            // records are read through another file
+            entriesFile.flush();
+            EntryIndexFile indexItems = new EntryIndexFile(new ByteArraySeekableFile());
+            indexItems.appendEntryIndexes(entryIndexFile, fromIndex, maxIndex + 1, 0L);
+            return new PreparedTransfer(this, this.logDir.getEntriesFile(), logDir, fromIndex, maxIndex + 1,
+                    fromOffset, toOffset, indexItems, config);
+        } catch (IOException e) {
+            throw new LogException("failed to prepare transfer of entries from " + fromIndex, e);
+        }
+    }
+
+    private static void deleteEntryFiles(LogDir logDir) {
+        try {
+            Files.deleteIfExists(logDir.getEntriesFile().toPath());
+            Files.deleteIfExists(logDir.getEntryOffsetIndexFile().toPath());
+        } catch (IOException e) {
+            throw new LogException("failed to delete entry files in " + logDir, e);
+        }
+    }
+
+    /**
+     * Copy of entries in file prepared by {@link #prepareTransfer(LogDir, int, int, NodeConfig)}.
+     */
+    @ThreadSafe
+    public static class PreparedTransfer implements Runnable {
+
+        private final FileEntrySequence sequence;
+        private final int truncateCount;
+        private final File sourceFile;
+        private final LogDir logDir;
+        private final int fromIndex;
+        private final int toIndex;
+        private final long fromOffset;
+        private final long toOffset;
+        private final EntryIndexFile indexItems;
+        private final NodeConfig config;
+        private volatile boolean done = false;
+
+        private PreparedTransfer(FileEntrySequence sequence, File sourceFile, LogDir logDir, int fromIndex, int toIndex,
+                                 long fromOffset, long toOffset, EntryIndexFile indexItems, NodeConfig config) {
+            this.sequence = sequence;
+            this.truncateCount = sequence.truncateCount;
+            this.sourceFile = sourceFile;
+            this.logDir = logDir;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.fromOffset = fromOffset;
+            this.toOffset = toOffset;
+            this.indexItems = indexItems;
+            this.config = config;
+        }
+
+        /**
+         * Copy records and index items, and force them.
+         */
+        @Override
+        public void run() {
+            // files left by failed transfer
+            deleteEntryFiles(logDir);
+            EntriesFile targetEntriesFile = openEntriesFile(logDir, config);
+            EntryIndexFile targetEntryIndexFile = openEntryIndexFile(logDir, config);
+            try {
+                EntriesFile sourceEntriesFile = new EntriesFile(config.getFileType().open(sourceFile, "r"));
+                try {
+                    long targetOffset = sourceEntriesFile.transferTo(fromOffset, toOffset, targetEntriesFile);
+                    targetEntryIndexFile.appendEntryIndexes(indexItems, fromIndex, toIndex, targetOffset - fromOffset);
+                } finally {
+                    sourceEntriesFile.close();
+                }
+                if (config.getLogDurabilityMode() != DurabilityMode.NONE) {
+                    targetEntriesFile.force();
+                    targetEntryIndexFile.force();
+                }
+                targetEntriesFile.close();
+                targetEntryIndexFile.close();
+            } catch (IOException e) {
+                throw new LogException("failed to transfer entries from " + fromIndex + " to " + toIndex, e);
+            }
+            done = true;
+        }
+
+        private boolean isApplicable(FileEntrySequence sequence, LogDir logDir, int fromIndex) {
+            return done && this.sequence == sequence && truncateCount == sequence.truncateCount &&
+                    this.logDir.get().equals(logDir.get()) && this.fromIndex == fromIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "PreparedTransfer{" +
+                    "fromIndex=" + fromIndex +
+                    ", toIndex=" + toIndex +
+                    ", logDir=" + logDir +
+                    '}';
+        }
+
+    }
+
+    /**
+     * Get cache of committed entries.
+     *
+     * @return entry cache
+     */
+    public EntryCache getEntryCache() {
+        return entryCache;
+    }
+
+    @Override
+    public void syncIfIntervalElapsed() {
+        try {
+            commitWriter.syncIfIntervalElapsed();
+        } catch (IOException e) {
+            throw new LogException("failed to sync entries", e);
+        }
+    }
+
     @Override
     public void close() {
         try {
+            commitWriter.syncBeforeClose();
             entriesFile.close();
             entryIndexFile.close();
+            groupConfigIndexFile.close();
         } catch (IOException e) {
             throw new LogException("failed to close", e);
         }
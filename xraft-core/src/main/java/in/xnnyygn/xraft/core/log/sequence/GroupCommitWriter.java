@@ -0,0 +1,169 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.DurabilityMode;
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writer which writes a batch of entries as one block and forces once per batch.
+ */
+@NotThreadSafe
+class GroupCommitWriter {
+
+    private final EntriesFile entriesFile;
+    private final EntryIndexFile entryIndexFile;
+    private final GroupConfigIndexFile groupConfigIndexFile;
+    private final DurabilityMode durabilityMode;
+    private final int syncInterval;
+    private long lastSyncedAt = 0L;
+    // count of appends, and count of appends forced, which may be updated by thread forcing written entries
+    private long appendCount = 0L;
+    private final AtomicLong forcedAppendCount = new AtomicLong(0L);
+
+    GroupCommitWriter(EntriesFile entriesFile, EntryIndexFile entryIndexFile, GroupConfigIndexFile groupConfigIndexFile,
+                      DurabilityMode durabilityMode, int syncInterval) {
+        this.entriesFile = entriesFile;
+        this.entryIndexFile = entryIndexFile;
+        this.groupConfigIndexFile = groupConfigIndexFile;
+        this.durabilityMode = durabilityMode;
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Write entries.
+     * When this method returns, entries are durable if durability mode is {@link DurabilityMode#FSYNC_PER_BATCH}.
+     *
+     * @param entries entries
+     * @throws IOException if failed to write or force
+     */
+    void write(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        append(entries);
+        switch (durabilityMode) {
+            case FSYNC_PER_BATCH:
+                sync();
+                break;
+            case FSYNC_INTERVAL:
+                if (System.currentTimeMillis() - lastSyncedAt >= syncInterval) {
+                    sync();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Write entries, but leave force of {@link DurabilityMode#FSYNC_PER_BATCH} to caller.
+     * Other durability modes work like {@link #write(List)}.
+     *
+     * @param entries   entries, maybe empty
+     * @param lastIndex last index of entries written to this writer so far
+     * @return written entries, to be synced in another thread, durable if nothing written since last force
+     * @throws IOException if failed to write
+     */
+    WrittenEntries writeWithoutSync(List<Entry> entries, int lastIndex) throws IOException {
+        if (durabilityMode != DurabilityMode.FSYNC_PER_BATCH) {
+            write(entries);
+            return new WrittenEntries(lastIndex);
+        }
+        if (entries.isEmpty() && !isDirty()) {
+            return new WrittenEntries(lastIndex);
+        }
+        if (!entries.isEmpty()) {
+            append(entries);
+        }
+        // previous entries may not be forced either, one force for all
+        long count = appendCount;
+        return new WrittenEntries(lastIndex, () -> forceWritten(count));
+    }
+
+    private boolean isDirty() {
+        return forcedAppendCount.get() < appendCount;
+    }
+
+    private void append(List<Entry> entries) throws IOException {
+        long[] offsets = entriesFile.appendEntries(entries);
+        // group config index before entry index, see recovery in FileEntrySequence
+        int i = 0;
+        for (Entry entry : entries) {
+            if (entry instanceof GroupConfigEntry) {
+                groupConfigIndexFile.append(entry.getIndex(), offsets[i]);
+            }
+            i++;
+        }
+        entryIndexFile.appendEntryIndexes(entries, offsets);
+        // write buffered bytes, entries survive crash of process even without sync
+        entriesFile.flush();
+        groupConfigIndexFile.flush();
+        entryIndexFile.flush();
+        appendCount++;
+    }
+
+    /**
+     * Force bytes written, called from another thread.
+     * Closed files are skipped, since they are forced before closing.
+     *
+     * @param count count of appends to be forced
+     * @throws IOException if failed to force
+     */
+    private void forceWritten(long count) throws IOException {
+        try {
+            entriesFile.forceWritten();
+            groupConfigIndexFile.forceWritten();
+            entryIndexFile.forceWritten();
+        } catch (ClosedChannelException ignored) {
+            return;
+        }
+        forcedAppendCount.accumulateAndGet(count, Math::max);
+    }
+
+    /**
+     * Force entries file and entry index file if something written since last sync.
+     *
+     * @throws IOException if failed to force
+     */
+    void sync() throws IOException {
+        if (!isDirty()) {
+            return;
+        }
+        long count = appendCount;
+        // entries first, entry index never points to entry not forced
+        entriesFile.force();
+        groupConfigIndexFile.force();
+        entryIndexFile.force();
+        lastSyncedAt = System.currentTimeMillis();
+        forcedAppendCount.accumulateAndGet(count, Math::max);
+    }
+
+    /**
+     * Force entries written but not forced yet if sync interval elapsed, in {@link DurabilityMode#FSYNC_INTERVAL} mode.
+     * Called periodically, since entries are not forced by {@link #write(List)} if nothing written later.
+     *
+     * @throws IOException if failed to force
+     */
+    void syncIfIntervalElapsed() throws IOException {
+        if (durabilityMode == DurabilityMode.FSYNC_INTERVAL && System.currentTimeMillis() - lastSyncedAt >= syncInterval) {
+            sync();
+        }
+    }
+
+    /**
+     * Force entries written but not forced yet, called before closing files.
+     * Do nothing if durability mode is {@link DurabilityMode#NONE}.
+     *
+     * @throws IOException if failed to force
+     */
+    void syncBeforeClose() throws IOException {
+        if (durabilityMode != DurabilityMode.NONE) {
+            sync();
+        }
+    }
+
+}
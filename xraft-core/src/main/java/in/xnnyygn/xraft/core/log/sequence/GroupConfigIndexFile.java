@@ -0,0 +1,162 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.support.SeekableFile;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only sidecar of entries file, records of (index, offset) of group config entries.
+ * <p>
+ * Records are written after entries and before entry indexes, so after recovery of entries file and
+ * entry index file, records with index greater than max entry index are dropped and records
+ * missing after the last one are rebuilt from kinds in entry index file.
+ * </p>
+ */
+@NotThreadSafe
+public class GroupConfigIndexFile {
+
+    private static final int LENGTH_RECORD = 12;
+    private final SeekableFile seekableFile;
+    private int[] indexes = new int[8];
+    private long[] offsets = new long[8];
+    private int count = 0;
+
+    /**
+     * Create.
+     *
+     * @param file file
+     * @throws IOException if failed to open or load
+     */
+    public GroupConfigIndexFile(File file) throws IOException {
+        this(file, SeekableFileType.RANDOM_ACCESS_FILE);
+    }
+
+    /**
+     * Create.
+     *
+     * @param file     file
+     * @param fileType file type
+     * @throws IOException if failed to open or load
+     */
+    public GroupConfigIndexFile(File file, SeekableFileType fileType) throws IOException {
+        this.seekableFile = fileType.open(file, "rw");
+        load();
+    }
+
+    /**
+     * Create.
+     *
+     * @param seekableFile seekable file
+     * @throws IOException if failed to load
+     */
+    public GroupConfigIndexFile(SeekableFile seekableFile) throws IOException {
+        this.seekableFile = seekableFile;
+        load();
+    }
+
+    private void load() throws IOException {
+        long size = seekableFile.size();
+        int n = (int) (size / LENGTH_RECORD);
+        if (size % LENGTH_RECORD != 0) {
+            // torn record
+            seekableFile.truncate((long) n * LENGTH_RECORD);
+        }
+        if (n == 0) {
+            return;
+        }
+        byte[] bytes = new byte[n * LENGTH_RECORD];
+        seekableFile.seek(0L);
+        if (seekableFile.read(bytes) != bytes.length) {
+            throw new IOException("unexpected end of group config index file");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < n; i++) {
+            add(buffer.getInt(), buffer.getLong());
+        }
+    }
+
+    private void add(int index, long offset) {
+        if (count == indexes.length) {
+            indexes = Arrays.copyOf(indexes, count << 1);
+            offsets = Arrays.copyOf(offsets, count << 1);
+        }
+        indexes[count] = index;
+        offsets[count] = offset;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getIndex(int i) {
+        return indexes[i];
+    }
+
+    public long getOffset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Append record.
+     *
+     * @param index  index of group config entry
+     * @param offset offset of entry in entries file
+     * @throws IOException if failed to write
+     */
+    public void append(int index, long offset) throws IOException {
+        if (count > 0 && index <= indexes[count - 1]) {
+            throw new IllegalArgumentException("index must be greater than " + indexes[count - 1] + ", but was " + index);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_RECORD);
+        buffer.putInt(index);
+        buffer.putLong(offset);
+        seekableFile.seek((long) count * LENGTH_RECORD);
+        seekableFile.write(buffer.array());
+        add(index, offset);
+    }
+
+    /**
+     * Remove records whose index is greater than {@code index}.
+     *
+     * @param index index
+     * @throws IOException if failed to truncate
+     */
+    public void removeAfter(int index) throws IOException {
+        int n = count;
+        while (n > 0 && indexes[n - 1] > index) {
+            n--;
+        }
+        if (n < count) {
+            seekableFile.truncate((long) n * LENGTH_RECORD);
+            count = n;
+        }
+    }
+
+    public void clear() throws IOException {
+        seekableFile.truncate(0L);
+        count = 0;
+    }
+
+    public void flush() throws IOException {
+        seekableFile.flush();
+    }
+
+    public void force() throws IOException {
+        seekableFile.force();
+    }
+
+    public void forceWritten() throws IOException {
+        seekableFile.forceWritten();
+    }
+
+    public void close() throws IOException {
+        seekableFile.close();
+    }
+
+}
@@ -39,6 +39,11 @@ public class MemoryEntrySequence extends AbstractEntrySequence {
     public void commit(int index) {
     }
 
+    @Override
+    public WrittenEntries write(int index) {
+        return new WrittenEntries(index);
+    }
+
     @Override
     public int getCommitIndex() {
         // TODO implement me
@@ -0,0 +1,93 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.support.SeekableFile;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+
+/**
+ * Preallocation of file in chunks.
+ * <p>
+ * Space after data is filled with zeros chunk by chunk, so appends overwrite allocated blocks
+ * and forces do not update file size. Zeros are written explicitly, since extending file by
+ * length creates holes in most file systems.
+ * </p>
+ */
+@NotThreadSafe
+class Preallocation {
+
+    private static final byte[] ZEROS = new byte[64 * 1024];
+    private final int chunkSize;
+    private long allocatedSize;
+
+    /**
+     * Create.
+     *
+     * @param chunkSize     chunk size, {@code 0} to disable
+     * @param allocatedSize current file size
+     */
+    Preallocation(int chunkSize, long allocatedSize) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("chunk size < 0");
+        }
+        this.chunkSize = chunkSize;
+        this.allocatedSize = allocatedSize;
+    }
+
+    boolean isEnabled() {
+        return chunkSize > 0;
+    }
+
+    long getAllocatedSize() {
+        return allocatedSize;
+    }
+
+    /**
+     * Fill zeros after {@code end} to next chunk boundary if {@code end} is after allocated space.
+     * Should be called after data before {@code end} is written.
+     *
+     * @param seekableFile file
+     * @param end          end of data
+     * @throws IOException if failed to write
+     */
+    void allocate(SeekableFile seekableFile, long end) throws IOException {
+        if (end <= allocatedSize) {
+            return;
+        }
+        if (!isEnabled()) {
+            allocatedSize = end;
+            return;
+        }
+        // next chunk boundary after end
+        long newSize = (end / chunkSize + 1) * chunkSize;
+        seekableFile.seek(end);
+        for (long remaining = newSize - end; remaining > 0; remaining -= ZEROS.length) {
+            seekableFile.write(remaining >= ZEROS.length ? ZEROS : new byte[(int) remaining]);
+        }
+        allocatedSize = newSize;
+    }
+
+    /**
+     * Update allocated size after file is truncated.
+     *
+     * @param size size of file
+     */
+    void truncated(long size) {
+        allocatedSize = size;
+    }
+
+    /**
+     * Remove space after end of data.
+     *
+     * @param seekableFile file
+     * @param end          end of data
+     * @throws IOException if failed to truncate
+     */
+    void trim(SeekableFile seekableFile, long end) throws IOException {
+        if (allocatedSize > end) {
+            seekableFile.truncate(end);
+            allocatedSize = end;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.LogException;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Segment of log, entries file with its entry index file and group config index file.
+ */
+@NotThreadSafe
+class Segment {
+
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("segment-(\\d+)\\.bin");
+    private final int firstIndex;
+    private final File entriesFile;
+    private final File entryIndexFile;
+    private final File groupConfigIndexFile;
+    private final EntriesFile entries;
+    private final FileEntrySequence sequence;
+
+    private Segment(int firstIndex, File entriesFile, File entryIndexFile, File groupConfigIndexFile,
+                    NodeConfig config, EntryCache entryCache) {
+        this.firstIndex = firstIndex;
+        this.entriesFile = entriesFile;
+        this.entryIndexFile = entryIndexFile;
+        this.groupConfigIndexFile = groupConfigIndexFile;
+        try {
+            this.entries = new EntriesFile(config.getFileType().open(entriesFile, "rw"), config.getLogPreallocateSize());
+            EntryIndexFile index = new EntryIndexFile(config.getFileType().open(entryIndexFile, "rw"), config.getLogPreallocateSize());
+            GroupConfigIndexFile groupConfigIndex = FileEntrySequence.openGroupConfigIndexFile(groupConfigIndexFile, config);
+            this.sequence = new FileEntrySequence(entries, index, groupConfigIndex, firstIndex, config, entryCache);
+        } catch (IOException e) {
+            throw new LogException("failed to open segment " + entriesFile, e);
+        }
+    }
+
+    /**
+     * Open segment whose first entry index is {@code firstIndex}, create files if not exist.
+     *
+     * @param dir        directory
+     * @param firstIndex first entry index
+     * @param config     config
+     * @param entryCache entry cache shared by segments
+     * @return segment
+     */
+    static Segment open(File dir, int firstIndex, NodeConfig config, EntryCache entryCache) {
+        return new Segment(firstIndex, getEntriesFile(dir, firstIndex), getEntryIndexFile(dir, firstIndex),
+                getGroupConfigIndexFile(dir, firstIndex), config, entryCache);
+    }
+
+    /**
+     * Move existing entries file and entry index file into {@code dir} as segment.
+     * Group config index file is moved if exists, otherwise rebuilt when segment is opened.
+     *
+     * @param dir                  directory
+     * @param firstIndex           first entry index
+     * @param entriesFile          entries file
+     * @param entryIndexFile       entry index file
+     * @param groupConfigIndexFile group config index file
+     */
+    static void importFrom(File dir, int firstIndex, File entriesFile, File entryIndexFile, File groupConfigIndexFile) {
+        if (!entriesFile.renameTo(getEntriesFile(dir, firstIndex)) ||
+                !entryIndexFile.renameTo(getEntryIndexFile(dir, firstIndex)) ||
+                (groupConfigIndexFile.exists() && !groupConfigIndexFile.renameTo(getGroupConfigIndexFile(dir, firstIndex)))) {
+            throw new LogException("failed to move " + entriesFile + " to " + dir);
+        }
+    }
+
+    private static File getEntriesFile(File dir, int firstIndex) {
+        return new File(dir, "segment-" + firstIndex + ".bin");
+    }
+
+    private static File getEntryIndexFile(File dir, int firstIndex) {
+        return new File(dir, "segment-" + firstIndex + ".idx");
+    }
+
+    private static File getGroupConfigIndexFile(File dir, int firstIndex) {
+        return new File(dir, "segment-" + firstIndex + ".gci");
+    }
+
+    /**
+     * Parse first entry index from name of entries file.
+     *
+     * @param fileName file name
+     * @return first entry index, or {@code -1} if not a segment entries file
+     */
+    static int parseFirstIndex(String fileName) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(fileName);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    int getFirstIndex() {
+        return firstIndex;
+    }
+
+    FileEntrySequence getSequence() {
+        return sequence;
+    }
+
+    long getSize() {
+        return entries.size();
+    }
+
+    void close() {
+        sequence.close();
+    }
+
+    /**
+     * Close and delete files of segment.
+     */
+    void delete() {
+        sequence.close();
+        if ((entriesFile.exists() && !entriesFile.delete()) || (entryIndexFile.exists() && !entryIndexFile.delete()) ||
+                (groupConfigIndexFile.exists() && !groupConfigIndexFile.delete())) {
+            throw new LogException("failed to delete segment " + entriesFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Segment{" +
+                "firstIndex=" + firstIndex +
+                ", entriesFile=" + entriesFile +
+                '}';
+    }
+
+}
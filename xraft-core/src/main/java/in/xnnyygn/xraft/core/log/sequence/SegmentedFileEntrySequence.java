@@ -0,0 +1,338 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.LogDir;
+import in.xnnyygn.xraft.core.log.LogException;
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.EntryMeta;
+import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Entry sequence stored in segments.
+ * <p>
+ * A new segment is rolled when the active segment exceeds segment size on commit.
+ * Uncommitted entries always stay in the last segment.
+ * Entries included in snapshot are removed by deleting whole segments, see {@link #compact(int)}.
+ * </p>
+ */
+@NotThreadSafe
+public class SegmentedFileEntrySequence extends AbstractEntrySequence {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedFileEntrySequence.class);
+    private final File dir;
+    private final NodeConfig config;
+    private final long segmentSize;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final EntryCache entryCache;
+    private int commitIndex;
+
+    public SegmentedFileEntrySequence(File dir, int logIndexOffset, NodeConfig config) {
+        super(logIndexOffset);
+        if (config.getLogSegmentSize() <= 0) {
+            throw new IllegalArgumentException("segment size <= 0");
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new LogException("failed to create directory " + dir);
+        }
+        this.dir = dir;
+        this.config = config;
+        this.segmentSize = config.getLogSegmentSize();
+        this.entryCache = new EntryCache(config.getLogEntryCacheSize());
+        initialize();
+    }
+
+    /**
+     * Move entries file and entry index file in log dir into {@code dir} as the first segment.
+     * Do nothing if {@code dir} contains segments or the entries in log dir is empty.
+     * Used when switching from single entries file to segments.
+     *
+     * @param dir    directory of segments
+     * @param logDir log dir
+     */
+    public static void importFrom(File dir, LogDir logDir) {
+        File[] files = dir.listFiles();
+        if (files != null && Arrays.stream(files).anyMatch(f -> Segment.parseFirstIndex(f.getName()) >= 0)) {
+            return;
+        }
+        File entryIndexFile = logDir.getEntryOffsetIndexFile();
+        if (!entryIndexFile.exists() || entryIndexFile.length() == 0L) {
+            return;
+        }
+        int firstIndex;
+        try {
+            EntryIndexFile file = new EntryIndexFile(entryIndexFile);
+            firstIndex = file.getMinEntryIndex();
+            file.close();
+        } catch (IOException e) {
+            throw new LogException("failed to read entry index file " + entryIndexFile, e);
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new LogException("failed to create directory " + dir);
+        }
+        logger.info("import entries in {} as segment {}", logDir, firstIndex);
+        Segment.importFrom(dir, firstIndex, logDir.getEntriesFile(), entryIndexFile, logDir.getGroupConfigIndexFile());
+    }
+
+    private void initialize() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int firstIndex = Segment.parseFirstIndex(file.getName());
+                if (firstIndex >= 0) {
+                    segments.put(firstIndex, Segment.open(dir, firstIndex, config, entryCache));
+                }
+            }
+        }
+
+        // segments included in snapshot, left by last compaction
+        removeSegmentsBefore(logIndexOffset);
+        if (segments.isEmpty()) {
+            commitIndex = logIndexOffset - 1;
+            return;
+        }
+        FileEntrySequence firstSequence = segments.firstEntry().getValue().getSequence();
+        if (!firstSequence.isEmpty()) {
+            logIndexOffset = Math.max(logIndexOffset, firstSequence.getFirstLogIndex());
+        }
+        nextLogIndex = Math.max(logIndexOffset, segments.lastEntry().getValue().getSequence().getNextLogIndex());
+        commitIndex = nextLogIndex - 1;
+    }
+
+    /**
+     * Remove segments whose entries are all before {@code index}.
+     * The last segment will be deleted only if it has no entry at or after {@code index}.
+     *
+     * @param index index
+     */
+    private void removeSegmentsBefore(int index) {
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment.getSequence().getNextLogIndex() > index) {
+                break;
+            }
+            logger.debug("delete segment {}", segment);
+            segment.delete();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Remove entries included in snapshot by deleting whole segments.
+     * The segment containing {@code newLogIndexOffset} is kept, entries before it are invisible.
+     *
+     * @param newLogIndexOffset last included index of snapshot + 1
+     */
+    public void compact(int newLogIndexOffset) {
+        if (newLogIndexOffset <= logIndexOffset) {
+            return;
+        }
+        if (newLogIndexOffset - 1 > commitIndex) {
+            // uncommitted entries included in snapshot, e.g install snapshot from leader.
+            // keep uncommitted entries after snapshot only.
+            List<Entry> remainingEntries = new ArrayList<>(subView(newLogIndexOffset));
+            for (Segment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            entryCache.clear();
+            logIndexOffset = newLogIndexOffset;
+            nextLogIndex = newLogIndexOffset;
+            commitIndex = newLogIndexOffset - 1;
+            append(remainingEntries);
+            return;
+        }
+        removeSegmentsBefore(newLogIndexOffset);
+        logIndexOffset = newLogIndexOffset;
+        nextLogIndex = Math.max(nextLogIndex, newLogIndexOffset);
+    }
+
+    @Override
+    public int getCommitIndex() {
+        return commitIndex;
+    }
+
+    @Override
+    public GroupConfigEntryList buildGroupConfigEntryList() {
+        GroupConfigEntryList list = new GroupConfigEntryList();
+        for (Segment segment : segments.values()) {
+            for (GroupConfigEntry entry : segment.getSequence().buildGroupConfigEntryList()) {
+                if (entry.getIndex() >= logIndexOffset) {
+                    list.add(entry);
+                }
+            }
+        }
+        return list;
+    }
+
+    private Segment getSegment(int index) {
+        Map.Entry<Integer, Segment> entry = segments.floorEntry(index);
+        if (entry == null) {
+            throw new IllegalStateException("no segment for index " + index);
+        }
+        return entry.getValue();
+    }
+
+    @Override
+    protected Entry doGetEntry(int index) {
+        return getSegment(index).getSequence().getEntry(index);
+    }
+
+    @Override
+    public EntryMeta getEntryMeta(int index) {
+        if (!isEntryPresent(index)) {
+            return null;
+        }
+        return getSegment(index).getSequence().getEntryMeta(index);
+    }
+
+    @Override
+    protected List<Entry> doSubList(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return Collections.emptyList();
+        }
+        List<Entry> result = new ArrayList<>(toIndex - fromIndex);
+        Integer segmentFirstIndex = segments.floorKey(fromIndex);
+        if (segmentFirstIndex == null) {
+            segmentFirstIndex = segments.firstKey();
+        }
+        for (Segment segment : segments.tailMap(segmentFirstIndex, true).values()) {
+            FileEntrySequence sequence = segment.getSequence();
+            if (sequence.isEmpty()) {
+                continue;
+            }
+            int from = Math.max(fromIndex, sequence.getFirstLogIndex());
+            int to = Math.min(toIndex, sequence.getNextLogIndex());
+            if (from >= toIndex) {
+                break;
+            }
+            if (from < to) {
+                result.addAll(sequence.subList(from, to));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void doAppend(Entry entry) {
+        Segment lastSegment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (lastSegment == null) {
+            lastSegment = Segment.open(dir, entry.getIndex(), config, entryCache);
+            segments.put(entry.getIndex(), lastSegment);
+        }
+        lastSegment.getSequence().append(entry);
+    }
+
+    @Override
+    public void commit(int index) {
+        if (index <= commitIndex) {
+            return;
+        }
+        prepareLastSegment(index).getSequence().commit(index);
+        commitIndex = index;
+    }
+
+    @Override
+    public WrittenEntries write(int index) {
+        if (segments.isEmpty()) {
+            return new WrittenEntries(index);
+        }
+        if (index <= commitIndex) {
+            return segments.lastEntry().getValue().getSequence().write(index);
+        }
+        WrittenEntries writtenEntries = prepareLastSegment(index).getSequence().write(index);
+        commitIndex = index;
+        return writtenEntries;
+    }
+
+    /**
+     * Get last segment to write entries up to {@code index}, roll if full.
+     *
+     * @param index index
+     * @return last segment
+     */
+    private Segment prepareLastSegment(int index) {
+        if (index >= nextLogIndex) {
+            throw new IllegalArgumentException("no entry to commit or commit index exceed");
+        }
+        Segment lastSegment = segments.lastEntry().getValue();
+        if (lastSegment.getSize() >= segmentSize) {
+            lastSegment = rollSegment(lastSegment);
+        }
+        return lastSegment;
+    }
+
+    /**
+     * Create new segment, move uncommitted entries in current last segment to new segment.
+     *
+     * @param lastSegment current last segment
+     * @return new segment
+     */
+    private Segment rollSegment(Segment lastSegment) {
+        int firstIndex = commitIndex + 1;
+        FileEntrySequence lastSequence = lastSegment.getSequence();
+        List<Entry> uncommittedEntries = new ArrayList<>(lastSequence.subView(firstIndex));
+        lastSequence.removeAfter(commitIndex);
+
+        Segment segment = Segment.open(dir, firstIndex, config, entryCache);
+        logger.debug("roll segment, new segment {}", segment);
+        segment.getSequence().append(uncommittedEntries);
+        segments.put(firstIndex, segment);
+        return segment;
+    }
+
+    @Override
+    protected void doRemoveAfter(int index) {
+        if (index < logIndexOffset) {
+            for (Segment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            entryCache.clear();
+            nextLogIndex = logIndexOffset;
+            commitIndex = logIndexOffset - 1;
+            return;
+        }
+        NavigableMap<Integer, Segment> tailSegments = segments.tailMap(index, false);
+        for (Segment segment : tailSegments.values()) {
+            segment.delete();
+        }
+        tailSegments.clear();
+        getSegment(index).getSequence().removeAfter(index);
+        entryCache.removeAfter(index);
+        nextLogIndex = index + 1;
+        commitIndex = Math.min(commitIndex, index);
+    }
+
+    /**
+     * Get cache of committed entries shared by segments.
+     *
+     * @return entry cache
+     */
+    public EntryCache getEntryCache() {
+        return entryCache;
+    }
+
+    @Override
+    public void syncIfIntervalElapsed() {
+        // segment rolled may have entries not forced, segment without such entries is not forced again
+        for (Segment segment : segments.values()) {
+            segment.getSequence().syncIfIntervalElapsed();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import java.io.IOException;
+
+/**
+ * Entries written to storage, but maybe not durable yet.
+ * <p>
+ * Only files are touched by {@link #sync()}, so it can be called from another thread,
+ * e.g. leader writes entries in node thread, then forces them in I/O thread while replicating.
+ * </p>
+ */
+public class WrittenEntries {
+
+    private static final Sync NO_SYNC = () -> {
+    };
+    private final int lastIndex;
+    private final Sync sync;
+
+    /**
+     * Create, entries are durable once written.
+     *
+     * @param lastIndex last index
+     */
+    public WrittenEntries(int lastIndex) {
+        this(lastIndex, NO_SYNC);
+    }
+
+    WrittenEntries(int lastIndex, Sync sync) {
+        this.lastIndex = lastIndex;
+        this.sync = sync;
+    }
+
+    /**
+     * Get last index of entries written.
+     *
+     * @return last index
+     */
+    public int getLastIndex() {
+        return lastIndex;
+    }
+
+    /**
+     * Check if entries are durable without {@link #sync()}.
+     *
+     * @return true if no sync required, otherwise false
+     */
+    public boolean isDurable() {
+        return sync == NO_SYNC;
+    }
+
+    /**
+     * Make entries up to last index durable.
+     *
+     * @throws IOException if failed to force
+     */
+    public void sync() throws IOException {
+        sync.sync();
+    }
+
+    @FunctionalInterface
+    interface Sync {
+
+        void sync() throws IOException;
+
+    }
+
+    @Override
+    public String toString() {
+        return "WrittenEntries{" +
+                "lastIndex=" + lastIndex +
+                ", durable=" + isDurable() +
+                '}';
+    }
+
+}
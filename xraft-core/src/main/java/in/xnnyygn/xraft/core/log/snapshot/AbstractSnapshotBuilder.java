@@ -12,6 +12,7 @@ abstract class AbstractSnapshotBuilder<T extends Snapshot> implements SnapshotBu
     int lastIncludedIndex;
     int lastIncludedTerm;
     Set<NodeEndpoint> lastConfig;
+    final long dataSize;
     private int offset;
 
     AbstractSnapshotBuilder(InstallSnapshotRpc firstRpc) {
@@ -19,9 +20,30 @@ abstract class AbstractSnapshotBuilder<T extends Snapshot> implements SnapshotBu
         lastIncludedIndex = firstRpc.getLastIndex();
         lastIncludedTerm = firstRpc.getLastTerm();
         lastConfig = firstRpc.getLastConfig();
+        dataSize = firstRpc.getDataSize();
         offset = firstRpc.getDataLength();
     }
 
+    AbstractSnapshotBuilder(int lastIncludedIndex, int lastIncludedTerm, Set<NodeEndpoint> lastConfig, long dataSize, int offset) {
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.lastIncludedTerm = lastIncludedTerm;
+        this.lastConfig = lastConfig;
+        this.dataSize = dataSize;
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean isBuilding(InstallSnapshotRpc rpc) {
+        return rpc.getLastIndex() == lastIncludedIndex &&
+                rpc.getLastTerm() == lastIncludedTerm &&
+                rpc.getDataSize() == dataSize;
+    }
+
+    @Override
+    public int getOffset() {
+        return offset;
+    }
+
     protected void write(byte[] data) {
         try {
             doWrite(data);
@@ -5,12 +5,11 @@ import in.xnnyygn.xraft.core.Protos;
 import in.xnnyygn.xraft.core.log.LogDir;
 import in.xnnyygn.xraft.core.log.LogException;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
-import in.xnnyygn.xraft.core.support.RandomAccessFileAdapter;
 import in.xnnyygn.xraft.core.support.SeekableFile;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
 
 import javax.annotation.Nonnull;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Set;
@@ -19,30 +18,38 @@ import java.util.stream.Collectors;
 public class FileSnapshot implements Snapshot {
 
     private LogDir logDir;
+    private File file;
     private SeekableFile seekableFile;
     private int lastIncludedIndex;
     private int lastIncludedTerm;
     private Set<NodeEndpoint> lastConfig;
     private long dataStart;
     private long dataLength;
+    private long declaredDataSize;
 
     public FileSnapshot(LogDir logDir) {
+        this(logDir, SeekableFileType.RANDOM_ACCESS_FILE);
+    }
+
+    public FileSnapshot(LogDir logDir, SeekableFileType fileType) {
         this.logDir = logDir;
-        readHeader(logDir.getSnapshotFile());
+        this.file = logDir.getSnapshotFile();
+        readHeader(file, fileType);
     }
 
     public FileSnapshot(File file) {
-        readHeader(file);
+        this.file = file;
+        readHeader(file, SeekableFileType.RANDOM_ACCESS_FILE);
     }
 
     public FileSnapshot(SeekableFile seekableFile) {
         readHeader(seekableFile);
     }
 
-    private void readHeader(File file) {
+    private void readHeader(File file, SeekableFileType fileType) {
         try {
-            readHeader(new RandomAccessFileAdapter(file, "r"));
-        } catch (FileNotFoundException e) {
+            readHeader(fileType.open(file, "r"));
+        } catch (IOException e) {
             throw new LogException(e);
         }
     }
@@ -59,6 +66,7 @@ public class FileSnapshot implements Snapshot {
             lastConfig = header.getLastConfigList().stream()
                     .map(e -> new NodeEndpoint(e.getId(), e.getHost(), e.getPort()))
                     .collect(Collectors.toSet());
+            declaredDataSize = header.getDataSize();
             dataStart = seekableFile.position();
             dataLength = seekableFile.size() - dataStart;
         } catch (InvalidProtocolBufferException e) {
@@ -89,6 +97,16 @@ public class FileSnapshot implements Snapshot {
         return dataLength;
     }
 
+    /**
+     * Get size of all data in header, written when snapshot is installed from leader.
+     * Data length less than it means snapshot is partial.
+     *
+     * @return size, {@code 0} if unknown
+     */
+    public long getDeclaredDataSize() {
+        return declaredDataSize;
+    }
+
     @Override
     @Nonnull
     public SnapshotChunk readData(int offset, int length) {
@@ -105,6 +123,26 @@ public class FileSnapshot implements Snapshot {
         }
     }
 
+    /**
+     * Get data as region of snapshot file, data is not read.
+     * Read data into memory if snapshot is not created from file.
+     *
+     * @param offset offset
+     * @param length max length
+     * @return chunk
+     */
+    @Nonnull
+    public SnapshotChunk readDataRegion(int offset, int length) {
+        if (file == null) {
+            return readData(offset, length);
+        }
+        if (offset > dataLength) {
+            throw new IllegalArgumentException("offset > data length");
+        }
+        int n = (int) Math.min(length, dataLength - offset);
+        return new SnapshotChunk(file, dataStart + offset, n, offset + n >= dataLength);
+    }
+
     @Override
     @Nonnull
     public InputStream getDataStream() {
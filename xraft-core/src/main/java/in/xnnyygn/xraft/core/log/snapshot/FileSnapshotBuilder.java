@@ -3,34 +3,157 @@ package in.xnnyygn.xraft.core.log.snapshot;
 import in.xnnyygn.xraft.core.log.LogDir;
 import in.xnnyygn.xraft.core.log.LogException;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
+/**
+ * Snapshot builder writing data to file.
+ * <p>
+ * Data is forced every {@code forceInterval} bytes and when done. Offset of forced data is kept in
+ * {@link LogDir#getSnapshotOffsetFile()}, partial snapshot is resumed from it since data not forced
+ * may be lost or zero-filled after power loss.
+ * </p>
+ */
 public class FileSnapshotBuilder extends AbstractSnapshotBuilder<FileSnapshot> {
 
+    static final int DEFAULT_FORCE_INTERVAL = 1024 * 1024;
+    private static final Logger logger = LoggerFactory.getLogger(FileSnapshotBuilder.class);
     private final LogDir logDir;
+    private final int forceInterval;
     private FileSnapshotWriter writer;
+    private RandomAccessFile offsetFile;
+    private int forcedOffset;
 
     public FileSnapshotBuilder(InstallSnapshotRpc firstRpc, LogDir logDir) {
+        this(firstRpc, logDir, DEFAULT_FORCE_INTERVAL);
+    }
+
+    FileSnapshotBuilder(InstallSnapshotRpc firstRpc, LogDir logDir, int forceInterval) {
         super(firstRpc);
         this.logDir = logDir;
+        this.forceInterval = forceInterval;
 
         try {
-            writer = new FileSnapshotWriter(logDir.getSnapshotFile(), firstRpc.getLastIndex(), firstRpc.getLastTerm(), firstRpc.getLastConfig());
+            // clear forced offset of previous partial snapshot before overwriting it
+            offsetFile = new RandomAccessFile(logDir.getSnapshotOffsetFile(), "rw");
+            offsetFile.setLength(0);
+            offsetFile.getFD().sync();
+            writer = new FileSnapshotWriter(logDir.getSnapshotFile(), firstRpc.getLastIndex(), firstRpc.getLastTerm(), firstRpc.getLastConfig(), firstRpc.getDataSize());
             writer.write(firstRpc.getData());
+            force();
         } catch (IOException e) {
             throw new LogException("failed to write snapshot data to file", e);
         }
     }
 
+    private FileSnapshotBuilder(FileSnapshot partialSnapshot, int forcedOffset, LogDir logDir, int forceInterval) throws IOException {
+        super(partialSnapshot.getLastIncludedIndex(), partialSnapshot.getLastIncludedTerm(), partialSnapshot.getLastConfig(),
+                partialSnapshot.getDeclaredDataSize(), forcedOffset);
+        this.logDir = logDir;
+        this.forceInterval = forceInterval;
+        this.forcedOffset = forcedOffset;
+        writer = FileSnapshotWriter.append(logDir.getSnapshotFile());
+        offsetFile = new RandomAccessFile(logDir.getSnapshotOffsetFile(), "rw");
+    }
+
+    /**
+     * Resume partial snapshot left in {@code logDir}, e.g. node restarted during installation.
+     * Data after forced offset is truncated.
+     *
+     * @param logDir            log dir of installing snapshot
+     * @param lastIncludedIndex last included index of current snapshot
+     * @return builder, {@code null} if no partial snapshot after {@code lastIncludedIndex}
+     */
+    @Nullable
+    public static FileSnapshotBuilder resume(LogDir logDir, int lastIncludedIndex) {
+        return resume(logDir, lastIncludedIndex, DEFAULT_FORCE_INTERVAL);
+    }
+
+    @Nullable
+    static FileSnapshotBuilder resume(LogDir logDir, int lastIncludedIndex, int forceInterval) {
+        File snapshotFile = logDir.getSnapshotFile();
+        if (!snapshotFile.exists() || !logDir.getSnapshotOffsetFile().exists()) {
+            return null;
+        }
+        FileSnapshot partialSnapshot;
+        try {
+            partialSnapshot = new FileSnapshot(snapshotFile);
+        } catch (LogException e) {
+            logger.warn("failed to read header of partial snapshot, ignore", e);
+            return null;
+        }
+        partialSnapshot.close();
+        int forcedOffset = readForcedOffset(logDir.getSnapshotOffsetFile());
+        if (partialSnapshot.getLastIncludedIndex() <= lastIncludedIndex ||
+                forcedOffset < 0 || forcedOffset > partialSnapshot.getDataSize() ||
+                forcedOffset >= partialSnapshot.getDeclaredDataSize()) {
+            return null;
+        }
+        logger.info("resume partial snapshot, last included index {}, offset {}",
+                partialSnapshot.getLastIncludedIndex(), forcedOffset);
+        try {
+            truncate(snapshotFile, snapshotFile.length() - partialSnapshot.getDataSize() + forcedOffset);
+            return new FileSnapshotBuilder(partialSnapshot, forcedOffset, logDir, forceInterval);
+        } catch (IOException e) {
+            throw new LogException("failed to open partial snapshot", e);
+        }
+    }
+
+    private static int readForcedOffset(File file) {
+        try (RandomAccessFile offsetFile = new RandomAccessFile(file, "r")) {
+            return offsetFile.length() < 4 ? -1 : offsetFile.readInt();
+        } catch (IOException e) {
+            throw new LogException("failed to read forced offset of partial snapshot", e);
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+        }
+    }
+
     @Override
     protected void doWrite(byte[] data) throws IOException {
         writer.write(data);
     }
 
+    @Override
+    public void append(InstallSnapshotRpc rpc) {
+        super.append(rpc);
+        if (rpc.isDone() || getOffset() - forcedOffset >= forceInterval) {
+            try {
+                force();
+            } catch (IOException e) {
+                throw new LogException("failed to force snapshot data", e);
+            }
+        }
+    }
+
+    /**
+     * Force data, then record forced offset.
+     *
+     * @throws IOException if failed to force
+     */
+    private void force() throws IOException {
+        writer.force();
+        offsetFile.seek(0);
+        offsetFile.writeInt(getOffset());
+        offsetFile.getFD().sync();
+        forcedOffset = getOffset();
+    }
+
     @Override
     public FileSnapshot build() {
         close();
+        if (!logDir.getSnapshotOffsetFile().delete()) {
+            logger.warn("failed to delete forced offset file of snapshot");
+        }
         return new FileSnapshot(logDir);
     }
 
@@ -38,6 +161,7 @@ public class FileSnapshotBuilder extends AbstractSnapshotBuilder<FileSnapshot> {
     public void close() {
         try {
             writer.close();
+            offsetFile.close();
         } catch (IOException e) {
             throw new LogException("failed to close writer", e);
         }
@@ -3,6 +3,7 @@ package in.xnnyygn.xraft.core.log.snapshot;
 import in.xnnyygn.xraft.core.Protos;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -10,16 +11,38 @@ import java.util.stream.Collectors;
 public class FileSnapshotWriter implements AutoCloseable {
 
     private final DataOutputStream output;
+    @Nullable
+    private final FileOutputStream fileOutput;
 
     public FileSnapshotWriter(File file, int lastIncludedIndex, int lastIncludedTerm, Set<NodeEndpoint> lastConfig) throws IOException {
-        this(new DataOutputStream(new FileOutputStream(file)), lastIncludedIndex, lastIncludedTerm, lastConfig);
+        this(file, lastIncludedIndex, lastIncludedTerm, lastConfig, 0);
+    }
+
+    /**
+     * Create.
+     *
+     * @param file              file
+     * @param lastIncludedIndex last included index
+     * @param lastIncludedTerm  last included term
+     * @param lastConfig        last config
+     * @param dataSize          size of all data to write, {@code 0} if unknown
+     * @throws IOException if failed to write header
+     */
+    public FileSnapshotWriter(File file, int lastIncludedIndex, int lastIncludedTerm, Set<NodeEndpoint> lastConfig, long dataSize) throws IOException {
+        this(new FileOutputStream(file), lastIncludedIndex, lastIncludedTerm, lastConfig, dataSize);
     }
 
     FileSnapshotWriter(OutputStream output, int lastIncludedIndex, int lastIncludedTerm, Set<NodeEndpoint> lastConfig) throws IOException {
+        this(output, lastIncludedIndex, lastIncludedTerm, lastConfig, 0);
+    }
+
+    private FileSnapshotWriter(OutputStream output, int lastIncludedIndex, int lastIncludedTerm, Set<NodeEndpoint> lastConfig, long dataSize) throws IOException {
         this.output = new DataOutputStream(output);
+        this.fileOutput = output instanceof FileOutputStream ? (FileOutputStream) output : null;
         byte[] headerBytes = Protos.SnapshotHeader.newBuilder()
                 .setLastIndex(lastIncludedIndex)
                 .setLastTerm(lastIncludedTerm)
+                .setDataSize(dataSize)
                 .addAllLastConfig(
                         lastConfig.stream()
                                 .map(e -> Protos.NodeEndpoint.newBuilder()
@@ -34,6 +57,22 @@ public class FileSnapshotWriter implements AutoCloseable {
 
     }
 
+    private FileSnapshotWriter(FileOutputStream output) {
+        this.output = new DataOutputStream(output);
+        this.fileOutput = output;
+    }
+
+    /**
+     * Open writer appending data to partial snapshot, header is not written.
+     *
+     * @param file file
+     * @return writer
+     * @throws IOException if failed to open file
+     */
+    public static FileSnapshotWriter append(File file) throws IOException {
+        return new FileSnapshotWriter(new FileOutputStream(file, true));
+    }
+
     public OutputStream getOutput() {
         return output;
     }
@@ -42,6 +81,18 @@ public class FileSnapshotWriter implements AutoCloseable {
         output.write(data);
     }
 
+    /**
+     * Force data written to disk, no-op if output is not a file.
+     *
+     * @throws IOException if failed to force
+     */
+    public void force() throws IOException {
+        output.flush();
+        if (fileOutput != null) {
+            fileOutput.getFD().sync();
+        }
+    }
+
     @Override
     public void close() throws IOException {
         output.close();
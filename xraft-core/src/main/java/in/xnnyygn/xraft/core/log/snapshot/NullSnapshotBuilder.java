@@ -4,6 +4,16 @@ import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
 
 public class NullSnapshotBuilder implements SnapshotBuilder {
 
+    @Override
+    public boolean isBuilding(InstallSnapshotRpc rpc) {
+        return false;
+    }
+
+    @Override
+    public int getOffset() {
+        return 0;
+    }
+
     @Override
     public void append(InstallSnapshotRpc rpc) {
         throw new UnsupportedOperationException();
@@ -4,6 +4,22 @@ import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
 
 public interface SnapshotBuilder<T extends Snapshot> {
 
+    /**
+     * Test if rpc is of snapshot being built, i.e. last index, last term and data size are same.
+     * Data received is kept and installation continues from offset when transfer restarts.
+     *
+     * @param rpc rpc
+     * @return true if same snapshot, otherwise false
+     */
+    boolean isBuilding(InstallSnapshotRpc rpc);
+
+    /**
+     * Get offset of next data, i.e. length of data received.
+     *
+     * @return offset
+     */
+    int getOffset();
+
     void append(InstallSnapshotRpc rpc);
 
     T build();
@@ -1,12 +1,31 @@
 package in.xnnyygn.xraft.core.log.snapshot;
 
+import java.io.File;
+
+/**
+ * Chunk of snapshot data, in memory or as region of file.
+ */
 public class SnapshotChunk {
 
     private final byte[] bytes;
+    private final File file;
+    private final long position;
+    private final int length;
     private final boolean lastChunk;
 
     SnapshotChunk(byte[] bytes, boolean lastChunk) {
         this.bytes = bytes;
+        this.file = null;
+        this.position = 0;
+        this.length = bytes.length;
+        this.lastChunk = lastChunk;
+    }
+
+    SnapshotChunk(File file, long position, int length, boolean lastChunk) {
+        this.bytes = null;
+        this.file = file;
+        this.position = position;
+        this.length = length;
         this.lastChunk = lastChunk;
     }
 
@@ -14,7 +33,31 @@ public class SnapshotChunk {
         return lastChunk;
     }
 
+    /**
+     * Check if data is region of file.
+     *
+     * @return true if in file, otherwise false
+     */
+    public boolean isInFile() {
+        return file != null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
     public byte[] toByteArray() {
+        if (bytes == null) {
+            throw new IllegalStateException("data in file");
+        }
         return bytes;
     }
 
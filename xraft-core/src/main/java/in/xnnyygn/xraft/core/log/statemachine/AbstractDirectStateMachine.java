@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public abstract class AbstractDirectStateMachine implements StateMachine {
 
@@ -21,14 +22,32 @@ public abstract class AbstractDirectStateMachine implements StateMachine {
 
     @Override
     public void applyLog(StateMachineContext context, int index, @Nonnull byte[] commandBytes, int firstLogIndex) {
+        applyLog(context, index, ByteBuffer.wrap(commandBytes), firstLogIndex);
+    }
+
+    @Override
+    public void applyLog(StateMachineContext context, int index, @Nonnull ByteBuffer commandBuffer, int firstLogIndex) {
         logger.debug("apply log {}", index);
-        applyCommand(commandBytes);
+        applyCommand(commandBuffer);
         lastApplied = index;
+        context.onApplied(index);
         if (shouldGenerateSnapshot(firstLogIndex, index)) {
-            context.generateSnapshot(index);
+            context.generateSnapshot(index, freezeSnapshot());
         }
     }
 
+    /**
+     * Apply command in buffer.
+     * Override to read command without copy, default implementation copies command.
+     *
+     * @param commandBuffer command buffer
+     */
+    protected void applyCommand(@Nonnull ByteBuffer commandBuffer) {
+        byte[] commandBytes = new byte[commandBuffer.remaining()];
+        commandBuffer.duplicate().get(commandBytes);
+        applyCommand(commandBytes);
+    }
+
     protected abstract void applyCommand(@Nonnull byte[] commandBytes);
 
     @Override
@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public abstract class AbstractSingleThreadStateMachine implements StateMachine {
 
@@ -27,21 +28,39 @@ public abstract class AbstractSingleThreadStateMachine implements StateMachine {
 
     @Override
     public void applyLog(StateMachineContext context, int index, @Nonnull byte[] commandBytes, int firstLogIndex) {
-        taskExecutor.submit(() -> doApplyLog(context, index, commandBytes, firstLogIndex));
+        applyLog(context, index, ByteBuffer.wrap(commandBytes), firstLogIndex);
     }
 
-    private void doApplyLog(StateMachineContext context, int index, @Nonnull byte[] commandBytes, int firstLogIndex) {
+    @Override
+    public void applyLog(StateMachineContext context, int index, @Nonnull ByteBuffer commandBuffer, int firstLogIndex) {
+        taskExecutor.submit(() -> doApplyLog(context, index, commandBuffer, firstLogIndex));
+    }
+
+    private void doApplyLog(StateMachineContext context, int index, @Nonnull ByteBuffer commandBuffer, int firstLogIndex) {
         if (index <= lastApplied) {
             return;
         }
         logger.debug("apply log {}", index);
-        applyCommand(commandBytes);
+        applyCommand(commandBuffer);
         lastApplied = index;
+        context.onApplied(index);
         if (shouldGenerateSnapshot(firstLogIndex, index)) {
-            context.generateSnapshot(index);
+            context.generateSnapshot(index, freezeSnapshot());
         }
     }
 
+    /**
+     * Apply command in buffer.
+     * Override to read command without copy, default implementation copies command.
+     *
+     * @param commandBuffer command buffer
+     */
+    protected void applyCommand(@Nonnull ByteBuffer commandBuffer) {
+        byte[] commandBytes = new byte[commandBuffer.remaining()];
+        commandBuffer.duplicate().get(commandBytes);
+        applyCommand(commandBytes);
+    }
+
     protected abstract void applyCommand(@Nonnull byte[] commandBytes);
 
     // run in node thread
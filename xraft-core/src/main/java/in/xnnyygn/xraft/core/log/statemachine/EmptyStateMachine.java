@@ -18,6 +18,7 @@ public class EmptyStateMachine implements StateMachine {
     @Override
     public void applyLog(StateMachineContext context, int index, @Nonnull byte[] commandBytes, int firstLogIndex) {
         lastApplied = index;
+        context.onApplied(index);
     }
 
     @Override
@@ -0,0 +1,27 @@
+package in.xnnyygn.xraft.core.log.statemachine;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Point-in-time view of state machine to generate snapshot from.
+ * <p>
+ * Source is frozen on thread applying logs and written on another thread while logs are still being applied,
+ * so it must not be affected by logs applied after it is frozen.
+ * </p>
+ *
+ * @see StateMachine#freezeSnapshot()
+ */
+@FunctionalInterface
+public interface SnapshotSource {
+
+    /**
+     * Write state to output.
+     *
+     * @param output output
+     * @throws IOException if IO error occurred
+     */
+    void writeTo(@Nonnull OutputStream output) throws IOException;
+
+}
@@ -3,8 +3,10 @@ package in.xnnyygn.xraft.core.log.statemachine;
 import in.xnnyygn.xraft.core.log.snapshot.Snapshot;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * State machine.
@@ -15,6 +17,24 @@ public interface StateMachine {
 
     void applyLog(StateMachineContext context, int index, @Nonnull byte[] commandBytes, int firstLogIndex);
 
+    /**
+     * Apply log with command as read-only buffer.
+     * <p>
+     * Log calls this method, command is not copied if entry keeps command as buffer.
+     * Default implementation copies command and calls the byte array version.
+     * </p>
+     *
+     * @param context       context
+     * @param index         index
+     * @param commandBuffer command buffer
+     * @param firstLogIndex first log index
+     */
+    default void applyLog(StateMachineContext context, int index, @Nonnull ByteBuffer commandBuffer, int firstLogIndex) {
+        byte[] commandBytes = new byte[commandBuffer.remaining()];
+        commandBuffer.duplicate().get(commandBytes);
+        applyLog(context, index, commandBytes, firstLogIndex);
+    }
+
     /**
      * Should generate or not.
      *
@@ -32,6 +52,22 @@ public interface StateMachine {
      */
     void generateSnapshot(@Nonnull OutputStream output) throws IOException;
 
+    /**
+     * Freeze current state for snapshot.
+     * <p>
+     * Called on thread applying logs right after snapshot is requested. Returned source is written on
+     * snapshot thread while logs are still being applied, so it should be cheap to create, e.g. copy-on-write.
+     * Default implementation returns {@code null}, and snapshot is generated by {@link #generateSnapshot(OutputStream)}
+     * in node thread.
+     * </p>
+     *
+     * @return frozen source, or {@code null} if not supported
+     */
+    @Nullable
+    default SnapshotSource freezeSnapshot() {
+        return null;
+    }
+
     void applySnapshot(@Nonnull Snapshot snapshot) throws IOException;
 
     void shutdown();
@@ -1,7 +1,26 @@
 package in.xnnyygn.xraft.core.log.statemachine;
 
+import javax.annotation.Nullable;
+
 public interface StateMachineContext {
 
     void generateSnapshot(int lastIncludedIndex);
 
+    /**
+     * Generate snapshot from frozen source.
+     *
+     * @param lastIncludedIndex last included index
+     * @param source            source frozen right after log at last included index applied,
+     *                          {@code null} to generate snapshot by {@link StateMachine#generateSnapshot(java.io.OutputStream)}
+     */
+    void generateSnapshot(int lastIncludedIndex, @Nullable SnapshotSource source);
+
+    /**
+     * Called after log applied, in thread applying logs.
+     * State machine should call this method, otherwise proposals of log will not complete.
+     *
+     * @param index index of log
+     */
+    void onApplied(int index);
+
 }
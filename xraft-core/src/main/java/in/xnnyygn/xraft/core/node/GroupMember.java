@@ -81,6 +81,34 @@ class GroupMember {
         return ensureReplicatingState().backOffNextIndex();
     }
 
+    boolean backOffNextIndex(int nextIndex) {
+        return ensureReplicatingState().backOffNextIndex(nextIndex);
+    }
+
+    boolean isReplicationProbing() {
+        return ensureReplicatingState().isProbing();
+    }
+
+    int getNextIndexToSend() {
+        return ensureReplicatingState().getNextIndexToSend();
+    }
+
+    boolean canSendAppendEntries(int maxRpcsInFlight, int nextLogIndex) {
+        return ensureReplicatingState().canSend(maxRpcsInFlight, nextLogIndex);
+    }
+
+    void onAppendEntriesSent(String messageId, int lastEntryIndex) {
+        ensureReplicatingState().onSent(messageId, lastEntryIndex);
+    }
+
+    boolean onAppendEntriesResultReceived(String messageId) {
+        return ensureReplicatingState().onResultReceived(messageId);
+    }
+
+    void resetReplicationPipeline() {
+        ensureReplicatingState().resetPipeline();
+    }
+
     void replicateNow() {
         replicateAt(System.currentTimeMillis());
     }
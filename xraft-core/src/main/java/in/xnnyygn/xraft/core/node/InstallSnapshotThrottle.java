@@ -0,0 +1,101 @@
+package in.xnnyygn.xraft.core.node;
+
+import in.xnnyygn.xraft.core.support.TokenBucket;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate limit of snapshot data sent by leader, in total and to each node.
+ * <p>
+ * Sending to node is paused when tokens of either bucket are not enough, and resumed by caller after wait time.
+ * </p>
+ */
+@NotThreadSafe
+class InstallSnapshotThrottle {
+
+    private final int rateOfNode;
+    private final TokenBucket totalBucket;
+    private final Map<NodeId, TokenBucket> nodeBuckets = new HashMap<>();
+    // time when sending to node paused
+    private final Map<NodeId, Long> pausedAt = new HashMap<>();
+    private final SnapshotThrottleMetrics metrics = new SnapshotThrottleMetrics();
+
+    /**
+     * Create.
+     *
+     * @param rate       bytes per second to all nodes, {@code 0} for unlimited
+     * @param rateOfNode bytes per second to each node, {@code 0} for unlimited
+     * @param nanos      current time
+     */
+    InstallSnapshotThrottle(int rate, int rateOfNode, long nanos) {
+        this.rateOfNode = rateOfNode;
+        totalBucket = createBucket(rate, nanos);
+    }
+
+    private static TokenBucket createBucket(int rate, long nanos) {
+        // burst of one second
+        return new TokenBucket(rate, Math.max(rate, 1), nanos);
+    }
+
+    boolean isPaused(NodeId nodeId) {
+        return pausedAt.containsKey(nodeId);
+    }
+
+    /**
+     * Acquire tokens before sending data to node, pause sending if not available.
+     *
+     * @param nodeId node id
+     * @param length max length of data
+     * @param nanos  current time
+     * @return {@code 0} if available, otherwise time to wait in nanoseconds
+     */
+    long acquire(NodeId nodeId, int length, long nanos) {
+        TokenBucket nodeBucket = nodeBuckets.computeIfAbsent(nodeId, k -> createBucket(rateOfNode, nanos));
+        long waitTime = Math.max(totalBucket.getWaitTime(length, nanos), nodeBucket.getWaitTime(length, nanos));
+        if (waitTime > 0) {
+            pausedAt.put(nodeId, nanos);
+            metrics.onThrottled();
+        }
+        return waitTime;
+    }
+
+    /**
+     * Consume tokens of data sent.
+     *
+     * @param nodeId node id
+     * @param length length of data
+     */
+    void onSent(NodeId nodeId, int length) {
+        totalBucket.consume(length);
+        TokenBucket nodeBucket = nodeBuckets.get(nodeId);
+        if (nodeBucket != null) {
+            nodeBucket.consume(length);
+        }
+        metrics.onSent(length);
+    }
+
+    void resume(NodeId nodeId, long nanos) {
+        Long startTime = pausedAt.remove(nodeId);
+        if (startTime != null) {
+            metrics.onResumed(nanos - startTime);
+        }
+    }
+
+    /**
+     * Remove state of node after snapshot sent or sending stopped.
+     * Node paused is not paused any more, resuming later does nothing.
+     *
+     * @param nodeId node id
+     */
+    void remove(NodeId nodeId) {
+        nodeBuckets.remove(nodeId);
+        pausedAt.remove(nodeId);
+    }
+
+    SnapshotThrottleMetrics getMetrics() {
+        return metrics;
+    }
+
+}
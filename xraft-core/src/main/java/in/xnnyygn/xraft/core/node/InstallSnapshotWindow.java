@@ -0,0 +1,107 @@
+package in.xnnyygn.xraft.core.node;
+
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResult;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Window of install snapshot rpcs sent to node, leader side.
+ * <p>
+ * Chunks are sent without waiting for results until data not acknowledged reaches window size.
+ * Results acknowledge data cumulatively by offset of data received. If node rejects chunk,
+ * e.g. chunks lost when connection reset, chunks are sent again from offset in result.
+ * </p>
+ * <p>
+ * Only the first chunk is sent before the first result, since node may keep data of the same snapshot
+ * received before, e.g. from previous leader, and reply offset to resume from.
+ * </p>
+ */
+@NotThreadSafe
+class InstallSnapshotWindow {
+
+    private final int lastIncludedIndex;
+    private final int windowSize;
+    private int ackedOffset = 0;
+    private int nextOffset = 0;
+    private boolean lastChunkSent = false;
+    private boolean resultReceived = false;
+    // offset sent again from, rejections of chunks sent before are ignored
+    private int rewoundOffset = -1;
+
+    /**
+     * Create.
+     *
+     * @param lastIncludedIndex last included index of snapshot
+     * @param windowSize        max bytes not acknowledged
+     */
+    InstallSnapshotWindow(int lastIncludedIndex, int windowSize) {
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.windowSize = windowSize;
+    }
+
+    int getLastIncludedIndex() {
+        return lastIncludedIndex;
+    }
+
+    int getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Test if next chunk can be sent.
+     * At least one chunk is allowed in flight.
+     *
+     * @return true if can, otherwise false
+     */
+    boolean canSend() {
+        if (lastChunkSent) {
+            return false;
+        }
+        if (nextOffset == ackedOffset) {
+            return true;
+        }
+        return resultReceived && nextOffset - ackedOffset < windowSize;
+    }
+
+    void onSent(InstallSnapshotRpc rpc) {
+        nextOffset = rpc.getOffset() + rpc.getDataLength();
+        lastChunkSent = rpc.isDone();
+    }
+
+    /**
+     * Update window by result.
+     *
+     * @param rpc    rpc of result
+     * @param result result
+     * @return false if result is not of this snapshot, otherwise true
+     */
+    boolean onResult(InstallSnapshotRpc rpc, InstallSnapshotResult result) {
+        if (result.getLastIndex() != lastIncludedIndex) {
+            return false;
+        }
+        resultReceived = true;
+        int offset = result.getOffset();
+        if (offset == rpc.getOffset() + rpc.getDataLength()) {
+            ackedOffset = Math.max(ackedOffset, offset);
+            rewoundOffset = -1;
+        } else if (offset != rewoundOffset) {
+            ackedOffset = offset;
+            nextOffset = offset;
+            lastChunkSent = false;
+            rewoundOffset = offset;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "InstallSnapshotWindow{" +
+                "ackedOffset=" + ackedOffset +
+                ", lastIncludedIndex=" + lastIncludedIndex +
+                ", nextOffset=" + nextOffset +
+                ", windowSize=" + windowSize +
+                '}';
+    }
+
+}
@@ -1,10 +1,13 @@
 package in.xnnyygn.xraft.core.node;
 
 import in.xnnyygn.xraft.core.log.statemachine.StateMachine;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.node.role.RoleNameAndLeaderId;
 import in.xnnyygn.xraft.core.node.task.GroupConfigChangeTaskReference;
+import in.xnnyygn.xraft.core.support.Histogram;
 
 import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Node.
@@ -49,12 +52,46 @@ public interface Node {
 
     /**
      * Append log.
+     * Commands are appended in batch by node thread, see {@link NodeConfig#getMaxProposalBatchSize()}.
+     * Command is rejected if uncommitted entries and queued commands reach {@link NodeConfig#getMaxPendingLogEntries()}.
      *
      * @param commandBytes command bytes
      * @throws NotLeaderException if not leader
+     * @throws in.xnnyygn.xraft.core.log.LogFullException if too many uncommitted entries
      */
     void appendLog(@Nonnull byte[] commandBytes);
 
+    /**
+     * Propose command.
+     * <p>
+     * Returned future completes with index and term of entry after the entry is applied to state machine.
+     * It fails with {@link NotLeaderException} if leadership is lost before that, or with
+     * {@link in.xnnyygn.xraft.core.log.LogFullException} if there are too many uncommitted entries.
+     * </p>
+     *
+     * @param commandBytes command bytes
+     * @return future of result
+     * @throws NotLeaderException if not leader
+     */
+    @Nonnull
+    CompletableFuture<ProposalResult> propose(@Nonnull byte[] commandBytes);
+
+    /**
+     * Get metrics of snapshot data sent with rate limit, see {@link NodeConfig#getSnapshotRateLimit()}.
+     *
+     * @return metrics
+     */
+    @Nonnull
+    SnapshotThrottleMetrics getSnapshotThrottleMetrics();
+
+    /**
+     * Get histogram of bytes of commands in append entries rpcs sent, see {@link NodeConfig#getMaxReplicationBytes()}.
+     *
+     * @return histogram
+     */
+    @Nonnull
+    Histogram getAppendEntriesBatchSizes();
+
     /**
      * Add node.
      *
@@ -54,6 +54,12 @@ public class NodeBuilder {
      */
     private boolean standby = false;
 
+    /**
+     * Data directory.
+     * If specified, {@link FileLog} and {@link FileNodeStore} will be created.
+     */
+    private File dataDir = null;
+
     /**
      * Log.
      * If data directory specified, {@link FileLog} will be created.
@@ -88,6 +94,16 @@ public class NodeBuilder {
      */
     private TaskExecutor groupConfigChangeTaskExecutor = null;
 
+    /**
+     * Task executor for forcing entries written by leader, INTERNAL.
+     */
+    private TaskExecutor logWriterTaskExecutor = null;
+
+    /**
+     * Task executor for generating snapshot from frozen state machine, INTERNAL.
+     */
+    private TaskExecutor snapshotTaskExecutor = null;
+
     /**
      * Event loop group for worker.
      * If specified, reuse. otherwise create one.
@@ -207,6 +223,42 @@ public class NodeBuilder {
         return this;
     }
 
+    /**
+     * Set log writer task executor.
+     *
+     * @param logWriterTaskExecutor log writer task executor
+     * @return this
+     */
+    NodeBuilder setLogWriterTaskExecutor(@Nonnull TaskExecutor logWriterTaskExecutor) {
+        Preconditions.checkNotNull(logWriterTaskExecutor);
+        this.logWriterTaskExecutor = logWriterTaskExecutor;
+        return this;
+    }
+
+    /**
+     * Set snapshot task executor.
+     *
+     * @param snapshotTaskExecutor snapshot task executor
+     * @return this
+     */
+    NodeBuilder setSnapshotTaskExecutor(@Nonnull TaskExecutor snapshotTaskExecutor) {
+        Preconditions.checkNotNull(snapshotTaskExecutor);
+        this.snapshotTaskExecutor = snapshotTaskExecutor;
+        return this;
+    }
+
+    /**
+     * Set log.
+     *
+     * @param log log
+     * @return this
+     */
+    NodeBuilder setLog(@Nonnull Log log) {
+        Preconditions.checkNotNull(log);
+        this.log = log;
+        return this;
+    }
+
     /**
      * Set store.
      *
@@ -233,8 +285,8 @@ public class NodeBuilder {
         if (!dataDir.isDirectory() || !dataDir.exists()) {
             throw new IllegalArgumentException("[" + dataDirPath + "] not a directory, or not exists");
         }
-        log = new FileLog(dataDir, eventBus);
-        store = new FileNodeStore(new File(dataDir, FileNodeStore.FILE_NAME));
+        // create file log and file store when building, config may be set after data directory
+        this.dataDir = dataDir;
         return this;
     }
 
@@ -258,8 +310,8 @@ public class NodeBuilder {
         NodeContext context = new NodeContext();
         context.setGroup(group);
         context.setMode(evaluateMode());
-        context.setLog(log != null ? log : new MemoryLog(eventBus));
-        context.setStore(store != null ? store : new MemoryNodeStore());
+        context.setLog(log != null ? log : createLog());
+        context.setStore(store != null ? store : createStore());
         context.setSelfId(selfId);
         context.setConfig(config);
         context.setEventBus(eventBus);
@@ -271,9 +323,39 @@ public class NodeBuilder {
         // TODO share monitor
         context.setGroupConfigChangeTaskExecutor(groupConfigChangeTaskExecutor != null ? groupConfigChangeTaskExecutor :
                 new ListeningTaskExecutor(Executors.newSingleThreadExecutor(r -> new Thread(r, "group-config-change"))));
+        context.setLogWriterTaskExecutor(logWriterTaskExecutor != null ? logWriterTaskExecutor :
+                new ListeningTaskExecutor(Executors.newSingleThreadExecutor(r -> new Thread(r, "log-writer"))));
+        context.setSnapshotTaskExecutor(snapshotTaskExecutor != null ? snapshotTaskExecutor :
+                new ListeningTaskExecutor(Executors.newSingleThreadExecutor(r -> new Thread(r, "snapshot"))));
         return context;
     }
 
+    /**
+     * Create log.
+     *
+     * @return {@link FileLog} if data directory specified, otherwise {@link MemoryLog}
+     */
+    @Nonnull
+    private Log createLog() {
+        if (dataDir != null) {
+            return new FileLog(dataDir, eventBus, config);
+        }
+        return new MemoryLog(eventBus, config);
+    }
+
+    /**
+     * Create store.
+     *
+     * @return {@link FileNodeStore} if data directory specified, otherwise {@link MemoryNodeStore}
+     */
+    @Nonnull
+    private NodeStore createStore() {
+        if (dataDir != null) {
+            return new FileNodeStore(new File(dataDir, FileNodeStore.FILE_NAME), config.getFileType());
+        }
+        return new MemoryNodeStore();
+    }
+
     /**
      * Create nio connector.
      *
@@ -283,9 +365,9 @@ public class NodeBuilder {
     private NioConnector createNioConnector() {
         int port = group.findSelf().getEndpoint().getPort();
         if (workerNioEventLoopGroup != null) {
-            return new NioConnector(workerNioEventLoopGroup, selfId, eventBus, port);
+            return new NioConnector(workerNioEventLoopGroup, true, selfId, eventBus, port, config);
         }
-        return new NioConnector(new NioEventLoopGroup(config.getNioWorkerThreads()), false, selfId, eventBus, port);
+        return new NioConnector(new NioEventLoopGroup(config.getNioWorkerThreads()), false, selfId, eventBus, port, config);
     }
 
     /**
@@ -27,6 +27,8 @@ public class NodeContext {
     private EventBus eventBus;
     private TaskExecutor taskExecutor;
     private TaskExecutor groupConfigChangeTaskExecutor;
+    private TaskExecutor logWriterTaskExecutor;
+    private TaskExecutor snapshotTaskExecutor;
 
     public NodeId selfId() {
         return selfId;
@@ -116,4 +118,20 @@ public class NodeContext {
         this.groupConfigChangeTaskExecutor = groupConfigChangeTaskExecutor;
     }
 
+    public TaskExecutor logWriterTaskExecutor() {
+        return logWriterTaskExecutor;
+    }
+
+    public void setLogWriterTaskExecutor(TaskExecutor logWriterTaskExecutor) {
+        this.logWriterTaskExecutor = logWriterTaskExecutor;
+    }
+
+    public TaskExecutor snapshotTaskExecutor() {
+        return snapshotTaskExecutor;
+    }
+
+    public void setSnapshotTaskExecutor(TaskExecutor snapshotTaskExecutor) {
+        this.snapshotTaskExecutor = snapshotTaskExecutor;
+    }
+
 }
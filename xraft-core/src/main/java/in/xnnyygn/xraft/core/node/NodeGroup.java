@@ -190,6 +190,37 @@ class NodeGroup {
         return matchIndices.get(count / 2).getMatchIndex();
     }
 
+    /**
+     * Get match index of major members, including self.
+     * <p>
+     * Unlike {@link #getMatchIndexOfMajor()}, self is not assumed to have all entries.
+     * Leader writes entries in parallel with replication, and passes the last durable index as
+     * match index of self.
+     * </p>
+     *
+     * @param selfMatchIndex match index of self
+     * @return match index
+     */
+    int getMatchIndexOfMajor(int selfMatchIndex) {
+        List<NodeMatchIndex> matchIndices = new ArrayList<>();
+        for (GroupMember member : memberMap.values()) {
+            if (!member.isMajor()) {
+                continue;
+            }
+            matchIndices.add(member.idEquals(selfId) ?
+                    new NodeMatchIndex(selfId, selfMatchIndex) :
+                    new NodeMatchIndex(member.getId(), member.getMatchIndex()));
+        }
+        int count = matchIndices.size();
+        if (count == 0) {
+            throw new IllegalStateException("no major node");
+        }
+        Collections.sort(matchIndices);
+        logger.debug("match indices {}", matchIndices);
+        // at least (count / 2 + 1) members have match index greater than or equal to it
+        return matchIndices.get((count - 1) / 2).getMatchIndex();
+    }
+
     /**
      * List replication target.
      * <p>Self is not replication target.</p>
@@ -4,9 +4,15 @@ import com.google.common.base.Preconditions;
 import com.google.common.eventbus.DeadEvent;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.FutureCallback;
+import in.xnnyygn.xraft.core.log.AppendEntriesState;
+import in.xnnyygn.xraft.core.log.DurabilityMode;
 import in.xnnyygn.xraft.core.log.InstallSnapshotState;
+import in.xnnyygn.xraft.core.log.LogException;
+import in.xnnyygn.xraft.core.log.LogFullException;
 import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
 import in.xnnyygn.xraft.core.log.entry.RemoveNodeEntry;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.log.statemachine.StateMachine;
 import in.xnnyygn.xraft.core.log.entry.EntryMeta;
 import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
@@ -14,13 +20,16 @@ import in.xnnyygn.xraft.core.log.event.GroupConfigEntryBatchRemovedEvent;
 import in.xnnyygn.xraft.core.log.event.GroupConfigEntryCommittedEvent;
 import in.xnnyygn.xraft.core.log.event.GroupConfigEntryFromLeaderAppendEvent;
 import in.xnnyygn.xraft.core.log.event.SnapshotGenerateEvent;
+import in.xnnyygn.xraft.core.log.sequence.WrittenEntries;
 import in.xnnyygn.xraft.core.log.snapshot.EntryInSnapshotException;
+import in.xnnyygn.xraft.core.log.snapshot.Snapshot;
 import in.xnnyygn.xraft.core.node.role.*;
 import in.xnnyygn.xraft.core.node.store.NodeStore;
 import in.xnnyygn.xraft.core.node.task.*;
 import in.xnnyygn.xraft.core.rpc.message.*;
 import in.xnnyygn.xraft.core.schedule.ElectionTimeout;
 import in.xnnyygn.xraft.core.schedule.LogReplicationTask;
+import in.xnnyygn.xraft.core.support.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,12 +37,18 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Node implementation.
@@ -61,7 +76,26 @@ public class NodeImpl implements Node {
     @GuardedBy("this")
     private boolean started;
     private volatile AbstractNodeRole role;
+    private int leaderDurableIndex = 0; // last index durable in leader, node thread only
+    private boolean snapshotGenerating = false; // node thread only
+    // install snapshot windows by destination, node thread only
+    private final Map<NodeId, InstallSnapshotWindow> installSnapshotWindows = new HashMap<>();
+    private final InstallSnapshotThrottle installSnapshotThrottle;
+    private final ProposalQueue proposalQueue;
+    private final ProposalTracker proposalTracker = new ProposalTracker();
     private final List<NodeRoleListener> roleListeners = new CopyOnWriteArrayList<>();
+    // callback for tasks of snapshot generating in snapshot thread
+    private final FutureCallback<Object> snapshotGeneratingCallback = new FutureCallback<Object>() {
+        @Override
+        public void onSuccess(@Nullable Object result) {
+        }
+
+        @Override
+        public void onFailure(@Nonnull Throwable t) {
+            logger.warn("failed to generate snapshot", t);
+            context.taskExecutor().submit(() -> snapshotGenerating = false, LOGGING_FUTURE_CALLBACK);
+        }
+    };
 
     // NewNodeCatchUpTask and GroupConfigChangeTask related
     private final NewNodeCatchUpTaskContext newNodeCatchUpTaskContext = new NewNodeCatchUpTaskContextImpl();
@@ -76,6 +110,10 @@ public class NodeImpl implements Node {
      */
     NodeImpl(NodeContext context) {
         this.context = context;
+        installSnapshotThrottle = new InstallSnapshotThrottle(context.config().getSnapshotRateLimit(),
+                context.config().getSnapshotRateLimitOfNode(), System.nanoTime());
+        proposalQueue = new ProposalQueue(context.config().getMaxProposalBatchSize());
+        context.log().setAppliedListener(proposalTracker::onApplied);
     }
 
     /**
@@ -126,17 +164,119 @@ public class NodeImpl implements Node {
         // load term, votedFor from store and become follower
         NodeStore store = context.store();
         changeToRole(new FollowerNodeRole(store.getTerm(), store.getVotedFor(), null, scheduleElectionTimeout()));
+        if (context.config().getLogDurabilityMode() == DurabilityMode.FSYNC_INTERVAL) {
+            scheduleLogSync();
+        }
         started = true;
     }
 
+    /**
+     * Force entries periodically in {@link DurabilityMode#FSYNC_INTERVAL} mode, so that entries written
+     * before the cluster goes idle are forced within sync interval.
+     * <p>
+     * Source: scheduler.
+     * </p>
+     */
+    private void scheduleLogSync() {
+        context.scheduler().scheduleDelayedTask(() -> context.taskExecutor().submit(() -> {
+            context.log().syncIfIntervalElapsed();
+            scheduleLogSync();
+        }, LOGGING_FUTURE_CALLBACK), context.config().getLogSyncInterval());
+    }
+
     @Override
     public void appendLog(@Nonnull byte[] commandBytes) {
         Preconditions.checkNotNull(commandBytes);
         ensureLeader();
-        context.taskExecutor().submit(() -> {
-            context.log().appendEntry(role.getTerm(), commandBytes);
-            doReplicateLog();
-        }, LOGGING_FUTURE_CALLBACK);
+        context.log().reserveEntry();
+        offerProposal(new Proposal(commandBytes, null));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<ProposalResult> propose(@Nonnull byte[] commandBytes) {
+        Preconditions.checkNotNull(commandBytes);
+        ensureLeader();
+        CompletableFuture<ProposalResult> future = new CompletableFuture<>();
+        try {
+            context.log().reserveEntry();
+        } catch (LogFullException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        offerProposal(new Proposal(commandBytes, future));
+        return future;
+    }
+
+    private void offerProposal(Proposal proposal) {
+        int linger = context.config().getProposalLinger();
+        long generation = proposalQueue.offer(proposal);
+        if (linger <= 0 || proposalQueue.isBatchFull()) {
+            // no linger or batch full, take over drain waiting for linger if any
+            if (proposalQueue.startDrain()) {
+                drainProposals();
+            }
+        } else if (generation > 0) {
+            context.scheduler().scheduleDelayedTask(() -> {
+                if (proposalQueue.startDrain(generation)) {
+                    drainProposals();
+                }
+            }, linger);
+        }
+    }
+
+    /**
+     * Drain proposed commands.
+     * <p>
+     * Source: client or scheduler.
+     * </p>
+     */
+    private void drainProposals() {
+        context.taskExecutor().submit(this::doDrainProposals, LOGGING_FUTURE_CALLBACK);
+    }
+
+    /**
+     * Append a batch of proposed commands, then replicate log once for the batch.
+     * If proposals remain, drain again in another task so that other tasks are not blocked.
+     */
+    private void doDrainProposals() {
+        List<Proposal> proposals = proposalQueue.drain();
+        if (!proposals.isEmpty()) {
+            appendProposals(proposals);
+        }
+        if (proposalQueue.onDrained()) {
+            drainProposals();
+        }
+    }
+
+    /**
+     * Append proposals, space of which is reserved in log when proposed.
+     *
+     * @param proposals proposals
+     */
+    private void appendProposals(List<Proposal> proposals) {
+        if (role.getName() != RoleName.LEADER) {
+            logger.warn("reject {} command(s), not leader", proposals.size());
+            context.log().cancelReservedEntries(proposals.size());
+            rejectProposals(proposals, createNotLeaderException());
+            return;
+        }
+        for (Proposal proposal : proposals) {
+            GeneralEntry entry = context.log().appendReservedEntry(role.getTerm(), proposal.getCommand());
+            if (proposal.getFuture() != null) {
+                proposalTracker.add(entry.getIndex(), entry.getTerm(), proposal.getFuture());
+            }
+        }
+        doReplicateLog();
+    }
+
+    private void rejectProposals(List<Proposal> proposals, Throwable cause) {
+        for (Proposal proposal : proposals) {
+            CompletableFuture<ProposalResult> future = proposal.getFuture();
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
     }
 
     @Override
@@ -225,12 +365,15 @@ public class NodeImpl implements Node {
      * @throws NotLeaderException if not leader
      */
     private void ensureLeader() {
-        RoleNameAndLeaderId result = role.getNameAndLeaderId(context.selfId());
-        if (result.getRoleName() == RoleName.LEADER) {
-            return;
+        if (role.getName() != RoleName.LEADER) {
+            throw createNotLeaderException();
         }
+    }
+
+    private NotLeaderException createNotLeaderException() {
+        RoleNameAndLeaderId result = role.getNameAndLeaderId(context.selfId());
         NodeEndpoint endpoint = result.getLeaderId() != null ? context.group().findMember(result.getLeaderId()).getEndpoint() : null;
-        throw new NotLeaderException(result.getRoleName(), endpoint);
+        return new NotLeaderException(result.getRoleName(), endpoint);
     }
 
     @Override
@@ -355,7 +498,11 @@ public class NodeImpl implements Node {
             // notify listeners
             roleListeners.forEach(l -> l.nodeRoleChanged(state));
         }
+        boolean leadershipLost = role != null && role.getName() == RoleName.LEADER && newRole.getName() != RoleName.LEADER;
         role = newRole;
+        if (leadershipLost) {
+            proposalTracker.failAll(createNotLeaderException());
+        }
     }
 
     /**
@@ -422,13 +569,65 @@ public class NodeImpl implements Node {
             return;
         }
         logger.debug("replicate log");
+        int maxRpcsInFlight = context.config().getMaxReplicationRpcsInFlight();
         for (GroupMember member : context.group().listReplicationTarget()) {
             if (member.shouldReplicate(context.config().getLogReplicationReadTimeout())) {
+                if (member.isReplicating()) {
+                    // no result in time, results of rpcs in flight may be lost
+                    member.resetReplicationPipeline();
+                }
                 doReplicateLog(member, context.config().getMaxReplicationEntries());
+            } else if (!member.isReplicationProbing() && member.canSendAppendEntries(maxRpcsInFlight, context.log().getNextIndex())) {
+                doReplicateLogInPipeline(member, context.config().getMaxReplicationEntries());
             } else {
                 logger.debug("node {} is replicating, skip replication task", member.getId());
             }
         }
+        writeLog();
+    }
+
+    /**
+     * Write entries to local storage in parallel with replication.
+     * <p>
+     * Entries are forced in log writer thread if required, then the durable index is counted as
+     * match index of leader. Commit of entries waits for the slower one of local disk and followers,
+     * instead of the sum of them.
+     * </p>
+     */
+    private void writeLog() {
+        int term = role.getTerm();
+        WrittenEntries writtenEntries = context.log().writeEntries();
+        if (writtenEntries.isDurable()) {
+            onLogDurable(term, writtenEntries.getLastIndex());
+            return;
+        }
+        context.logWriterTaskExecutor().submit(() -> {
+            try {
+                writtenEntries.sync();
+            } catch (IOException e) {
+                throw new LogException("failed to sync entries to " + writtenEntries.getLastIndex(), e);
+            }
+            context.taskExecutor().submit(() -> onLogDurable(term, writtenEntries.getLastIndex()), LOGGING_FUTURE_CALLBACK);
+        }, LOGGING_FUTURE_CALLBACK);
+    }
+
+    /**
+     * Entries of leader durable.
+     * <p>
+     * Source: log writer.
+     * </p>
+     *
+     * @param term  term when entries written
+     * @param index last index of durable entries
+     */
+    private void onLogDurable(int term, int index) {
+        if (role.getName() != RoleName.LEADER || role.getTerm() != term || index <= leaderDurableIndex) {
+            return;
+        }
+        leaderDurableIndex = index;
+        if (!context.group().isStandalone()) {
+            context.log().advanceCommitIndex(context.group().getMatchIndexOfMajor(leaderDurableIndex), term);
+        }
     }
 
     /**
@@ -439,20 +638,135 @@ public class NodeImpl implements Node {
      *
      * @param member     node
      * @param maxEntries max entries
+     * @return false if changed to install snapshot rpc, otherwise true
      * @see EntryInSnapshotException
      */
-    private void doReplicateLog(GroupMember member, int maxEntries) {
+    private boolean doReplicateLog(GroupMember member, int maxEntries) {
         member.replicateNow();
         try {
-            AppendEntriesRpc rpc = context.log().createAppendEntriesRpc(role.getTerm(), context.selfId(), member.getNextIndex(), maxEntries);
+            AppendEntriesRpc rpc = context.log().createAppendEntriesRpc(role.getTerm(), context.selfId(), member.getNextIndexToSend(), maxEntries);
+            member.onAppendEntriesSent(rpc.getMessageId(), rpc.getLastEntryIndex());
             context.connector().sendAppendEntries(rpc, member.getEndpoint());
+            return true;
         } catch (EntryInSnapshotException ignored) {
-            logger.debug("log entry {} in snapshot, replicate with install snapshot RPC", member.getNextIndex());
-            InstallSnapshotRpc rpc = context.log().createInstallSnapshotRpc(role.getTerm(), context.selfId(), 0, context.config().getSnapshotDataLength());
-            context.connector().sendInstallSnapshot(rpc, member.getEndpoint());
+            logger.debug("log entry {} in snapshot, replicate with install snapshot RPC", member.getNextIndexToSend());
+            startInstallSnapshot(member.getEndpoint());
+            return false;
+        }
+    }
+
+    /**
+     * Replicate log to specified node until rpcs in flight reach max.
+     *
+     * @param member     node
+     * @param maxEntries max entries of each rpc
+     * @see ReplicatingState#canSend(int, int)
+     */
+    private void doReplicateLogInPipeline(GroupMember member, int maxEntries) {
+        int maxRpcsInFlight = context.config().getMaxReplicationRpcsInFlight();
+        while (member.canSendAppendEntries(maxRpcsInFlight, context.log().getNextIndex())) {
+            if (!doReplicateLog(member, maxEntries)) {
+                break;
+            }
         }
     }
 
+    /**
+     * Start sending snapshot to node from beginning.
+     *
+     * @param endpoint endpoint of node
+     */
+    private void startInstallSnapshot(NodeEndpoint endpoint) {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(
+                context.log().getSnapshotLastIncludedIndex(), context.config().getSnapshotWindowSize());
+        installSnapshotWindows.put(endpoint.getId(), window);
+        sendInstallSnapshotChunks(endpoint, window);
+    }
+
+    /**
+     * Continue sending snapshot after result received.
+     *
+     * @param endpoint      endpoint of node
+     * @param resultMessage result message
+     * @return false if result is not of current sending, otherwise true
+     */
+    private boolean continueInstallSnapshot(NodeEndpoint endpoint, InstallSnapshotResultMessage resultMessage) {
+        InstallSnapshotWindow window = installSnapshotWindows.get(endpoint.getId());
+        if (window == null || !window.onResult(resultMessage.getRpc(), resultMessage.get())) {
+            logger.debug("unexpected install snapshot result from node {}, ignore", endpoint.getId());
+            return false;
+        }
+        if (window.getLastIncludedIndex() != context.log().getSnapshotLastIncludedIndex()) {
+            logger.info("snapshot changed when sending to node {}, start over", endpoint.getId());
+            startInstallSnapshot(endpoint);
+        } else {
+            sendInstallSnapshotChunks(endpoint, window);
+        }
+        return true;
+    }
+
+    private void sendInstallSnapshotChunks(NodeEndpoint endpoint, InstallSnapshotWindow window) {
+        NodeId nodeId = endpoint.getId();
+        if (installSnapshotThrottle.isPaused(nodeId)) {
+            return;
+        }
+        int dataLength = context.config().getSnapshotDataLength();
+        while (window.canSend()) {
+            long waitTime = installSnapshotThrottle.acquire(nodeId, dataLength, System.nanoTime());
+            if (waitTime > 0) {
+                logger.debug("sending snapshot to node {} throttled, resume after {}ns", nodeId, waitTime);
+                context.scheduler().scheduleDelayedTask(() -> resumeInstallSnapshot(endpoint),
+                        TimeUnit.NANOSECONDS.toMillis(waitTime) + 1);
+                return;
+            }
+            InstallSnapshotRpc rpc = context.log().createInstallSnapshotRpc(role.getTerm(), context.selfId(),
+                    window.getNextOffset(), dataLength);
+            window.onSent(rpc);
+            installSnapshotThrottle.onSent(nodeId, rpc.getDataLength());
+            context.connector().sendInstallSnapshot(rpc, endpoint);
+        }
+    }
+
+    /**
+     * Resume sending snapshot paused by rate limit.
+     * <p>
+     * Source: scheduler.
+     * </p>
+     *
+     * @param endpoint endpoint of node
+     */
+    private void resumeInstallSnapshot(NodeEndpoint endpoint) {
+        context.taskExecutor().submit(() -> {
+            installSnapshotThrottle.resume(endpoint.getId(), System.nanoTime());
+            InstallSnapshotWindow window = installSnapshotWindows.get(endpoint.getId());
+            if (role.getName() == RoleName.LEADER && window != null) {
+                sendInstallSnapshotChunks(endpoint, window);
+            }
+        }, LOGGING_FUTURE_CALLBACK);
+    }
+
+    /**
+     * Remove state of sending snapshot to node.
+     *
+     * @param nodeId node id
+     */
+    private void removeInstallSnapshot(NodeId nodeId) {
+        installSnapshotWindows.remove(nodeId);
+        installSnapshotThrottle.remove(nodeId);
+    }
+
+    @Nonnull
+    @Override
+    public SnapshotThrottleMetrics getSnapshotThrottleMetrics() {
+        return installSnapshotThrottle.getMetrics();
+    }
+
+    @Nonnull
+    @Override
+    public Histogram getAppendEntriesBatchSizes() {
+        return context.log().getAppendEntriesBatchSizes();
+    }
+
     /**
      * Receive request vote rpc.
      * <p>
@@ -560,6 +874,8 @@ public class NodeImpl implements Node {
             resetReplicatingStates();
             changeToRole(new LeaderNodeRole(role.getTerm(), scheduleLogReplicationTask()));
             context.log().appendEntry(role.getTerm()); // no-op log
+            leaderDurableIndex = 0;
+            writeLog();
             context.connector().resetChannels(); // close all inbound channels
         } else {
 
@@ -595,7 +911,7 @@ public class NodeImpl implements Node {
         // if term in rpc is larger than current term, step down and append entries
         if (rpc.getTerm() > role.getTerm()) {
             becomeFollower(rpc.getTerm(), null, rpc.getLeaderId(), true);
-            return new AppendEntriesResult(rpc.getMessageId(), rpc.getTerm(), appendEntries(rpc));
+            return appendEntries(rpc);
         }
 
         assert rpc.getTerm() == role.getTerm();
@@ -604,12 +920,12 @@ public class NodeImpl implements Node {
 
                 // reset election timeout and append entries
                 becomeFollower(rpc.getTerm(), ((FollowerNodeRole) role).getVotedFor(), rpc.getLeaderId(), true);
-                return new AppendEntriesResult(rpc.getMessageId(), rpc.getTerm(), appendEntries(rpc));
+                return appendEntries(rpc);
             case CANDIDATE:
 
                 // more than one candidate but another node won the election
                 becomeFollower(rpc.getTerm(), null, rpc.getLeaderId(), true);
-                return new AppendEntriesResult(rpc.getMessageId(), rpc.getTerm(), appendEntries(rpc));
+                return appendEntries(rpc);
             case LEADER:
                 logger.warn("receive append entries rpc from another leader {}, ignore", rpc.getLeaderId());
                 return new AppendEntriesResult(rpc.getMessageId(), rpc.getTerm(), false);
@@ -620,16 +936,39 @@ public class NodeImpl implements Node {
 
     /**
      * Append entries and advance commit index if possible.
+     * <p>
+     * In {@link DurabilityMode#FSYNC_PER_BATCH} mode, entries are written and forced before replying,
+     * since leader counts success as a copy of entries when committing.
+     * </p>
      *
      * @param rpc rpc
-     * @return {@code true} if log appended, {@code false} if previous log check failed, etc
+     * @return result, with hint of conflict if previous log check failed
      */
-    private boolean appendEntries(AppendEntriesRpc rpc) {
-        boolean result = context.log().appendEntriesFromLeader(rpc.getPrevLogIndex(), rpc.getPrevLogTerm(), rpc.getEntries());
-        if (result) {
+    private AppendEntriesResult appendEntries(AppendEntriesRpc rpc) {
+        AppendEntriesState state = context.log().appendEntriesFromLeader(rpc.getPrevLogIndex(), rpc.getPrevLogTerm(), rpc.getEntries());
+        if (state.isSuccess()) {
+            if (!rpc.getEntries().isEmpty() && context.config().getLogDurabilityMode() == DurabilityMode.FSYNC_PER_BATCH) {
+                syncEntries();
+            }
             context.log().advanceCommitIndex(Math.min(rpc.getLeaderCommit(), rpc.getLastEntryIndex()), rpc.getTerm());
         }
-        return result;
+        return new AppendEntriesResult(rpc.getMessageId(), rpc.getTerm(), state.isSuccess(),
+                state.getConflictTerm(), state.getConflictIndex());
+    }
+
+    /**
+     * Write all entries and force them, follower side.
+     */
+    private void syncEntries() {
+        WrittenEntries writtenEntries = context.log().writeEntries();
+        if (writtenEntries.isDurable()) {
+            return;
+        }
+        try {
+            writtenEntries.sync();
+        } catch (IOException e) {
+            throw new LogException("failed to sync entries to " + writtenEntries.getLastIndex(), e);
+        }
     }
 
     /**
@@ -674,6 +1013,9 @@ public class NodeImpl implements Node {
         }
 
         AppendEntriesRpc rpc = resultMessage.getRpc();
+        if (!member.onAppendEntriesResultReceived(rpc.getMessageId())) {
+            logger.debug("result of append entries rpc sent before pipeline reset, node {}", sourceNodeId);
+        }
         if (result.isSuccess()) {
             if (!member.isMajor()) {  // removing node
                 if (member.isRemoving()) {
@@ -688,7 +1030,7 @@ public class NodeImpl implements Node {
             // peer
             // advance commit index if major of match index changed
             if (member.advanceReplicatingState(rpc.getLastEntryIndex())) {
-                context.log().advanceCommitIndex(context.group().getMatchIndexOfMajor(), role.getTerm());
+                context.log().advanceCommitIndex(context.group().getMatchIndexOfMajor(leaderDurableIndex), role.getTerm());
             }
 
             // node caught up
@@ -698,8 +1040,15 @@ public class NodeImpl implements Node {
             }
         } else {
 
-            // backoff next index if failed to append entries
-            if (!member.backOffNextIndex()) {
+            // rpcs after the rejected one in pipeline are rejected as well
+            if (rpc.getPrevLogIndex() != member.getNextIndex() - 1) {
+                logger.debug("rejection of append entries rpc sent before back off, node {}", sourceNodeId);
+                return;
+            }
+
+            // backoff next index if failed to append entries, skip entries of conflict term by hint
+            int nextIndex = context.log().getNextIndexAfterConflict(rpc.getPrevLogIndex(), result.getConflictTerm(), result.getConflictIndex());
+            if (!member.backOffNextIndex(nextIndex)) {
                 logger.warn("cannot back off next index more, node {}", sourceNodeId);
                 member.stopReplicating();
                 return;
@@ -707,7 +1056,7 @@ public class NodeImpl implements Node {
         }
 
         // replicate log to node immediately other than wait for next log replication
-        doReplicateLog(member, context.config().getMaxReplicationEntries());
+        doReplicateLogInPipeline(member, context.config().getMaxReplicationEntries());
     }
 
     /**
@@ -736,11 +1085,17 @@ public class NodeImpl implements Node {
             becomeFollower(rpc.getTerm(), null, rpc.getLeaderId(), true);
         }
         InstallSnapshotState state = context.log().installSnapshot(rpc);
-        if (state.getStateName() == InstallSnapshotState.StateName.INSTALLED) {
-            context.group().updateNodes(state.getLastConfig());
-        }
         // TODO role check?
-        return new InstallSnapshotResult(rpc.getTerm());
+        switch (state.getStateName()) {
+            case INSTALLED:
+                context.group().updateNodes(state.getLastConfig());
+                return new InstallSnapshotResult(rpc.getTerm(), rpc.getLastIndex(), rpc.getOffset() + rpc.getDataLength(), true);
+            case ILLEGAL_INSTALL_SNAPSHOT_RPC:
+                // snapshot with same or larger last included index exists
+                return new InstallSnapshotResult(rpc.getTerm(), rpc.getLastIndex(), 0, true);
+            default:
+                return new InstallSnapshotResult(rpc.getTerm(), rpc.getLastIndex(), state.getOffset(), false);
+        }
     }
 
     /**
@@ -771,31 +1126,34 @@ public class NodeImpl implements Node {
             return;
         }
 
+        NodeId sourceNodeId = resultMessage.getSourceNodeId();
+        if (result.isDone()) {
+
+            // snapshot sent to member or new node
+            removeInstallSnapshot(sourceNodeId);
+        }
+
         // dispatch to new node catch up task by node id
         if (newNodeCatchUpTaskGroup.onReceiveInstallSnapshotResult(resultMessage, context.log().getNextIndex())) {
             return;
         }
 
-        NodeId sourceNodeId = resultMessage.getSourceNodeId();
         GroupMember member = context.group().getMember(sourceNodeId);
         if (member == null) {
             logger.info("unexpected install snapshot result from node {}, node maybe removed", sourceNodeId);
             return;
         }
 
-        InstallSnapshotRpc rpc = resultMessage.getRpc();
-        if (rpc.isDone()) {
+        if (result.isDone()) {
 
             // change to append entries rpc
-            member.advanceReplicatingState(rpc.getLastIndex());
+            member.advanceReplicatingState(result.getLastIndex());
             int maxEntries = member.isMajor() ? context.config().getMaxReplicationEntries() : context.config().getMaxReplicationEntriesForNewNode();
             doReplicateLog(member, maxEntries);
-        } else {
+        } else if (continueInstallSnapshot(member.getEndpoint(), resultMessage)) {
 
-            // transfer data
-            InstallSnapshotRpc nextRpc = context.log().createInstallSnapshotRpc(role.getTerm(), context.selfId(),
-                    rpc.getOffset() + rpc.getDataLength(), context.config().getSnapshotDataLength());
-            context.connector().sendInstallSnapshot(nextRpc, member.getEndpoint());
+            // keep replication task from sending snapshot from beginning
+            member.replicateNow();
         }
     }
 
@@ -864,16 +1222,69 @@ public class NodeImpl implements Node {
      * <p>
      * Source: log.
      * </p>
+     * <p>
+     * If state machine freezes source, snapshot is written in snapshot thread and installed in node thread
+     * after written, otherwise it is generated in node thread.
+     * </p>
      *
      * @param event event
      */
     @Subscribe
     public void onGenerateSnapshot(SnapshotGenerateEvent event) {
         context.taskExecutor().submit(() -> {
-            context.log().generateSnapshot(event.getLastIncludedIndex(), context.group().listEndpointOfMajor());
+            if (event.getSource() != null) {
+                doGenerateSnapshotInBackground(event.getLastIncludedIndex(), event.getSource());
+            } else {
+                context.log().generateSnapshot(event.getLastIncludedIndex(), context.group().listEndpointOfMajor());
+            }
         }, LOGGING_FUTURE_CALLBACK);
     }
 
+    private void doGenerateSnapshotInBackground(int lastIncludedIndex, SnapshotSource source) {
+        if (snapshotGenerating) {
+            logger.debug("snapshot is being generated, skip generating snapshot at {}", lastIncludedIndex);
+            return;
+        }
+        Supplier<Snapshot> task = context.log().prepareSnapshot(lastIncludedIndex, context.group().listEndpointOfMajor(), source);
+        if (task == null) {
+            return;
+        }
+        snapshotGenerating = true;
+        context.snapshotTaskExecutor().submit(() -> {
+            Snapshot snapshot = task.get();
+            context.taskExecutor().submit(() -> prepareReplaceSnapshot(snapshot), LOGGING_FUTURE_CALLBACK);
+        }, snapshotGeneratingCallback);
+    }
+
+    /**
+     * Copy entries after generated snapshot in snapshot thread if possible,
+     * then replace snapshot in node thread, with only entries appended meanwhile to copy.
+     *
+     * @param snapshot generated snapshot
+     */
+    private void prepareReplaceSnapshot(Snapshot snapshot) {
+        Runnable transfer;
+        try {
+            transfer = context.log().prepareReplaceSnapshot(snapshot);
+        } catch (LogException e) {
+            snapshotGenerating = false;
+            throw e;
+        }
+        if (transfer == null) {
+            replaceGeneratedSnapshot(snapshot);
+            return;
+        }
+        context.snapshotTaskExecutor().submit(() -> {
+            transfer.run();
+            context.taskExecutor().submit(() -> replaceGeneratedSnapshot(snapshot), LOGGING_FUTURE_CALLBACK);
+        }, snapshotGeneratingCallback);
+    }
+
+    private void replaceGeneratedSnapshot(Snapshot snapshot) {
+        snapshotGenerating = false;
+        context.log().replaceGeneratedSnapshot(snapshot);
+    }
+
     /**
      * Dead event.
      * <p>
@@ -893,6 +1304,8 @@ public class NodeImpl implements Node {
             throw new IllegalStateException("node not started");
         }
         context.scheduler().stop();
+        context.logWriterTaskExecutor().shutdown();
+        context.snapshotTaskExecutor().shutdown();
         context.log().close();
         context.connector().close();
         context.store().close();
@@ -920,15 +1333,13 @@ public class NodeImpl implements Node {
 
                 // change to install snapshot rpc if entry in snapshot
                 logger.debug("log entry {} in snapshot, replicate with install snapshot RPC", nextIndex);
-                InstallSnapshotRpc rpc = context.log().createInstallSnapshotRpc(role.getTerm(), context.selfId(), 0, context.config().getSnapshotDataLength());
-                context.connector().sendInstallSnapshot(rpc, endpoint);
+                startInstallSnapshot(endpoint);
             }
         }
 
         @Override
-        public void sendInstallSnapshot(NodeEndpoint endpoint, int offset) {
-            InstallSnapshotRpc rpc = context.log().createInstallSnapshotRpc(role.getTerm(), context.selfId(), offset, context.config().getSnapshotDataLength());
-            context.connector().sendInstallSnapshot(rpc, endpoint);
+        public void sendInstallSnapshot(NodeEndpoint endpoint, InstallSnapshotResultMessage resultMessage) {
+            continueInstallSnapshot(endpoint, resultMessage);
         }
 
         @Override
@@ -936,6 +1347,9 @@ public class NodeImpl implements Node {
 
             // remove task from group
             newNodeCatchUpTaskGroup.remove(task);
+
+            // snapshot may be still being sent, e.g. timeout
+            context.taskExecutor().submit(() -> removeInstallSnapshot(task.getNodeId()), LOGGING_FUTURE_CALLBACK);
         }
     }
 
@@ -0,0 +1,36 @@
+package in.xnnyygn.xraft.core.node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command proposed by client.
+ */
+class Proposal {
+
+    private final byte[] command;
+    private final CompletableFuture<ProposalResult> future;
+
+    /**
+     * Create.
+     *
+     * @param command command
+     * @param future  future completed when entry of command applied, {@code null} if not tracked
+     */
+    Proposal(@Nonnull byte[] command, @Nullable CompletableFuture<ProposalResult> future) {
+        this.command = command;
+        this.future = future;
+    }
+
+    @Nonnull
+    byte[] getCommand() {
+        return command;
+    }
+
+    @Nullable
+    CompletableFuture<ProposalResult> getFuture() {
+        return future;
+    }
+
+}
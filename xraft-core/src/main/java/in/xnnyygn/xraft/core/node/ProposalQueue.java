@@ -0,0 +1,132 @@
+package in.xnnyygn.xraft.core.node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue of proposals by clients, leader side.
+ * <p>
+ * Proposals are offered by client threads without lock and drained in batch by node thread.
+ * The thread which offers the first proposal after a drain schedules the next one, which may linger.
+ * Drain is started either when linger expires or by the thread which fills the batch, whichever comes first.
+ * Each scheduled drain has a generation, so linger task of a drain taken over does nothing.
+ * At most one drain is submitted at a time.
+ * </p>
+ */
+@ThreadSafe
+class ProposalQueue {
+
+    private static final int STATUS_IDLE = 0;
+    private static final int STATUS_SCHEDULED = 1;
+    private static final int STATUS_DRAINING = 2;
+
+    private final Queue<Proposal> proposals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    // generation of drain << 2 | status
+    private final AtomicLong state = new AtomicLong(STATUS_IDLE);
+    private final int maxBatchSize;
+
+    /**
+     * Create.
+     *
+     * @param maxBatchSize max proposals drained at a time
+     */
+    ProposalQueue(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("max batch size <= 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Offer proposal.
+     *
+     * @param proposal proposal
+     * @return generation of drain caller should schedule, {@code 0} if drain is already scheduled
+     */
+    long offer(@Nonnull Proposal proposal) {
+        proposals.offer(proposal);
+        size.incrementAndGet();
+        long s = state.get();
+        while ((s & 3) == STATUS_IDLE) {
+            long generation = (s >>> 2) + 1;
+            if (state.compareAndSet(s, generation << 2 | STATUS_SCHEDULED)) {
+                return generation;
+            }
+            s = state.get();
+        }
+        return 0;
+    }
+
+    /**
+     * Start scheduled drain of any generation, e.g. batch is full.
+     *
+     * @return true if caller should submit drain, false if drain is not scheduled or already started
+     */
+    boolean startDrain() {
+        long s = state.get();
+        return (s & 3) == STATUS_SCHEDULED && state.compareAndSet(s, (s >>> 2) << 2 | STATUS_DRAINING);
+    }
+
+    /**
+     * Start scheduled drain of {@code generation}, e.g. linger expires.
+     *
+     * @param generation generation returned by {@link #offer(Proposal)}
+     * @return true if caller should submit drain, false if drain is taken over or already started
+     */
+    boolean startDrain(long generation) {
+        return state.compareAndSet(generation << 2 | STATUS_SCHEDULED, generation << 2 | STATUS_DRAINING);
+    }
+
+    /**
+     * Test if proposals are enough for a batch.
+     *
+     * @return true if enough, otherwise false
+     */
+    boolean isBatchFull() {
+        return size.get() >= maxBatchSize;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Drain proposals, at most max batch size.
+     * Should be called in node thread.
+     *
+     * @return proposals
+     */
+    @Nonnull
+    List<Proposal> drain() {
+        Proposal proposal = proposals.poll();
+        if (proposal == null) {
+            return Collections.emptyList();
+        }
+        List<Proposal> batch = new ArrayList<>();
+        do {
+            batch.add(proposal);
+        } while (batch.size() < maxBatchSize && (proposal = proposals.poll()) != null);
+        size.addAndGet(-batch.size());
+        return batch;
+    }
+
+    /**
+     * Called after drain, in node thread.
+     *
+     * @return true if proposals remain and caller should submit next drain, otherwise false
+     */
+    boolean onDrained() {
+        long idle = (state.get() >>> 2) << 2 | STATUS_IDLE;
+        state.set(idle);
+        return !proposals.isEmpty() && state.compareAndSet(idle, (idle >>> 2) << 2 | STATUS_DRAINING);
+    }
+
+}
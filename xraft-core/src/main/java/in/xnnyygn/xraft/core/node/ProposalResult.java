@@ -0,0 +1,38 @@
+package in.xnnyygn.xraft.core.node;
+
+/**
+ * Result of proposal, log entry assigned to command.
+ */
+public class ProposalResult {
+
+    private final int index;
+    private final int term;
+
+    /**
+     * Create.
+     *
+     * @param index index of entry
+     * @param term  term of entry
+     */
+    public ProposalResult(int index, int term) {
+        this.index = index;
+        this.term = term;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTerm() {
+        return term;
+    }
+
+    @Override
+    public String toString() {
+        return "ProposalResult{" +
+                "index=" + index +
+                ", term=" + term +
+                '}';
+    }
+
+}
@@ -0,0 +1,140 @@
+package in.xnnyygn.xraft.core.node;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Futures of proposals by index of entry, leader side.
+ * <p>
+ * Proposals are added in order of index by node thread, and completed in order of index by the thread
+ * applying logs. Indices and terms are kept in ring buffers of primitive arrays, so no boxing or
+ * hashing per proposal.
+ * </p>
+ */
+@ThreadSafe
+class ProposalTracker {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @GuardedBy("this")
+    private int[] indices = new int[INITIAL_CAPACITY];
+    @GuardedBy("this")
+    private int[] terms = new int[INITIAL_CAPACITY];
+    @GuardedBy("this")
+    private CompletableFuture<?>[] futures = new CompletableFuture<?>[INITIAL_CAPACITY];
+    @GuardedBy("this")
+    private int head = 0;
+    @GuardedBy("this")
+    private int size = 0;
+
+    /**
+     * Add future of entry.
+     *
+     * @param index  index of entry, greater than the last one added
+     * @param term   term of entry
+     * @param future future
+     * @throws IllegalArgumentException if index is not greater than the last one
+     */
+    synchronized void add(int index, int term, @Nonnull CompletableFuture<ProposalResult> future) {
+        if (size > 0 && index <= indices[slot(size - 1)]) {
+            throw new IllegalArgumentException("index " + index + " <= last index " + indices[slot(size - 1)]);
+        }
+        if (size == indices.length) {
+            grow();
+        }
+        int i = slot(size);
+        indices[i] = index;
+        terms[i] = term;
+        futures[i] = future;
+        size++;
+    }
+
+    private int slot(int offset) {
+        return (head + offset) & (indices.length - 1);
+    }
+
+    private void grow() {
+        int capacity = indices.length << 1;
+        int[] newIndices = new int[capacity];
+        int[] newTerms = new int[capacity];
+        CompletableFuture<?>[] newFutures = new CompletableFuture<?>[capacity];
+        for (int i = 0; i < size; i++) {
+            int j = slot(i);
+            newIndices[i] = indices[j];
+            newTerms[i] = terms[j];
+            newFutures[i] = futures[j];
+        }
+        indices = newIndices;
+        terms = newTerms;
+        futures = newFutures;
+        head = 0;
+    }
+
+    /**
+     * Complete futures of entries applied.
+     * Futures are completed out of lock.
+     *
+     * @param lastApplied last applied index
+     */
+    void onApplied(int lastApplied) {
+        List<CompletableFuture<ProposalResult>> completed;
+        List<ProposalResult> results;
+        synchronized (this) {
+            if (size == 0 || indices[head] > lastApplied) {
+                return;
+            }
+            completed = new ArrayList<>();
+            results = new ArrayList<>();
+            while (size > 0 && indices[head] <= lastApplied) {
+                completed.add(future(head));
+                results.add(new ProposalResult(indices[head], terms[head]));
+                futures[head] = null;
+                head = slot(1);
+                size--;
+            }
+        }
+        for (int i = 0; i < completed.size(); i++) {
+            completed.get(i).complete(results.get(i));
+        }
+    }
+
+    /**
+     * Fail all futures, e.g. leadership lost.
+     * Entries of leader are only truncated after leadership lost, so futures of entries truncated are failed here.
+     *
+     * @param cause cause
+     */
+    void failAll(@Nonnull Throwable cause) {
+        List<CompletableFuture<ProposalResult>> failed;
+        synchronized (this) {
+            if (size == 0) {
+                return;
+            }
+            failed = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int j = slot(i);
+                failed.add(future(j));
+                futures[j] = null;
+            }
+            head = 0;
+            size = 0;
+        }
+        for (CompletableFuture<ProposalResult> future : failed) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<ProposalResult> future(int slot) {
+        return (CompletableFuture<ProposalResult>) futures[slot];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+}
@@ -1,7 +1,15 @@
 package in.xnnyygn.xraft.core.node;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * Replicating state.
+ * <p>
+ * Append entries rpcs are pipelined: entries after sent index are sent without waiting for results,
+ * up to max rpcs in flight. Leader probes with one rpc at a time from next index until the first success,
+ * and after rejection or timeout.
+ * </p>
  */
 class ReplicatingState {
 
@@ -9,6 +17,11 @@ class ReplicatingState {
     private int matchIndex;
     private boolean replicating = false;
     private long lastReplicatedAt = 0;
+    // index of last entry sent, not acknowledged yet in pipeline
+    private int sentIndex;
+    // message ids of rpcs in flight in order of sending, rpcs sent before pipeline reset are not included
+    private final Deque<String> rpcsInFlight = new ArrayDeque<>();
+    private boolean probing = true;
 
     ReplicatingState(int nextIndex) {
         this(nextIndex, 0);
@@ -17,6 +30,7 @@ class ReplicatingState {
     ReplicatingState(int nextIndex, int matchIndex) {
         this.nextIndex = nextIndex;
         this.matchIndex = matchIndex;
+        this.sentIndex = nextIndex - 1;
     }
 
     /**
@@ -43,13 +57,94 @@ class ReplicatingState {
      * @return true if decrease successfully, false if next index is less than or equal to {@code 1}
      */
     boolean backOffNextIndex() {
-        if (nextIndex > 1) {
-            nextIndex--;
+        return backOffNextIndex(nextIndex - 1);
+    }
+
+    /**
+     * Back off next index to specified index, by hint of conflict from node.
+     * Next index decreases at least one, and is not less than {@code 1}.
+     *
+     * @param nextIndex next index
+     * @return true if decrease successfully, false if next index is less than or equal to {@code 1}
+     */
+    boolean backOffNextIndex(int nextIndex) {
+        if (this.nextIndex > 1) {
+            this.nextIndex = Math.max(1, Math.min(nextIndex, this.nextIndex - 1));
+            resetPipeline();
             return true;
         }
         return false;
     }
 
+    /**
+     * Get index of next entry to send, after entries in flight.
+     *
+     * @return index
+     */
+    int getNextIndexToSend() {
+        return sentIndex + 1;
+    }
+
+    boolean isProbing() {
+        return probing;
+    }
+
+    /**
+     * Test if another rpc can be sent.
+     * <p>
+     * In probing mode, only if no rpc in flight. Otherwise, if rpcs in flight less than max and entries not sent.
+     * </p>
+     *
+     * @param maxRpcsInFlight max rpcs in flight
+     * @param nextLogIndex    next log index of leader
+     * @return true if can, otherwise false
+     */
+    boolean canSend(int maxRpcsInFlight, int nextLogIndex) {
+        if (probing) {
+            return rpcsInFlight.isEmpty();
+        }
+        return rpcsInFlight.size() < maxRpcsInFlight && sentIndex + 1 < nextLogIndex;
+    }
+
+    /**
+     * Record rpc sent.
+     *
+     * @param messageId      message id of rpc
+     * @param lastEntryIndex index of last entry in rpc
+     */
+    void onSent(String messageId, int lastEntryIndex) {
+        sentIndex = Math.max(sentIndex, lastEntryIndex);
+        rpcsInFlight.offer(messageId);
+    }
+
+    /**
+     * Record result received.
+     * Since results are replied in order, rpcs sent before the one of result are not in flight either.
+     * Results of rpcs sent before pipeline reset are not counted.
+     *
+     * @param messageId message id of rpc
+     * @return true if rpc in flight, false if sent before pipeline reset
+     */
+    boolean onResultReceived(String messageId) {
+        if (!rpcsInFlight.contains(messageId)) {
+            return false;
+        }
+        while (!messageId.equals(rpcsInFlight.poll())) {
+            // rpcs sent before
+        }
+        return true;
+    }
+
+    /**
+     * Change to probing mode and send again from next index.
+     * Results of rpcs in flight are ignored or lost.
+     */
+    void resetPipeline() {
+        probing = true;
+        rpcsInFlight.clear();
+        sentIndex = nextIndex - 1;
+    }
+
     /**
      * Advance next index and match index by last entry index.
      *
@@ -57,11 +152,18 @@ class ReplicatingState {
      * @return true if advanced, false if no change
      */
     boolean advance(int lastEntryIndex) {
+        probing = false;
+        // result of earlier rpc in pipeline
+        if (lastEntryIndex < matchIndex) {
+            return false;
+        }
+
         // changed
         boolean result = (matchIndex != lastEntryIndex || nextIndex != (lastEntryIndex + 1));
 
         matchIndex = lastEntryIndex;
         nextIndex = lastEntryIndex + 1;
+        sentIndex = Math.max(sentIndex, lastEntryIndex);
 
         return result;
     }
@@ -107,7 +209,10 @@ class ReplicatingState {
         return "ReplicatingState{" +
                 "nextIndex=" + nextIndex +
                 ", matchIndex=" + matchIndex +
+                ", probing=" + probing +
                 ", replicating=" + replicating +
+                ", rpcsInFlight=" + rpcsInFlight.size() +
+                ", sentIndex=" + sentIndex +
                 ", lastReplicatedAt=" + lastReplicatedAt +
                 '}';
     }
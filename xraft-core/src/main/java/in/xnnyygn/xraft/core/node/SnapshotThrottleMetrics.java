@@ -0,0 +1,65 @@
+package in.xnnyygn.xraft.core.node;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of snapshot data sent by leader with rate limit.
+ */
+@ThreadSafe
+public class SnapshotThrottleMetrics {
+
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    void onSent(int length) {
+        bytesSent.addAndGet(length);
+    }
+
+    void onThrottled() {
+        throttledCount.incrementAndGet();
+    }
+
+    void onResumed(long nanos) {
+        throttledNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Get bytes of snapshot data sent.
+     *
+     * @return bytes
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Get times of sending paused by rate limit.
+     *
+     * @return count
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Get total time of sending paused by rate limit.
+     *
+     * @return time in milliseconds
+     */
+    public long getThrottledTime() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotThrottleMetrics{" +
+                "bytesSent=" + bytesSent +
+                ", throttledCount=" + throttledCount +
+                ", throttledTime=" + getThrottledTime() +
+                '}';
+    }
+
+}
@@ -1,6 +1,8 @@
 package in.xnnyygn.xraft.core.node.config;
 
+import in.xnnyygn.xraft.core.log.DurabilityMode;
 import in.xnnyygn.xraft.core.log.Log;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,13 +38,29 @@ public class DefaultNodeConfigLoader implements NodeConfigLoader {
         config.setLogReplicationInterval(getIntProperty(p, "replication.interval", 1000));
         config.setLogReplicationReadTimeout(getIntProperty(p, "replication.timeout.read", 900));
         config.setMaxReplicationEntries(getIntProperty(p, "replication.entries.max", Log.ALL_ENTRIES));
-        config.setSnapshotDataLength(getIntProperty(p, "snapshot.data.length", 1024));
+        config.setMaxReplicationRpcsInFlight(getIntProperty(p, "replication.inflight.max", 4));
+        config.setMaxReplicationBytes(getIntProperty(p, "replication.bytes.max", 1024 * 1024));
+        config.setMaxProposalBatchSize(getIntProperty(p, "proposal.batch.max", 1024));
+        config.setProposalLinger(getIntProperty(p, "proposal.linger", 0));
+        config.setSnapshotDataLength(getIntProperty(p, "snapshot.data.length", 64 * 1024));
         config.setMaxReplicationEntriesForNewNode(getIntProperty(p, "new-node.replication.entries.max", Log.ALL_ENTRIES));
         config.setNewNodeMaxRound(getIntProperty(p, "new-node.round.max", 10));
         config.setNewNodeReadTimeout(getIntProperty(p, "new-node.timeout.read", 3000));
         config.setNewNodeAdvanceTimeout(getIntProperty(p, "new-node.timeout.advance", 3000));
         config.setPreviousGroupConfigChangeTimeout(getIntProperty(p, "group.config.change.timeout", 0));
         config.setNioWorkerThreads(getIntProperty(p, "connector.workers", 0));
+        config.setLogDurabilityMode(getEnumProperty(p, "log.durability", DurabilityMode.NONE));
+        config.setLogSyncInterval(getIntProperty(p, "log.sync.interval", 1000));
+        config.setLogSegmentSize(getIntProperty(p, "log.segment.size", 0));
+        config.setLogEntryCacheSize(getIntProperty(p, "log.entry.cache.size", 4 * 1024 * 1024));
+        config.setMaxPendingLogEntries(getIntProperty(p, "log.pending.entries.max", 65536));
+        config.setLogPreallocateSize(getIntProperty(p, "log.preallocate.size", 0));
+        config.setMemoryLogChunkSize(getIntProperty(p, "log.memory.chunk.size", 0));
+        config.setSnapshotZeroCopy(getBooleanProperty(p, "snapshot.zero-copy", true));
+        config.setSnapshotWindowSize(getIntProperty(p, "snapshot.window.size", 1024 * 1024));
+        config.setSnapshotRateLimit(getIntProperty(p, "snapshot.rate-limit", 0));
+        config.setSnapshotRateLimitOfNode(getIntProperty(p, "snapshot.rate-limit.node", 0));
+        config.setFileType(getEnumProperty(p, "file.type", SeekableFileType.RANDOM_ACCESS_FILE));
         return config;
     }
 
@@ -59,4 +77,30 @@ public class DefaultNodeConfigLoader implements NodeConfigLoader {
         return defaultValue;
     }
 
+    private boolean getBooleanProperty(Properties properties, String name, boolean defaultValue) {
+        String value = properties.getProperty(propertyNamePrefix + name);
+        if (value != null) {
+            String trimmed = value.trim();
+            if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+                return Boolean.parseBoolean(trimmed);
+            }
+            logger.warn("illegal value [" + value + "] for property " + name +
+                    ", fallback to default value " + defaultValue);
+        }
+        return defaultValue;
+    }
+
+    private <E extends Enum<E>> E getEnumProperty(Properties properties, String name, E defaultValue) {
+        String value = properties.getProperty(propertyNamePrefix + name);
+        if (value != null) {
+            try {
+                return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                logger.warn("illegal value [" + value + "] for property " + name +
+                        ", fallback to default value " + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
 }
@@ -1,7 +1,9 @@
 package in.xnnyygn.xraft.core.node.config;
 
+import in.xnnyygn.xraft.core.log.DurabilityMode;
 import in.xnnyygn.xraft.core.log.Log;
 import in.xnnyygn.xraft.core.node.NodeBuilder;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
 
 /**
  * Node configuration.
@@ -53,7 +55,7 @@ public class NodeConfig {
     /**
      * Data length in install snapshot rpc.
      */
-    private int snapshotDataLength = 1024;
+    private int snapshotDataLength = 64 * 1024;
 
     /**
      * Worker thread count in nio connector.
@@ -84,6 +86,96 @@ public class NodeConfig {
      */
     private int previousGroupConfigChangeTimeout = 0;
 
+    /**
+     * Durability of log entries written to file, only for file log.
+     * Default to {@link DurabilityMode#NONE}, never force.
+     */
+    private DurabilityMode logDurabilityMode = DurabilityMode.NONE;
+
+    /**
+     * Minimum interval between two forces in {@link DurabilityMode#FSYNC_INTERVAL} mode.
+     */
+    private int logSyncInterval = 1000;
+
+    /**
+     * Size in bytes of a log segment, only for file log.
+     * If greater than {@code 0}, entries are stored in segments and compacted by deleting segments after snapshot.
+     * Default to {@code 0}, single entries file per log generation.
+     */
+    private int logSegmentSize = 0;
+
+    /**
+     * Max bytes of recently committed entries cached in memory, only for file log.
+     * Set to {@code 0} to disable cache.
+     */
+    private int logEntryCacheSize = 4 * 1024 * 1024;
+
+    /**
+     * Implementation of files of log and node store
+     */
+    private SeekableFileType fileType = SeekableFileType.RANDOM_ACCESS_FILE;
+
+    /**
+     * Max uncommitted entries in log, command from client will be rejected if exceeded, 0 for unlimited
+     */
+    private int maxPendingLogEntries = 65536;
+
+    /**
+     * Chunk size in bytes of preallocation of entries file and entry index file, only for file log.
+     * Zeros are filled after data chunk by chunk, so appends do not change file size.
+     * Default to {@code 0}, no preallocation.
+     */
+    private int logPreallocateSize = 0;
+
+    /**
+     * Size in bytes of direct buffer chunk, only for memory log.
+     * If greater than {@code 0}, entries are stored off heap in chunks and created only when accessed.
+     * Default to {@code 0}, entries on heap.
+     */
+    private int memoryLogChunkSize = 0;
+
+    /**
+     * Send snapshot data in file without copy in install snapshot rpc, e.g. sendfile.
+     * Data is read into memory if disabled or snapshot is not in file.
+     */
+    private boolean snapshotZeroCopy = true;
+
+    /**
+     * Max bytes of snapshot data sent but not acknowledged when install snapshot.
+     * At least one install snapshot rpc is in flight, {@code 0} for stop-and-wait.
+     */
+    private int snapshotWindowSize = 1024 * 1024;
+
+    /**
+     * max bytes of snapshot data sent per second to all nodes, 0 for unlimited
+     */
+    private int snapshotRateLimit = 0;
+
+    /**
+     * max bytes of snapshot data sent per second to each node, 0 for unlimited
+     */
+    private int snapshotRateLimitOfNode = 0;
+
+    /**
+     * max append entries rpcs in flight to each node, 1 for stop-and-wait
+     */
+    private int maxReplicationRpcsInFlight = 4;
+
+    /**
+     * max bytes of commands in one append entries rpc, at least one entry is sent, 0 for unlimited
+     */
+    private int maxReplicationBytes = 1024 * 1024;
+
+    /**
+     * max commands appended in one batch before replication
+     */
+    private int maxProposalBatchSize = 1024;
+
+    /**
+     * time in milliseconds to wait for more commands before appending a batch, 0 for no wait
+     */
+    private int proposalLinger = 0;
+
     public int getMinElectionTimeout() {
         return minElectionTimeout;
     }
@@ -188,4 +280,132 @@ public class NodeConfig {
         this.newNodeAdvanceTimeout = newNodeAdvanceTimeout;
     }
 
+    public DurabilityMode getLogDurabilityMode() {
+        return logDurabilityMode;
+    }
+
+    public void setLogDurabilityMode(DurabilityMode logDurabilityMode) {
+        this.logDurabilityMode = logDurabilityMode;
+    }
+
+    public int getLogSyncInterval() {
+        return logSyncInterval;
+    }
+
+    public void setLogSyncInterval(int logSyncInterval) {
+        this.logSyncInterval = logSyncInterval;
+    }
+
+    public int getLogSegmentSize() {
+        return logSegmentSize;
+    }
+
+    public void setLogSegmentSize(int logSegmentSize) {
+        this.logSegmentSize = logSegmentSize;
+    }
+
+    public int getLogEntryCacheSize() {
+        return logEntryCacheSize;
+    }
+
+    public void setLogEntryCacheSize(int logEntryCacheSize) {
+        this.logEntryCacheSize = logEntryCacheSize;
+    }
+
+    public SeekableFileType getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(SeekableFileType fileType) {
+        this.fileType = fileType;
+    }
+
+    public int getMaxPendingLogEntries() {
+        return maxPendingLogEntries;
+    }
+
+    public void setMaxPendingLogEntries(int maxPendingLogEntries) {
+        this.maxPendingLogEntries = maxPendingLogEntries;
+    }
+
+    public int getLogPreallocateSize() {
+        return logPreallocateSize;
+    }
+
+    public void setLogPreallocateSize(int logPreallocateSize) {
+        this.logPreallocateSize = logPreallocateSize;
+    }
+
+    public int getMemoryLogChunkSize() {
+        return memoryLogChunkSize;
+    }
+
+    public void setMemoryLogChunkSize(int memoryLogChunkSize) {
+        this.memoryLogChunkSize = memoryLogChunkSize;
+    }
+
+    public boolean isSnapshotZeroCopy() {
+        return snapshotZeroCopy;
+    }
+
+    public void setSnapshotZeroCopy(boolean snapshotZeroCopy) {
+        this.snapshotZeroCopy = snapshotZeroCopy;
+    }
+
+    public int getSnapshotWindowSize() {
+        return snapshotWindowSize;
+    }
+
+    public void setSnapshotWindowSize(int snapshotWindowSize) {
+        this.snapshotWindowSize = snapshotWindowSize;
+    }
+
+    public int getSnapshotRateLimit() {
+        return snapshotRateLimit;
+    }
+
+    public void setSnapshotRateLimit(int snapshotRateLimit) {
+        this.snapshotRateLimit = snapshotRateLimit;
+    }
+
+    public int getSnapshotRateLimitOfNode() {
+        return snapshotRateLimitOfNode;
+    }
+
+    public void setSnapshotRateLimitOfNode(int snapshotRateLimitOfNode) {
+        this.snapshotRateLimitOfNode = snapshotRateLimitOfNode;
+    }
+
+    public int getMaxReplicationRpcsInFlight() {
+        return maxReplicationRpcsInFlight;
+    }
+
+    public void setMaxReplicationRpcsInFlight(int maxReplicationRpcsInFlight) {
+        this.maxReplicationRpcsInFlight = maxReplicationRpcsInFlight;
+    }
+
+    public int getMaxReplicationBytes() {
+        return maxReplicationBytes;
+    }
+
+    public void setMaxReplicationBytes(int maxReplicationBytes) {
+        this.maxReplicationBytes = maxReplicationBytes;
+    }
+
+    public int getMaxProposalBatchSize() {
+        return maxProposalBatchSize;
+    }
+
+    public void setMaxProposalBatchSize(int maxProposalBatchSize) {
+        this.maxProposalBatchSize = maxProposalBatchSize;
+    }
+
+    public int getProposalLinger() {
+        return proposalLinger;
+    }
+
+    public void setProposalLinger(int proposalLinger) {
+        this.proposalLinger = proposalLinger;
+    }
+
 }
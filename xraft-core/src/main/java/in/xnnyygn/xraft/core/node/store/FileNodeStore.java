@@ -2,8 +2,8 @@ package in.xnnyygn.xraft.core.node.store;
 
 import in.xnnyygn.xraft.core.node.NodeId;
 import in.xnnyygn.xraft.core.support.Files;
-import in.xnnyygn.xraft.core.support.RandomAccessFileAdapter;
 import in.xnnyygn.xraft.core.support.SeekableFile;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
@@ -20,11 +20,15 @@ public class FileNodeStore implements NodeStore {
     private NodeId votedFor = null;
 
     public FileNodeStore(File file) {
+        this(file, SeekableFileType.RANDOM_ACCESS_FILE);
+    }
+
+    public FileNodeStore(File file, SeekableFileType fileType) {
         try {
             if (!file.exists()) {
                 Files.touch(file);
             }
-            seekableFile = new RandomAccessFileAdapter(file);
+            seekableFile = fileType.open(file, "rw");
             initializeOrLoad();
         } catch (IOException e) {
             throw new NodeStoreException(e);
@@ -47,6 +51,7 @@ public class FileNodeStore implements NodeStore {
             seekableFile.seek(0);
             seekableFile.writeInt(0); // term
             seekableFile.writeInt(0); // votedFor length
+            seekableFile.flush();
         } else {
             // read term
             term = seekableFile.readInt();
@@ -70,6 +75,7 @@ public class FileNodeStore implements NodeStore {
         try {
             seekableFile.seek(OFFSET_TERM);
             seekableFile.writeInt(term);
+            seekableFile.flush();
         } catch (IOException e) {
             throw new NodeStoreException(e);
         }
@@ -92,6 +98,7 @@ public class FileNodeStore implements NodeStore {
                 seekableFile.writeInt(bytes.length);
                 seekableFile.write(bytes);
             }
+            seekableFile.flush();
         } catch (IOException e) {
             throw new NodeStoreException(e);
         }
@@ -3,9 +3,10 @@ package in.xnnyygn.xraft.core.node.task;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
 import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.rpc.message.AppendEntriesResult;
 import in.xnnyygn.xraft.core.rpc.message.AppendEntriesResultMessage;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResultMessage;
-import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,7 +117,15 @@ public class NewNodeCatchUpTask implements Callable<NewNodeCatchUpTaskResult> {
                 setStateAndNotify(State.REPLICATION_FAILED);
                 return;
             }
-            nextIndex--;
+            // skip entries of conflict term by hint
+            AppendEntriesResult result = resultMessage.get();
+            int hint;
+            if (!result.hasConflictHint()) {
+                hint = nextIndex - 1;
+            } else {
+                hint = result.getConflictTerm() == 0 ? result.getConflictIndex() + 1 : result.getConflictIndex();
+            }
+            nextIndex = Math.max(1, Math.min(hint, nextIndex - 1));
             if (System.currentTimeMillis() - lastAdvanceAt >= config.getNewNodeAdvanceTimeout()) {
                 logger.debug("node {} cannot make progress within timeout", nodeId);
                 setStateAndNotify(State.TIMEOUT);
@@ -134,10 +143,10 @@ public class NewNodeCatchUpTask implements Callable<NewNodeCatchUpTaskResult> {
         if (state != State.REPLICATING) {
             throw new IllegalStateException("receive append entries result when state is not replicating");
         }
-        InstallSnapshotRpc rpc = resultMessage.getRpc();
-        if (rpc.isDone()) {
-            matchIndex = rpc.getLastIndex();
-            nextIndex = rpc.getLastIndex() + 1;
+        InstallSnapshotResult result = resultMessage.get();
+        if (result.isDone()) {
+            matchIndex = result.getLastIndex();
+            nextIndex = result.getLastIndex() + 1;
             lastAdvanceAt = System.currentTimeMillis();
             if (nextIndex >= nextLogIndex) {
                 setStateAndNotify(State.REPLICATION_CATCH_UP);
@@ -146,7 +155,7 @@ public class NewNodeCatchUpTask implements Callable<NewNodeCatchUpTaskResult> {
             round++;
             context.doReplicateLog(endpoint, nextIndex);
         } else {
-            context.sendInstallSnapshot(endpoint, rpc.getOffset() + rpc.getDataLength());
+            context.sendInstallSnapshot(endpoint, resultMessage);
         }
         lastReplicateAt = System.currentTimeMillis();
         notify();
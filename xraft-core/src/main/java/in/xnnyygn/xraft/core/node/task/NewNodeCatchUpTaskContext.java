@@ -1,6 +1,7 @@
 package in.xnnyygn.xraft.core.node.task;
 
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResultMessage;
 
 /**
  * Task context for {@link NewNodeCatchUpTask}.
@@ -25,7 +26,13 @@ public interface NewNodeCatchUpTaskContext {
      */
     void doReplicateLog(NodeEndpoint endpoint, int nextIndex);
 
-    void sendInstallSnapshot(NodeEndpoint endpoint, int offset);
+    /**
+     * Send next chunks of snapshot to endpoint after result received.
+     *
+     * @param endpoint      endpoint
+     * @param resultMessage result message
+     */
+    void sendInstallSnapshot(NodeEndpoint endpoint, InstallSnapshotResultMessage resultMessage);
 
     /**
      * Done and remove current task.
@@ -7,11 +7,37 @@ public class AppendEntriesResult implements Serializable {
     private final String rpcMessageId;
     private final int term;
     private final boolean success;
+    // term of follower's entry at previous log index, 0 if entry missing
+    private final int conflictTerm;
+    // first index of conflict term in follower's log, or last log index if entry missing, -1 if no hint
+    private final int conflictIndex;
 
+    /**
+     * Create without hint of conflict, e.g. rejected by term.
+     *
+     * @param rpcMessageId message id of rpc
+     * @param term         term
+     * @param success      success
+     */
     public AppendEntriesResult(String rpcMessageId, int term, boolean success) {
+        this(rpcMessageId, term, success, 0, -1);
+    }
+
+    /**
+     * Create.
+     *
+     * @param rpcMessageId  message id of rpc
+     * @param term          term
+     * @param success       success
+     * @param conflictTerm  term of entry at previous log index, {@code 0} if entry missing
+     * @param conflictIndex first index of conflict term, or last log index if entry missing
+     */
+    public AppendEntriesResult(String rpcMessageId, int term, boolean success, int conflictTerm, int conflictIndex) {
         this.rpcMessageId = rpcMessageId;
         this.term = term;
         this.success = success;
+        this.conflictTerm = conflictTerm;
+        this.conflictIndex = conflictIndex;
     }
 
     public String getRpcMessageId() {
@@ -26,10 +52,24 @@ public class AppendEntriesResult implements Serializable {
         return success;
     }
 
+    public int getConflictTerm() {
+        return conflictTerm;
+    }
+
+    public int getConflictIndex() {
+        return conflictIndex;
+    }
+
+    public boolean hasConflictHint() {
+        return conflictIndex >= 0;
+    }
+
     @Override
     public String toString() {
         return "AppendEntriesResult{" +
-                "rpcMessageId='" + rpcMessageId + '\'' +
+                "conflictIndex=" + conflictIndex +
+                ", conflictTerm=" + conflictTerm +
+                ", rpcMessageId='" + rpcMessageId + '\'' +
                 ", success=" + success +
                 ", term=" + term +
                 '}';
@@ -3,19 +3,52 @@ package in.xnnyygn.xraft.core.rpc.message;
 public class InstallSnapshotResult {
 
     private final int term;
+    private final int lastIndex;
+    private final int offset;
+    private final boolean done;
 
     public InstallSnapshotResult(int term) {
+        this(term, 0, 0, false);
+    }
+
+    /**
+     * Create.
+     *
+     * @param term      term
+     * @param lastIndex last included index of snapshot
+     * @param offset    length of data received continuously, acknowledges all data before
+     * @param done      true if node has snapshot, otherwise false
+     */
+    public InstallSnapshotResult(int term, int lastIndex, int offset, boolean done) {
         this.term = term;
+        this.lastIndex = lastIndex;
+        this.offset = offset;
+        this.done = done;
     }
 
     public int getTerm() {
         return term;
     }
 
+    public int getLastIndex() {
+        return lastIndex;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
     @Override
     public String toString() {
         return "InstallSnapshotResult{" +
-                "term=" + term +
+                "done=" + done +
+                ", lastIndex=" + lastIndex +
+                ", offset=" + offset +
+                ", term=" + term +
                 '}';
     }
 
@@ -3,6 +3,7 @@ package in.xnnyygn.xraft.core.rpc.message;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
 
+import java.io.File;
 import java.util.Set;
 
 public class InstallSnapshotRpc {
@@ -14,7 +15,13 @@ public class InstallSnapshotRpc {
     private Set<NodeEndpoint> lastConfig;
     private int offset;
     private byte[] data;
+    // data in file, sent without copy, leader side only
+    private File dataFile;
+    private long dataFilePosition;
+    private int dataFileLength;
     private boolean done;
+    // size of all data, snapshot is identified by last index, last term and data size
+    private long dataSize;
 
     public int getTerm() {
         return term;
@@ -69,13 +76,39 @@ public class InstallSnapshotRpc {
     }
 
     public int getDataLength() {
-        return this.data.length;
+        return dataFile != null ? dataFileLength : this.data.length;
     }
 
     public void setData(byte[] data) {
         this.data = data;
     }
 
+    /**
+     * Get file of data.
+     *
+     * @return file, {@code null} if data is in memory
+     */
+    public File getDataFile() {
+        return dataFile;
+    }
+
+    public long getDataFilePosition() {
+        return dataFilePosition;
+    }
+
+    /**
+     * Set data as region of file instead of bytes.
+     *
+     * @param file     file
+     * @param position position of data in file
+     * @param length   length of data
+     */
+    public void setDataFile(File file, long position, int length) {
+        this.dataFile = file;
+        this.dataFilePosition = position;
+        this.dataFileLength = length;
+    }
+
     public boolean isDone() {
         return done;
     }
@@ -84,10 +117,19 @@ public class InstallSnapshotRpc {
         this.done = done;
     }
 
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public void setDataSize(long dataSize) {
+        this.dataSize = dataSize;
+    }
+
     @Override
     public String toString() {
         return "InstallSnapshotRpc{" +
-                "data.size=" + (data != null ? data.length : 0) +
+                "data.size=" + (data != null || dataFile != null ? getDataLength() : 0) +
+                ", dataSize=" + dataSize +
                 ", done=" + done +
                 ", lastIndex=" + lastIndex +
                 ", lastTerm=" + lastTerm +
@@ -2,6 +2,7 @@ package in.xnnyygn.xraft.core.rpc.nio;
 
 import com.google.common.eventbus.EventBus;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.Channel;
 import in.xnnyygn.xraft.core.rpc.message.*;
 import io.netty.channel.ChannelDuplexHandler;
@@ -10,7 +11,11 @@ import io.netty.channel.ChannelPromise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Objects;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 abstract class AbstractHandler extends ChannelDuplexHandler {
 
@@ -18,11 +23,31 @@ abstract class AbstractHandler extends ChannelDuplexHandler {
     protected final EventBus eventBus;
     NodeId remoteId;
     protected Channel channel;
-    private AppendEntriesRpc lastAppendEntriesRpc;
-    private InstallSnapshotRpc lastInstallSnapshotRpc;
+    // append entries rpcs in flight by message id, results are replied in order
+    private final Map<String, PendingRpc<AppendEntriesRpc>> pendingAppendEntriesRpcs = new LinkedHashMap<>();
+    // install snapshot rpcs in flight, results are replied in order
+    private final Deque<InstallSnapshotRpc> pendingInstallSnapshotRpcs = new ArrayDeque<>();
+    private final int maxPendingAppendEntriesRpcs;
+    private final int maxPendingInstallSnapshotRpcs;
+    private final long pendingRpcTimeout;
 
-    AbstractHandler(EventBus eventBus) {
+    /**
+     * Create.
+     * <p>
+     * Rpcs in flight are kept up to max rpcs in flight of leader, the oldest one is dropped if exceeded,
+     * e.g. node connected but not replying. Append entries rpcs without result in read timeout are dropped as well,
+     * since leader sends again after read timeout.
+     * </p>
+     *
+     * @param eventBus event bus
+     * @param config   config
+     */
+    AbstractHandler(EventBus eventBus, NodeConfig config) {
         this.eventBus = eventBus;
+        this.maxPendingAppendEntriesRpcs = Math.max(1, config.getMaxReplicationRpcsInFlight());
+        // install snapshot rpcs in flight are limited by window size
+        this.maxPendingInstallSnapshotRpcs = config.getSnapshotWindowSize() / Math.max(1, config.getSnapshotDataLength()) + 1;
+        this.pendingRpcTimeout = config.getLogReplicationReadTimeout();
     }
 
     @Override
@@ -40,41 +65,91 @@ abstract class AbstractHandler extends ChannelDuplexHandler {
             eventBus.post(new AppendEntriesRpcMessage(rpc, remoteId, channel));
         } else if (msg instanceof AppendEntriesResult) {
             AppendEntriesResult result = (AppendEntriesResult) msg;
-            if (lastAppendEntriesRpc == null) {
-                logger.warn("no last append entries rpc");
+            AppendEntriesRpc rpc = removePendingAppendEntriesRpc(result.getRpcMessageId());
+            if (rpc == null) {
+                logger.warn("no pending append entries rpc of message id {}", result.getRpcMessageId());
             } else {
-                if (!Objects.equals(result.getRpcMessageId(), lastAppendEntriesRpc.getMessageId())) {
-                    logger.warn("incorrect append entries rpc message id {}, expected {}", result.getRpcMessageId(), lastAppendEntriesRpc.getMessageId());
-                } else {
-                    eventBus.post(new AppendEntriesResultMessage(result, remoteId, lastAppendEntriesRpc));
-                    lastAppendEntriesRpc = null;
-                }
+                eventBus.post(new AppendEntriesResultMessage(result, remoteId, rpc));
             }
         } else if (msg instanceof InstallSnapshotRpc) {
             InstallSnapshotRpc rpc = (InstallSnapshotRpc) msg;
             eventBus.post(new InstallSnapshotRpcMessage(rpc, remoteId, channel));
         } else if (msg instanceof InstallSnapshotResult) {
             InstallSnapshotResult result = (InstallSnapshotResult) msg;
-            assert lastInstallSnapshotRpc != null;
-            eventBus.post(new InstallSnapshotResultMessage(result, remoteId, lastInstallSnapshotRpc));
-            lastInstallSnapshotRpc = null;
+            InstallSnapshotRpc rpc = pendingInstallSnapshotRpcs.poll();
+            if (rpc == null) {
+                logger.warn("no pending install snapshot rpc");
+            } else {
+                eventBus.post(new InstallSnapshotResultMessage(result, remoteId, rpc));
+            }
+        }
+    }
+
+    /**
+     * Remove rpc of result, and rpcs sent before it whose results are not replied.
+     *
+     * @param messageId message id
+     * @return rpc, {@code null} if not found
+     */
+    private AppendEntriesRpc removePendingAppendEntriesRpc(String messageId) {
+        if (!pendingAppendEntriesRpcs.containsKey(messageId)) {
+            return null;
         }
+        Iterator<PendingRpc<AppendEntriesRpc>> iterator = pendingAppendEntriesRpcs.values().iterator();
+        while (iterator.hasNext()) {
+            AppendEntriesRpc rpc = iterator.next().rpc;
+            iterator.remove();
+            if (rpc.getMessageId().equals(messageId)) {
+                return rpc;
+            }
+        }
+        throw new IllegalStateException("rpc not found");
     }
 
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof AppendEntriesRpc) {
-            lastAppendEntriesRpc = (AppendEntriesRpc) msg;
+            AppendEntriesRpc rpc = (AppendEntriesRpc) msg;
+            addPendingAppendEntriesRpc(rpc, System.currentTimeMillis());
         } else if (msg instanceof InstallSnapshotRpc) {
-            lastInstallSnapshotRpc = (InstallSnapshotRpc) msg;
+            if (pendingInstallSnapshotRpcs.size() >= maxPendingInstallSnapshotRpcs) {
+                logger.debug("too many install snapshot rpcs in flight, drop the oldest one");
+                pendingInstallSnapshotRpcs.poll();
+            }
+            pendingInstallSnapshotRpcs.offer((InstallSnapshotRpc) msg);
         }
         super.write(ctx, msg, promise);
     }
 
+    private void addPendingAppendEntriesRpc(AppendEntriesRpc rpc, long now) {
+        Iterator<PendingRpc<AppendEntriesRpc>> iterator = pendingAppendEntriesRpcs.values().iterator();
+        while (iterator.hasNext()) {
+            PendingRpc<AppendEntriesRpc> pendingRpc = iterator.next();
+            if (pendingAppendEntriesRpcs.size() < maxPendingAppendEntriesRpcs && now - pendingRpc.sentAt < pendingRpcTimeout) {
+                break;
+            }
+            logger.debug("no result of append entries rpc {} in time or too many rpcs in flight, drop", pendingRpc.rpc.getMessageId());
+            iterator.remove();
+        }
+        pendingAppendEntriesRpcs.put(rpc.getMessageId(), new PendingRpc<>(rpc, now));
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         logger.warn(cause.getMessage(), cause);
         ctx.close();
     }
 
+    private static class PendingRpc<T> {
+
+        final T rpc;
+        final long sentAt;
+
+        PendingRpc(T rpc, long sentAt) {
+            this.rpc = rpc;
+            this.sentAt = sentAt;
+        }
+
+    }
+
 }
@@ -1,5 +1,6 @@
 package in.xnnyygn.xraft.core.rpc.nio;
 
+import com.google.protobuf.CodedInputStream;
 import in.xnnyygn.xraft.core.Protos;
 import in.xnnyygn.xraft.core.log.entry.EntryFactory;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
@@ -9,6 +10,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,11 +31,14 @@ public class Decoder extends ByteToMessageDecoder {
             return;
         }
 
-        byte[] payload = new byte[payloadLength];
-        in.readBytes(payload);
+        // messages are parsed from inbound buffer in place, which is reused after decoding
+        ByteBuffer payload = in.nioBuffer(in.readerIndex(), payloadLength);
+        in.skipBytes(payloadLength);
         switch (messageType) {
             case MessageConstants.MSG_TYPE_NODE_ID:
-                out.add(new NodeId(new String(payload)));
+                byte[] nodeIdBytes = new byte[payloadLength];
+                payload.get(nodeIdBytes);
+                out.add(new NodeId(new String(nodeIdBytes)));
                 break;
             case MessageConstants.MSG_TYPE_REQUEST_VOTE_RPC:
                 Protos.RequestVoteRpc protoRVRpc = Protos.RequestVoteRpc.parseFrom(payload);
@@ -49,7 +54,12 @@ public class Decoder extends ByteToMessageDecoder {
                 out.add(new RequestVoteResult(protoRVResult.getTerm(), protoRVResult.getVoteGranted()));
                 break;
             case MessageConstants.MSG_TYPE_APPEND_ENTRIES_RPC:
-                Protos.AppendEntriesRpc protoAERpc = Protos.AppendEntriesRpc.parseFrom(payload);
+                // copy payload once, commands are views of the copy
+                byte[] aePayload = new byte[payloadLength];
+                payload.get(aePayload);
+                CodedInputStream aeInput = CodedInputStream.newInstance(aePayload);
+                aeInput.enableAliasing(true);
+                Protos.AppendEntriesRpc protoAERpc = Protos.AppendEntriesRpc.parseFrom(aeInput);
                 AppendEntriesRpc aeRpc = new AppendEntriesRpc();
                 aeRpc.setMessageId(protoAERpc.getMessageId());
                 aeRpc.setTerm(protoAERpc.getTerm());
@@ -58,13 +68,14 @@ public class Decoder extends ByteToMessageDecoder {
                 aeRpc.setPrevLogIndex(protoAERpc.getPrevLogIndex());
                 aeRpc.setPrevLogTerm(protoAERpc.getPrevLogTerm());
                 aeRpc.setEntries(protoAERpc.getEntriesList().stream().map(e ->
-                        entryFactory.create(e.getKind(), e.getIndex(), e.getTerm(), e.getCommand().toByteArray())
+                        entryFactory.create(e.getKind(), e.getIndex(), e.getTerm(), e.getCommand().asReadOnlyByteBuffer())
                 ).collect(Collectors.toList()));
                 out.add(aeRpc);
                 break;
             case MessageConstants.MSG_TYPE_APPEND_ENTRIES_RESULT:
                 Protos.AppendEntriesResult protoAEResult = Protos.AppendEntriesResult.parseFrom(payload);
-                out.add(new AppendEntriesResult(protoAEResult.getRpcMessageId(), protoAEResult.getTerm(), protoAEResult.getSuccess()));
+                out.add(new AppendEntriesResult(protoAEResult.getRpcMessageId(), protoAEResult.getTerm(), protoAEResult.getSuccess(),
+                        protoAEResult.getConflictTerm(), protoAEResult.getConflictIndex()));
                 break;
             case MessageConstants.MSG_TYPE_INSTALL_SNAPSHOT_PRC:
                 Protos.InstallSnapshotRpc protoISRpc = Protos.InstallSnapshotRpc.parseFrom(payload);
@@ -72,18 +83,20 @@ public class Decoder extends ByteToMessageDecoder {
                 isRpc.setTerm(protoISRpc.getTerm());
                 isRpc.setLeaderId(new NodeId(protoISRpc.getLeaderId()));
                 isRpc.setLastIndex(protoISRpc.getLastIndex());
-                isRpc.setLastTerm(protoISRpc.getTerm());
+                isRpc.setLastTerm(protoISRpc.getLastTerm());
                 isRpc.setLastConfig(protoISRpc.getLastConfigList().stream().map(e ->
                         new NodeEndpoint(e.getId(), e.getHost(), e.getPort())
                 ).collect(Collectors.toSet()));
                 isRpc.setOffset(protoISRpc.getOffset());
                 isRpc.setData(protoISRpc.getData().toByteArray());
                 isRpc.setDone(protoISRpc.getDone());
+                isRpc.setDataSize(protoISRpc.getDataSize());
                 out.add(isRpc);
                 break;
             case MessageConstants.MSG_TYPE_INSTALL_SNAPSHOT_RESULT:
                 Protos.InstallSnapshotResult protoISResult = Protos.InstallSnapshotResult.parseFrom(payload);
-                out.add(new InstallSnapshotResult(protoISResult.getTerm()));
+                out.add(new InstallSnapshotResult(protoISResult.getTerm(), protoISResult.getLastIndex(),
+                        protoISResult.getOffset(), protoISResult.getDone()));
                 break;
         }
     }
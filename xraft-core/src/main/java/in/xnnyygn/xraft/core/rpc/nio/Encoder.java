@@ -1,20 +1,26 @@
 package in.xnnyygn.xraft.core.rpc.nio;
 
-import com.google.protobuf.ByteString;
 import com.google.protobuf.MessageLite;
+import com.google.protobuf.UnsafeByteOperations;
 import in.xnnyygn.xraft.core.Protos;
 import in.xnnyygn.xraft.core.node.NodeId;
 import in.xnnyygn.xraft.core.rpc.message.*;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.stream.Collectors;
 
 class Encoder extends MessageToByteEncoder<Object> {
 
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        // rpc with data in file is encoded by FileRegionEncoder
+        return !(msg instanceof InstallSnapshotRpc && ((InstallSnapshotRpc) msg).getDataFile() != null);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
         if (msg instanceof NodeId) {
@@ -50,7 +56,7 @@ class Encoder extends MessageToByteEncoder<Object> {
                                             .setKind(e.getKind())
                                             .setIndex(e.getIndex())
                                             .setTerm(e.getTerm())
-                                            .setCommand(ByteString.copyFrom(e.getCommandBytes()))
+                                            .setCommand(UnsafeByteOperations.unsafeWrap(e.getCommandBuffer()))
                                             .build()
                             ).collect(Collectors.toList())
                     ).build();
@@ -61,40 +67,64 @@ class Encoder extends MessageToByteEncoder<Object> {
                     .setRpcMessageId(result.getRpcMessageId())
                     .setTerm(result.getTerm())
                     .setSuccess(result.isSuccess())
+                    .setConflictTerm(result.getConflictTerm())
+                    .setConflictIndex(result.getConflictIndex())
                     .build();
             this.writeMessage(out, MessageConstants.MSG_TYPE_APPEND_ENTRIES_RESULT, protoResult);
         } else if (msg instanceof InstallSnapshotRpc) {
             InstallSnapshotRpc rpc = (InstallSnapshotRpc) msg;
-            Protos.InstallSnapshotRpc protoRpc = Protos.InstallSnapshotRpc.newBuilder()
-                    .setTerm(rpc.getTerm())
-                    .setLeaderId(rpc.getLeaderId().getValue())
-                    .setLastIndex(rpc.getLastIndex())
-                    .setLastTerm(rpc.getLastTerm())
-                    .addAllLastConfig(
-                            rpc.getLastConfig().stream().map(e ->
-                                    Protos.NodeEndpoint.newBuilder()
-                                            .setId(e.getId().getValue())
-                                            .setHost(e.getHost())
-                                            .setPort(e.getPort())
-                                            .build()
-                            ).collect(Collectors.toList()))
-                    .setOffset(rpc.getOffset())
-                    .setData(ByteString.copyFrom(rpc.getData()))
-                    .setDone(rpc.isDone()).build();
+            Protos.InstallSnapshotRpc protoRpc = toProtoInstallSnapshotRpc(rpc)
+                    .setData(UnsafeByteOperations.unsafeWrap(rpc.getData()))
+                    .build();
             this.writeMessage(out, MessageConstants.MSG_TYPE_INSTALL_SNAPSHOT_PRC, protoRpc);
         } else if (msg instanceof InstallSnapshotResult) {
             InstallSnapshotResult result = (InstallSnapshotResult) msg;
             Protos.InstallSnapshotResult protoResult = Protos.InstallSnapshotResult.newBuilder()
-                    .setTerm(result.getTerm()).build();
+                    .setTerm(result.getTerm())
+                    .setLastIndex(result.getLastIndex())
+                    .setOffset(result.getOffset())
+                    .setDone(result.isDone())
+                    .build();
             this.writeMessage(out, MessageConstants.MSG_TYPE_INSTALL_SNAPSHOT_RESULT, protoResult);
         }
     }
 
+    /**
+     * Convert install snapshot rpc to protobuf message without data.
+     *
+     * @param rpc rpc
+     * @return builder
+     */
+    static Protos.InstallSnapshotRpc.Builder toProtoInstallSnapshotRpc(InstallSnapshotRpc rpc) {
+        Protos.InstallSnapshotRpc.Builder builder = Protos.InstallSnapshotRpc.newBuilder()
+                .setTerm(rpc.getTerm())
+                .setLeaderId(rpc.getLeaderId().getValue())
+                .setLastIndex(rpc.getLastIndex())
+                .setLastTerm(rpc.getLastTerm())
+                .setOffset(rpc.getOffset())
+                .setDone(rpc.isDone())
+                .setDataSize(rpc.getDataSize());
+        // last config is set in first rpc only
+        if (rpc.getLastConfig() != null) {
+            builder.addAllLastConfig(
+                    rpc.getLastConfig().stream().map(e ->
+                            Protos.NodeEndpoint.newBuilder()
+                                    .setId(e.getId().getValue())
+                                    .setHost(e.getHost())
+                                    .setPort(e.getPort())
+                                    .build()
+                    ).collect(Collectors.toList()));
+        }
+        return builder;
+    }
+
     private void writeMessage(ByteBuf out, int messageType, MessageLite message) throws IOException {
-        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-        message.writeTo(byteOutput);
+        // serialize into out directly, commands wrapped above are copied only here
+        int length = message.getSerializedSize();
         out.writeInt(messageType);
-        this.writeBytes(out, byteOutput.toByteArray());
+        out.writeInt(length);
+        out.ensureWritable(length);
+        message.writeTo(new ByteBufOutputStream(out));
     }
 
     private void writeMessage(ByteBuf out, int messageType, byte[] bytes) {
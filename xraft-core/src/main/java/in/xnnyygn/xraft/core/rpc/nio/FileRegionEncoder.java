@@ -0,0 +1,51 @@
+package in.xnnyygn.xraft.core.rpc.nio;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import in.xnnyygn.xraft.core.Protos;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import in.xnnyygn.xraft.core.rpc.message.MessageConstants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * Encoder of install snapshot rpc with data in file.
+ * <p>
+ * Only message without data, tag and length of data field are encoded into buffer, data is sent
+ * from file to socket by file region, e.g. sendfile, without copy to heap.
+ * Bytes sent are the same as ones of {@link Encoder}, since fields of protobuf message can be in any order.
+ * </p>
+ */
+class FileRegionEncoder extends MessageToMessageEncoder<InstallSnapshotRpc> {
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        return msg instanceof InstallSnapshotRpc && ((InstallSnapshotRpc) msg).getDataFile() != null;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, InstallSnapshotRpc rpc, List<Object> out) throws Exception {
+        Protos.InstallSnapshotRpc protoRpc = Encoder.toProtoInstallSnapshotRpc(rpc).build();
+        int dataLength = rpc.getDataLength();
+        int headerLength = protoRpc.getSerializedSize() +
+                CodedOutputStream.computeTagSize(Protos.InstallSnapshotRpc.DATA_FIELD_NUMBER) +
+                CodedOutputStream.computeUInt32SizeNoTag(dataLength);
+        ByteBuf header = ctx.alloc().buffer(8 + headerLength);
+        header.writeInt(MessageConstants.MSG_TYPE_INSTALL_SNAPSHOT_PRC);
+        header.writeInt(headerLength + dataLength);
+        CodedOutputStream output = CodedOutputStream.newInstance(new ByteBufOutputStream(header), headerLength);
+        protoRpc.writeTo(output);
+        output.writeTag(Protos.InstallSnapshotRpc.DATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(dataLength);
+        output.flush();
+        out.add(header);
+        // file is opened when transferred and closed after
+        out.add(new DefaultFileRegion(rpc.getDataFile(), rpc.getDataFilePosition(), dataLength));
+    }
+
+}
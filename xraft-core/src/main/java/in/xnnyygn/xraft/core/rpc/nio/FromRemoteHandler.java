@@ -2,6 +2,7 @@ package in.xnnyygn.xraft.core.rpc.nio;
 
 import com.google.common.eventbus.EventBus;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,8 +12,8 @@ class FromRemoteHandler extends AbstractHandler {
     private static final Logger logger = LoggerFactory.getLogger(FromRemoteHandler.class);
     private final InboundChannelGroup channelGroup;
 
-    FromRemoteHandler(EventBus eventBus, InboundChannelGroup channelGroup) {
-        super(eventBus);
+    FromRemoteHandler(EventBus eventBus, InboundChannelGroup channelGroup, NodeConfig config) {
+        super(eventBus, config);
         this.channelGroup = channelGroup;
     }
 
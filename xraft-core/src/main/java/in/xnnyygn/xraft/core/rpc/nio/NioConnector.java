@@ -4,6 +4,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.eventbus.EventBus;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.Channel;
 import in.xnnyygn.xraft.core.rpc.ChannelConnectException;
 import in.xnnyygn.xraft.core.rpc.Connector;
@@ -31,6 +32,7 @@ public class NioConnector implements Connector {
     private final boolean workerGroupShared;
     private final EventBus eventBus;
     private final int port;
+    private final NodeConfig config;
     private final InboundChannelGroup inboundChannelGroup = new InboundChannelGroup();
     private final OutboundChannelGroup outboundChannelGroup;
 
@@ -43,11 +45,26 @@ public class NioConnector implements Connector {
     }
 
     public NioConnector(NioEventLoopGroup workerNioEventLoopGroup, boolean workerGroupShared, NodeId selfNodeId, EventBus eventBus, int port) {
+        this(workerNioEventLoopGroup, workerGroupShared, selfNodeId, eventBus, port, new NodeConfig());
+    }
+
+    /**
+     * Create.
+     *
+     * @param workerNioEventLoopGroup worker group
+     * @param workerGroupShared       true if worker group is shared and not closed by connector
+     * @param selfNodeId              self node id
+     * @param eventBus                event bus
+     * @param port                    port
+     * @param config                  config, for limit of rpcs in flight
+     */
+    public NioConnector(NioEventLoopGroup workerNioEventLoopGroup, boolean workerGroupShared, NodeId selfNodeId, EventBus eventBus, int port, NodeConfig config) {
         this.workerNioEventLoopGroup = workerNioEventLoopGroup;
         this.workerGroupShared = workerGroupShared;
         this.eventBus = eventBus;
         this.port = port;
-        outboundChannelGroup = new OutboundChannelGroup(workerNioEventLoopGroup, eventBus, selfNodeId);
+        this.config = config;
+        outboundChannelGroup = new OutboundChannelGroup(workerNioEventLoopGroup, eventBus, selfNodeId, config);
     }
 
     // should not call more than once
@@ -61,8 +78,9 @@ public class NioConnector implements Connector {
                     protected void initChannel(SocketChannel ch) throws Exception {
                         ChannelPipeline pipeline = ch.pipeline();
                         pipeline.addLast(new Decoder());
+                        pipeline.addLast(new FileRegionEncoder());
                         pipeline.addLast(new Encoder());
-                        pipeline.addLast(new FromRemoteHandler(eventBus, inboundChannelGroup));
+                        pipeline.addLast(new FromRemoteHandler(eventBus, inboundChannelGroup, config));
                     }
                 });
         logger.debug("node listen on port {}", port);
@@ -2,6 +2,7 @@ package in.xnnyygn.xraft.core.rpc.nio;
 
 import com.google.common.eventbus.EventBus;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.Address;
 import in.xnnyygn.xraft.core.rpc.ChannelConnectException;
 import in.xnnyygn.xraft.core.rpc.ChannelException;
@@ -23,12 +24,14 @@ class OutboundChannelGroup {
     private final EventLoopGroup workerGroup;
     private final EventBus eventBus;
     private final NodeId selfNodeId;
+    private final NodeConfig config;
     private final ConcurrentMap<NodeId, Future<NioChannel>> channelMap = new ConcurrentHashMap<>();
 
-    OutboundChannelGroup(EventLoopGroup workerGroup, EventBus eventBus, NodeId selfNodeId) {
+    OutboundChannelGroup(EventLoopGroup workerGroup, EventBus eventBus, NodeId selfNodeId, NodeConfig config) {
         this.workerGroup = workerGroup;
         this.eventBus = eventBus;
         this.selfNodeId = selfNodeId;
+        this.config = config;
     }
 
     NioChannel getOrConnect(NodeId nodeId, Address address) {
@@ -66,8 +69,9 @@ class OutboundChannelGroup {
                     protected void initChannel(SocketChannel ch) throws Exception {
                         ChannelPipeline pipeline = ch.pipeline();
                         pipeline.addLast(new Decoder());
+                        pipeline.addLast(new FileRegionEncoder());
                         pipeline.addLast(new Encoder());
-                        pipeline.addLast(new ToRemoteHandler(eventBus, nodeId, selfNodeId));
+                        pipeline.addLast(new ToRemoteHandler(eventBus, nodeId, selfNodeId, config));
                     }
                 });
         ChannelFuture future = bootstrap.connect(address.getHost(), address.getPort()).sync();
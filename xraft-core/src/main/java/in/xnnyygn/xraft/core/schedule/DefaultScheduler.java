@@ -64,6 +64,12 @@ public class DefaultScheduler implements Scheduler {
         return new ElectionTimeout(scheduledFuture);
     }
 
+    @Override
+    public void scheduleDelayedTask(@Nonnull Runnable task, long delay) {
+        Preconditions.checkNotNull(task);
+        scheduledExecutorService.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void stop() throws InterruptedException {
         logger.debug("stop scheduler");
@@ -23,6 +23,11 @@ public class NullScheduler implements Scheduler {
         return ElectionTimeout.NONE;
     }
 
+    @Override
+    public void scheduleDelayedTask(@Nonnull Runnable task, long delay) {
+        logger.debug("schedule delayed task");
+    }
+
     @Override
     public void stop() throws InterruptedException {
     }
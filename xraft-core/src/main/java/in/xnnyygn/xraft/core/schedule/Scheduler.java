@@ -26,6 +26,14 @@ public interface Scheduler {
     @Nonnull
     ElectionTimeout scheduleElectionTimeout(@Nonnull Runnable task);
 
+    /**
+     * Schedule task to run once after delay.
+     *
+     * @param task  task
+     * @param delay delay in milliseconds
+     */
+    void scheduleDelayedTask(@Nonnull Runnable task, long delay);
+
     /**
      * Stop scheduler.
      *
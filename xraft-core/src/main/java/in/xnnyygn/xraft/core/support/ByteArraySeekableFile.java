@@ -93,6 +93,17 @@ public class ByteArraySeekableFile implements SeekableFile {
         return n;
     }
 
+    @Override
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        checkPosition(position);
+        if (position == size) {
+            return -1;
+        }
+        int n = Math.min(len, size - (int) position);
+        System.arraycopy(content, (int) position, b, off, n);
+        return n;
+    }
+
     @Override
     public long size() throws IOException {
         return size;
@@ -124,6 +135,14 @@ public class ByteArraySeekableFile implements SeekableFile {
     public void flush() throws IOException {
     }
 
+    @Override
+    public void force() throws IOException {
+    }
+
+    @Override
+    public void forceWritten() throws IOException {
+    }
+
     @Override
     public void close() throws IOException {
     }
@@ -0,0 +1,234 @@
+package in.xnnyygn.xraft.core.support;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Seekable file based on {@link FileChannel}.
+ * <p>
+ * Consecutive writes are collected in a direct buffer and written by one system call when
+ * the buffer is full, the next write is not consecutive, or before reading, truncating,
+ * flushing and closing. Reads are positional.
+ * </p>
+ */
+@NotThreadSafe
+public class FileChannelSeekableFile implements SeekableFile {
+
+    private static final int DEFAULT_WRITE_BUFFER_SIZE = 64 * 1024;
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer;
+    private final ByteBuffer numberBuffer = ByteBuffer.allocate(8);
+    private long writeBufferOffset = 0L; // file offset of first byte in write buffer
+    private long position = 0L;
+    private long size;
+
+    public FileChannelSeekableFile(File file) throws IOException {
+        this(file, "rw");
+    }
+
+    public FileChannelSeekableFile(File file, String mode) throws IOException {
+        this(file, mode, DEFAULT_WRITE_BUFFER_SIZE);
+    }
+
+    /**
+     * Create.
+     *
+     * @param file            file
+     * @param mode            {@code r} or {@code rw}, same as {@link java.io.RandomAccessFile}
+     * @param writeBufferSize size of write buffer
+     * @throws IOException if failed to open file
+     */
+    public FileChannelSeekableFile(File file, String mode, int writeBufferSize) throws IOException {
+        this.file = file;
+        if ("r".equals(mode)) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } else if ("rw".equals(mode)) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        } else {
+            throw new IllegalArgumentException("unsupported mode " + mode);
+        }
+        writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
+        size = channel.size();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0 || position > size) {
+            throw new IllegalArgumentException("offset < 0 or offset > size");
+        }
+        this.position = position;
+    }
+
+    @Override
+    public void writeInt(int i) throws IOException {
+        prepareWrite(4);
+        writeBuffer.putInt(i);
+        afterWrite(4);
+    }
+
+    @Override
+    public void writeLong(long l) throws IOException {
+        prepareWrite(8);
+        writeBuffer.putLong(l);
+        afterWrite(8);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        if (b.length > writeBuffer.capacity()) {
+            // too large to buffer, write directly
+            flush();
+            writeFully(ByteBuffer.wrap(b), position);
+        } else {
+            prepareWrite(b.length);
+            writeBuffer.put(b);
+        }
+        afterWrite(b.length);
+    }
+
+    private void prepareWrite(int n) throws IOException {
+        if (writeBuffer.position() > 0 &&
+                (writeBufferOffset + writeBuffer.position() != position || writeBuffer.remaining() < n)) {
+            flush();
+        }
+        if (writeBuffer.position() == 0) {
+            writeBufferOffset = position;
+        }
+    }
+
+    private void afterWrite(int n) {
+        position += n;
+        size = Math.max(size, position);
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        long p = offset;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        readFully(4);
+        return numberBuffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        readFully(8);
+        return numberBuffer.getLong();
+    }
+
+    private void readFully(int n) throws IOException {
+        numberBuffer.clear().limit(n);
+        if (read(position, numberBuffer) < n) {
+            throw new EOFException();
+        }
+        numberBuffer.flip();
+        position += n;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        int n = read(position, ByteBuffer.wrap(b));
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        return read(position, ByteBuffer.wrap(b, off, len));
+    }
+
+    private int read(long offset, ByteBuffer buffer) throws IOException {
+        flush();
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset + total);
+            if (n < 0) {
+                return total > 0 ? total : -1;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void truncate(long size) throws IOException {
+        flush();
+        if (size < channel.size()) {
+            channel.truncate(size);
+        } else if (size > channel.size()) {
+            // extend file like RandomAccessFile#setLength
+            writeFully(ByteBuffer.allocate(1), size - 1);
+        }
+        this.size = size;
+        position = Math.min(position, size);
+    }
+
+    @Override
+    public InputStream inputStream(long start) throws IOException {
+        flush();
+        FileChannel readChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        readChannel.position(start);
+        return Channels.newInputStream(readChannel);
+    }
+
+    /**
+     * Write buffered bytes to file.
+     *
+     * @throws IOException if failed to write
+     */
+    @Override
+    public void flush() throws IOException {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer, writeBufferOffset);
+        writeBuffer.clear();
+    }
+
+    @Override
+    public void force() throws IOException {
+        flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void forceWritten() throws IOException {
+        // file channel is thread safe, write buffer is not touched
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
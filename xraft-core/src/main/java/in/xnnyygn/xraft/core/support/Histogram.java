@@ -0,0 +1,78 @@
+package in.xnnyygn.xraft.core.support;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values in buckets of powers of two.
+ * <p>
+ * Bucket {@code 0} counts value {@code 0}, bucket {@code n} counts values in {@code [2^(n-1), 2^n)}.
+ * Values are recorded by one thread and read by others.
+ * </p>
+ */
+@ThreadSafe
+public class Histogram {
+
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value < 0");
+        }
+        counts.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Get count of values in bucket.
+     *
+     * @param bucket bucket
+     * @return count
+     */
+    public long getBucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Get upper bound of values at percentile.
+     *
+     * @param percentile percentile, from {@code 0} to {@code 1}
+     * @return upper bound of bucket, {@code 0} if no value
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen > 0 && seen >= rank) {
+                return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" +
+                "count=" + getCount() +
+                ", sum=" + getSum() +
+                ", p50=" + getPercentile(0.5) +
+                ", p99=" + getPercentile(0.99) +
+                '}';
+    }
+
+}
@@ -1,6 +1,7 @@
 package in.xnnyygn.xraft.core.support;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class RandomAccessFileAdapter implements SeekableFile {
 
@@ -51,6 +52,11 @@ public class RandomAccessFileAdapter implements SeekableFile {
         return randomAccessFile.read(b);
     }
 
+    @Override
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        return randomAccessFile.getChannel().read(ByteBuffer.wrap(b, off, len), position);
+    }
+
     @Override
     public long size() throws IOException {
         return randomAccessFile.length();
@@ -79,6 +85,16 @@ public class RandomAccessFileAdapter implements SeekableFile {
     public void flush() throws IOException {
     }
 
+    @Override
+    public void force() throws IOException {
+        randomAccessFile.getChannel().force(false);
+    }
+
+    @Override
+    public void forceWritten() throws IOException {
+        force();
+    }
+
     @Override
     public void close() throws IOException {
         randomAccessFile.close();
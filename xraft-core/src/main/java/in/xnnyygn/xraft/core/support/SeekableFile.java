@@ -21,6 +21,18 @@ public interface SeekableFile {
 
     int read(byte[] b) throws IOException;
 
+    /**
+     * Read bytes at position without moving file pointer.
+     *
+     * @param position position in file
+     * @param b        buffer
+     * @param off      offset in buffer
+     * @param len      max bytes to read
+     * @return bytes read, {@code -1} if position is at end of file
+     * @throws IOException if failed to read
+     */
+    int read(long position, byte[] b, int off, int len) throws IOException;
+
     long size() throws IOException;
 
     void truncate(long size) throws IOException;
@@ -29,6 +41,21 @@ public interface SeekableFile {
 
     void flush() throws IOException;
 
+    /**
+     * Force written content to storage device.
+     *
+     * @throws IOException if failed to force
+     */
+    void force() throws IOException;
+
+    /**
+     * Force content already written to file system, buffered content is not included.
+     * Unlike other methods, it is safe to call this method from another thread while writing.
+     *
+     * @throws IOException if failed to force
+     */
+    void forceWritten() throws IOException;
+
     void close() throws IOException;
 
 }
@@ -0,0 +1,36 @@
+package in.xnnyygn.xraft.core.support;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Implementation of {@link SeekableFile} for files on disk.
+ */
+public enum SeekableFileType {
+
+    /**
+     * {@link RandomAccessFileAdapter}, one system call per read or write.
+     */
+    RANDOM_ACCESS_FILE,
+
+    /**
+     * {@link FileChannelSeekableFile}, buffered writes and positional reads.
+     */
+    FILE_CHANNEL;
+
+    /**
+     * Open file.
+     *
+     * @param file file
+     * @param mode {@code r} or {@code rw}
+     * @return seekable file
+     * @throws IOException if failed to open
+     */
+    public SeekableFile open(File file, String mode) throws IOException {
+        if (this == FILE_CHANNEL) {
+            return new FileChannelSeekableFile(file, mode);
+        }
+        return new RandomAccessFileAdapter(file, mode);
+    }
+
+}
@@ -0,0 +1,82 @@
+package in.xnnyygn.xraft.core.support;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Token bucket for rate limiting.
+ * <p>
+ * Tokens are added at rate up to capacity. Request larger than capacity is allowed when bucket is full,
+ * and tokens become negative, so it is not blocked forever. Time is passed in by caller in nanoseconds.
+ * </p>
+ */
+@NotThreadSafe
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final long rate;
+    private final long capacity;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Create a full bucket.
+     *
+     * @param rate     tokens per second, {@code 0} for unlimited
+     * @param capacity max tokens
+     * @param nanos    current time
+     */
+    public TokenBucket(long rate, long capacity, long nanos) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate < 0");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = nanos;
+    }
+
+    public boolean isUnlimited() {
+        return rate == 0;
+    }
+
+    /**
+     * Get time to wait before {@code n} tokens are available.
+     *
+     * @param n     tokens
+     * @param nanos current time
+     * @return time to wait in nanoseconds, {@code 0} if available now
+     */
+    public long getWaitTime(long n, long nanos) {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill(nanos);
+        double required = Math.min(n, capacity);
+        if (tokens >= required) {
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) * NANOS_PER_SECOND / rate);
+    }
+
+    /**
+     * Take tokens, should be called after tokens are available.
+     *
+     * @param n tokens
+     */
+    public void consume(long n) {
+        if (!isUnlimited()) {
+            tokens -= n;
+        }
+    }
+
+    private void refill(long nanos) {
+        if (nanos > refilledAt) {
+            tokens = Math.min(capacity, tokens + (nanos - refilledAt) * rate / NANOS_PER_SECOND);
+            refilledAt = nanos;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package in.xnnyygn.xraft.core.log;
+
+import com.google.common.eventbus.EventBus;
+import in.xnnyygn.xraft.core.log.snapshot.FileSnapshot;
+import in.xnnyygn.xraft.core.log.snapshot.Snapshot;
+import in.xnnyygn.xraft.core.log.statemachine.EmptyStateMachine;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+public class FileLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGenerateSnapshot() {
+        FileLog log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        log.appendEntry(1, "1".getBytes()); // 1
+        log.appendEntry(1, "2".getBytes()); // 2
+        log.appendEntry(1, "3".getBytes()); // 3
+        log.appendEntry(1, "4".getBytes()); // 4
+        log.advanceCommitIndex(3, 1);
+        log.generateSnapshot(2, Collections.emptySet());
+
+        // entry 3 in file is copied, entry 4 not written is kept
+        Assert.assertEquals(3, log.entrySequence.getFirstLogIndex());
+        Assert.assertEquals(5, log.getNextIndex());
+        Assert.assertArrayEquals("3".getBytes(), log.entrySequence.getEntry(3).getCommandBytes());
+        Assert.assertArrayEquals("4".getBytes(), log.entrySequence.getEntry(4).getCommandBytes());
+        log.advanceCommitIndex(4, 1);
+        log.close();
+
+        log = new FileLog(folder.getRoot(), new EventBus());
+        Assert.assertEquals(2, log.snapshot.getLastIncludedIndex());
+        Assert.assertEquals(4, log.entrySequence.getLastLogIndex());
+        Assert.assertArrayEquals("4".getBytes(), log.entrySequence.getEntry(4).getCommandBytes());
+        log.close();
+    }
+
+    @Test
+    public void testReplaceGeneratedSnapshotWithPreparedTransfer() {
+        FileLog log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        log.appendEntry(1, "1".getBytes()); // 1
+        log.appendEntry(1, "2".getBytes()); // 2
+        log.appendEntry(1, "3".getBytes()); // 3
+        log.advanceCommitIndex(3, 1);
+        Snapshot snapshot = log.prepareSnapshot(2, Collections.emptySet(), output -> output.write(1)).get();
+        Runnable transfer = log.prepareReplaceSnapshot(snapshot);
+        Assert.assertNotNull(transfer);
+        transfer.run();
+        Assert.assertTrue(((FileSnapshot) snapshot).getLogDir().getEntriesFile().length() > 8L);
+
+        // entries appended while copying
+        log.appendEntry(1, "4".getBytes()); // 4
+        log.advanceCommitIndex(4, 1);
+        log.appendEntry(1, "5".getBytes()); // 5
+        log.replaceGeneratedSnapshot(snapshot);
+        Assert.assertEquals(2, log.snapshot.getLastIncludedIndex());
+        Assert.assertEquals(3, log.entrySequence.getFirstLogIndex());
+        Assert.assertEquals(6, log.getNextIndex());
+        Assert.assertArrayEquals("3".getBytes(), log.entrySequence.getEntry(3).getCommandBytes());
+        Assert.assertArrayEquals("4".getBytes(), log.entrySequence.getEntry(4).getCommandBytes());
+        Assert.assertArrayEquals("5".getBytes(), log.entrySequence.getEntry(5).getCommandBytes());
+        log.advanceCommitIndex(5, 1);
+        log.close();
+
+        log = new FileLog(folder.getRoot(), new EventBus());
+        Assert.assertEquals(3, log.entrySequence.getFirstLogIndex());
+        Assert.assertEquals(5, log.entrySequence.getLastLogIndex());
+        Assert.assertArrayEquals("3".getBytes(), log.entrySequence.getEntry(3).getCommandBytes());
+        Assert.assertArrayEquals("5".getBytes(), log.entrySequence.getEntry(5).getCommandBytes());
+        log.close();
+    }
+
+    @Test
+    public void testReplaceGeneratedSnapshotTransferNotDone() {
+        FileLog log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        log.appendEntry(1, "1".getBytes()); // 1
+        log.appendEntry(1, "2".getBytes()); // 2
+        log.appendEntry(1, "3".getBytes()); // 3
+        log.advanceCommitIndex(3, 1);
+        Snapshot snapshot = log.prepareSnapshot(2, Collections.emptySet(), output -> output.write(1)).get();
+        Assert.assertNotNull(log.prepareReplaceSnapshot(snapshot));
+
+        // all entries are copied
+        log.replaceGeneratedSnapshot(snapshot);
+        Assert.assertEquals(3, log.entrySequence.getFirstLogIndex());
+        Assert.assertEquals(3, log.entrySequence.getLastLogIndex());
+        Assert.assertArrayEquals("3".getBytes(), log.entrySequence.getEntry(3).getCommandBytes());
+        log.close();
+    }
+
+    @Test
+    public void testPrepareReplaceSnapshotOfSegments() {
+        NodeConfig config = new NodeConfig();
+        config.setLogSegmentSize(1024);
+        FileLog log = new FileLog(folder.getRoot(), new EventBus(), config);
+        log.setStateMachine(new EmptyStateMachine());
+        log.appendEntry(1, "1".getBytes()); // 1
+        log.appendEntry(1, "2".getBytes()); // 2
+        log.advanceCommitIndex(2, 1);
+        Snapshot snapshot = log.prepareSnapshot(1, Collections.emptySet(), output -> output.write(1)).get();
+        Assert.assertNull(log.prepareReplaceSnapshot(snapshot));
+        log.close();
+    }
+
+    private InstallSnapshotRpc createInstallSnapshotRpc(int offset, String data, boolean done) {
+        return createInstallSnapshotRpc(offset, data, 7, done);
+    }
+
+    private InstallSnapshotRpc createInstallSnapshotRpc(int offset, String data, int dataSize, boolean done) {
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLastIndex(2);
+        rpc.setLastTerm(1);
+        rpc.setLastConfig(Collections.emptySet());
+        rpc.setOffset(offset);
+        rpc.setData(data.getBytes());
+        rpc.setDataSize(dataSize);
+        rpc.setDone(done);
+        return rpc;
+    }
+
+    @Test
+    public void testInstallSnapshotResumeAfterRestart() {
+        FileLog log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        log.installSnapshot(createInstallSnapshotRpc(0, "test", false));
+        log.close();
+
+        log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        InstallSnapshotState state = log.installSnapshot(createInstallSnapshotRpc(0, "test", false));
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLING, state.getStateName());
+        Assert.assertEquals(4, state.getOffset());
+        state = log.installSnapshot(createInstallSnapshotRpc(4, "foo", true));
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLED, state.getStateName());
+        Assert.assertEquals(2, log.snapshot.getLastIncludedIndex());
+        Assert.assertEquals(7, log.snapshot.getDataSize());
+        log.close();
+    }
+
+    @Test
+    public void testInstallSnapshotResumeFromForcedOffset() throws IOException {
+        FileLog log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        log.installSnapshot(createInstallSnapshotRpc(0, "test", 10, false));
+        log.installSnapshot(createInstallSnapshotRpc(4, "foo", 10, false));
+        // data after forced offset zero-filled after power loss
+        File snapshotFile = new File(new File(folder.getRoot(), "installing"), "service.ss");
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(file.length() - 3);
+            file.write(new byte[3]);
+        }
+
+        log = new FileLog(folder.getRoot(), new EventBus());
+        log.setStateMachine(new EmptyStateMachine());
+        InstallSnapshotState state = log.installSnapshot(createInstallSnapshotRpc(0, "test", 10, false));
+        Assert.assertEquals(4, state.getOffset());
+        state = log.installSnapshot(createInstallSnapshotRpc(4, "foobar", 10, true));
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLED, state.getStateName());
+        Assert.assertEquals(10, log.snapshot.getDataSize());
+        byte[] data = new byte[10];
+        Assert.assertEquals(10, log.snapshot.getDataStream().read(data));
+        Assert.assertArrayEquals("testfoobar".getBytes(), data);
+        log.close();
+    }
+
+}
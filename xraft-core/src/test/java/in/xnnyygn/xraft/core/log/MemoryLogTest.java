@@ -5,12 +5,15 @@ import in.xnnyygn.xraft.core.log.entry.Entry;
 import in.xnnyygn.xraft.core.log.entry.EntryMeta;
 import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
 import in.xnnyygn.xraft.core.log.entry.NoOpEntry;
+import in.xnnyygn.xraft.core.log.sequence.DirectMemoryEntrySequence;
 import in.xnnyygn.xraft.core.log.sequence.MemoryEntrySequence;
 import in.xnnyygn.xraft.core.log.snapshot.EntryInSnapshotException;
 import in.xnnyygn.xraft.core.log.snapshot.MemorySnapshot;
+import in.xnnyygn.xraft.core.log.snapshot.Snapshot;
 import in.xnnyygn.xraft.core.log.statemachine.EmptyStateMachine;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.rpc.message.AppendEntriesRpc;
 import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
 import org.junit.Assert;
@@ -19,6 +22,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class MemoryLogTest {
 
@@ -31,6 +35,54 @@ public class MemoryLogTest {
         Assert.assertEquals(0, lastEntryMeta.getTerm());
     }
 
+    @Test
+    public void testAppendEntryLogFull() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxPendingLogEntries(2);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        log.appendEntry(1, "a".getBytes()); // 1
+        log.appendEntry(1, "b".getBytes()); // 2
+        try {
+            log.appendEntry(1, "c".getBytes());
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+        log.advanceCommitIndex(1, 1);
+        Assert.assertEquals(3, log.appendEntry(1, "c".getBytes()).getIndex());
+    }
+
+    @Test
+    public void testReserveEntry() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxPendingLogEntries(2);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        log.appendEntry(1, "a".getBytes()); // 1
+        log.reserveEntry();
+        try {
+            log.reserveEntry();
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+        // reserved entry is accepted even if log is full
+        log.appendEntry(1); // 2
+        Assert.assertEquals(3, log.appendReservedEntry(1, "b".getBytes()).getIndex());
+        try {
+            log.reserveEntry();
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+        log.advanceCommitIndex(3, 1);
+        log.reserveEntry();
+        log.cancelReservedEntries(1);
+        log.reserveEntry();
+        log.reserveEntry();
+        try {
+            log.reserveEntry();
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+    }
+
     @Test
     public void testGetLastEntryMetaNoLog() {
         MemoryLog log = new MemoryLog(
@@ -178,6 +230,52 @@ public class MemoryLogTest {
         Assert.assertEquals(4, rpc.getEntries().get(1).getIndex());
     }
 
+    @Test
+    public void testCreateAppendEntriesRpcBytesLimit() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxReplicationBytes(5);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        log.appendEntry(1, "aa".getBytes()); // 1
+        log.appendEntry(1, "bb".getBytes()); // 2
+        log.appendEntry(1, "cc".getBytes()); // 3
+        AppendEntriesRpc rpc = log.createAppendEntriesRpc(
+                1, new NodeId("A"), 1, Log.ALL_ENTRIES
+        );
+        Assert.assertEquals(2, rpc.getEntries().size());
+        Assert.assertEquals(2, rpc.getEntries().get(1).getIndex());
+        Assert.assertEquals(1, log.getAppendEntriesBatchSizes().getCount());
+        Assert.assertEquals(4, log.getAppendEntriesBatchSizes().getSum());
+    }
+
+    @Test
+    public void testCreateAppendEntriesRpcBytesLimitOversizedEntry() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxReplicationBytes(5);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        log.appendEntry(1, "aaaaaaaa".getBytes()); // 1
+        log.appendEntry(1, "b".getBytes()); // 2
+        AppendEntriesRpc rpc = log.createAppendEntriesRpc(
+                1, new NodeId("A"), 1, Log.ALL_ENTRIES
+        );
+        Assert.assertEquals(1, rpc.getEntries().size());
+        Assert.assertEquals(1, rpc.getEntries().get(0).getIndex());
+    }
+
+    @Test
+    public void testCreateAppendEntriesRpcBytesLimitManyEntries() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxReplicationBytes(100);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        for (int i = 0; i < 200; i++) {
+            log.appendEntry(1, "a".getBytes());
+        }
+        AppendEntriesRpc rpc = log.createAppendEntriesRpc(
+                1, new NodeId("A"), 1, Log.ALL_ENTRIES
+        );
+        Assert.assertEquals(100, rpc.getEntries().size());
+        Assert.assertEquals(100, rpc.getLastEntryIndex());
+    }
+
     @Test
     public void testCreateAppendEntriesUseSnapshot() {
         MemoryLog log = new MemoryLog(
@@ -339,7 +437,7 @@ public class MemoryLogTest {
         Assert.assertTrue(log.appendEntriesFromLeader(0, 0, Arrays.asList(
                 new NoOpEntry(1, 1),
                 new NoOpEntry(2, 1)
-        )));
+        )).isSuccess());
         Assert.assertEquals(3, log.getNextIndex());
     }
 
@@ -352,7 +450,7 @@ public class MemoryLogTest {
                 new MemoryEntrySequence(4),
                 new EventBus()
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(3, 4, Collections.emptyList()));
+        Assert.assertTrue(log.appendEntriesFromLeader(3, 4, Collections.emptyList()).isSuccess());
     }
 
     // prevLogIndex == snapshot.lastIncludedIndex
@@ -364,7 +462,7 @@ public class MemoryLogTest {
                 new MemoryEntrySequence(4),
                 new EventBus()
         );
-        Assert.assertFalse(log.appendEntriesFromLeader(3, 5, Collections.emptyList()));
+        Assert.assertFalse(log.appendEntriesFromLeader(3, 5, Collections.emptyList()).isSuccess());
     }
 
     // prevLogIndex < snapshot.lastIncludedIndex
@@ -375,21 +473,60 @@ public class MemoryLogTest {
                 new MemoryEntrySequence(4),
                 new EventBus()
         );
-        Assert.assertFalse(log.appendEntriesFromLeader(1, 4, Collections.emptyList()));
+        Assert.assertFalse(log.appendEntriesFromLeader(1, 4, Collections.emptyList()).isSuccess());
     }
 
     @Test
     public void testAppendEntriesFromLeaderPrevLogNotFound() {
         MemoryLog log = new MemoryLog();
         Assert.assertEquals(1, log.getNextIndex());
-        Assert.assertFalse(log.appendEntriesFromLeader(1, 1, Collections.emptyList()));
+        Assert.assertFalse(log.appendEntriesFromLeader(1, 1, Collections.emptyList()).isSuccess());
+    }
+
+    @Test
+    public void testAppendEntriesFromLeaderPrevLogNotFoundHint() {
+        MemoryLog log = new MemoryLog();
+        log.appendEntry(1); // 1
+        log.appendEntry(1); // 2
+        AppendEntriesState state = log.appendEntriesFromLeader(100, 2, Collections.emptyList());
+        Assert.assertEquals(0, state.getConflictTerm());
+        Assert.assertEquals(2, state.getConflictIndex());
     }
 
     @Test
     public void testAppendEntriesFromLeaderPrevLogTermNotMatch() {
         MemoryLog log = new MemoryLog();
         log.appendEntry(1);
-        Assert.assertFalse(log.appendEntriesFromLeader(1, 2, Collections.emptyList()));
+        Assert.assertFalse(log.appendEntriesFromLeader(1, 2, Collections.emptyList()).isSuccess());
+    }
+
+    @Test
+    public void testAppendEntriesFromLeaderPrevLogTermNotMatchHint() {
+        MemoryLog log = new MemoryLog();
+        log.appendEntry(1); // 1
+        log.appendEntry(2); // 2
+        log.appendEntry(2); // 3
+        log.appendEntry(2); // 4
+        AppendEntriesState state = log.appendEntriesFromLeader(4, 3, Collections.emptyList());
+        Assert.assertEquals(2, state.getConflictTerm());
+        Assert.assertEquals(2, state.getConflictIndex());
+    }
+
+    @Test
+    public void testGetNextIndexAfterConflict() {
+        MemoryLog log = new MemoryLog();
+        log.appendEntry(1); // 1
+        log.appendEntry(1); // 2
+        log.appendEntry(3); // 3
+        log.appendEntry(3); // 4
+        // entry missing
+        Assert.assertEquals(2, log.getNextIndexAfterConflict(4, 0, 1));
+        // last entry of term 1 in leader's log
+        Assert.assertEquals(3, log.getNextIndexAfterConflict(4, 1, 1));
+        // no entry of term 2 in leader's log
+        Assert.assertEquals(2, log.getNextIndexAfterConflict(4, 2, 2));
+        // no hint
+        Assert.assertEquals(4, log.getNextIndexAfterConflict(4, 0, -1));
     }
 
     // (index, term)
@@ -404,7 +541,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
     }
 
     @Test
@@ -415,7 +552,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 1)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
     }
 
     // follower: (1, 1), (2, 1)
@@ -429,7 +566,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 2),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
     }
 
     // follower: (1, 1), (2, 1), (3, 1)
@@ -444,7 +581,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
     }
 
     // follower: (1, 1), (2, 1), (3, 1, no-op, committed)
@@ -460,7 +597,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
     }
 
     // follower: (1, 1), (2, 1), (3, 1, general, committed)
@@ -476,7 +613,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
         Assert.assertEquals(2, log.getCommitIndex());
     }
 
@@ -493,7 +630,7 @@ public class MemoryLogTest {
                 new NoOpEntry(2, 1),
                 new NoOpEntry(3, 2)
         );
-        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries));
+        Assert.assertTrue(log.appendEntriesFromLeader(1, 1, leaderEntries).isSuccess());
         Assert.assertEquals(2, log.getCommitIndex());
     }
 
@@ -563,6 +700,64 @@ public class MemoryLogTest {
         log.appendEntry(2);
     }
 
+    @Test
+    public void testGenerateSnapshotDirectMemory() {
+        NodeConfig config = new NodeConfig();
+        config.setMemoryLogChunkSize(1024);
+        MemoryLog log = new MemoryLog(new EventBus(), config);
+        log.appendEntry(1); // 1
+        log.appendEntry(1); // 2
+        log.advanceCommitIndex(1, 1);
+        log.generateSnapshot(1, Collections.emptySet());
+        Assert.assertEquals(3, log.getNextIndex());
+        Assert.assertTrue(log.entrySequence instanceof DirectMemoryEntrySequence);
+        Assert.assertEquals(2, log.entrySequence.getFirstLogIndex());
+    }
+
+    @Test
+    public void testPrepareSnapshot() {
+        MemoryLog log = new MemoryLog();
+        log.appendEntry(1); // 1
+        log.appendEntry(1); // 2
+        log.advanceCommitIndex(1, 1);
+        Supplier<Snapshot> task = log.prepareSnapshot(1, Collections.emptySet(), output -> output.write(1));
+        Assert.assertNotNull(task);
+        // log changes while generating
+        log.appendEntry(1); // 3
+        Snapshot snapshot = task.get();
+        Assert.assertEquals(1, snapshot.getLastIncludedIndex());
+        Assert.assertEquals(1, snapshot.getDataSize());
+        Assert.assertEquals(0, log.snapshot.getLastIncludedIndex());
+        log.replaceGeneratedSnapshot(snapshot);
+        Assert.assertEquals(1, log.snapshot.getLastIncludedIndex());
+        Assert.assertEquals(2, log.entrySequence.getFirstLogIndex());
+        Assert.assertEquals(4, log.getNextIndex());
+    }
+
+    @Test
+    public void testPrepareSnapshotNotNewer() {
+        MemoryLog log = new MemoryLog(
+                new MemorySnapshot(3, 4),
+                new MemoryEntrySequence(4),
+                new EventBus()
+        );
+        Assert.assertNull(log.prepareSnapshot(3, Collections.emptySet(), output -> output.write(1)));
+    }
+
+    @Test
+    public void testReplaceGeneratedSnapshotNotNewer() {
+        MemoryLog log = new MemoryLog(
+                new MemorySnapshot(3, 4),
+                new MemoryEntrySequence(4),
+                new EventBus()
+        );
+        log.appendEntry(4); // 4
+        // snapshot installed while generating
+        log.replaceGeneratedSnapshot(new MemorySnapshot(2, 1));
+        Assert.assertEquals(3, log.snapshot.getLastIncludedIndex());
+        Assert.assertEquals(4, log.entrySequence.getFirstLogIndex());
+    }
+
     @Test
     public void testInstallSnapshotLessThanLastIncludedIndex() {
         MemoryLog log = new MemoryLog(
@@ -594,6 +789,70 @@ public class MemoryLogTest {
         Assert.assertEquals(2, stateMachine.getLastApplied());
     }
 
+    @Test
+    public void testInstallSnapshotUnexpectedOffset() {
+        MemoryLog log = new MemoryLog();
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLastIndex(2);
+        rpc.setLastTerm(3);
+        rpc.setLastConfig(Collections.emptySet());
+        rpc.setData("test".getBytes());
+        rpc.setDone(false);
+        Assert.assertEquals(4, log.installSnapshot(rpc).getOffset());
+
+        // chunk lost
+        InstallSnapshotRpc rpc2 = new InstallSnapshotRpc();
+        rpc2.setLastIndex(2);
+        rpc2.setLastTerm(3);
+        rpc2.setOffset(8);
+        rpc2.setData("bar".getBytes());
+        rpc2.setDone(true);
+        InstallSnapshotState state = log.installSnapshot(rpc2);
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLING, state.getStateName());
+        Assert.assertEquals(4, state.getOffset());
+
+        // chunk of another snapshot
+        rpc2.setLastIndex(3);
+        Assert.assertEquals(0, log.installSnapshot(rpc2).getOffset());
+    }
+
+    private InstallSnapshotRpc createInstallSnapshotRpc(int offset, String data, long dataSize, boolean done) {
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLastIndex(2);
+        rpc.setLastTerm(3);
+        rpc.setLastConfig(Collections.emptySet());
+        rpc.setOffset(offset);
+        rpc.setData(data.getBytes());
+        rpc.setDataSize(dataSize);
+        rpc.setDone(done);
+        return rpc;
+    }
+
+    @Test
+    public void testInstallSnapshotResume() {
+        MemoryLog log = new MemoryLog();
+        log.setStateMachine(new EmptyStateMachine());
+        log.installSnapshot(createInstallSnapshotRpc(0, "test", 7, false));
+
+        // transfer restarted, e.g. leader changed
+        InstallSnapshotState state = log.installSnapshot(createInstallSnapshotRpc(0, "test", 7, false));
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLING, state.getStateName());
+        Assert.assertEquals(4, state.getOffset());
+        state = log.installSnapshot(createInstallSnapshotRpc(4, "foo", 7, true));
+        Assert.assertEquals(InstallSnapshotState.StateName.INSTALLED, state.getStateName());
+        Assert.assertEquals(7, log.snapshot.getDataSize());
+    }
+
+    @Test
+    public void testInstallSnapshotRestartAnotherSnapshot() {
+        MemoryLog log = new MemoryLog();
+        log.installSnapshot(createInstallSnapshotRpc(0, "test", 7, false));
+
+        // same last index and term, but different data size
+        InstallSnapshotState state = log.installSnapshot(createInstallSnapshotRpc(0, "foo", 6, false));
+        Assert.assertEquals(3, state.getOffset());
+    }
+
     @Test
     public void testInstallSnapshot2() {
         EmptyStateMachine stateMachine = new EmptyStateMachine();
@@ -33,8 +33,8 @@ public class FileEntrySequenceTest {
 
     @Test
     public void testInitialize() throws IOException {
-        entryIndexFile.appendEntryIndex(1, 0L, 1, 1);
-        entryIndexFile.appendEntryIndex(2, 20L, 1, 1);
+        appendEntryToFile(new NoOpEntry(1, 1));
+        appendEntryToFile(new NoOpEntry(2, 1));
         FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
         Assert.assertEquals(3, sequence.getNextLogIndex());
         Assert.assertEquals(1, sequence.getFirstLogIndex());
@@ -42,6 +42,84 @@ public class FileEntrySequenceTest {
         Assert.assertEquals(2, sequence.getCommitIndex());
     }
 
+    @Test
+    public void testRecoverTornRecord() throws IOException {
+        appendEntryToFile(new GeneralEntry(1, 1, "a".getBytes()));
+        long offset = entriesFile.appendEntry(new GeneralEntry(2, 1, "b".getBytes()));
+        entryIndexFile.appendEntryIndex(2, offset, Entry.KIND_GENERAL, 1);
+        entriesFile.truncate(entriesFile.size() - 1);
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        Assert.assertEquals(1, sequence.getLastLogIndex());
+        Assert.assertEquals(1, entryIndexFile.getMaxEntryIndex());
+        Assert.assertEquals(offset, entriesFile.size());
+    }
+
+    @Test
+    public void testRecoverCorruptedRecord() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        entriesFile = new EntriesFile(seekableFile);
+        appendEntryToFile(new GeneralEntry(1, 1, "a".getBytes()));
+        appendEntryToFile(new GeneralEntry(2, 1, "b".getBytes()));
+        seekableFile.seek(seekableFile.size() - 1);
+        seekableFile.write("c".getBytes());
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        Assert.assertEquals(1, sequence.getLastLogIndex());
+        Assert.assertArrayEquals("a".getBytes(), sequence.getEntry(1).getCommandBytes());
+    }
+
+    @Test
+    public void testRecoverIndexTail() throws IOException {
+        appendEntryToFile(new NoOpEntry(1, 1));
+        entriesFile.appendEntry(new GeneralEntry(2, 1, "b".getBytes()));
+        entriesFile.appendEntry(new GeneralEntry(3, 1, "c".getBytes()));
+        entriesFile.appendEntry(new GeneralEntry(5, 1, "e".getBytes())); // not next
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        Assert.assertEquals(3, sequence.getLastLogIndex());
+        Assert.assertEquals(3, sequence.getCommitIndex());
+        Assert.assertEquals(3, entryIndexFile.getMaxEntryIndex());
+        Assert.assertArrayEquals("c".getBytes(), sequence.getEntry(3).getCommandBytes());
+        sequence.append(new NoOpEntry(4, 1));
+        sequence.commit(4);
+        Assert.assertEquals(Entry.KIND_NO_OP, sequence.getEntry(4).getKind());
+    }
+
+    @Test
+    public void testRecoverPreallocated() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        entriesFile = new EntriesFile(seekableFile, 1024);
+        appendEntryToFile(new NoOpEntry(1, 1));
+        appendEntryToFile(new GeneralEntry(2, 1, "b".getBytes()));
+        long size = entriesFile.size();
+
+        // reopen without close, zeros after data are counted until recovery
+        entriesFile = new EntriesFile(seekableFile, 1024);
+        Assert.assertEquals(1024L, entriesFile.size());
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        Assert.assertEquals(2, sequence.getLastLogIndex());
+        Assert.assertEquals(size, entriesFile.size());
+        sequence.append(new NoOpEntry(3, 1));
+        sequence.commit(3);
+        Assert.assertEquals(Entry.KIND_NO_OP, sequence.getEntry(3).getKind());
+    }
+
+    @Test
+    public void testRecoverEmptyIndex() throws IOException {
+        entriesFile.appendEntry(new NoOpEntry(5, 1));
+        entriesFile.appendEntry(new NoOpEntry(6, 1));
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 5);
+        Assert.assertEquals(5, sequence.getFirstLogIndex());
+        Assert.assertEquals(6, sequence.getLastLogIndex());
+    }
+
+    @Test
+    public void testRecoverIndexLost() throws IOException {
+        appendEntryToFile(new NoOpEntry(1, 1));
+        entryIndexFile.appendEntryIndex(2, entriesFile.size(), Entry.KIND_NO_OP, 1); // entry not written
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        Assert.assertEquals(1, sequence.getLastLogIndex());
+        Assert.assertEquals(1, entryIndexFile.getMaxEntryIndex());
+    }
+
     @Test
     public void testBuildGroupConfigEntryListFromFile() throws IOException {
         appendEntryToFile(new NoOpEntry(1, 1));
@@ -256,10 +334,34 @@ public class FileEntrySequenceTest {
         Assert.assertEquals(1, sequence.getLastEntry().getIndex());
     }
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test
     public void testCommitBeforeCommitIndex() {
         FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
-        sequence.commit(-1);
+        sequence.append(new NoOpEntry(1, 1));
+        sequence.append(new NoOpEntry(2, 1));
+        sequence.write(2);
+        sequence.commit(1); // written already
+        Assert.assertEquals(2, sequence.getCommitIndex());
+    }
+
+    @Test
+    public void testWrite() {
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        sequence.append(new NoOpEntry(1, 1));
+        sequence.append(new NoOpEntry(2, 1));
+        sequence.append(new NoOpEntry(3, 1));
+        WrittenEntries writtenEntries = sequence.write(2);
+        Assert.assertEquals(2, writtenEntries.getLastIndex());
+        Assert.assertEquals(2, entryIndexFile.getMaxEntryIndex());
+        Assert.assertEquals(2, sequence.getCommitIndex());
+
+        // nothing to write
+        Assert.assertEquals(2, sequence.write(1).getLastIndex());
+
+        // written entries are removable
+        sequence.removeAfter(1);
+        Assert.assertEquals(1, entryIndexFile.getMaxEntryIndex());
+        Assert.assertEquals(2, sequence.getNextLogIndex());
     }
 
     @Test
@@ -307,6 +409,35 @@ public class FileEntrySequenceTest {
         Assert.assertEquals(2, entryIndexFile.getMaxEntryIndex());
     }
 
+    @Test
+    public void testManyPendingEntries() {
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        for (int i = 1; i <= 100; i++) {
+            sequence.append(new NoOpEntry(i, 1));
+        }
+        sequence.commit(40);
+        Assert.assertEquals(40, entryIndexFile.getMaxEntryIndex());
+        Assert.assertEquals(70, sequence.getEntry(70).getIndex());
+        Assert.assertEquals(30, sequence.subList(35, 65).size());
+        sequence.removeAfter(80);
+        Assert.assertEquals(80, sequence.getLastLogIndex());
+        sequence.append(new NoOpEntry(81, 2));
+        Assert.assertEquals(2, sequence.getEntry(81).getTerm());
+    }
+
+    @Test
+    public void testGetEntryInCache() {
+        FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
+        sequence.append(new NoOpEntry(1, 1));
+        sequence.append(new NoOpEntry(2, 1));
+        sequence.commit(2);
+        Assert.assertEquals(2, sequence.getEntryCache().getEntryCount());
+        Assert.assertEquals(1, sequence.getEntry(1).getIndex());
+        Assert.assertEquals(1L, sequence.getEntryCache().getHitCount());
+        sequence.removeAfter(1);
+        Assert.assertEquals(1, sequence.getEntryCache().getEntryCount());
+    }
+
     @Test
     public void testRemoveAfterEmpty() {
         FileEntrySequence sequence = new FileEntrySequence(entriesFile, entryIndexFile, 1);
@@ -342,7 +473,7 @@ public class FileEntrySequenceTest {
         Assert.assertEquals(1, sequence.getLastLogIndex());
         sequence.removeAfter(0);
         Assert.assertTrue(sequence.isEmpty());
-        Assert.assertEquals(0L, entriesFile.size());
+        Assert.assertEquals(entriesFile.getDataStart(), entriesFile.size());
         Assert.assertTrue(entryIndexFile.isEmpty());
     }
 
@@ -356,7 +487,7 @@ public class FileEntrySequenceTest {
         Assert.assertEquals(2, sequence.getLastLogIndex());
         sequence.removeAfter(0);
         Assert.assertTrue(sequence.isEmpty());
-        Assert.assertEquals(0L, entriesFile.size());
+        Assert.assertEquals(entriesFile.getDataStart(), entriesFile.size());
         Assert.assertTrue(entryIndexFile.isEmpty());
     }
 
@@ -0,0 +1,34 @@
+package in.xnnyygn.xraft.core.log.entry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class GeneralEntryTest {
+
+    @Test
+    public void testCommandBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap("xtestx".getBytes());
+        buffer.position(1).limit(5);
+        GeneralEntry entry = new GeneralEntry(1, 1, buffer);
+        Assert.assertEquals(4, entry.getCommandLength());
+        Assert.assertArrayEquals("test".getBytes(), entry.getCommandBytes());
+
+        ByteBuffer commandBuffer = entry.getCommandBuffer();
+        Assert.assertTrue(commandBuffer.isReadOnly());
+        Assert.assertEquals(4, commandBuffer.remaining());
+        // consuming returned buffer does not affect entry
+        commandBuffer.get(new byte[4]);
+        Assert.assertEquals(4, entry.getCommandBuffer().remaining());
+    }
+
+    @Test
+    public void testCreateFromBuffer() {
+        EntryFactory factory = new EntryFactory();
+        Entry entry = factory.create(Entry.KIND_GENERAL, 2, 1, ByteBuffer.wrap("test".getBytes()));
+        Assert.assertEquals(2, entry.getIndex());
+        Assert.assertArrayEquals("test".getBytes(), entry.getCommandBytes());
+    }
+
+}
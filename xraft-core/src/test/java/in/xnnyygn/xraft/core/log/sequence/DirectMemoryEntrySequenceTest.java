@@ -0,0 +1,110 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.*;
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DirectMemoryEntrySequenceTest {
+
+    @Test
+    public void testAppendAndGetEntry() {
+        DirectMemoryEntrySequence sequence = new DirectMemoryEntrySequence(2, 64);
+        sequence.append(Arrays.asList(
+                new NoOpEntry(2, 1),
+                new GeneralEntry(3, 1, "test".getBytes())
+        ));
+        Assert.assertNull(sequence.getEntry(1));
+        Assert.assertEquals(Entry.KIND_NO_OP, sequence.getEntry(2).getKind());
+        Entry entry = sequence.getEntry(3);
+        Assert.assertEquals(3, entry.getIndex());
+        Assert.assertEquals(1, entry.getTerm());
+        Assert.assertArrayEquals("test".getBytes(), entry.getCommandBytes());
+        Assert.assertNull(sequence.getEntry(4));
+
+        EntryMeta meta = sequence.getEntryMeta(3);
+        Assert.assertEquals(Entry.KIND_GENERAL, meta.getKind());
+        Assert.assertEquals(3, meta.getIndex());
+        Assert.assertEquals(1, meta.getTerm());
+    }
+
+    @Test
+    public void testAppendManyChunks() {
+        DirectMemoryEntrySequence sequence = new DirectMemoryEntrySequence(1, 64);
+        for (int i = 1; i <= 100; i++) {
+            sequence.append(new GeneralEntry(i, i, String.valueOf(i).getBytes()));
+        }
+        // larger than chunk
+        sequence.append(new GeneralEntry(101, 101, new byte[100]));
+        Assert.assertEquals(101, sequence.getLastLogIndex());
+        List<Entry> entries = sequence.subList(50, 101);
+        Assert.assertEquals(51, entries.size());
+        Assert.assertEquals(50, entries.get(0).getTerm());
+        Assert.assertArrayEquals("100".getBytes(), entries.get(50).getCommandBytes());
+        Assert.assertEquals(100, sequence.getEntry(101).getCommandBytes().length);
+    }
+
+    @Test
+    public void testRemoveAfter() {
+        DirectMemoryEntrySequence sequence = new DirectMemoryEntrySequence(2, 64);
+        sequence.append(Arrays.asList(
+                new GeneralEntry(2, 1, "a".getBytes()),
+                new GeneralEntry(3, 1, "b".getBytes())
+        ));
+        Entry entry = sequence.getEntry(3);
+        sequence.removeAfter(2);
+        Assert.assertEquals(2, sequence.getLastLogIndex());
+        sequence.append(new GeneralEntry(3, 2, "c".getBytes()));
+        Assert.assertArrayEquals("c".getBytes(), sequence.getEntry(3).getCommandBytes());
+        // space of removed entry is not reused
+        Assert.assertArrayEquals("b".getBytes(), entry.getCommandBytes());
+
+        sequence.removeAfter(1);
+        Assert.assertTrue(sequence.isEmpty());
+        sequence.append(new NoOpEntry(2, 3));
+        Assert.assertEquals(3, sequence.getEntry(2).getTerm());
+    }
+
+    @Test
+    public void testRemoveBefore() {
+        DirectMemoryEntrySequence sequence = new DirectMemoryEntrySequence(1, 64);
+        for (int i = 1; i <= 40; i++) {
+            sequence.append(new GeneralEntry(i, 1, String.valueOf(i).getBytes()));
+        }
+        sequence.removeBefore(31);
+        Assert.assertEquals(31, sequence.getFirstLogIndex());
+        Assert.assertEquals(40, sequence.getLastLogIndex());
+        Assert.assertNull(sequence.getEntry(30));
+        Assert.assertArrayEquals("31".getBytes(), sequence.getEntry(31).getCommandBytes());
+        for (int i = 41; i <= 100; i++) {
+            sequence.append(new GeneralEntry(i, 1, String.valueOf(i).getBytes()));
+        }
+        Assert.assertArrayEquals("100".getBytes(), sequence.getEntry(100).getCommandBytes());
+        Assert.assertArrayEquals("31".getBytes(), sequence.getEntry(31).getCommandBytes());
+
+        sequence.removeBefore(201);
+        Assert.assertTrue(sequence.isEmpty());
+        Assert.assertEquals(201, sequence.getNextLogIndex());
+        sequence.append(new NoOpEntry(201, 2));
+        Assert.assertEquals(201, sequence.getFirstLogIndex());
+    }
+
+    @Test
+    public void testBuildGroupConfigEntryList() {
+        DirectMemoryEntrySequence sequence = new DirectMemoryEntrySequence(1, 64);
+        sequence.append(new AddNodeEntry(1, 1, Collections.emptySet(), new NodeEndpoint("A", "localhost", 2333)));
+        sequence.append(new NoOpEntry(2, 1));
+        sequence.append(new AddNodeEntry(3, 1, Collections.emptySet(), new NodeEndpoint("B", "localhost", 2334)));
+        Assert.assertEquals(Entry.KIND_ADD_NODE, sequence.getEntry(3).getKind());
+        sequence.removeBefore(2);
+        GroupConfigEntryList list = sequence.buildGroupConfigEntryList();
+        Assert.assertEquals(3, list.getLast().getIndex());
+        sequence.removeAfter(2);
+        Assert.assertNull(sequence.buildGroupConfigEntryList().getLast());
+    }
+
+}
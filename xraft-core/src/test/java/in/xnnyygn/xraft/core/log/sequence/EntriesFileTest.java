@@ -8,7 +8,11 @@ import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -18,48 +22,227 @@ public class EntriesFileTest {
     public void testAppendEntry() throws IOException {
         ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
         EntriesFile file = new EntriesFile(seekableFile);
-        Assert.assertEquals(0L, file.appendEntry(new NoOpEntry(2, 3)));
+        Assert.assertEquals(EntriesFile.VERSION_2, file.getVersion());
+        Assert.assertEquals(8L, file.appendEntry(new NoOpEntry(2, 3)));
 
-        seekableFile.seek(0);
+        seekableFile.seek(8L);
         Assert.assertEquals(Entry.KIND_NO_OP, seekableFile.readInt());
         Assert.assertEquals(2, seekableFile.readInt()); // index
         Assert.assertEquals(3, seekableFile.readInt()); // term
         Assert.assertEquals(0, seekableFile.readInt()); // command bytes length
 
         byte[] commandBytes = "test".getBytes();
-        Assert.assertEquals(16L, file.appendEntry(new GeneralEntry(3, 3, commandBytes)));
-        seekableFile.seek(16L);
+        Assert.assertEquals(28L, file.appendEntry(new GeneralEntry(3, 3, commandBytes)));
+        seekableFile.seek(28L);
         Assert.assertEquals(Entry.KIND_GENERAL, seekableFile.readInt());
         Assert.assertEquals(3, seekableFile.readInt()); // index
         Assert.assertEquals(3, seekableFile.readInt()); // term
         Assert.assertEquals(4, seekableFile.readInt()); // command bytes length
+        seekableFile.readInt(); // checksum
         byte[] buffer = new byte[4];
         seekableFile.read(buffer);
         Assert.assertArrayEquals(commandBytes, buffer);
     }
 
+    @Test
+    public void testAppendEntries() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        EntriesFile file = new EntriesFile(seekableFile);
+        Assert.assertEquals(8L, file.appendEntry(new NoOpEntry(1, 3)));
+        long[] offsets = file.appendEntries(Arrays.asList(
+                new NoOpEntry(2, 3),
+                new GeneralEntry(3, 3, "test".getBytes()),
+                new GeneralEntry(4, 3, "foo".getBytes())
+        ));
+        Assert.assertArrayEquals(new long[]{28L, 48L, 72L}, offsets);
+        Assert.assertEquals(95L, file.size());
+
+        Entry entry = file.loadEntry(72L, new EntryFactory());
+        Assert.assertEquals(4, entry.getIndex());
+        Assert.assertArrayEquals("foo".getBytes(), entry.getCommandBytes());
+    }
+
     @Test
     public void testLoadEntry() throws IOException {
         ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
         EntriesFile file = new EntriesFile(seekableFile);
-        Assert.assertEquals(0L, file.appendEntry(new NoOpEntry(2, 3)));
-        Assert.assertEquals(16L, file.appendEntry(new GeneralEntry(3, 3, "test".getBytes())));
-        Assert.assertEquals(36L, file.appendEntry(new GeneralEntry(4, 3, "foo".getBytes())));
+        Assert.assertEquals(8L, file.appendEntry(new NoOpEntry(2, 3)));
+        Assert.assertEquals(28L, file.appendEntry(new GeneralEntry(3, 3, "test".getBytes())));
+        Assert.assertEquals(52L, file.appendEntry(new GeneralEntry(4, 3, "foo".getBytes())));
 
         EntryFactory factory = new EntryFactory();
 
-        Entry entry = file.loadEntry(0L, factory);
+        Entry entry = file.loadEntry(8L, factory);
         Assert.assertEquals(Entry.KIND_NO_OP, entry.getKind());
         Assert.assertEquals(2, entry.getIndex());
         Assert.assertEquals(3, entry.getTerm());
 
-        entry = file.loadEntry(36L, factory);
+        entry = file.loadEntry(52L, factory);
         Assert.assertEquals(Entry.KIND_GENERAL, entry.getKind());
         Assert.assertEquals(4, entry.getIndex());
         Assert.assertEquals(3, entry.getTerm());
         Assert.assertArrayEquals("foo".getBytes(), entry.getCommandBytes());
     }
 
+    @Test
+    public void testLoadEntryVersion1() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        seekableFile.writeInt(Entry.KIND_GENERAL);
+        seekableFile.writeInt(1); // index
+        seekableFile.writeInt(2); // term
+        seekableFile.writeInt(3); // command bytes length
+        seekableFile.write("foo".getBytes());
+        EntriesFile file = new EntriesFile(seekableFile);
+        Assert.assertEquals(EntriesFile.VERSION_1, file.getVersion());
+        Assert.assertEquals(0L, file.getDataStart());
+
+        Entry entry = file.loadEntry(0L, new EntryFactory());
+        Assert.assertEquals(1, entry.getIndex());
+        Assert.assertArrayEquals("foo".getBytes(), entry.getCommandBytes());
+        Assert.assertEquals(19L, file.appendEntry(new NoOpEntry(2, 2)));
+        Assert.assertEquals(2, file.loadEntries(0L, 20L, new EntryFactory()).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadEntryChecksumMismatch() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        EntriesFile file = new EntriesFile(seekableFile);
+        file.appendEntry(new GeneralEntry(1, 1, "foo".getBytes()));
+        seekableFile.seek(28L);
+        seekableFile.write("b".getBytes());
+        file.loadEntry(8L, new EntryFactory());
+    }
+
+    @Test
+    public void testReadRecord() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        file.appendEntry(new GeneralEntry(1, 1, "foo".getBytes()));
+        EntriesFile.Record record = file.readRecord(8L, new EntryFactory());
+        Assert.assertNotNull(record);
+        Assert.assertEquals(1, record.getEntry().getIndex());
+        Assert.assertEquals(31L, record.getEnd());
+        Assert.assertNull(file.readRecord(31L, new EntryFactory()));
+        file.truncate(30L);
+        Assert.assertNull(file.readRecord(8L, new EntryFactory()));
+    }
+
+    @Test
+    public void testLoadEntries() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        file.appendEntry(new NoOpEntry(2, 3));
+        file.appendEntry(new GeneralEntry(3, 3, "test".getBytes()));
+        file.appendEntry(new GeneralEntry(4, 3, "foo".getBytes()));
+
+        EntryFactory factory = new EntryFactory();
+        List<Entry> entries = file.loadEntries(8L, 52L, factory);
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(2, entries.get(0).getIndex());
+        Assert.assertArrayEquals("test".getBytes(), entries.get(1).getCommandBytes());
+
+        // last entry starts in range and ends after range
+        entries = file.loadEntries(28L, 53L, factory);
+        Assert.assertEquals(2, entries.size());
+        Assert.assertArrayEquals("foo".getBytes(), entries.get(1).getCommandBytes());
+
+        Assert.assertTrue(file.loadEntries(52L, 52L, factory).isEmpty());
+    }
+
+    @Test
+    public void testLoadEntriesLargerThanBuffer() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        byte[] commandBytes = new byte[1000];
+        for (int i = 1; i <= 200; i++) {
+            commandBytes[0] = (byte) i;
+            file.appendEntry(new GeneralEntry(i, 1, commandBytes));
+        }
+        file.appendEntry(new GeneralEntry(201, 1, new byte[100 * 1024]));
+        List<Entry> entries = file.loadEntries(8L, file.size(), new EntryFactory());
+        Assert.assertEquals(201, entries.size());
+        for (int i = 1; i <= 200; i++) {
+            Entry entry = entries.get(i - 1);
+            Assert.assertEquals(i, entry.getIndex());
+            Assert.assertEquals((byte) i, entry.getCommandBytes()[0]);
+        }
+        Assert.assertEquals(100 * 1024, entries.get(200).getCommandBytes().length);
+    }
+
+    @Test
+    public void testLoadEntriesLargeCommandInMiddle() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        byte[] largeCommandBytes = new byte[200 * 1024];
+        largeCommandBytes[largeCommandBytes.length - 1] = 1;
+        file.appendEntry(new GeneralEntry(1, 1, "foo".getBytes()));
+        file.appendEntry(new GeneralEntry(2, 1, ByteBuffer.wrap(largeCommandBytes)));
+        file.appendEntry(new GeneralEntry(3, 1, "bar".getBytes()));
+        List<Entry> entries = file.loadEntries(8L, file.size(), new EntryFactory());
+        Assert.assertEquals(3, entries.size());
+        Assert.assertArrayEquals(largeCommandBytes, entries.get(1).getCommandBytes());
+        Assert.assertArrayEquals("bar".getBytes(), entries.get(2).getCommandBytes());
+    }
+
+    @Test
+    public void testLoadEntriesAcrossChunks() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        // header of entry 2 across the end of first chunk of 1MB
+        byte[] commandBytes = new byte[1024 * 1024 - 30];
+        commandBytes[commandBytes.length - 1] = 1;
+        file.appendEntry(new GeneralEntry(1, 1, commandBytes));
+        file.appendEntry(new GeneralEntry(2, 1, "foo".getBytes()));
+        file.appendEntry(new GeneralEntry(3, 1, "bar".getBytes()));
+        List<Entry> entries = file.loadEntries(8L, file.size(), new EntryFactory());
+        Assert.assertEquals(3, entries.size());
+        Assert.assertArrayEquals(commandBytes, entries.get(0).getCommandBytes());
+        Assert.assertArrayEquals("foo".getBytes(), entries.get(1).getCommandBytes());
+        Assert.assertArrayEquals("bar".getBytes(), entries.get(2).getCommandBytes());
+    }
+
+    @Test
+    public void testTransferTo() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        file.appendEntry(new GeneralEntry(1, 1, "foo".getBytes()));
+        long offset = file.appendEntry(new GeneralEntry(2, 1, "bar".getBytes()));
+        file.appendEntry(new GeneralEntry(3, 1, new byte[100 * 1024]));
+
+        EntriesFile target = new EntriesFile(new ByteArraySeekableFile(), 64);
+        Assert.assertEquals(8L, file.transferTo(offset, target));
+        Assert.assertEquals(file.size() - offset + 8L, target.size());
+        List<Entry> entries = target.loadEntries(8L, target.size(), new EntryFactory());
+        Assert.assertEquals(2, entries.size());
+        Assert.assertArrayEquals("bar".getBytes(), entries.get(0).getCommandBytes());
+        Assert.assertEquals(100 * 1024, entries.get(1).getCommandBytes().length);
+        Assert.assertEquals(target.size(), target.appendEntry(new NoOpEntry(4, 1)));
+    }
+
+    @Test
+    public void testPreallocate() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        EntriesFile file = new EntriesFile(seekableFile, 64);
+        Assert.assertEquals(8L, file.appendEntry(new GeneralEntry(1, 1, "test".getBytes())));
+        Assert.assertEquals(32L, file.size());
+        Assert.assertEquals(64L, seekableFile.size());
+        Assert.assertEquals(32L, file.appendEntry(new GeneralEntry(2, 1, new byte[40])));
+        Assert.assertEquals(92L, file.size());
+        Assert.assertEquals(128L, seekableFile.size());
+        // zeros after data are not a record
+        Assert.assertNull(file.readRecord(92L, new EntryFactory()));
+        Assert.assertEquals(2, file.loadEntries(8L, 92L, new EntryFactory()).size());
+
+        file.truncate(32L);
+        Assert.assertEquals(32L, seekableFile.size());
+        Assert.assertEquals(32L, file.appendEntry(new GeneralEntry(2, 1, "foo".getBytes())));
+        Assert.assertEquals(64L, seekableFile.size());
+        file.close();
+        Assert.assertEquals(55L, seekableFile.size());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testLoadEntriesTruncated() throws IOException {
+        EntriesFile file = new EntriesFile(new ByteArraySeekableFile());
+        file.appendEntry(new GeneralEntry(1, 1, "test".getBytes()));
+        file.truncate(18L);
+        file.loadEntries(8L, 18L, new EntryFactory());
+    }
+
     @Test
     public void testTruncate() throws IOException {
         ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
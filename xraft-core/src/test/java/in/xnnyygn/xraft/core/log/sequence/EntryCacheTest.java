@@ -0,0 +1,64 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
+import in.xnnyygn.xraft.core.log.entry.NoOpEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntryCacheTest {
+
+    @Test
+    public void testGet() {
+        EntryCache cache = new EntryCache(1024);
+        cache.add(new NoOpEntry(1, 1));
+        cache.add(new NoOpEntry(2, 1));
+        Assert.assertEquals(2, cache.get(2).getIndex());
+        Assert.assertNull(cache.get(3));
+        Assert.assertEquals(1L, cache.getHitCount());
+        Assert.assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvict() {
+        EntryCache cache = new EntryCache(200); // 64 bytes overhead + 36 bytes command
+        for (int i = 1; i <= 4; i++) {
+            cache.add(new GeneralEntry(i, 1, new byte[36]));
+        }
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals(200L, cache.getBytes());
+        Assert.assertNull(cache.get(2));
+        Assert.assertNotNull(cache.get(3));
+    }
+
+    @Test
+    public void testDisabled() {
+        EntryCache cache = new EntryCache(0);
+        cache.add(new NoOpEntry(1, 1));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testAddNotNext() {
+        EntryCache cache = new EntryCache(1024);
+        cache.add(new NoOpEntry(1, 1));
+        cache.add(new NoOpEntry(5, 1));
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertNotNull(cache.get(5));
+    }
+
+    @Test
+    public void testRemoveAfter() {
+        EntryCache cache = new EntryCache(1024);
+        for (int i = 1; i <= 4; i++) {
+            cache.add(new NoOpEntry(i, 1));
+        }
+        cache.removeAfter(2);
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals(128L, cache.getBytes());
+        Assert.assertNull(cache.get(3));
+        cache.add(new NoOpEntry(3, 2));
+        Assert.assertEquals(2, cache.get(3).getTerm());
+    }
+
+}
@@ -1,10 +1,16 @@
 package in.xnnyygn.xraft.core.log.sequence;
 
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.EntryMeta;
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
+import in.xnnyygn.xraft.core.log.entry.NoOpEntry;
 import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Map;
@@ -40,6 +46,63 @@ public class EntryIndexFileTest {
         Assert.assertEquals(4, item.getTerm());
     }
 
+    @Test
+    public void testLoadLarge() throws IOException {
+        // more items than one bulk read
+        ByteArraySeekableFile seekableFile = makeEntryIndexFileContent(1, 10000);
+
+        EntryIndexFile file = new EntryIndexFile(seekableFile);
+        Assert.assertEquals(10000, file.getEntryIndexCount());
+        Assert.assertEquals(10L, file.getOffset(1));
+        Assert.assertEquals(50000L, file.getOffset(5000));
+        Assert.assertEquals(100000L, file.getOffset(10000));
+        Assert.assertEquals(10000, file.getTerm(10000));
+    }
+
+    @Test
+    public void testLoadTornItem() throws IOException {
+        ByteArraySeekableFile seekableFile = makeEntryIndexFileContent(3, 5);
+        seekableFile.truncate(seekableFile.size() - 4);
+        EntryIndexFile file = new EntryIndexFile(seekableFile);
+        Assert.assertEquals(4, file.getMaxEntryIndex());
+        Assert.assertEquals(40L, seekableFile.size());
+        seekableFile.seek(4L);
+        Assert.assertEquals(4, seekableFile.readInt());
+    }
+
+    @Test
+    public void testLoadItemsAfterMaxEntryIndex() throws IOException {
+        ByteArraySeekableFile seekableFile = makeEntryIndexFileContent(3, 5);
+        seekableFile.seek(4L);
+        seekableFile.writeInt(4); // max entry index not updated
+        EntryIndexFile file = new EntryIndexFile(seekableFile);
+        Assert.assertEquals(4, file.getMaxEntryIndex());
+        Assert.assertEquals(40L, seekableFile.size());
+    }
+
+    @Test
+    public void testLoadTornHeader() throws IOException {
+        EntryIndexFile file = new EntryIndexFile(new ByteArraySeekableFile(new byte[6]));
+        Assert.assertTrue(file.isEmpty());
+    }
+
+    @Test
+    public void testGetEntryMeta() throws IOException {
+        EntryIndexFile file = new EntryIndexFile(makeEntryIndexFileContent(3, 4));
+        EntryMeta meta = file.getEntryMeta(4);
+        Assert.assertEquals(1, meta.getKind());
+        Assert.assertEquals(4, meta.getIndex());
+        Assert.assertEquals(4, meta.getTerm());
+        Assert.assertEquals(1, file.getKind(3));
+        Assert.assertEquals(3, file.getTerm(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetOffsetGreaterThanMax() throws IOException {
+        EntryIndexFile file = new EntryIndexFile(makeEntryIndexFileContent(3, 4));
+        file.getOffset(5);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testGetMinEntryIndexEmpty() throws IOException {
         EntryIndexFile file = new EntryIndexFile(new ByteArraySeekableFile());
@@ -84,6 +147,43 @@ public class EntryIndexFileTest {
         Assert.assertEquals(2, seekableFile.readInt()); // term
     }
 
+    @Test
+    public void testAppendEntryIndexes() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        EntryIndexFile file = new EntryIndexFile(seekableFile);
+
+        // append when empty
+        file.appendEntryIndexes(Arrays.asList(new NoOpEntry(10, 2), new GeneralEntry(11, 2, new byte[0])), new long[]{100L, 200L});
+        Assert.assertEquals(10, file.getMinEntryIndex());
+        Assert.assertEquals(11, file.getMaxEntryIndex());
+        Assert.assertEquals(200L, file.getOffset(11));
+
+        // append when not empty
+        file.appendEntryIndexes(Collections.singletonList(new GeneralEntry(12, 3, new byte[0])), new long[]{300L});
+        Assert.assertEquals(12, file.getMaxEntryIndex());
+        Assert.assertEquals(3, file.getEntryIndexCount());
+
+        // same content as appending one by one
+        seekableFile.seek(0L);
+        Assert.assertEquals(10, seekableFile.readInt()); // min entry index
+        Assert.assertEquals(12, seekableFile.readInt()); // max entry index
+        seekableFile.seek(40L); // skip min/max and two entry indexes
+        Assert.assertEquals(300L, seekableFile.readLong()); // offset
+        Assert.assertEquals(Entry.KIND_GENERAL, seekableFile.readInt()); // kind
+        Assert.assertEquals(3, seekableFile.readInt()); // term
+
+        seekableFile.seek(0L);
+        EntryIndexFile reloaded = new EntryIndexFile(seekableFile);
+        Assert.assertEquals(3, reloaded.getEntryIndexCount());
+        Assert.assertEquals(100L, reloaded.getOffset(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendEntryIndexesIllegalIndex() throws IOException {
+        EntryIndexFile file = new EntryIndexFile(makeEntryIndexFileContent(3, 4));
+        file.appendEntryIndexes(Collections.singletonList(new NoOpEntry(6, 1)), new long[]{60L});
+    }
+
     private ByteArraySeekableFile makeEntryIndexFileContent(int minEntryIndex, int maxEntryIndex) throws IOException {
         ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
         seekableFile.writeInt(minEntryIndex);
@@ -140,6 +240,16 @@ public class EntryIndexFileTest {
         Assert.assertEquals(1, file.getEntryIndexCount());
     }
 
+    @Test
+    public void testAppendAfterRemoveAfter() throws IOException {
+        EntryIndexFile file = new EntryIndexFile(makeEntryIndexFileContent(5, 6));
+        file.removeAfter(5);
+        file.appendEntryIndex(6, 600L, 1, 7);
+        Assert.assertEquals(6, file.getMaxEntryIndex());
+        Assert.assertEquals(600L, file.getOffset(6));
+        Assert.assertEquals(7, file.getTerm(6));
+    }
+
     @Test
     public void testRemoveAfterAll() throws IOException {
         ByteArraySeekableFile seekableFile = makeEntryIndexFileContent(5, 6);
@@ -203,4 +313,41 @@ public class EntryIndexFileTest {
         iterator.next();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testAppendEntryIndexesFromSource() throws IOException {
+        EntryIndexFile source = new EntryIndexFile(new ByteArraySeekableFile());
+        for (int i = 1; i <= 5000; i++) {
+            source.appendEntryIndex(i, i * 10L, Entry.KIND_GENERAL, i);
+        }
+        EntryIndexFile file = new EntryIndexFile(new ByteArraySeekableFile());
+        file.appendEntryIndexes(source, 3, -20L);
+        Assert.assertEquals(3, file.getMinEntryIndex());
+        Assert.assertEquals(5000, file.getMaxEntryIndex());
+        Assert.assertEquals(10L, file.getOffset(3));
+        Assert.assertEquals(49980L, file.getOffset(5000));
+        Assert.assertEquals(4100, file.getTerm(4100));
+        file.appendEntryIndex(5001, 50000L, Entry.KIND_NO_OP, 1);
+        Assert.assertEquals(4999, file.getEntryIndexCount());
+    }
+
+    @Test
+    public void testPreallocate() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        EntryIndexFile file = new EntryIndexFile(seekableFile, 64);
+        file.appendEntryIndex(3, 0L, Entry.KIND_NO_OP, 1);
+        file.appendEntryIndexes(Arrays.asList(new NoOpEntry(4, 1), new NoOpEntry(5, 1)), new long[]{20L, 40L});
+        Assert.assertEquals(64L, seekableFile.size());
+
+        // not closed, max entry index in header is respected
+        file = new EntryIndexFile(seekableFile, 64);
+        Assert.assertEquals(3, file.getEntryIndexCount());
+        Assert.assertEquals(5, file.getMaxEntryIndex());
+        Assert.assertEquals(40L, file.getOffset(5));
+        Assert.assertEquals(56L, seekableFile.size());
+        file.appendEntryIndex(6, 60L, Entry.KIND_NO_OP, 1);
+        Assert.assertEquals(128L, seekableFile.size());
+        file.close();
+        Assert.assertEquals(72L, seekableFile.size());
+    }
+
+}
@@ -0,0 +1,80 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.NoOpEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntryRingBufferTest {
+
+    @Test
+    public void testAddAndGet() {
+        EntryRingBuffer buffer = new EntryRingBuffer(2);
+        for (int i = 5; i < 10; i++) {
+            buffer.add(new NoOpEntry(i, 1));
+        }
+        Assert.assertEquals(5, buffer.size());
+        Assert.assertEquals(5, buffer.getFirstIndex());
+        Assert.assertEquals(9, buffer.getLastIndex());
+        Assert.assertEquals(7, buffer.get(7).getIndex());
+        Assert.assertNull(buffer.get(4));
+        Assert.assertNull(buffer.get(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddIllegalIndex() {
+        EntryRingBuffer buffer = new EntryRingBuffer();
+        buffer.add(new NoOpEntry(1, 1));
+        buffer.add(new NoOpEntry(3, 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetFirstIndexEmpty() {
+        new EntryRingBuffer().getFirstIndex();
+    }
+
+    @Test
+    public void testRemoveFirstWrapAround() {
+        EntryRingBuffer buffer = new EntryRingBuffer(4);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(new NoOpEntry(i, 1));
+        }
+        Assert.assertEquals(1, buffer.removeFirst().getIndex());
+        Assert.assertEquals(2, buffer.removeFirst().getIndex());
+        buffer.add(new NoOpEntry(5, 1));
+        buffer.add(new NoOpEntry(6, 1)); // wrap around
+        buffer.add(new NoOpEntry(7, 1)); // grow
+        Assert.assertEquals(5, buffer.size());
+        for (int i = 3; i <= 7; i++) {
+            Assert.assertEquals(i, buffer.get(i).getIndex());
+        }
+        Assert.assertEquals(3, buffer.getFirst().getIndex());
+        Assert.assertEquals(7, buffer.getLast().getIndex());
+    }
+
+    @Test
+    public void testRemoveAfter() {
+        EntryRingBuffer buffer = new EntryRingBuffer();
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(new NoOpEntry(i, 1));
+        }
+        buffer.removeAfter(3);
+        Assert.assertEquals(3, buffer.getLastIndex());
+        buffer.removeAfter(10);
+        Assert.assertEquals(3, buffer.size());
+        buffer.add(new NoOpEntry(4, 2));
+        Assert.assertEquals(2, buffer.get(4).getTerm());
+        buffer.removeAfter(0);
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        EntryRingBuffer buffer = new EntryRingBuffer();
+        buffer.add(new NoOpEntry(1, 1));
+        buffer.clear();
+        Assert.assertTrue(buffer.isEmpty());
+        buffer.add(new NoOpEntry(10, 1));
+        Assert.assertEquals(10, buffer.getFirstIndex());
+    }
+
+}
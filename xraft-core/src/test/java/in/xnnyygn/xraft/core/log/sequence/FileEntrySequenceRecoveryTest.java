@@ -0,0 +1,92 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.*;
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+public class FileEntrySequenceRecoveryTest {
+
+    private EntriesFile entriesFile;
+    private EntryIndexFile entryIndexFile;
+    private ByteArraySeekableFile groupConfigIndexSeekableFile;
+
+    @Before
+    public void setUp() throws IOException {
+        entriesFile = new EntriesFile(new ByteArraySeekableFile());
+        entryIndexFile = new EntryIndexFile(new ByteArraySeekableFile());
+        groupConfigIndexSeekableFile = new ByteArraySeekableFile();
+    }
+
+    private long appendEntryToFile(Entry entry) throws IOException {
+        long offset = entriesFile.appendEntry(entry);
+        entryIndexFile.appendEntryIndex(entry.getIndex(), offset, entry.getKind(), entry.getTerm());
+        return offset;
+    }
+
+    private AddNodeEntry addNodeEntry(int index, String nodeId) {
+        return new AddNodeEntry(index, 1, Collections.emptySet(), new NodeEndpoint(nodeId, "localhost", 2333));
+    }
+
+    private FileEntrySequence openSequence() throws IOException {
+        groupConfigIndexSeekableFile.seek(0L);
+        return new FileEntrySequence(entriesFile, entryIndexFile, new GroupConfigIndexFile(groupConfigIndexSeekableFile),
+                1, new NodeConfig(), new EntryCache(0));
+    }
+
+    @Test
+    public void testRecoverGroupConfigIndexTruncated() throws IOException {
+        GroupConfigIndexFile groupConfigIndexFile = new GroupConfigIndexFile(groupConfigIndexSeekableFile);
+        appendEntryToFile(new NoOpEntry(1, 1));
+        groupConfigIndexFile.append(2, appendEntryToFile(addNodeEntry(2, "A")));
+        appendEntryToFile(new GeneralEntry(3, 1, "c".getBytes()));
+        // record of entry 4 lost, entry index survived
+        appendEntryToFile(addNodeEntry(4, "B"));
+
+        FileEntrySequence sequence = openSequence();
+        Iterator<GroupConfigEntry> iterator = sequence.buildGroupConfigEntryList().iterator();
+        Assert.assertEquals(2, iterator.next().getIndex());
+        Assert.assertEquals(4, iterator.next().getIndex());
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(24L, groupConfigIndexSeekableFile.size());
+    }
+
+    @Test
+    public void testRecoverGroupConfigIndexMissing() throws IOException {
+        appendEntryToFile(new NoOpEntry(1, 1));
+        appendEntryToFile(addNodeEntry(2, "A"));
+        appendEntryToFile(addNodeEntry(3, "B"));
+
+        FileEntrySequence sequence = openSequence();
+        Iterator<GroupConfigEntry> iterator = sequence.buildGroupConfigEntryList().iterator();
+        Assert.assertEquals(2, iterator.next().getIndex());
+        Assert.assertEquals(3, iterator.next().getIndex());
+        Assert.assertFalse(iterator.hasNext());
+
+        // nothing to rebuild after restart
+        sequence = openSequence();
+        Assert.assertEquals(3, sequence.buildGroupConfigEntryList().getLast().getIndex());
+        Assert.assertEquals(24L, groupConfigIndexSeekableFile.size());
+    }
+
+    @Test
+    public void testRecoverGroupConfigIndexAfterLastEntry() throws IOException {
+        GroupConfigIndexFile groupConfigIndexFile = new GroupConfigIndexFile(groupConfigIndexSeekableFile);
+        appendEntryToFile(new NoOpEntry(1, 1));
+        groupConfigIndexFile.append(2, appendEntryToFile(addNodeEntry(2, "A")));
+        // entry lost, record survived
+        groupConfigIndexFile.append(3, 1000L);
+
+        FileEntrySequence sequence = openSequence();
+        Assert.assertEquals(2, sequence.buildGroupConfigEntryList().getLast().getIndex());
+        Assert.assertEquals(12L, groupConfigIndexSeekableFile.size());
+    }
+
+}
@@ -0,0 +1,191 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.DurabilityMode;
+import in.xnnyygn.xraft.core.log.entry.AddNodeEntry;
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
+import in.xnnyygn.xraft.core.log.entry.NoOpEntry;
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GroupCommitWriterTest {
+
+    private static class ForceCountingSeekableFile extends ByteArraySeekableFile {
+
+        private int forceCount = 0;
+
+        @Override
+        public void force() throws IOException {
+            forceCount++;
+        }
+
+        @Override
+        public void forceWritten() throws IOException {
+            forceCount++;
+        }
+
+    }
+
+    private final ForceCountingSeekableFile entriesSeekableFile = new ForceCountingSeekableFile();
+    private final ForceCountingSeekableFile entryIndexSeekableFile = new ForceCountingSeekableFile();
+    private final ForceCountingSeekableFile groupConfigIndexSeekableFile = new ForceCountingSeekableFile();
+
+    private GroupCommitWriter newWriter(DurabilityMode durabilityMode, int syncInterval) throws IOException {
+        return new GroupCommitWriter(new EntriesFile(entriesSeekableFile), new EntryIndexFile(entryIndexSeekableFile),
+                new GroupConfigIndexFile(groupConfigIndexSeekableFile), durabilityMode, syncInterval);
+    }
+
+    private List<Entry> entries(int fromIndex, int toIndex) {
+        Entry[] entries = new Entry[toIndex - fromIndex];
+        for (int i = fromIndex; i < toIndex; i++) {
+            entries[i - fromIndex] = new GeneralEntry(i, 1, ("c" + i).getBytes());
+        }
+        return Arrays.asList(entries);
+    }
+
+    @Test
+    public void testWriteNone() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.NONE, 0);
+        writer.write(entries(1, 4));
+        writer.syncBeforeClose();
+        Assert.assertEquals(0, entriesSeekableFile.forceCount);
+        Assert.assertEquals(0, entryIndexSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testWritePerBatch() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        writer.write(entries(1, 4));
+        writer.write(entries(4, 5));
+        Assert.assertEquals(2, entriesSeekableFile.forceCount);
+        Assert.assertEquals(2, entryIndexSeekableFile.forceCount);
+        Assert.assertEquals(2, groupConfigIndexSeekableFile.forceCount);
+
+        // nothing written since last sync
+        writer.syncBeforeClose();
+        Assert.assertEquals(2, entriesSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testWriteInterval() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_INTERVAL, 60000);
+        writer.write(entries(1, 2)); // first write always syncs
+        writer.write(entries(2, 3));
+        writer.write(entries(3, 4));
+        Assert.assertEquals(1, entriesSeekableFile.forceCount);
+
+        writer.syncBeforeClose();
+        Assert.assertEquals(2, entriesSeekableFile.forceCount);
+        Assert.assertEquals(2, entryIndexSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testSyncIfIntervalElapsedWhenIdle() throws IOException, InterruptedException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_INTERVAL, 50);
+        writer.write(entries(1, 2)); // first write always syncs
+        writer.write(entries(2, 3));
+        writer.syncIfIntervalElapsed();
+        Assert.assertEquals(1, entriesSeekableFile.forceCount);
+
+        // no more entries written
+        Thread.sleep(60);
+        writer.syncIfIntervalElapsed();
+        Assert.assertEquals(2, entriesSeekableFile.forceCount);
+        Assert.assertEquals(2, entryIndexSeekableFile.forceCount);
+
+        // nothing written since last sync
+        Thread.sleep(60);
+        writer.syncIfIntervalElapsed();
+        Assert.assertEquals(2, entriesSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testSyncIfIntervalElapsedPerBatch() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        writer.writeWithoutSync(entries(1, 4), 3);
+        writer.syncIfIntervalElapsed();
+        Assert.assertEquals(0, entriesSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testWriteEmpty() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        writer.write(Collections.emptyList());
+        Assert.assertEquals(0, entriesSeekableFile.forceCount);
+        Assert.assertEquals(8L, entriesSeekableFile.size()); // file header only
+    }
+
+    @Test
+    public void testWriteWithoutSync() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        WrittenEntries writtenEntries = writer.writeWithoutSync(entries(1, 4), 3);
+        Assert.assertFalse(writtenEntries.isDurable());
+        Assert.assertEquals(0, entriesSeekableFile.forceCount);
+        writtenEntries.sync();
+        Assert.assertEquals(3, writtenEntries.getLastIndex());
+        Assert.assertEquals(1, entriesSeekableFile.forceCount);
+        Assert.assertEquals(1, entryIndexSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testWriteWithoutSyncNothingWritten() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        Assert.assertTrue(writer.writeWithoutSync(Collections.emptyList(), 0).isDurable());
+
+        // written but not forced
+        writer.writeWithoutSync(entries(1, 4), 3);
+        WrittenEntries writtenEntries = writer.writeWithoutSync(Collections.emptyList(), 3);
+        Assert.assertFalse(writtenEntries.isDurable());
+        writtenEntries.sync();
+        Assert.assertEquals(1, entriesSeekableFile.forceCount);
+
+        // forced, e.g. heartbeat of idle leader
+        Assert.assertTrue(writer.writeWithoutSync(Collections.emptyList(), 3).isDurable());
+        writer.syncBeforeClose();
+        Assert.assertEquals(1, entriesSeekableFile.forceCount);
+    }
+
+    @Test
+    public void testWriteWithoutSyncNone() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.NONE, 0);
+        Assert.assertTrue(writer.writeWithoutSync(entries(1, 4), 3).isDurable());
+    }
+
+    @Test
+    public void testWriteLoadable() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.FSYNC_PER_BATCH, 0);
+        writer.write(Collections.singletonList(new NoOpEntry(1, 1)));
+        writer.write(entries(2, 5));
+
+        entriesSeekableFile.seek(0L);
+        entryIndexSeekableFile.seek(0L);
+        FileEntrySequence sequence = new FileEntrySequence(new EntriesFile(entriesSeekableFile),
+                new EntryIndexFile(entryIndexSeekableFile), 1);
+        Assert.assertEquals(4, sequence.getLastLogIndex());
+        Assert.assertEquals(Entry.KIND_NO_OP, sequence.getEntry(1).getKind());
+        Assert.assertArrayEquals("c3".getBytes(), sequence.getEntry(3).getCommandBytes());
+    }
+
+    @Test
+    public void testWriteGroupConfigIndex() throws IOException {
+        GroupCommitWriter writer = newWriter(DurabilityMode.NONE, 0);
+        writer.write(Arrays.asList(
+                new NoOpEntry(1, 1),
+                new AddNodeEntry(2, 1, Collections.emptySet(), new NodeEndpoint("A", "localhost", 2333))
+        ));
+        writer.write(entries(3, 5));
+
+        GroupConfigIndexFile file = new GroupConfigIndexFile(groupConfigIndexSeekableFile);
+        Assert.assertEquals(1, file.getCount());
+        Assert.assertEquals(2, file.getIndex(0));
+        Assert.assertEquals(new EntryIndexFile(entryIndexSeekableFile).getOffset(2), file.getOffset(0));
+    }
+
+}
@@ -0,0 +1,73 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class GroupConfigIndexFileTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        GroupConfigIndexFile file = new GroupConfigIndexFile(seekableFile);
+        file.append(3, 100L);
+        file.append(7, 200L);
+
+        seekableFile.seek(0L);
+        file = new GroupConfigIndexFile(seekableFile);
+        Assert.assertEquals(2, file.getCount());
+        Assert.assertEquals(3, file.getIndex(0));
+        Assert.assertEquals(100L, file.getOffset(0));
+        Assert.assertEquals(7, file.getIndex(1));
+        Assert.assertEquals(200L, file.getOffset(1));
+    }
+
+    @Test
+    public void testLoadTornRecord() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        GroupConfigIndexFile file = new GroupConfigIndexFile(seekableFile);
+        file.append(3, 100L);
+        seekableFile.seek(12L);
+        seekableFile.writeInt(7); // offset missing
+
+        file = new GroupConfigIndexFile(seekableFile);
+        Assert.assertEquals(1, file.getCount());
+        Assert.assertEquals(12L, seekableFile.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendIllegalIndex() throws IOException {
+        GroupConfigIndexFile file = new GroupConfigIndexFile(new ByteArraySeekableFile());
+        file.append(3, 100L);
+        file.append(3, 200L);
+    }
+
+    @Test
+    public void testRemoveAfter() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        GroupConfigIndexFile file = new GroupConfigIndexFile(seekableFile);
+        for (int i = 1; i <= 20; i++) {
+            file.append(i * 2, i * 10L);
+        }
+        file.removeAfter(9);
+        Assert.assertEquals(4, file.getCount());
+        Assert.assertEquals(8, file.getIndex(3));
+        Assert.assertEquals(48L, seekableFile.size());
+
+        file.append(10, 400L);
+        Assert.assertEquals(5, file.getCount());
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        ByteArraySeekableFile seekableFile = new ByteArraySeekableFile();
+        GroupConfigIndexFile file = new GroupConfigIndexFile(seekableFile);
+        file.append(3, 100L);
+        file.clear();
+        Assert.assertEquals(0, file.getCount());
+        Assert.assertEquals(0L, seekableFile.size());
+    }
+
+}
@@ -0,0 +1,230 @@
+package in.xnnyygn.xraft.core.log.sequence;
+
+import in.xnnyygn.xraft.core.log.entry.AddNodeEntry;
+import in.xnnyygn.xraft.core.log.entry.Entry;
+import in.xnnyygn.xraft.core.log.entry.GeneralEntry;
+import in.xnnyygn.xraft.core.log.entry.GroupConfigEntry;
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class SegmentedFileEntrySequenceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dir;
+    private NodeConfig config;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = temporaryFolder.newFolder("segments");
+        config = new NodeConfig();
+        config.setLogSegmentSize(36); // two entries per segment, 18 bytes each
+    }
+
+    private int countSegments() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".bin"));
+        return files == null ? 0 : files.length;
+    }
+
+    private void appendAndCommit(SegmentedFileEntrySequence sequence, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            sequence.append(new GeneralEntry(i, 1, ("c" + i).getBytes()));
+            sequence.commit(i);
+        }
+    }
+
+    @Test
+    public void testInitializeEmpty() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 5, config);
+        Assert.assertTrue(sequence.isEmpty());
+        Assert.assertEquals(5, sequence.getNextLogIndex());
+        Assert.assertEquals(4, sequence.getCommitIndex());
+        Assert.assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testCommitRollSegment() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 8);
+        Assert.assertEquals(4, countSegments());
+        Assert.assertEquals(7, sequence.getCommitIndex());
+        Assert.assertArrayEquals("c3".getBytes(), sequence.getEntry(3).getCommandBytes());
+        Assert.assertEquals(6, sequence.getEntryMeta(6).getIndex());
+
+        List<Entry> entries = sequence.subList(2, 7);
+        Assert.assertEquals(5, entries.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i + 2, entries.get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void testRollSegmentWithUncommittedEntries() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 3);
+        sequence.append(new GeneralEntry(3, 1, "c3".getBytes()));
+        sequence.append(new GeneralEntry(4, 1, "c4".getBytes()));
+        sequence.commit(3);
+        Assert.assertEquals(2, countSegments());
+        Assert.assertEquals(3, sequence.getCommitIndex());
+        Assert.assertEquals(4, sequence.getLastEntry().getIndex());
+        sequence.commit(4);
+        Assert.assertEquals(4, sequence.getCommitIndex());
+    }
+
+    @Test
+    public void testReopen() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 8);
+        sequence.append(new GeneralEntry(8, 1, "c8".getBytes())); // uncommitted, lost
+        sequence.close();
+
+        sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        Assert.assertEquals(1, sequence.getFirstLogIndex());
+        Assert.assertEquals(7, sequence.getLastLogIndex());
+        Assert.assertEquals(7, sequence.getCommitIndex());
+        Assert.assertArrayEquals("c5".getBytes(), sequence.getEntry(5).getCommandBytes());
+        appendAndCommit(sequence, 8, 10);
+        Assert.assertEquals(9, sequence.getLastLogIndex());
+    }
+
+    @Test
+    public void testReopenFileChannel() {
+        config.setFileType(SeekableFileType.FILE_CHANNEL);
+        config.setLogEntryCacheSize(0);
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 8);
+        Assert.assertArrayEquals("c7".getBytes(), sequence.getEntry(7).getCommandBytes());
+        sequence.close();
+
+        sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        Assert.assertEquals(7, sequence.getLastLogIndex());
+        Assert.assertEquals(7, sequence.subList(1, 8).size());
+        Assert.assertArrayEquals("c5".getBytes(), sequence.getEntry(5).getCommandBytes());
+        sequence.close();
+    }
+
+    @Test
+    public void testCompact() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 8); // segments 1, 3, 5, 7
+        sequence.compact(6);
+        Assert.assertEquals(2, countSegments());
+        Assert.assertEquals(6, sequence.getFirstLogIndex());
+        Assert.assertNull(sequence.getEntry(5)); // in segment, but included in snapshot
+        Assert.assertEquals(2, sequence.subView(1).size());
+        Assert.assertEquals(7, sequence.getCommitIndex());
+        sequence.close();
+
+        // reopen with snapshot
+        sequence = new SegmentedFileEntrySequence(dir, 6, config);
+        Assert.assertEquals(6, sequence.getFirstLogIndex());
+        Assert.assertEquals(7, sequence.getLastLogIndex());
+    }
+
+    @Test
+    public void testCompactAll() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 4);
+        sequence.compact(4);
+        Assert.assertTrue(sequence.isEmpty());
+        Assert.assertEquals(0, countSegments());
+        Assert.assertEquals(4, sequence.getNextLogIndex());
+        appendAndCommit(sequence, 4, 5);
+        Assert.assertEquals(4, sequence.getFirstLogIndex());
+    }
+
+    @Test
+    public void testCompactUncommitted() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 3);
+        for (int i = 3; i <= 6; i++) {
+            sequence.append(new GeneralEntry(i, 1, ("c" + i).getBytes()));
+        }
+        // snapshot from leader, last included index 4
+        sequence.compact(5);
+        Assert.assertEquals(5, sequence.getFirstLogIndex());
+        Assert.assertEquals(6, sequence.getLastLogIndex());
+        Assert.assertEquals(4, sequence.getCommitIndex());
+        sequence.commit(6);
+        Assert.assertEquals(6, sequence.getCommitIndex());
+    }
+
+    @Test
+    public void testRemoveAfter() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 8);
+        sequence.removeAfter(4);
+        Assert.assertEquals(2, countSegments());
+        Assert.assertEquals(4, sequence.getLastLogIndex());
+        Assert.assertEquals(4, sequence.getCommitIndex());
+        appendAndCommit(sequence, 5, 6);
+        Assert.assertArrayEquals("c5".getBytes(), sequence.getEntry(5).getCommandBytes());
+    }
+
+    @Test
+    public void testRemoveAfterAll() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 4);
+        sequence.removeAfter(0);
+        Assert.assertTrue(sequence.isEmpty());
+        Assert.assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testBuildGroupConfigEntryList() {
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 3);
+        sequence.append(new AddNodeEntry(3, 1, Collections.emptySet(), new NodeEndpoint("A", "localhost", 2333)));
+        sequence.commit(3);
+        appendAndCommit(sequence, 4, 6);
+        sequence.append(new AddNodeEntry(6, 1, Collections.emptySet(), new NodeEndpoint("B", "localhost", 2334)));
+
+        Iterator<GroupConfigEntry> iterator = sequence.buildGroupConfigEntryList().iterator();
+        Assert.assertEquals(3, iterator.next().getIndex());
+        Assert.assertEquals(6, iterator.next().getIndex());
+        Assert.assertFalse(iterator.hasNext());
+
+        sequence.compact(4);
+        iterator = sequence.buildGroupConfigEntryList().iterator();
+        Assert.assertEquals(6, iterator.next().getIndex());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testGroupConfigIndexFile() {
+        config.setLogSegmentSize(1024 * 1024);
+        SegmentedFileEntrySequence sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        appendAndCommit(sequence, 1, 3);
+        sequence.append(new AddNodeEntry(3, 1, Collections.emptySet(), new NodeEndpoint("A", "localhost", 2333)));
+        sequence.append(new AddNodeEntry(4, 1, Collections.emptySet(), new NodeEndpoint("B", "localhost", 2334)));
+        sequence.commit(4);
+        sequence.removeAfter(3);
+        sequence.close();
+        File file = new File(dir, "segment-1.gci");
+        Assert.assertEquals(12L, file.length());
+
+        // rebuilt if missing
+        Assert.assertTrue(file.delete());
+        sequence = new SegmentedFileEntrySequence(dir, 1, config);
+        Iterator<GroupConfigEntry> iterator = sequence.buildGroupConfigEntryList().iterator();
+        Assert.assertEquals(3, iterator.next().getIndex());
+        Assert.assertFalse(iterator.hasNext());
+        sequence.close();
+        Assert.assertEquals(12L, file.length());
+    }
+
+}
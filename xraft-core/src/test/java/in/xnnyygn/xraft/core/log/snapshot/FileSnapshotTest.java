@@ -4,13 +4,20 @@ import com.google.common.collect.ImmutableSet;
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
 import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 public class FileSnapshotTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void test() throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -32,4 +39,37 @@ public class FileSnapshotTest {
         Assert.assertTrue(chunk.isLastChunk());
     }
 
+    @Test
+    public void testReadDataRegion() throws IOException {
+        File file = temporaryFolder.newFile();
+        FileSnapshotWriter writer = new FileSnapshotWriter(file, 1, 2, Collections.emptySet());
+        writer.write("test".getBytes());
+        writer.close();
+
+        FileSnapshot snapshot = new FileSnapshot(file);
+        SnapshotChunk chunk = snapshot.readDataRegion(1, 2);
+        Assert.assertTrue(chunk.isInFile());
+        Assert.assertEquals(file, chunk.getFile());
+        Assert.assertEquals(file.length() - 3, chunk.getPosition());
+        Assert.assertEquals(2, chunk.getLength());
+        Assert.assertFalse(chunk.isLastChunk());
+        chunk = snapshot.readDataRegion(2, 10);
+        Assert.assertEquals(2, chunk.getLength());
+        Assert.assertTrue(chunk.isLastChunk());
+        snapshot.close();
+    }
+
+    @Test
+    public void testReadDataRegionNotInFile() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileSnapshotWriter writer = new FileSnapshotWriter(output, 1, 2, Collections.emptySet());
+        writer.write("test".getBytes());
+        writer.close();
+
+        FileSnapshot snapshot = new FileSnapshot(new ByteArraySeekableFile(output.toByteArray()));
+        SnapshotChunk chunk = snapshot.readDataRegion(0, 10);
+        Assert.assertFalse(chunk.isInFile());
+        Assert.assertArrayEquals("test".getBytes(), chunk.toByteArray());
+    }
+
 }
\ No newline at end of file
@@ -17,4 +17,60 @@ public class GroupMemberTest {
         Assert.assertTrue(member.shouldReplicate(1000));
     }
 
+    @Test
+    public void testPipeline() {
+        GroupMember member = new GroupMember(new NodeEndpoint("A", "localhost", 2333));
+        member.setReplicatingState(new ReplicatingState(10));
+        // probing
+        Assert.assertTrue(member.canSendAppendEntries(2, 20));
+        member.onAppendEntriesSent("a", 12);
+        Assert.assertFalse(member.canSendAppendEntries(2, 20));
+        Assert.assertTrue(member.onAppendEntriesResultReceived("a"));
+        member.advanceReplicatingState(12);
+        Assert.assertFalse(member.isReplicationProbing());
+
+        // pipelining
+        Assert.assertEquals(13, member.getNextIndexToSend());
+        member.onAppendEntriesSent("b", 15);
+        Assert.assertTrue(member.canSendAppendEntries(2, 20));
+        member.onAppendEntriesSent("c", 17);
+        Assert.assertFalse(member.canSendAppendEntries(2, 20));
+        Assert.assertEquals(18, member.getNextIndexToSend());
+
+        member.resetReplicationPipeline();
+        Assert.assertTrue(member.isReplicationProbing());
+        Assert.assertEquals(13, member.getNextIndexToSend());
+        Assert.assertTrue(member.canSendAppendEntries(2, 20));
+    }
+
+    @Test
+    public void testPipelineResultBeforeReset() {
+        GroupMember member = new GroupMember(new NodeEndpoint("A", "localhost", 2333));
+        member.setReplicatingState(new ReplicatingState(10));
+        member.onAppendEntriesSent("a", 12);
+        // read timeout
+        member.resetReplicationPipeline();
+        member.onAppendEntriesSent("b", 12);
+        // late result of rpc before reset, probe still in flight
+        Assert.assertFalse(member.onAppendEntriesResultReceived("a"));
+        Assert.assertFalse(member.canSendAppendEntries(2, 20));
+        Assert.assertTrue(member.onAppendEntriesResultReceived("b"));
+        Assert.assertTrue(member.canSendAppendEntries(2, 20));
+    }
+
+    @Test
+    public void testPipelineResultOfLaterRpc() {
+        GroupMember member = new GroupMember(new NodeEndpoint("A", "localhost", 2333));
+        member.setReplicatingState(new ReplicatingState(10));
+        member.onAppendEntriesSent("a", 12);
+        member.advanceReplicatingState(12);
+        member.onAppendEntriesSent("b", 15);
+        member.onAppendEntriesSent("c", 17);
+        Assert.assertFalse(member.canSendAppendEntries(3, 20));
+        // result of b lost
+        Assert.assertTrue(member.onAppendEntriesResultReceived("c"));
+        Assert.assertFalse(member.onAppendEntriesResultReceived("b"));
+        Assert.assertTrue(member.canSendAppendEntries(3, 20));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package in.xnnyygn.xraft.core.node;
+
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResult;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InstallSnapshotWindowTest {
+
+    private InstallSnapshotRpc createRpc(int offset, int length, boolean done) {
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLastIndex(3);
+        rpc.setOffset(offset);
+        rpc.setData(new byte[length]);
+        rpc.setDone(done);
+        return rpc;
+    }
+
+    @Test
+    public void testSendInWindow() {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(3, 10);
+        Assert.assertTrue(window.canSend());
+        InstallSnapshotRpc rpc1 = createRpc(0, 5, false);
+        window.onSent(rpc1);
+        // wait for result of first chunk
+        Assert.assertFalse(window.canSend());
+        Assert.assertTrue(window.onResult(rpc1, new InstallSnapshotResult(1, 3, 5, false)));
+        Assert.assertTrue(window.canSend());
+        InstallSnapshotRpc rpc2 = createRpc(5, 5, false);
+        window.onSent(rpc2);
+        Assert.assertTrue(window.canSend());
+        window.onSent(createRpc(10, 5, false));
+        Assert.assertFalse(window.canSend());
+        window.onResult(rpc2, new InstallSnapshotResult(1, 3, 10, false));
+        Assert.assertTrue(window.canSend());
+        Assert.assertEquals(15, window.getNextOffset());
+        window.onSent(createRpc(15, 2, true));
+        Assert.assertFalse(window.canSend());
+    }
+
+    @Test
+    public void testResume() {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(3, 100);
+        InstallSnapshotRpc rpc = createRpc(0, 5, false);
+        window.onSent(rpc);
+        Assert.assertFalse(window.canSend());
+
+        // node received data before
+        window.onResult(rpc, new InstallSnapshotResult(1, 3, 20, false));
+        Assert.assertEquals(20, window.getNextOffset());
+        Assert.assertTrue(window.canSend());
+    }
+
+    @Test
+    public void testStopAndWait() {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(3, 0);
+        InstallSnapshotRpc rpc = createRpc(0, 5, false);
+        window.onSent(rpc);
+        Assert.assertFalse(window.canSend());
+        window.onResult(rpc, new InstallSnapshotResult(1, 3, 5, false));
+        Assert.assertTrue(window.canSend());
+    }
+
+    @Test
+    public void testRejected() {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(3, 100);
+        InstallSnapshotRpc rpc1 = createRpc(0, 5, false);
+        window.onSent(rpc1);
+        window.onResult(rpc1, new InstallSnapshotResult(1, 3, 5, false));
+        InstallSnapshotRpc rpc2 = createRpc(5, 5, false);
+        window.onSent(rpc2);
+        InstallSnapshotRpc rpc3 = createRpc(10, 5, true);
+        window.onSent(rpc3);
+        Assert.assertFalse(window.canSend());
+
+        // chunk from offset 5 lost
+        window.onResult(rpc3, new InstallSnapshotResult(1, 3, 5, false));
+        Assert.assertTrue(window.canSend());
+        Assert.assertEquals(5, window.getNextOffset());
+        window.onSent(rpc2);
+        Assert.assertEquals(10, window.getNextOffset());
+
+        // rejection of chunk sent before, ignore
+        window.onResult(rpc3, new InstallSnapshotResult(1, 3, 5, false));
+        Assert.assertEquals(10, window.getNextOffset());
+    }
+
+    @Test
+    public void testResultOfAnotherSnapshot() {
+        InstallSnapshotWindow window = new InstallSnapshotWindow(3, 100);
+        InstallSnapshotRpc rpc = createRpc(0, 5, false);
+        window.onSent(rpc);
+        Assert.assertFalse(window.onResult(rpc, new InstallSnapshotResult(1, 2, 5, false)));
+    }
+
+}
@@ -122,6 +122,27 @@ public class NodeGroupTest {
         Assert.assertEquals(9, group.getMatchIndexOfMajor());
     }
 
+    // (A, self, major, 5), (B, peer, major, 10), (C, peer, major, 0)
+    @Test
+    public void testGetMatchIndexOfMajorWithSelf() {
+        NodeGroup group = new NodeGroup(Arrays.asList(
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ), NodeId.of("A"));
+        group.resetReplicatingStates(1);
+        group.findMember(NodeId.of("B")).advanceReplicatingState(10);
+        Assert.assertEquals(5, group.getMatchIndexOfMajor(5));
+        Assert.assertEquals(10, group.getMatchIndexOfMajor(12));
+    }
+
+    // standalone
+    @Test
+    public void testGetMatchIndexOfMajorWithSelfStandalone() {
+        NodeGroup group = new NodeGroup(new NodeEndpoint("A", "localhost", 2333));
+        Assert.assertEquals(3, group.getMatchIndexOfMajor(3));
+    }
+
     @Test
     public void testListReplicationTarget() {
         Set<NodeEndpoint> endpoints = new HashSet<>();
@@ -1,10 +1,19 @@
 package in.xnnyygn.xraft.core.node;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import in.xnnyygn.xraft.core.log.DurabilityMode;
+import in.xnnyygn.xraft.core.log.Log;
+import in.xnnyygn.xraft.core.log.LogFullException;
+import in.xnnyygn.xraft.core.log.MemoryLog;
 import in.xnnyygn.xraft.core.log.entry.*;
 import in.xnnyygn.xraft.core.log.event.GroupConfigEntryBatchRemovedEvent;
 import in.xnnyygn.xraft.core.log.event.GroupConfigEntryCommittedEvent;
 import in.xnnyygn.xraft.core.log.event.GroupConfigEntryFromLeaderAppendEvent;
+import in.xnnyygn.xraft.core.log.sequence.EntriesFile;
+import in.xnnyygn.xraft.core.log.sequence.EntryIndexFile;
+import in.xnnyygn.xraft.core.log.sequence.FileEntrySequence;
+import in.xnnyygn.xraft.core.log.snapshot.EmptySnapshot;
 import in.xnnyygn.xraft.core.node.config.NodeConfig;
 import in.xnnyygn.xraft.core.node.role.RoleName;
 import in.xnnyygn.xraft.core.node.role.RoleState;
@@ -15,6 +24,7 @@ import in.xnnyygn.xraft.core.rpc.ConnectorAdapter;
 import in.xnnyygn.xraft.core.rpc.MockConnector;
 import in.xnnyygn.xraft.core.rpc.message.*;
 import in.xnnyygn.xraft.core.schedule.NullScheduler;
+import in.xnnyygn.xraft.core.support.ByteArraySeekableFile;
 import in.xnnyygn.xraft.core.support.DirectTaskExecutor;
 import in.xnnyygn.xraft.core.support.ListeningTaskExecutor;
 import in.xnnyygn.xraft.core.support.SingleThreadTaskExecutor;
@@ -25,14 +35,20 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class NodeImplTest {
@@ -353,6 +369,217 @@ public class NodeImplTest {
         Assert.assertEquals(3, mockConnector.getMessageCount());
     }
 
+    @Test
+    public void testAppendLogBatch() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxProposalBatchSize(3);
+        config.setProposalLinger(10);
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).setConfig(config).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        mockConnector.clearMessage();
+        // wait for linger, drain scheduled is not run by null scheduler
+        node.appendLog("a".getBytes());
+        node.appendLog("b".getBytes());
+        Assert.assertEquals(0, mockConnector.getMessageCount());
+        // batch full
+        node.appendLog("c".getBytes());
+        Assert.assertEquals(2, mockConnector.getMessageCount());
+        AppendEntriesRpc rpc = (AppendEntriesRpc) mockConnector.getRpc();
+        // no-op entry + 3 commands
+        Assert.assertEquals(4, rpc.getEntries().size());
+        Assert.assertEquals(4, node.getContext().log().getNextIndex() - 1);
+    }
+
+    @Test
+    public void testAppendLogBatchTakeOverLinger() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxProposalBatchSize(2);
+        config.setProposalLinger(10);
+        List<Runnable> delayedTasks = new ArrayList<>();
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).setConfig(config).setScheduler(new NullScheduler() {
+            @Override
+            public void scheduleDelayedTask(@Nonnull Runnable task, long delay) {
+                delayedTasks.add(task);
+            }
+        }).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        mockConnector.clearMessage();
+        Log log = node.getContext().log();
+        node.appendLog("a".getBytes());
+        Assert.assertEquals(1, delayedTasks.size());
+        // batch full, drain before linger expires
+        node.appendLog("b".getBytes());
+        Assert.assertEquals(2, mockConnector.getMessageCount());
+        Assert.assertEquals(3, log.getNextIndex() - 1);
+        node.appendLog("c".getBytes());
+        Assert.assertEquals(2, delayedTasks.size());
+        // linger of drain taken over expires
+        delayedTasks.get(0).run();
+        Assert.assertEquals(3, log.getNextIndex() - 1);
+        delayedTasks.get(1).run();
+        Assert.assertEquals(4, log.getNextIndex() - 1);
+    }
+
+    @Test
+    public void testAppendLogReserved() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxPendingLogEntries(2);
+        config.setProposalLinger(10);
+        List<Runnable> delayedTasks = new ArrayList<>();
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).setConfig(config).setScheduler(new NullScheduler() {
+            @Override
+            public void scheduleDelayedTask(@Nonnull Runnable task, long delay) {
+                delayedTasks.add(task);
+            }
+        }).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        Log log = node.getContext().log();
+        // no-op entry + 1 command queued
+        node.appendLog("a".getBytes());
+        try {
+            node.appendLog("b".getBytes());
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+        // log full before command queued is appended
+        log.appendEntry(1);
+        delayedTasks.get(0).run();
+        Assert.assertEquals(3, log.getLastEntryMeta().getIndex());
+        Assert.assertEquals(Entry.KIND_GENERAL, log.getLastEntryMeta().getKind());
+    }
+
+    @Test
+    public void testLogSyncScheduled() {
+        NodeConfig config = new NodeConfig();
+        config.setLogDurabilityMode(DurabilityMode.FSYNC_INTERVAL);
+        AtomicInteger syncCount = new AtomicInteger(0);
+        List<Runnable> delayedTasks = new ArrayList<>();
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).setConfig(config).setLog(new MemoryLog() {
+            @Override
+            public void syncIfIntervalElapsed() {
+                syncCount.incrementAndGet();
+            }
+        }).setScheduler(new NullScheduler() {
+            @Override
+            public void scheduleDelayedTask(@Nonnull Runnable task, long delay) {
+                delayedTasks.add(task);
+            }
+        }).build();
+        node.start();
+        Assert.assertEquals(1, delayedTasks.size());
+        delayedTasks.get(0).run();
+        Assert.assertEquals(1, syncCount.get());
+        // scheduled again
+        Assert.assertEquals(2, delayedTasks.size());
+    }
+
+    @Test
+    public void testPropose() throws ExecutionException, InterruptedException {
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        CompletableFuture<ProposalResult> future = node.propose("test".getBytes());
+        Assert.assertFalse(future.isDone());
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        AppendEntriesRpc rpc = (AppendEntriesRpc) mockConnector.getRpc();
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult(rpc.getMessageId(), 1, true),
+                NodeId.of("B"),
+                rpc
+        ));
+        // no-op entry + command
+        Assert.assertEquals(2, future.get().getIndex());
+        Assert.assertEquals(1, future.get().getTerm());
+    }
+
+    @Test
+    public void testProposeLeadershipLost() {
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        CompletableFuture<ProposalResult> future = node.propose("test".getBytes());
+        // higher term
+        RequestVoteRpc rpc = new RequestVoteRpc();
+        rpc.setTerm(2);
+        rpc.setCandidateId(NodeId.of("C"));
+        node.onReceiveRequestVoteRpc(new RequestVoteRpcMessage(rpc, NodeId.of("C"), null));
+        try {
+            future.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof NotLeaderException);
+        }
+    }
+
+    @Test
+    public void testAppendLogLogFull() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxPendingLogEntries(2);
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335)
+        ).setConfig(config).build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        // no-op entry + 1 command
+        node.appendLog("a".getBytes());
+        try {
+            node.appendLog("b".getBytes());
+            Assert.fail();
+        } catch (LogFullException ignored) {
+        }
+        try {
+            node.propose("c".getBytes()).join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof LogFullException);
+        }
+        Assert.assertEquals(3, node.getContext().log().getNextIndex());
+    }
+
     @Test(expected = NotLeaderException.class)
     public void testAddNodeWhenFollower() {
         NodeImpl node = (NodeImpl) newNodeBuilder(
@@ -1044,6 +1271,62 @@ public class NodeImplTest {
         Assert.assertEquals(NodeId.of("B"), state.getLeaderId());
     }
 
+    private static class ForceCountingSeekableFile extends ByteArraySeekableFile {
+
+        private int forceCount = 0;
+
+        @Override
+        public void force() throws IOException {
+            forceCount++;
+        }
+
+        @Override
+        public void forceWritten() throws IOException {
+            forceCount++;
+        }
+
+    }
+
+    @Test
+    public void testOnReceiveAppendEntriesRpcFollowerSyncBeforeReply() throws IOException {
+        NodeConfig config = new NodeConfig();
+        config.setLogDurabilityMode(DurabilityMode.FSYNC_PER_BATCH);
+        ForceCountingSeekableFile entriesSeekableFile = new ForceCountingSeekableFile();
+        FileEntrySequence entrySequence = new FileEntrySequence(new EntriesFile(entriesSeekableFile),
+                new EntryIndexFile(new ByteArraySeekableFile()), 1, config);
+        AtomicInteger forceCountWhenReplied = new AtomicInteger(0);
+        MockConnector connector = new MockConnector() {
+            @Override
+            public void replyAppendEntries(@Nonnull AppendEntriesResult result, @Nonnull AppendEntriesRpcMessage rpcMessage) {
+                forceCountWhenReplied.set(entriesSeekableFile.forceCount);
+                super.replyAppendEntries(result, rpcMessage);
+            }
+        };
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setConfig(config)
+                .setStore(new MemoryNodeStore(1, null))
+                .setLog(new MemoryLog(new EmptySnapshot(), entrySequence, new EventBus()))
+                .setConnector(connector)
+                .build();
+        node.start();
+        AppendEntriesRpc rpc = new AppendEntriesRpc();
+        rpc.setTerm(1);
+        rpc.setLeaderId(NodeId.of("B"));
+        rpc.setEntries(Arrays.asList(
+                new GeneralEntry(1, 1, "a".getBytes()),
+                new GeneralEntry(2, 1, "b".getBytes())
+        ));
+        node.onReceiveAppendEntriesRpc(new AppendEntriesRpcMessage(rpc, NodeId.of("B"), null));
+        Assert.assertTrue(((AppendEntriesResult) connector.getResult()).isSuccess());
+        // written to file and forced before reply
+        Assert.assertEquals(2, entrySequence.getCommitIndex());
+        Assert.assertTrue(forceCountWhenReplied.get() > 0);
+    }
+
     @Test
     public void testOnReceiveAppendEntriesRpcCandidate() {
         NodeImpl node = (NodeImpl) newNodeBuilder(
@@ -1182,6 +1465,95 @@ public class NodeImplTest {
         Assert.assertEquals(0, member.getMatchIndex());
     }
 
+    @Test
+    public void testOnReceiveAppendEntriesResultBackOffWithoutHint() {
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setStore(new MemoryNodeStore(1, null))
+                .build();
+        node.getContext().log().appendEntry(1); // 1
+        node.getContext().log().appendEntry(1); // 2
+        node.getContext().log().appendEntry(1); // 3
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(2, true)); // become leader
+        GroupMember member = node.getContext().group().findMember(NodeId.of("B"));
+        member.replicateNow();
+        Assert.assertEquals(4, member.getNextIndex());
+        // rejected by another leader, no hint of conflict
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult("", 2, false),
+                NodeId.of("B"), createAppendEntriesRpc(3)));
+        Assert.assertTrue(member.isReplicating());
+        Assert.assertEquals(3, member.getNextIndex());
+    }
+
+    @Test
+    public void testOnReceiveAppendEntriesResultPipelined() {
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .build();
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(1, true)); // become leader
+        GroupMember member = node.getContext().group().findMember(NodeId.of("B"));
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult("", 1, true),
+                NodeId.of("B"), createAppendEntriesRpc(0)));
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        mockConnector.clearMessage();
+
+        // sent without waiting for results
+        node.appendLog("foo".getBytes());
+        node.appendLog("bar".getBytes());
+        List<AppendEntriesRpc> rpcs = mockConnector.getMessages().stream()
+                .filter(m -> m.getRpc() instanceof AppendEntriesRpc && NodeId.of("B").equals(m.getDestinationNodeId()))
+                .map(m -> (AppendEntriesRpc) m.getRpc())
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, rpcs.size());
+        Assert.assertEquals(1, rpcs.get(0).getPrevLogIndex());
+        Assert.assertEquals(2, rpcs.get(1).getPrevLogIndex());
+
+        // rejection of rpc after the one expected, ignore
+        mockConnector.clearMessage();
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult("", 1, false),
+                NodeId.of("B"), rpcs.get(1)));
+        Assert.assertEquals(1, member.getNextIndex());
+        Assert.assertEquals(0, mockConnector.getMessageCount());
+    }
+
+    @Test
+    public void testOnReceiveAppendEntriesResultBackOffByHint() {
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setStore(new MemoryNodeStore(3, null))
+                .build();
+        for (int i = 0; i < 10; i++) {
+            node.getContext().log().appendEntry(1);
+        }
+        node.start();
+        node.electionTimeout(); // become candidate
+        node.onReceiveRequestVoteResult(new RequestVoteResult(4, true)); // become leader
+        GroupMember member = node.getContext().group().findMember(NodeId.of("B"));
+        Assert.assertEquals(11, member.getNextIndex());
+
+        // log of follower ends at index 3
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult("", 4, false, 0, 3),
+                NodeId.of("B"), createAppendEntriesRpc(10)));
+        Assert.assertEquals(4, member.getNextIndex());
+    }
+
     @Test
     public void testOnReceiveAppendEntriesResultBackOffFailed() {
         NodeImpl node = (NodeImpl) newNodeBuilder(
@@ -1197,7 +1569,7 @@ public class NodeImplTest {
         member.replicateNow();
         node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
                 new AppendEntriesResult("", 1, false),
-                NodeId.of("B"), createAppendEntriesRpc(1)));
+                NodeId.of("B"), createAppendEntriesRpc(0)));
         Assert.assertFalse(member.isReplicating());
         Assert.assertEquals(0, member.getMatchIndex());
     }
@@ -1368,7 +1740,7 @@ public class NodeImplTest {
         InstallSnapshotRpc installSnapshotRpc = new InstallSnapshotRpc();
         installSnapshotRpc.setDone(true);
         node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(2), NodeId.of("C"), installSnapshotRpc));
+                new InstallSnapshotResult(2, 0, 0, true), NodeId.of("C"), installSnapshotRpc));
         Assert.assertEquals(NodeId.of("C"), mockConnector.getDestinationNodeId());
         Assert.assertTrue(mockConnector.getRpc() instanceof AppendEntriesRpc);
     }
@@ -1393,25 +1765,200 @@ public class NodeImplTest {
 
     @Test
     public void testOnReceiveInstallSnapshotResult() {
+        NodeConfig config = new NodeConfig();
+        config.setSnapshotDataLength(2);
+        config.setSnapshotWindowSize(0);
         NodeImpl node = (NodeImpl) newNodeBuilder(
                 NodeId.of("A"),
                 new NodeEndpoint("A", "localhost", 2333),
                 new NodeEndpoint("B", "localhost", 2334),
                 new NodeEndpoint("C", "localhost", 2335))
                 .setStore(new MemoryNodeStore(1, null))
+                .setConfig(config)
                 .build();
         MockConnector mockConnector = (MockConnector) node.getContext().connector();
         node.start();
         node.electionTimeout();
+        node.onReceiveRequestVoteResult(new RequestVoteResult(2, true));
+        installSnapshotOfLeader(node, 5, "test".getBytes());
+        node.getContext().group().getMember(NodeId.of("C")).setReplicatingState(new ReplicatingState(1));
         mockConnector.clearMessage();
+        node.replicateLog();
+
+        // stop-and-wait
+        List<InstallSnapshotRpc> rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(1, rpcs.size());
+        InstallSnapshotRpc rpc = rpcs.get(0);
+        Assert.assertEquals(0, rpc.getOffset());
+        Assert.assertFalse(rpc.isDone());
+        mockConnector.clearMessage();
+        node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
+                new InstallSnapshotResult(2, 5, 2, false), NodeId.of("C"), rpc));
+        rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(1, rpcs.size());
+        InstallSnapshotRpc nextRpc = rpcs.get(0);
+        Assert.assertEquals(2, nextRpc.getOffset());
+        Assert.assertTrue(nextRpc.isDone());
+    }
+
+    @Test
+    public void testOnReceiveInstallSnapshotResultWindow() {
+        NodeConfig config = new NodeConfig();
+        config.setSnapshotDataLength(2);
+        config.setSnapshotWindowSize(4);
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setStore(new MemoryNodeStore(1, null))
+                .setConfig(config)
+                .build();
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        node.start();
+        node.electionTimeout();
         node.onReceiveRequestVoteResult(new RequestVoteResult(2, true));
-        InstallSnapshotRpc installSnapshotRpc = new InstallSnapshotRpc();
-        installSnapshotRpc.setDone(false);
-        installSnapshotRpc.setData(new byte[0]);
+        installSnapshotOfLeader(node, 5, "foobar".getBytes());
+        node.getContext().group().getMember(NodeId.of("C")).setReplicatingState(new ReplicatingState(1));
+        mockConnector.clearMessage();
+        node.replicateLog();
+
+        // first chunk only
+        List<InstallSnapshotRpc> rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(1, rpcs.size());
+        Assert.assertEquals(6, rpcs.get(0).getDataSize());
+        mockConnector.clearMessage();
         node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(2), NodeId.of("C"), installSnapshotRpc));
-        Assert.assertEquals(NodeId.of("C"), mockConnector.getDestinationNodeId());
-        Assert.assertTrue(mockConnector.getRpc() instanceof InstallSnapshotRpc);
+                new InstallSnapshotResult(2, 5, 2, false), NodeId.of("C"), rpcs.get(0)));
+
+        // 2 chunks in flight
+        rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(2, rpcs.size());
+        Assert.assertEquals(4, rpcs.get(1).getOffset());
+        Assert.assertTrue(rpcs.get(1).isDone());
+
+        // rejected, send again from offset in result
+        mockConnector.clearMessage();
+        node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
+                new InstallSnapshotResult(2, 5, 2, false), NodeId.of("C"), rpcs.get(1)));
+        rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(2, rpcs.size());
+        Assert.assertEquals(2, rpcs.get(0).getOffset());
+    }
+
+    @Test
+    public void testOnReceiveInstallSnapshotResultThrottled() {
+        NodeConfig config = new NodeConfig();
+        config.setSnapshotDataLength(2);
+        config.setSnapshotRateLimitOfNode(2);
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setStore(new MemoryNodeStore(1, null))
+                .setConfig(config)
+                .build();
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        node.start();
+        node.electionTimeout();
+        node.onReceiveRequestVoteResult(new RequestVoteResult(2, true));
+        installSnapshotOfLeader(node, 5, "test".getBytes());
+        node.getContext().group().getMember(NodeId.of("C")).setReplicatingState(new ReplicatingState(1));
+        mockConnector.clearMessage();
+        node.replicateLog();
+        List<InstallSnapshotRpc> rpcs = listInstallSnapshotRpcs(mockConnector, NodeId.of("C"));
+        Assert.assertEquals(1, rpcs.size());
+
+        // tokens of node used up
+        mockConnector.clearMessage();
+        node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
+                new InstallSnapshotResult(2, 5, 2, false), NodeId.of("C"), rpcs.get(0)));
+        Assert.assertTrue(listInstallSnapshotRpcs(mockConnector, NodeId.of("C")).isEmpty());
+        SnapshotThrottleMetrics metrics = node.getSnapshotThrottleMetrics();
+        // first chunk to B and C
+        Assert.assertEquals(4, metrics.getBytesSent());
+        Assert.assertEquals(1, metrics.getThrottledCount());
+    }
+
+    @Test
+    public void testAddNodeAgainAfterInstallSnapshotThrottled() throws Throwable {
+        NodeConfig config = new NodeConfig();
+        config.setSnapshotDataLength(2);
+        config.setSnapshotRateLimitOfNode(2);
+        config.setNewNodeReadTimeout(100);
+        NodeImpl node = (NodeImpl) newNodeBuilder(
+                NodeId.of("A"),
+                new NodeEndpoint("A", "localhost", 2333),
+                new NodeEndpoint("B", "localhost", 2334),
+                new NodeEndpoint("C", "localhost", 2335))
+                .setConfig(config)
+                .setTaskExecutor(taskExecutor)
+                .setGroupConfigChangeTaskExecutor(groupConfigChangeTaskExecutor)
+                .build();
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        node.start();
+        node.electionTimeout();
+        node.processRequestVoteResult(new RequestVoteResult(1, true)).get();
+        checkWithinTaskExecutor(node, () -> installSnapshotOfLeader(node, 5, "test".getBytes()));
+
+        // sending snapshot to new node paused, then catch up timeout
+        NodeId nodeId = NodeId.of("D");
+        Future<GroupConfigChangeTaskReference> future = cachedThreadTaskExecutor.submit(() -> node.addNode(new NodeEndpoint("D", "localhost", 2336)));
+        InstallSnapshotRpc rpc = awaitInstallSnapshotRpcOfNewNode(node, nodeId);
+        checkWithinTaskExecutor(node, mockConnector::clearMessage);
+        node.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
+                new InstallSnapshotResult(1, 5, 2, false), nodeId, rpc));
+        checkWithinTaskExecutor(node, () -> Assert.assertEquals(1, node.getSnapshotThrottleMetrics().getThrottledCount()));
+        Assert.assertEquals(GroupConfigChangeTaskResult.TIMEOUT, future.get().getResult(1000L));
+
+        // send snapshot from beginning
+        future = cachedThreadTaskExecutor.submit(() -> node.addNode(new NodeEndpoint("D", "localhost", 2336)));
+        Assert.assertEquals(0, awaitInstallSnapshotRpcOfNewNode(node, nodeId).getOffset());
+        Assert.assertEquals(GroupConfigChangeTaskResult.TIMEOUT, future.get().getResult(1000L));
+    }
+
+    /**
+     * Reject append entries rpc of new node, and wait for install snapshot rpc then.
+     */
+    private InstallSnapshotRpc awaitInstallSnapshotRpcOfNewNode(NodeImpl node, NodeId nodeId) throws Throwable {
+        awaitMessage(node, m -> m.getRpc() instanceof AppendEntriesRpc && nodeId.equals(m.getDestinationNodeId()));
+        node.onReceiveAppendEntriesResult(new AppendEntriesResultMessage(
+                new AppendEntriesResult("", 1, false), nodeId, createAppendEntriesRpc(5)));
+        return (InstallSnapshotRpc) awaitMessage(node, m -> m.getRpc() instanceof InstallSnapshotRpc && nodeId.equals(m.getDestinationNodeId())).getRpc();
+    }
+
+    private MockConnector.Message awaitMessage(NodeImpl node, Predicate<MockConnector.Message> predicate) throws Throwable {
+        MockConnector mockConnector = (MockConnector) node.getContext().connector();
+        AtomicReference<MockConnector.Message> message = new AtomicReference<>();
+        for (int i = 0; i < 100 && message.get() == null; i++) {
+            checkWithinTaskExecutor(node, () -> {
+                mockConnector.getMessages().stream().filter(predicate).findFirst().ifPresent(message::set);
+                mockConnector.clearMessage();
+            });
+            if (message.get() == null) {
+                Thread.sleep(10L);
+            }
+        }
+        Assert.assertNotNull(message.get());
+        return message.get();
+    }
+
+    private void installSnapshotOfLeader(NodeImpl node, int lastIndex, byte[] data) {
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLastIndex(lastIndex);
+        rpc.setLastTerm(1);
+        rpc.setLastConfig(node.getContext().group().listEndpointOfMajor());
+        rpc.setData(data);
+        rpc.setDone(true);
+        node.getContext().log().installSnapshot(rpc);
+    }
+
+    private List<InstallSnapshotRpc> listInstallSnapshotRpcs(MockConnector mockConnector, NodeId destinationNodeId) {
+        return mockConnector.getMessages().stream()
+                .filter(m -> m.getRpc() instanceof InstallSnapshotRpc && destinationNodeId.equals(m.getDestinationNodeId()))
+                .map(m -> (InstallSnapshotRpc) m.getRpc())
+                .collect(Collectors.toList());
     }
 
     @Test
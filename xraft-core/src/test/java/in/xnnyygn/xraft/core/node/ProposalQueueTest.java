@@ -0,0 +1,56 @@
+package in.xnnyygn.xraft.core.node;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ProposalQueueTest {
+
+    @Test
+    public void testOffer() {
+        ProposalQueue queue = new ProposalQueue(2);
+        Assert.assertEquals(1, queue.offer(new Proposal("a".getBytes(), null)));
+        // drain scheduled
+        Assert.assertEquals(0, queue.offer(new Proposal("b".getBytes(), null)));
+        Assert.assertTrue(queue.isBatchFull());
+        Assert.assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testStartDrain() {
+        ProposalQueue queue = new ProposalQueue(2);
+        Assert.assertFalse(queue.startDrain());
+        Assert.assertEquals(1, queue.offer(new Proposal("a".getBytes(), null)));
+        Assert.assertEquals(0, queue.offer(new Proposal("b".getBytes(), null)));
+        // batch full, take over
+        Assert.assertTrue(queue.startDrain());
+        // linger expires
+        Assert.assertFalse(queue.startDrain(1));
+        Assert.assertEquals(2, queue.drain().size());
+        Assert.assertFalse(queue.onDrained());
+        Assert.assertEquals(2, queue.offer(new Proposal("c".getBytes(), null)));
+        // linger of previous drain expires
+        Assert.assertFalse(queue.startDrain(1));
+        Assert.assertTrue(queue.startDrain(2));
+    }
+
+    @Test
+    public void testDrain() {
+        ProposalQueue queue = new ProposalQueue(2);
+        queue.offer(new Proposal("a".getBytes(), null));
+        queue.offer(new Proposal("b".getBytes(), null));
+        queue.offer(new Proposal("c".getBytes(), null));
+        List<Proposal> proposals = queue.drain();
+        Assert.assertEquals(2, proposals.size());
+        Assert.assertArrayEquals("a".getBytes(), proposals.get(0).getCommand());
+        Assert.assertEquals(1, queue.size());
+        // proposals remain
+        Assert.assertTrue(queue.onDrained());
+        Assert.assertEquals(1, queue.drain().size());
+        Assert.assertFalse(queue.onDrained());
+        Assert.assertTrue(queue.drain().isEmpty());
+        Assert.assertEquals(2, queue.offer(new Proposal("d".getBytes(), null)));
+    }
+
+}
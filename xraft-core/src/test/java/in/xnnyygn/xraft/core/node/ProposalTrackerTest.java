@@ -0,0 +1,63 @@
+package in.xnnyygn.xraft.core.node;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class ProposalTrackerTest {
+
+    @Test
+    public void testOnApplied() throws ExecutionException, InterruptedException {
+        ProposalTracker tracker = new ProposalTracker();
+        CompletableFuture<ProposalResult> future1 = new CompletableFuture<>();
+        CompletableFuture<ProposalResult> future2 = new CompletableFuture<>();
+        tracker.add(2, 1, future1);
+        tracker.add(4, 1, future2);
+        tracker.onApplied(3);
+        Assert.assertEquals(2, future1.get().getIndex());
+        Assert.assertEquals(1, future1.get().getTerm());
+        Assert.assertFalse(future2.isDone());
+        Assert.assertEquals(1, tracker.size());
+        tracker.onApplied(4);
+        Assert.assertEquals(4, future2.get().getIndex());
+        Assert.assertEquals(0, tracker.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddIllegalIndex() {
+        ProposalTracker tracker = new ProposalTracker();
+        tracker.add(2, 1, new CompletableFuture<>());
+        tracker.add(2, 1, new CompletableFuture<>());
+    }
+
+    @Test
+    public void testGrow() throws ExecutionException, InterruptedException {
+        ProposalTracker tracker = new ProposalTracker();
+        CompletableFuture<ProposalResult> future = new CompletableFuture<>();
+        tracker.add(1, 1, new CompletableFuture<>());
+        tracker.onApplied(1);
+        // wrap around before grow
+        for (int i = 2; i <= 40; i++) {
+            tracker.add(i, 1, i == 30 ? future : new CompletableFuture<>());
+        }
+        Assert.assertEquals(39, tracker.size());
+        tracker.onApplied(30);
+        Assert.assertEquals(30, future.get().getIndex());
+        Assert.assertEquals(10, tracker.size());
+    }
+
+    @Test
+    public void testFailAll() {
+        ProposalTracker tracker = new ProposalTracker();
+        CompletableFuture<ProposalResult> future = new CompletableFuture<>();
+        tracker.add(1, 1, future);
+        tracker.failAll(new IllegalStateException());
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(0, tracker.size());
+        // applied after failure
+        tracker.onApplied(1);
+    }
+
+}
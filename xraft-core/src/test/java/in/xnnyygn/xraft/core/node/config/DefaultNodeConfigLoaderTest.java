@@ -1,6 +1,8 @@
 package in.xnnyygn.xraft.core.node.config;
 
+import in.xnnyygn.xraft.core.log.DurabilityMode;
 import in.xnnyygn.xraft.core.log.Log;
+import in.xnnyygn.xraft.core.support.SeekableFileType;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -39,4 +41,43 @@ public class DefaultNodeConfigLoaderTest {
         Assert.assertEquals(Log.ALL_ENTRIES, config.getMaxReplicationEntries());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLoadDurabilityMode() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        Properties p = new Properties();
+        p.setProperty("log.durability", "fsync-per-batch");
+        p.store(output, "");
+
+        DefaultNodeConfigLoader loader = new DefaultNodeConfigLoader();
+        NodeConfig config = loader.load(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals(DurabilityMode.FSYNC_PER_BATCH, config.getLogDurabilityMode());
+    }
+
+    @Test
+    public void testLoadFileType() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        Properties p = new Properties();
+        p.setProperty("file.type", "file-channel");
+        p.store(output, "");
+
+        DefaultNodeConfigLoader loader = new DefaultNodeConfigLoader();
+        NodeConfig config = loader.load(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals(SeekableFileType.FILE_CHANNEL, config.getFileType());
+    }
+
+    @Test
+    public void testLoadIllegalDurabilityMode() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        Properties p = new Properties();
+        p.setProperty("log.durability", "foo");
+        p.store(output, "");
+
+        DefaultNodeConfigLoader loader = new DefaultNodeConfigLoader();
+        NodeConfig config = loader.load(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals(DurabilityMode.NONE, config.getLogDurabilityMode());
+    }
+
+}
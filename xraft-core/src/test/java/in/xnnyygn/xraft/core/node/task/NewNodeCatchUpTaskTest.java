@@ -181,7 +181,7 @@ public class NewNodeCatchUpTaskTest {
         rpc.setData(new byte[0]);
         rpc.setDone(true);
         task.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(1),
+                new InstallSnapshotResult(1, 2, 0, true),
                 NodeId.of("D"),
                 rpc
         ), 3);
@@ -206,13 +206,13 @@ public class NewNodeCatchUpTaskTest {
         rpc.setLastIndex(2);
         rpc.setData(new byte[0]);
         task.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(1),
+                new InstallSnapshotResult(1, 2, 0, false),
                 NodeId.of("D"),
                 rpc
         ), 3);
         rpc.setDone(true);
         task.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(1),
+                new InstallSnapshotResult(1, 2, 0, true),
                 NodeId.of("D"),
                 rpc
         ), 3);
@@ -238,7 +238,7 @@ public class NewNodeCatchUpTaskTest {
         installSnapshotRpc.setData(new byte[0]);
         installSnapshotRpc.setDone(true);
         task.onReceiveInstallSnapshotResult(new InstallSnapshotResultMessage(
-                new InstallSnapshotResult(1),
+                new InstallSnapshotResult(1, 2, 0, true),
                 NodeId.of("D"),
                 installSnapshotRpc
         ), 4);
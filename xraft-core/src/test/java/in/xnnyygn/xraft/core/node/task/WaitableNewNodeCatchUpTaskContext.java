@@ -1,6 +1,7 @@
 package in.xnnyygn.xraft.core.node.task;
 
 import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotResultMessage;
 
 public class WaitableNewNodeCatchUpTaskContext implements NewNodeCatchUpTaskContext {
 
@@ -19,7 +20,7 @@ public class WaitableNewNodeCatchUpTaskContext implements NewNodeCatchUpTaskCont
     }
 
     @Override
-    public synchronized void sendInstallSnapshot(NodeEndpoint endpoint, int offset) {
+    public synchronized void sendInstallSnapshot(NodeEndpoint endpoint, InstallSnapshotResultMessage resultMessage) {
         replicated = true;
         notify();
     }
@@ -0,0 +1,80 @@
+package in.xnnyygn.xraft.core.rpc.nio;
+
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.rpc.message.InstallSnapshotRpc;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Collections;
+
+public class FileRegionEncoderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEncode() throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), "0123456789".getBytes());
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setTerm(2);
+        rpc.setLeaderId(NodeId.of("A"));
+        rpc.setLastIndex(3);
+        rpc.setLastTerm(1);
+        rpc.setLastConfig(Collections.singleton(new NodeEndpoint("A", "localhost", 2333)));
+        rpc.setOffset(0);
+        rpc.setDataFile(file, 2, 5);
+        rpc.setDone(false);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new FileRegionEncoder(), new Encoder());
+        Assert.assertTrue(channel.writeOutbound(rpc));
+        ByteBuf header = channel.readOutbound();
+        FileRegion region = channel.readOutbound();
+        Assert.assertEquals(5, region.count());
+
+        // bytes sent are decoded as normal rpc
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        region.transferTo(Channels.newChannel(output), 0);
+        region.release();
+        ByteBuf frame = Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(output.toByteArray()));
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new Decoder());
+        Assert.assertTrue(decoderChannel.writeInbound(frame));
+        InstallSnapshotRpc decodedRpc = decoderChannel.readInbound();
+        Assert.assertEquals(3, decodedRpc.getLastIndex());
+        Assert.assertEquals(1, decodedRpc.getLastConfig().size());
+        Assert.assertArrayEquals("23456".getBytes(), decodedRpc.getData());
+        Assert.assertFalse(decodedRpc.isDone());
+    }
+
+    @Test
+    public void testEncodeDataInMemory() {
+        InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+        rpc.setLeaderId(NodeId.of("A"));
+        rpc.setOffset(5);
+        rpc.setData("test".getBytes());
+        rpc.setDone(true);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new FileRegionEncoder(), new Encoder());
+        Assert.assertTrue(channel.writeOutbound(rpc));
+        ByteBuf frame = channel.readOutbound();
+        Assert.assertNull(channel.readOutbound());
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new Decoder());
+        Assert.assertTrue(decoderChannel.writeInbound(frame));
+        InstallSnapshotRpc decodedRpc = decoderChannel.readInbound();
+        Assert.assertEquals(5, decodedRpc.getOffset());
+        Assert.assertArrayEquals("test".getBytes(), decodedRpc.getData());
+    }
+
+}
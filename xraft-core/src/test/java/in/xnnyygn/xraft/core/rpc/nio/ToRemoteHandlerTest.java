@@ -0,0 +1,107 @@
+package in.xnnyygn.xraft.core.rpc.nio;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import in.xnnyygn.xraft.core.node.NodeId;
+import in.xnnyygn.xraft.core.node.config.NodeConfig;
+import in.xnnyygn.xraft.core.rpc.message.*;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ToRemoteHandlerTest {
+
+    private final List<Object> messages = new ArrayList<>();
+
+    @Subscribe
+    public void onMessage(Object message) {
+        messages.add(message);
+    }
+
+    private EmbeddedChannel newChannel(NodeConfig config) {
+        EventBus eventBus = new EventBus();
+        eventBus.register(this);
+        EmbeddedChannel channel = new EmbeddedChannel(new ToRemoteHandler(eventBus, NodeId.of("B"), NodeId.of("A"), config));
+        channel.readOutbound(); // self node id
+        return channel;
+    }
+
+    private AppendEntriesRpc createAppendEntriesRpc(String messageId) {
+        AppendEntriesRpc rpc = new AppendEntriesRpc();
+        rpc.setMessageId(messageId);
+        return rpc;
+    }
+
+    private AppendEntriesRpc getRpcOfLastResult() {
+        Assert.assertFalse(messages.isEmpty());
+        return ((AppendEntriesResultMessage) messages.get(messages.size() - 1)).getRpc();
+    }
+
+    @Test
+    public void testAppendEntriesResult() {
+        EmbeddedChannel channel = newChannel(new NodeConfig());
+        channel.writeOutbound(createAppendEntriesRpc("a"));
+        channel.writeOutbound(createAppendEntriesRpc("b"));
+        channel.writeOutbound(createAppendEntriesRpc("c"));
+        channel.writeInbound(new AppendEntriesResult("b", 1, true));
+        Assert.assertEquals("b", getRpcOfLastResult().getMessageId());
+        // rpcs sent before b are dropped
+        channel.writeInbound(new AppendEntriesResult("a", 1, true));
+        Assert.assertEquals(1, messages.size());
+        channel.writeInbound(new AppendEntriesResult("c", 1, true));
+        Assert.assertEquals("c", getRpcOfLastResult().getMessageId());
+    }
+
+    @Test
+    public void testAppendEntriesRpcsInFlightLimited() {
+        NodeConfig config = new NodeConfig();
+        config.setMaxReplicationRpcsInFlight(2);
+        EmbeddedChannel channel = newChannel(config);
+        channel.writeOutbound(createAppendEntriesRpc("a"));
+        channel.writeOutbound(createAppendEntriesRpc("b"));
+        channel.writeOutbound(createAppendEntriesRpc("c"));
+        // the oldest one dropped
+        channel.writeInbound(new AppendEntriesResult("a", 1, true));
+        Assert.assertTrue(messages.isEmpty());
+        channel.writeInbound(new AppendEntriesResult("b", 1, true));
+        Assert.assertEquals("b", getRpcOfLastResult().getMessageId());
+    }
+
+    @Test
+    public void testAppendEntriesRpcTimeout() {
+        NodeConfig config = new NodeConfig();
+        config.setLogReplicationReadTimeout(0);
+        EmbeddedChannel channel = newChannel(config);
+        channel.writeOutbound(createAppendEntriesRpc("a"));
+        // no result of a in read timeout
+        channel.writeOutbound(createAppendEntriesRpc("b"));
+        channel.writeInbound(new AppendEntriesResult("a", 1, true));
+        Assert.assertTrue(messages.isEmpty());
+        channel.writeInbound(new AppendEntriesResult("b", 1, true));
+        Assert.assertEquals("b", getRpcOfLastResult().getMessageId());
+    }
+
+    @Test
+    public void testInstallSnapshotRpcsInFlightLimited() {
+        NodeConfig config = new NodeConfig();
+        config.setSnapshotWindowSize(10);
+        config.setSnapshotDataLength(10);
+        EmbeddedChannel channel = newChannel(config);
+        for (int i = 0; i < 3; i++) {
+            InstallSnapshotRpc rpc = new InstallSnapshotRpc();
+            rpc.setOffset(i * 10);
+            channel.writeOutbound(rpc);
+        }
+        // window of 1 rpc, 2 rpcs kept at most
+        channel.writeInbound(new InstallSnapshotResult(1, 0, 20, false));
+        Assert.assertEquals(10, ((InstallSnapshotResultMessage) messages.get(0)).getRpc().getOffset());
+        channel.writeInbound(new InstallSnapshotResult(1, 0, 30, false));
+        Assert.assertEquals(20, ((InstallSnapshotResultMessage) messages.get(1)).getRpc().getOffset());
+        channel.writeInbound(new InstallSnapshotResult(1, 0, 30, false));
+        Assert.assertEquals(2, messages.size());
+    }
+
+}
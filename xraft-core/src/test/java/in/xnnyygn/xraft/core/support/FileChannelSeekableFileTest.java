@@ -0,0 +1,116 @@
+package in.xnnyygn.xraft.core.support;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class FileChannelSeekableFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = folder.newFile();
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(file, "rw", 16);
+        seekableFile.writeInt(1);
+        seekableFile.writeLong(2L);
+        seekableFile.write("foo".getBytes());
+        Assert.assertEquals(15L, seekableFile.size());
+        Assert.assertEquals(15L, seekableFile.position());
+        Assert.assertEquals(0L, file.length()); // buffered
+
+        seekableFile.seek(0L);
+        Assert.assertEquals(1, seekableFile.readInt());
+        Assert.assertEquals(2L, seekableFile.readLong());
+        byte[] buffer = new byte[3];
+        Assert.assertEquals(3, seekableFile.read(buffer));
+        Assert.assertArrayEquals("foo".getBytes(), buffer);
+        Assert.assertEquals(-1, seekableFile.read(buffer));
+        seekableFile.close();
+        Assert.assertEquals(15L, file.length());
+    }
+
+    @Test
+    public void testWriteLargerThanBuffer() throws IOException {
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(folder.newFile(), "rw", 16);
+        seekableFile.writeInt(1);
+        seekableFile.write(new byte[20]);
+        seekableFile.writeInt(2);
+        byte[] buffer = new byte[4];
+        Assert.assertEquals(4, seekableFile.read(24L, buffer, 0, 4));
+        seekableFile.seek(24L);
+        Assert.assertEquals(2, seekableFile.readInt());
+        seekableFile.seek(0L);
+        Assert.assertEquals(1, seekableFile.readInt());
+        seekableFile.close();
+    }
+
+    @Test
+    public void testOverwrite() throws IOException {
+        File file = folder.newFile();
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(file);
+        seekableFile.writeInt(1);
+        seekableFile.writeInt(2);
+        seekableFile.seek(0L);
+        seekableFile.writeInt(3);
+        seekableFile.flush();
+        Assert.assertEquals(8L, file.length());
+        seekableFile.seek(0L);
+        Assert.assertEquals(3, seekableFile.readInt());
+        Assert.assertEquals(2, seekableFile.readInt());
+        seekableFile.close();
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(folder.newFile());
+        seekableFile.truncate(8L);
+        Assert.assertEquals(8L, seekableFile.size());
+        Assert.assertEquals(0L, seekableFile.readLong());
+        seekableFile.truncate(4L);
+        Assert.assertEquals(4L, seekableFile.size());
+        Assert.assertEquals(4L, seekableFile.position());
+        seekableFile.close();
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadIntEndOfFile() throws IOException {
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(folder.newFile());
+        seekableFile.write(new byte[2]);
+        seekableFile.seek(0L);
+        seekableFile.readInt();
+    }
+
+    @Test
+    public void testInputStream() throws IOException {
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(folder.newFile());
+        seekableFile.write("foobar".getBytes());
+        try (InputStream input = seekableFile.inputStream(3L)) {
+            byte[] buffer = new byte[3];
+            Assert.assertEquals(3, input.read(buffer));
+            Assert.assertArrayEquals("bar".getBytes(), buffer);
+        }
+        seekableFile.close();
+    }
+
+    @Test
+    public void testOpenExisting() throws IOException {
+        File file = folder.newFile();
+        FileChannelSeekableFile seekableFile = new FileChannelSeekableFile(file);
+        seekableFile.writeInt(1);
+        seekableFile.close();
+
+        seekableFile = new FileChannelSeekableFile(file, "r");
+        Assert.assertEquals(4L, seekableFile.size());
+        Assert.assertEquals(1, seekableFile.readInt());
+        seekableFile.close();
+    }
+
+}
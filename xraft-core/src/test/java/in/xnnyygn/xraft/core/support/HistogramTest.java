@@ -0,0 +1,40 @@
+package in.xnnyygn.xraft.core.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testRecord() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(5);
+        histogram.record(7);
+        Assert.assertEquals(4, histogram.getCount());
+        Assert.assertEquals(13, histogram.getSum());
+        Assert.assertEquals(1, histogram.getBucketCount(0));
+        Assert.assertEquals(1, histogram.getBucketCount(1));
+        Assert.assertEquals(2, histogram.getBucketCount(3));
+    }
+
+    @Test
+    public void testGetPercentile() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getPercentile(0.5));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10);
+        }
+        histogram.record(1000);
+        Assert.assertEquals(15, histogram.getPercentile(0.5));
+        Assert.assertEquals(15, histogram.getPercentile(0.99));
+        Assert.assertEquals(1023, histogram.getPercentile(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordNegative() {
+        new Histogram().record(-1);
+    }
+
+}
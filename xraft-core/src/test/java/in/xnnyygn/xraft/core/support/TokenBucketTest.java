@@ -0,0 +1,40 @@
+package in.xnnyygn.xraft.core.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void testAcquire() {
+        TokenBucket bucket = new TokenBucket(100, 100, 0);
+        Assert.assertEquals(0, bucket.getWaitTime(60, 0));
+        bucket.consume(60);
+        // 20 more tokens needed
+        Assert.assertEquals(SECOND / 5, bucket.getWaitTime(60, 0));
+        Assert.assertEquals(0, bucket.getWaitTime(60, SECOND / 5));
+        bucket.consume(60);
+        // capacity is not exceeded
+        Assert.assertEquals(0, bucket.getWaitTime(100, 10 * SECOND));
+        bucket.consume(100);
+        Assert.assertEquals(SECOND, bucket.getWaitTime(100, 10 * SECOND));
+    }
+
+    @Test
+    public void testAcquireLargerThanCapacity() {
+        TokenBucket bucket = new TokenBucket(100, 100, 0);
+        Assert.assertEquals(0, bucket.getWaitTime(300, 0));
+        bucket.consume(300);
+        Assert.assertEquals(3 * SECOND, bucket.getWaitTime(300, 0));
+    }
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0, 1, 0);
+        bucket.consume(100);
+        Assert.assertEquals(0, bucket.getWaitTime(100, 0));
+    }
+
+}
@@ -4,39 +4,39 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import in.xnnyygn.xraft.kvstore.Protos;
 
-import java.util.UUID;
+import java.nio.ByteBuffer;
 
 public class SetCommand {
 
-    private final String requestId;
     private final String key;
     private final byte[] value;
 
     public SetCommand(String key, byte[] value) {
-        this(UUID.randomUUID().toString(), key, value);
-    }
-
-    public SetCommand(String requestId, String key, byte[] value) {
-        this.requestId = requestId;
         this.key = key;
         this.value = value;
     }
 
     public static SetCommand fromBytes(byte[] bytes) {
         try {
-            Protos.SetCommand protoCommand = Protos.SetCommand.parseFrom(bytes);
-            return new SetCommand(
-                    protoCommand.getRequestId(),
-                    protoCommand.getKey(),
-                    protoCommand.getValue().toByteArray()
-            );
+            return fromProto(Protos.SetCommand.parseFrom(bytes));
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("failed to deserialize set command", e);
+        }
+    }
+
+    public static SetCommand fromBuffer(ByteBuffer buffer) {
+        try {
+            return fromProto(Protos.SetCommand.parseFrom(buffer.duplicate()));
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException("failed to deserialize set command", e);
         }
     }
 
-    public String getRequestId() {
-        return requestId;
+    private static SetCommand fromProto(Protos.SetCommand protoCommand) {
+        return new SetCommand(
+                protoCommand.getKey(),
+                protoCommand.getValue().toByteArray()
+        );
     }
 
     public String getKey() {
@@ -49,7 +49,6 @@ public class SetCommand {
 
     public byte[] toBytes() {
         return Protos.SetCommand.newBuilder()
-                .setRequestId(this.requestId)
                 .setKey(this.key)
                 .setValue(ByteString.copyFrom(this.value)).build().toByteArray();
     }
@@ -58,7 +57,6 @@ public class SetCommand {
     public String toString() {
         return "SetCommand{" +
                 "key='" + key + '\'' +
-                ", requestId='" + requestId + '\'' +
                 '}';
     }
 
@@ -2,8 +2,12 @@ package in.xnnyygn.xraft.kvstore.server;
 
 import com.google.protobuf.ByteString;
 import in.xnnyygn.xraft.core.log.statemachine.AbstractSingleThreadStateMachine;
+import in.xnnyygn.xraft.core.log.statemachine.SnapshotSource;
 import in.xnnyygn.xraft.core.node.task.GroupConfigChangeTaskReference;
 import in.xnnyygn.xraft.core.node.Node;
+import in.xnnyygn.xraft.core.node.NodeEndpoint;
+import in.xnnyygn.xraft.core.node.NotLeaderException;
+import in.xnnyygn.xraft.core.node.ProposalResult;
 import in.xnnyygn.xraft.core.node.role.RoleName;
 import in.xnnyygn.xraft.core.node.role.RoleNameAndLeaderId;
 import in.xnnyygn.xraft.core.service.AddNodeCommand;
@@ -17,18 +21,19 @@ import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 public class Service {
 
     private static final Logger logger = LoggerFactory.getLogger(Service.class);
     private final Node node;
-    private final ConcurrentMap<String, CommandRequest<?>> pendingCommands = new ConcurrentHashMap<>();
-    private Map<String, byte[]> map = new HashMap<>();
+    private volatile Map<String, byte[]> map = new HashMap<>();
+    // map is shared with frozen snapshot source and copied before next write, state machine thread only
+    private boolean mapFrozen = false;
 
     public Service(Node node) {
         this.node = node;
@@ -87,9 +92,28 @@ public class Service {
 
         SetCommand command = commandRequest.getCommand();
         logger.debug("set {}", command.getKey());
-        this.pendingCommands.put(command.getRequestId(), commandRequest);
-        commandRequest.addCloseListener(() -> pendingCommands.remove(command.getRequestId()));
-        this.node.appendLog(command.toBytes());
+        CompletableFuture<ProposalResult> future;
+        try {
+            future = this.node.propose(command.toBytes());
+        } catch (NotLeaderException e) {
+            commandRequest.reply(toRedirect(e));
+            return;
+        }
+        future.whenComplete((result, cause) -> {
+            if (cause == null) {
+                commandRequest.reply(Success.INSTANCE);
+            } else if (cause instanceof NotLeaderException) {
+                commandRequest.reply(toRedirect((NotLeaderException) cause));
+            } else {
+                logger.warn("failed to set {}, {}", command.getKey(), cause.getMessage());
+                commandRequest.reply(new Failure(100, "error"));
+            }
+        });
+    }
+
+    private Redirect toRedirect(NotLeaderException e) {
+        NodeEndpoint leaderEndpoint = e.getLeaderEndpoint();
+        return new Redirect(leaderEndpoint != null ? leaderEndpoint.getId() : null);
     }
 
     public void get(CommandRequest<GetCommand> commandRequest) {
@@ -132,14 +156,22 @@ public class Service {
 
     private class StateMachineImpl extends AbstractSingleThreadStateMachine {
 
+        @Override
+        protected void applyCommand(@Nonnull ByteBuffer commandBuffer) {
+            applySetCommand(SetCommand.fromBuffer(commandBuffer));
+        }
+
         @Override
         protected void applyCommand(@Nonnull byte[] commandBytes) {
-            SetCommand command = SetCommand.fromBytes(commandBytes);
-            map.put(command.getKey(), command.getValue());
-            CommandRequest<?> commandRequest = pendingCommands.remove(command.getRequestId());
-            if (commandRequest != null) {
-                commandRequest.reply(Success.INSTANCE);
+            applySetCommand(SetCommand.fromBytes(commandBytes));
+        }
+
+        private void applySetCommand(SetCommand command) {
+            if (mapFrozen) {
+                map = new HashMap<>(map);
+                mapFrozen = false;
             }
+            map.put(command.getKey(), command.getValue());
         }
 
         @Override
@@ -157,6 +189,13 @@ public class Service {
             toSnapshot(map, output);
         }
 
+        @Override
+        public SnapshotSource freezeSnapshot() {
+            Map<String, byte[]> frozenMap = map;
+            mapFrozen = true;
+            return output -> toSnapshot(frozenMap, output);
+        }
+
     }
 
 }
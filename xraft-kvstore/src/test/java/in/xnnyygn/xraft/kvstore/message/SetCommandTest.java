@@ -3,6 +3,7 @@ package in.xnnyygn.xraft.kvstore.message;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 public class SetCommandTest {
@@ -16,4 +17,12 @@ public class SetCommandTest {
         Assert.assertArrayEquals(command.getValue(), command2.getValue());
     }
 
+    @Test
+    public void testFromBuffer() {
+        SetCommand command = new SetCommand("x", "1".getBytes());
+        SetCommand command2 = SetCommand.fromBuffer(ByteBuffer.wrap(command.toBytes()).asReadOnlyBuffer());
+        Assert.assertEquals(command.getKey(), command2.getKey());
+        Assert.assertArrayEquals(command.getValue(), command2.getValue());
+    }
+
 }
\ No newline at end of file